@@ -0,0 +1,78 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.openmetromaps.maps.CoordinateConversionType;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.ModelUtil;
+import org.openmetromaps.maps.xml.DesktopXmlModelReader;
+import org.openmetromaps.maps.xml.XmlModel;
+import org.openmetromaps.maps.xml.XmlModelConverter;
+
+import de.topobyte.xml.domabstraction.iface.ParsingException;
+
+/**
+ * Access to the model files used as benchmark input. Fixtures are paths to
+ * model files, relative to the directory the benchmarks are run from, which
+ * is the root of the repository for the defaults in 'example-data'. Other
+ * models can be benchmarked by passing e.g. '-p model=/path/to/model.xml' to
+ * JMH.
+ */
+public class Fixtures
+{
+
+	public static byte[] load(String fixture) throws IOException
+	{
+		Path path = Paths.get(fixture);
+		if (!Files.exists(path)) {
+			throw new IOException("No such model file: "
+					+ path.toAbsolutePath()
+					+ ", run the benchmarks from the root of the repository");
+		}
+		return Files.readAllBytes(path);
+	}
+
+	public static XmlModel readXml(byte[] bytes) throws ParsingException
+	{
+		return DesktopXmlModelReader.read(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Convert a parsed model and create a view for it if it has none, as the
+	 * viewer does.
+	 */
+	public static MapModel convert(XmlModel xmlModel)
+	{
+		MapModel model = new XmlModelConverter().convert(xmlModel);
+		ModelUtil.ensureView(model, CoordinateConversionType.WGS84);
+		return model;
+	}
+
+	public static MapModel readModel(String fixture)
+			throws IOException, ParsingException
+	{
+		return convert(readXml(load(fixture)));
+	}
+
+}
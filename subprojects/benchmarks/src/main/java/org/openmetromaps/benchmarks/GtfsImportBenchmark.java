@@ -0,0 +1,183 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmetromaps.gtfs.DraftModel;
+import org.openmetromaps.gtfs.GtfsImporter;
+import org.openmetromaps.misc.NameChanger;
+
+/**
+ * Importing a synthetic GTFS feed. The feed consists of a number of routes
+ * whose stops overlap with the neighboring routes, each served by trips in
+ * both directions, some of which end a few stops early.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GtfsImportBenchmark
+{
+
+	@Param({ "20" })
+	public int routes;
+
+	@Param({ "30" })
+	public int stopsPerRoute;
+
+	@Param({ "200" })
+	public int tripsPerRoute;
+
+	private Path feed;
+	private NameChanger nameChanger;
+	private PrintStream out;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		feed = Files.createTempFile("benchmark", ".zip");
+		writeFeed(feed);
+		nameChanger = new NameChanger(new ArrayList<>(), new ArrayList<>());
+
+		// the importer reports its progress on stdout, don't measure that
+		out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		System.setOut(out);
+		Files.deleteIfExists(feed);
+	}
+
+	@Benchmark
+	public DraftModel execute() throws IOException
+	{
+		GtfsImporter importer = new GtfsImporter(feed, nameChanger, false);
+		importer.execute();
+		return importer.getModel();
+	}
+
+	private void writeFeed(Path path) throws IOException
+	{
+		int numStations = Math.max(stopsPerRoute,
+				routes * stopsPerRoute / 2);
+
+		try (ZipOutputStream zip = new ZipOutputStream(
+				Files.newOutputStream(path))) {
+			StringWriter buffer = new StringWriter();
+			PrintWriter w = new PrintWriter(buffer);
+			w.println(
+					"agency_name,agency_url,agency_timezone,agency_lang,agency_phone");
+			w.println(
+					"Benchmark Transit,http://www.example.com,Europe/Berlin,en,0");
+			entry(zip, "agency.txt", buffer);
+
+			buffer = new StringWriter();
+			w = new PrintWriter(buffer);
+			w.println("stop_id,stop_name,stop_lat,stop_lon");
+			for (int i = 0; i < numStations; i++) {
+				w.println(String.format(Locale.US, "%d,Station %d,%.6f,%.6f",
+						i, i, 52.4 + i * 0.001, 13.3 + (i % 17) * 0.002));
+			}
+			entry(zip, "stops.txt", buffer);
+
+			buffer = new StringWriter();
+			w = new PrintWriter(buffer);
+			w.println(
+					"route_id,route_short_name,route_long_name,route_type,route_color");
+			for (int r = 0; r < routes; r++) {
+				w.println(String.format("R%d,L%d,Line %d,1,%06X", r, r, r,
+						(r * 0x3F1D27) & 0xFFFFFF));
+			}
+			entry(zip, "routes.txt", buffer);
+
+			buffer = new StringWriter();
+			w = new PrintWriter(buffer);
+			w.println("route_id,service_id,trip_id");
+			for (int r = 0; r < routes; r++) {
+				for (int t = 0; t < tripsPerRoute; t++) {
+					w.println(String.format("R%d,1,T%d_%d", r, r, t));
+				}
+			}
+			entry(zip, "trips.txt", buffer);
+
+			buffer = new StringWriter();
+			w = new PrintWriter(buffer);
+			w.println(
+					"trip_id,arrival_time,departure_time,stop_id,stop_sequence");
+			for (int r = 0; r < routes; r++) {
+				List<Integer> stops = new ArrayList<>();
+				for (int k = 0; k < stopsPerRoute; k++) {
+					stops.add((r * stopsPerRoute / 2 + k) % numStations);
+				}
+				for (int t = 0; t < tripsPerRoute; t++) {
+					int n = t % 4 == 3 ? stopsPerRoute - 3 : stopsPerRoute;
+					for (int k = 0; k < n; k++) {
+						int stop = t % 2 == 0 ? stops.get(k)
+								: stops.get(stopsPerRoute - 1 - k);
+						int minutes = 6 * 60 + t * 5 + k * 2;
+						String time = String.format("%02d:%02d:00",
+								minutes / 60, minutes % 60);
+						w.println(String.format("T%d_%d,%s,%s,%d,%d", r, t,
+								time, time, stop, k + 1));
+					}
+				}
+			}
+			entry(zip, "stop_times.txt", buffer);
+		}
+	}
+
+	private static void entry(ZipOutputStream zip, String name,
+			StringWriter content) throws IOException
+	{
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(content.toString().getBytes(StandardCharsets.UTF_8));
+		zip.closeEntry();
+	}
+
+}
@@ -0,0 +1,90 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkBuilder;
+import org.openmetromaps.maps.graph.LineNetworkCloner;
+import org.openmetromaps.maps.graph.LineNetworkUtil;
+
+/**
+ * Building line networks from the model data, calculating the neighbor
+ * locations of all edges and cloning an existing network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineNetworkBenchmark
+{
+
+	@Param({ "example-data/berlin.xml", "example-data/wien.xml",
+			"example-data/budapest.xml" })
+	public String model;
+
+	private MapModel mapModel;
+	private MapView view;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		mapModel = Fixtures.readModel(model);
+		view = mapModel.getViews().get(0);
+	}
+
+	@Benchmark
+	public LineNetwork build()
+	{
+		LineNetworkBuilder builder = new LineNetworkBuilder(mapModel.getData(),
+				view.getEdges());
+		return builder.getGraph();
+	}
+
+	@Benchmark
+	public LineNetwork neighborLocations()
+	{
+		LineNetwork lineNetwork = view.getLineNetwork();
+		LineNetworkUtil.calculateAllNeighborLocations(lineNetwork);
+		return lineNetwork;
+	}
+
+	@Benchmark
+	public LineNetwork cloneNetwork()
+	{
+		LineNetworkCloner cloner = new LineNetworkCloner(view.getLineNetwork());
+		return cloner.cloneLineNetwork();
+	}
+
+}
@@ -0,0 +1,101 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.binary.BinaryModelReader;
+import org.openmetromaps.maps.binary.BinaryModelWriter;
+import org.openmetromaps.maps.xml.DesktopXmlModelReader;
+import org.openmetromaps.maps.xml.XmlModel;
+import org.openmetromaps.maps.xml.XmlModelConverter;
+
+/**
+ * Reading models: parsing XML with the streaming and the DOM based reader,
+ * converting the parsed XML model to a {@link MapModel} and reading the same
+ * model from the binary format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelReadingBenchmark
+{
+
+	@Param({ "example-data/berlin.xml", "example-data/wien.xml",
+			"example-data/budapest.xml" })
+	public String model;
+
+	private byte[] xml;
+	private byte[] binary;
+	private XmlModel xmlModel;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		xml = Fixtures.load(model);
+		xmlModel = Fixtures.readXml(xml);
+
+		MapModel mapModel = Fixtures.convert(xmlModel);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new BinaryModelWriter().write(baos, mapModel);
+		binary = baos.toByteArray();
+	}
+
+	@Benchmark
+	public XmlModel readXml() throws Exception
+	{
+		return DesktopXmlModelReader.read(new ByteArrayInputStream(xml));
+	}
+
+	@Benchmark
+	public XmlModel readXmlDom() throws Exception
+	{
+		return DesktopXmlModelReader.readDom(new ByteArrayInputStream(xml));
+	}
+
+	@Benchmark
+	public MapModel convert()
+	{
+		return new XmlModelConverter().convert(xmlModel);
+	}
+
+	@Benchmark
+	public MapModel readBinary() throws Exception
+	{
+		return BinaryModelReader.read(ByteBuffer.wrap(binary));
+	}
+
+}
@@ -0,0 +1,120 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.PlanRenderer.SegmentMode;
+import org.openmetromaps.maps.PlanRenderer.StationMode;
+import org.openmetromaps.maps.image.ImageView;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.core.GenericPaintFactory;
+
+import de.topobyte.viewports.geometry.Rectangle;
+
+/**
+ * Painting the first view of a model into an offscreen image, the same way
+ * the PNG export does, for each combination of station and segment mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderingBenchmark
+{
+
+	@Param({ "example-data/berlin.xml", "example-data/wien.xml",
+			"example-data/budapest.xml" })
+	public String model;
+
+	@Param
+	public StationMode stationMode;
+
+	@Param
+	public SegmentMode segmentMode;
+
+	@Param({ "1" })
+	public double zoom;
+
+	private PlanRenderer planRenderer;
+	private BufferedImage image;
+	private Graphics2D g;
+	private AwtPainter painter;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		MapModel mapModel = Fixtures.readModel(model);
+		MapView view = mapModel.getViews().get(0);
+
+		Rectangle scene = view.getConfig().getScene();
+		int width = (int) Math.ceil(scene.getWidth() * zoom);
+		int height = (int) Math.ceil(scene.getHeight() * zoom);
+
+		ImageView imageView = new ImageView(scene, width, height);
+		imageView.setZoom(zoom);
+
+		planRenderer = new PlanRenderer(view.getLineNetwork(),
+				new MapViewStatus(), stationMode, segmentMode, imageView,
+				imageView, 1, new GenericPaintFactory());
+
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		painter = new AwtPainter(g);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		g.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage paint()
+	{
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		planRenderer.paint(painter);
+		return image;
+	}
+
+}
@@ -19,6 +19,7 @@ package org.openmetromaps.cli;
 
 import org.openmetromaps.cli.export.RunExportBatik;
 import org.openmetromaps.cli.export.RunExportPng;
+import org.openmetromaps.cli.export.RunExportTiles;
 import org.openmetromaps.cli.graphml.RunGraphMLImport;
 import org.openmetromaps.cli.gtfs.RunGtfsImport;
 import org.openmetromaps.cli.maps.RunMapEditor;
@@ -35,12 +36,14 @@ import org.openmetromaps.cli.osm.RunOsmDownloadOverpass;
 import org.openmetromaps.cli.osm.RunOsmImportFile;
 import org.openmetromaps.cli.osm.RunOsmImportOverpass;
 import org.openmetromaps.cli.startup.RunUiSelector;
+import org.openmetromaps.cli.util.RunConvertModel;
 import org.openmetromaps.cli.util.RunFindCloseStations;
 import org.openmetromaps.cli.util.RunListChangeStations;
 import org.openmetromaps.cli.util.RunListLinesWithChangeStations;
 import org.openmetromaps.cli.util.RunListStations;
 import org.openmetromaps.cli.util.RunModelInfo;
 import org.openmetromaps.cli.util.RunPurgeStations;
+import org.openmetromaps.cli.util.RunRenderStatistics;
 
 import de.topobyte.utilities.apache.commons.cli.commands.ArgumentParser;
 import de.topobyte.utilities.apache.commons.cli.commands.ExeRunner;
@@ -132,6 +135,11 @@ public class OpenMetroMapsCli
 			options.addCommand("find-close-stations",
 					RunFindCloseStations.OPTIONS_FACTORY,
 					RunFindCloseStations.class);
+			options.addCommand("convert", RunConvertModel.OPTIONS_FACTORY,
+					RunConvertModel.class);
+			options.addCommand("render-statistics",
+					RunRenderStatistics.OPTIONS_FACTORY,
+					RunRenderStatistics.class);
 			return options;
 		}
 
@@ -147,6 +155,8 @@ public class OpenMetroMapsCli
 					RunExportPng.class);
 			options.addCommand("svg", RunExportBatik.OPTIONS_FACTORY,
 					RunExportBatik.class);
+			options.addCommand("tiles", RunExportTiles.OPTIONS_FACTORY,
+					RunExportTiles.class);
 			return options;
 		}
 
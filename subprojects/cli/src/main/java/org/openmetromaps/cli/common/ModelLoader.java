@@ -0,0 +1,55 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.cli.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.binary.BinaryModelReader;
+import org.openmetromaps.maps.xml.DesktopXmlModelReader;
+import org.openmetromaps.maps.xml.XmlModel;
+import org.openmetromaps.maps.xml.XmlModelConverter;
+
+import de.topobyte.xml.domabstraction.iface.ParsingException;
+
+/**
+ * Loads models from files in either the XML or the binary format, depending
+ * on the content of the file.
+ */
+public class ModelLoader
+{
+
+	public static MapModel load(Path path)
+			throws IOException, ParsingException
+	{
+		if (BinaryModelReader.isBinaryModel(path)) {
+			return BinaryModelReader.read(path);
+		}
+
+		try (InputStream input = Files.newInputStream(path)) {
+			XmlModel xmlModel = DesktopXmlModelReader.read(input);
+
+			XmlModelConverter modelConverter = new XmlModelConverter();
+			return modelConverter.convert(xmlModel);
+		}
+	}
+
+}
@@ -18,21 +18,17 @@
 package org.openmetromaps.cli.export;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
 import org.openmetromaps.cli.common.CommonOptions;
+import org.openmetromaps.cli.common.ModelLoader;
 import org.openmetromaps.cli.common.RenderingConfig;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.MapView;
 import org.openmetromaps.maps.batik.BatikImageUtil;
-import org.openmetromaps.maps.xml.DesktopXmlModelReader;
-import org.openmetromaps.maps.xml.XmlModel;
-import org.openmetromaps.maps.xml.XmlModelConverter;
 
 import de.topobyte.utilities.apache.commons.cli.OptionHelper;
 import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
@@ -96,12 +92,7 @@ public class RunExportBatik
 			System.exit(1);
 		}
 
-		InputStream input = Files.newInputStream(pathInput);
-
-		XmlModel xmlModel = DesktopXmlModelReader.read(input);
-
-		XmlModelConverter modelConverter = new XmlModelConverter();
-		MapModel model = modelConverter.convert(xmlModel);
+		MapModel model = ModelLoader.load(pathInput);
 
 		execute(model, renderingConfig, pathOutput, zoom);
 	}
@@ -18,21 +18,17 @@
 package org.openmetromaps.cli.export;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
 import org.openmetromaps.cli.common.CommonOptions;
+import org.openmetromaps.cli.common.ModelLoader;
 import org.openmetromaps.cli.common.RenderingConfig;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.MapView;
 import org.openmetromaps.maps.image.ImageUtil;
-import org.openmetromaps.maps.xml.DesktopXmlModelReader;
-import org.openmetromaps.maps.xml.XmlModel;
-import org.openmetromaps.maps.xml.XmlModelConverter;
 
 import de.topobyte.utilities.apache.commons.cli.OptionHelper;
 import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
@@ -42,6 +38,7 @@ import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptionsFacto
 import de.topobyte.utilities.apache.commons.cli.parsing.ArgumentHelper;
 import de.topobyte.utilities.apache.commons.cli.parsing.ArgumentParseException;
 import de.topobyte.utilities.apache.commons.cli.parsing.DoubleOption;
+import de.topobyte.utilities.apache.commons.cli.parsing.IntegerOption;
 import de.topobyte.viewports.geometry.Rectangle;
 
 public class RunExportPng
@@ -50,6 +47,8 @@ public class RunExportPng
 	private static final String OPTION_INPUT = "input";
 	private static final String OPTION_OUTPUT = "output";
 	private static final String OPTION_ZOOM = "zoom";
+	private static final String OPTION_TILE_SIZE = "tile-size";
+	private static final String OPTION_THREADS = "threads";
 
 	public static ExeOptionsFactory OPTIONS_FACTORY = new ExeOptionsFactory() {
 
@@ -61,6 +60,8 @@ public class RunExportPng
 			OptionHelper.addL(options, OPTION_INPUT, true, true, "file", "an OpenMetroMaps model file");
 			OptionHelper.addL(options, OPTION_OUTPUT, true, true, "file", "an output image file");
 			OptionHelper.addL(options, OPTION_ZOOM, true, false, "double", "zoom level to use");
+			OptionHelper.addL(options, OPTION_TILE_SIZE, true, false, "int", "render in tiles of this size to limit memory usage");
+			OptionHelper.addL(options, OPTION_THREADS, true, false, "int", "number of threads for tiled rendering (default: number of processors)");
 			// @formatter:on
 			CommonOptions.addRenderingOptions(options);
 			return new CommonsCliExeOptions(options, "[options]");
@@ -84,6 +85,20 @@ public class RunExportPng
 			zoom = argZoom.getValue();
 		}
 
+		int tileSize = 0;
+		IntegerOption argTileSize = ArgumentHelper.getInteger(line,
+				OPTION_TILE_SIZE);
+		if (argTileSize.hasValue()) {
+			tileSize = argTileSize.getValue();
+		}
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		IntegerOption argThreads = ArgumentHelper.getInteger(line,
+				OPTION_THREADS);
+		if (argThreads.hasValue()) {
+			threads = argThreads.getValue();
+		}
+
 		System.out.println("Input: " + pathInput);
 		System.out.println("Output: " + pathOutput);
 		System.out.println("Zoom: " + zoom);
@@ -96,18 +111,14 @@ public class RunExportPng
 			System.exit(1);
 		}
 
-		InputStream input = Files.newInputStream(pathInput);
+		MapModel model = ModelLoader.load(pathInput);
 
-		XmlModel xmlModel = DesktopXmlModelReader.read(input);
-
-		XmlModelConverter modelConverter = new XmlModelConverter();
-		MapModel model = modelConverter.convert(xmlModel);
-
-		execute(model, renderingConfig, pathOutput, zoom);
+		execute(model, renderingConfig, pathOutput, zoom, tileSize, threads);
 	}
 
 	private static void execute(MapModel model, RenderingConfig renderingConfig,
-			Path pathOutput, double zoom) throws IOException
+			Path pathOutput, double zoom, int tileSize, int threads)
+			throws IOException
 	{
 		MapView view = model.getViews().get(0);
 		Rectangle scene = view.getConfig().getScene();
@@ -121,9 +132,16 @@ public class RunExportPng
 		int imageWidth = (int) Math.ceil(width * zoom);
 		int imageHeight = (int) Math.ceil(height * zoom);
 
-		ImageUtil.createPng(model, pathOutput, imageWidth, imageHeight, x, y,
-				zoom, renderingConfig.getStationMode(),
-				renderingConfig.getSegmentMode());
+		if (tileSize > 0) {
+			ImageUtil.createTiledPng(model, pathOutput, imageWidth,
+					imageHeight, x, y, zoom, renderingConfig.getStationMode(),
+					renderingConfig.getSegmentMode(), tileSize,
+					Math.max(1, threads));
+		} else {
+			ImageUtil.createPng(model, pathOutput, imageWidth, imageHeight, x,
+					y, zoom, renderingConfig.getStationMode(),
+					renderingConfig.getSegmentMode());
+		}
 	}
 
 }
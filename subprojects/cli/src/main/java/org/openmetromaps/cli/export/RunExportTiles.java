@@ -0,0 +1,139 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.cli.export;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.openmetromaps.cli.common.CommonOptions;
+import org.openmetromaps.cli.common.ModelLoader;
+import org.openmetromaps.cli.common.RenderingConfig;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.image.TilePyramidRenderer;
+
+import de.topobyte.utilities.apache.commons.cli.OptionHelper;
+import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
+import de.topobyte.utilities.apache.commons.cli.commands.options.CommonsCliExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptionsFactory;
+import de.topobyte.utilities.apache.commons.cli.parsing.ArgumentHelper;
+import de.topobyte.utilities.apache.commons.cli.parsing.ArgumentParseException;
+import de.topobyte.utilities.apache.commons.cli.parsing.IntegerOption;
+
+public class RunExportTiles
+{
+
+	private static final String OPTION_INPUT = "input";
+	private static final String OPTION_OUTPUT = "output";
+	private static final String OPTION_MIN_ZOOM = "min-zoom";
+	private static final String OPTION_MAX_ZOOM = "max-zoom";
+	private static final String OPTION_TILE_SIZE = "tile-size";
+	private static final String OPTION_THREADS = "threads";
+	private static final String OPTION_FORCE = "force";
+
+	public static ExeOptionsFactory OPTIONS_FACTORY = new ExeOptionsFactory() {
+
+		@Override
+		public ExeOptions createOptions()
+		{
+			Options options = new Options();
+			// @formatter:off
+			OptionHelper.addL(options, OPTION_INPUT, true, true, "file", "an OpenMetroMaps model file");
+			OptionHelper.addL(options, OPTION_OUTPUT, true, true, "directory", "a directory to store z/x/y.png tiles in");
+			OptionHelper.addL(options, OPTION_MIN_ZOOM, true, false, "int", "lowest zoom level to render (default: 0)");
+			OptionHelper.addL(options, OPTION_MAX_ZOOM, true, false, "int", "highest zoom level to render (default: 4)");
+			OptionHelper.addL(options, OPTION_TILE_SIZE, true, false, "int", "size of tiles in pixels (default: 256)");
+			OptionHelper.addL(options, OPTION_THREADS, true, false, "int", "number of threads (default: number of processors)");
+			OptionHelper.addL(options, OPTION_FORCE, false, false, "render all tiles, even if unchanged since the last run");
+			// @formatter:on
+			CommonOptions.addRenderingOptions(options);
+			return new CommonsCliExeOptions(options, "[options]");
+		}
+
+	};
+
+	public static void main(String name, CommonsCliArguments arguments)
+			throws Exception
+	{
+		CommandLine line = arguments.getLine();
+
+		String argInput = line.getOptionValue(OPTION_INPUT);
+		String argOutput = line.getOptionValue(OPTION_OUTPUT);
+		Path pathInput = Paths.get(argInput);
+		Path pathOutput = Paths.get(argOutput);
+
+		int minZoom = getInteger(line, OPTION_MIN_ZOOM, 0);
+		int maxZoom = getInteger(line, OPTION_MAX_ZOOM, 4);
+		int tileSize = getInteger(line, OPTION_TILE_SIZE, 256);
+		int threads = getInteger(line, OPTION_THREADS,
+				Runtime.getRuntime().availableProcessors());
+		boolean force = line.hasOption(OPTION_FORCE);
+
+		if (tileSize <= 0) {
+			System.out.println("Invalid tile size: " + tileSize);
+			System.exit(1);
+		}
+		// the whole level has to fit into an int in pixels
+		int maxLevel = TilePyramidRenderer.getMaxLevel(tileSize);
+		if (minZoom < 0 || maxZoom > maxLevel || minZoom > maxZoom) {
+			System.out.println(String.format(
+					"Invalid zoom levels, please choose 0 <= %s <= %s <= %d",
+					OPTION_MIN_ZOOM, OPTION_MAX_ZOOM, maxLevel));
+			System.exit(1);
+		}
+
+		System.out.println("Input: " + pathInput);
+		System.out.println("Output: " + pathOutput);
+		System.out.println("Zoom levels: " + minZoom + " - " + maxZoom);
+
+		RenderingConfig renderingConfig = null;
+		try {
+			renderingConfig = CommonOptions.parseRenderingOptions(line);
+		} catch (ArgumentParseException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+
+		MapModel model = ModelLoader.load(pathInput);
+		MapView view = model.getViews().get(0);
+
+		TilePyramidRenderer renderer = new TilePyramidRenderer(view,
+				renderingConfig.getStationMode(),
+				renderingConfig.getSegmentMode(), tileSize,
+				Math.max(1, threads));
+		renderer.render(pathOutput, minZoom, maxZoom, !force);
+
+		System.out.println("Rendered tiles: " + renderer.getNumRendered());
+		System.out.println("Unchanged tiles: " + renderer.getNumUnchanged());
+		System.out.println("Empty tiles: " + renderer.getNumEmpty());
+	}
+
+	private static int getInteger(CommandLine line, String option,
+			int defaultValue)
+	{
+		IntegerOption value = ArgumentHelper.getInteger(line, option);
+		if (value.hasValue()) {
+			return value.getValue();
+		}
+		return defaultValue;
+	}
+
+}
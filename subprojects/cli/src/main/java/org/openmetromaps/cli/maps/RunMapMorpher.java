@@ -18,18 +18,14 @@
 package org.openmetromaps.cli.maps;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
+import org.openmetromaps.cli.common.ModelLoader;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.morpher.MapMorpher;
-import org.openmetromaps.maps.xml.DesktopXmlModelReader;
-import org.openmetromaps.maps.xml.XmlModel;
-import org.openmetromaps.maps.xml.XmlModelConverter;
 
 import de.topobyte.utilities.apache.commons.cli.OptionHelper;
 import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
@@ -79,12 +75,7 @@ public class RunMapMorpher
 	private static MapModel read(Path pathInput)
 			throws IOException, ParsingException
 	{
-		InputStream input = Files.newInputStream(pathInput);
-
-		XmlModel xmlModel = DesktopXmlModelReader.read(input);
-
-		XmlModelConverter modelConverter = new XmlModelConverter();
-		MapModel model = modelConverter.convert(xmlModel);
+		MapModel model = ModelLoader.load(pathInput);
 		return model;
 	}
 
@@ -17,8 +17,6 @@
 
 package org.openmetromaps.cli.maps;
 
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -26,14 +24,12 @@ import javax.swing.JFrame;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
+import org.openmetromaps.cli.common.ModelLoader;
 import org.openmetromaps.maps.InitialViewportSetupListener;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.MapViewStatus;
 import org.openmetromaps.maps.PlanRenderer;
 import org.openmetromaps.maps.ScrollableAdvancedPanel;
-import org.openmetromaps.maps.xml.DesktopXmlModelReader;
-import org.openmetromaps.maps.xml.XmlModel;
-import org.openmetromaps.maps.xml.XmlModelConverter;
 
 import de.topobyte.utilities.apache.commons.cli.OptionHelper;
 import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
@@ -71,12 +67,7 @@ public class RunSimpleMapViewer
 		String argInput = line.getOptionValue(OPTION_INPUT);
 		Path pathInput = Paths.get(argInput);
 
-		InputStream input = Files.newInputStream(pathInput);
-
-		XmlModel xmlModel = DesktopXmlModelReader.read(input);
-
-		XmlModelConverter modelConverter = new XmlModelConverter();
-		MapModel model = modelConverter.convert(xmlModel);
+		MapModel model = ModelLoader.load(pathInput);
 
 		MapViewStatus mapViewStatus = new MapViewStatus();
 
@@ -17,17 +17,13 @@
 
 package org.openmetromaps.cli.markdownview;
 
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
+import org.openmetromaps.cli.common.ModelLoader;
 import org.openmetromaps.maps.MapModel;
-import org.openmetromaps.maps.xml.DesktopXmlModelReader;
-import org.openmetromaps.maps.xml.XmlModel;
-import org.openmetromaps.maps.xml.XmlModelConverter;
 import org.openmetromaps.markdownview.MarkdownViewCreator;
 
 import de.topobyte.utilities.apache.commons.cli.OptionHelper;
@@ -68,12 +64,7 @@ public class RunCreateMarkdownView
 		Path pathInput = Paths.get(argInput);
 		Path pathOutput = Paths.get(argOutput);
 
-		InputStream input = Files.newInputStream(pathInput);
-
-		XmlModel xmlModel = DesktopXmlModelReader.read(input);
-
-		XmlModelConverter modelConverter = new XmlModelConverter();
-		MapModel model = modelConverter.convert(xmlModel);
+		MapModel model = ModelLoader.load(pathInput);
 
 		MarkdownViewCreator creator = new MarkdownViewCreator(model);
 		creator.create(pathOutput);
@@ -18,7 +18,6 @@
 package org.openmetromaps.cli.newformat;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -29,13 +28,11 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
 import org.openmetromaps.cli.common.CommonOptions;
+import org.openmetromaps.cli.common.ModelLoader;
 import org.openmetromaps.cli.common.RenderingConfig;
 import org.openmetromaps.maps.CoordinateConversionType;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.ModelUtil;
-import org.openmetromaps.maps.xml.DesktopXmlModelReader;
-import org.openmetromaps.maps.xml.XmlModel;
-import org.openmetromaps.maps.xml.XmlModelConverter;
 import org.openmetromaps.newformat.NewFormatWriter;
 
 import de.topobyte.utilities.apache.commons.cli.OptionHelper;
@@ -88,12 +85,7 @@ public class RunCreateNewFormat
 			System.exit(1);
 		}
 
-		InputStream input = Files.newInputStream(pathInput);
-
-		XmlModel xmlModel = DesktopXmlModelReader.read(input);
-
-		XmlModelConverter modelConverter = new XmlModelConverter();
-		MapModel model = modelConverter.convert(xmlModel);
+		MapModel model = ModelLoader.load(pathInput);
 		ModelUtil.ensureView(model, CoordinateConversionType.WGS84);
 
 		execute(model, renderingConfig, pathOutput);
@@ -0,0 +1,100 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.cli.util;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.openmetromaps.cli.common.ModelLoader;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.binary.BinaryModelWriter;
+import org.openmetromaps.maps.xml.XmlModelWriter;
+
+import de.topobyte.utilities.apache.commons.cli.OptionHelper;
+import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
+import de.topobyte.utilities.apache.commons.cli.commands.options.CommonsCliExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptionsFactory;
+
+public class RunConvertModel
+{
+
+	private static final String OPTION_INPUT = "input";
+	private static final String OPTION_OUTPUT = "output";
+	private static final String OPTION_FORMAT = "format";
+
+	private static final String FORMAT_XML = "xml";
+	private static final String FORMAT_BINARY = "binary";
+
+	public static ExeOptionsFactory OPTIONS_FACTORY = new ExeOptionsFactory() {
+
+		@Override
+		public ExeOptions createOptions()
+		{
+			Options options = new Options();
+			// @formatter:off
+			OptionHelper.addL(options, OPTION_INPUT, true, true, "file", "an OpenMetroMaps model file in any format");
+			OptionHelper.addL(options, OPTION_OUTPUT, true, true, "file", "a file to write the converted model to");
+			OptionHelper.addL(options, OPTION_FORMAT, true, false, "format", "the output format: 'binary' (default) or 'xml'");
+			// @formatter:on
+			return new CommonsCliExeOptions(options, "[options]");
+		}
+
+	};
+
+	public static void main(String name, CommonsCliArguments arguments)
+			throws Exception
+	{
+		CommandLine line = arguments.getLine();
+
+		String argInput = line.getOptionValue(OPTION_INPUT);
+		String argOutput = line.getOptionValue(OPTION_OUTPUT);
+		Path pathInput = Paths.get(argInput);
+		Path pathOutput = Paths.get(argOutput);
+
+		String format = FORMAT_BINARY;
+		if (line.hasOption(OPTION_FORMAT)) {
+			format = line.getOptionValue(OPTION_FORMAT);
+		}
+		if (!format.equals(FORMAT_BINARY) && !format.equals(FORMAT_XML)) {
+			System.out.println(String.format(
+					"Invalid value for option '%s'. Possible values: '%s', '%s'",
+					OPTION_FORMAT, FORMAT_BINARY, FORMAT_XML));
+			System.exit(1);
+		}
+
+		System.out.println("Input: " + pathInput);
+		System.out.println("Output: " + pathOutput);
+
+		MapModel model = ModelLoader.load(pathInput);
+
+		try (OutputStream output = Files.newOutputStream(pathOutput)) {
+			if (format.equals(FORMAT_BINARY)) {
+				new BinaryModelWriter().write(output, model);
+			} else {
+				new XmlModelWriter().write(output, model.getData(),
+						model.getViews());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,166 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.cli.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.openmetromaps.cli.common.CommonOptions;
+import org.openmetromaps.cli.common.ModelLoader;
+import org.openmetromaps.cli.common.RenderingConfig;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.ViewConfig;
+import org.openmetromaps.maps.image.ImageView;
+import org.openmetromaps.maps.metrics.RenderStatistics;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.core.GenericPaintFactory;
+
+import de.topobyte.utilities.apache.commons.cli.OptionHelper;
+import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
+import de.topobyte.utilities.apache.commons.cli.commands.options.CommonsCliExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptionsFactory;
+import de.topobyte.utilities.apache.commons.cli.parsing.ArgumentHelper;
+import de.topobyte.utilities.apache.commons.cli.parsing.ArgumentParseException;
+import de.topobyte.utilities.apache.commons.cli.parsing.DoubleOption;
+import de.topobyte.utilities.apache.commons.cli.parsing.IntegerOption;
+
+public class RunRenderStatistics
+{
+
+	private static final String OPTION_INPUT = "input";
+	private static final String OPTION_ZOOM = "zoom";
+	private static final String OPTION_WIDTH = "width";
+	private static final String OPTION_HEIGHT = "height";
+	private static final String OPTION_FRAMES = "frames";
+	private static final String OPTION_WARMUP = "warmup";
+
+	public static ExeOptionsFactory OPTIONS_FACTORY = new ExeOptionsFactory() {
+
+		@Override
+		public ExeOptions createOptions()
+		{
+			Options options = new Options();
+			// @formatter:off
+			OptionHelper.addL(options, OPTION_INPUT, true, true, "file", "an OpenMetroMaps model file");
+			OptionHelper.addL(options, OPTION_ZOOM, true, false, "double", "zoom level to use (default: 1)");
+			OptionHelper.addL(options, OPTION_WIDTH, true, false, "int", "width of the view (default: 1024)");
+			OptionHelper.addL(options, OPTION_HEIGHT, true, false, "int", "height of the view (default: 768)");
+			OptionHelper.addL(options, OPTION_FRAMES, true, false, "int", "number of frames to measure (default: 100)");
+			OptionHelper.addL(options, OPTION_WARMUP, true, false, "int", "number of frames to render before measuring (default: 20)");
+			// @formatter:on
+			CommonOptions.addRenderingOptions(options);
+			return new CommonsCliExeOptions(options, "[options]");
+		}
+
+	};
+
+	public static void main(String name, CommonsCliArguments arguments)
+			throws Exception
+	{
+		CommandLine line = arguments.getLine();
+
+		String argInput = line.getOptionValue(OPTION_INPUT);
+		Path pathInput = Paths.get(argInput);
+
+		DoubleOption argZoom = ArgumentHelper.getDouble(line, OPTION_ZOOM);
+		double zoom = argZoom.hasValue() ? argZoom.getValue() : 1;
+
+		int width = getInteger(line, OPTION_WIDTH, 1024);
+		int height = getInteger(line, OPTION_HEIGHT, 768);
+		int frames = getInteger(line, OPTION_FRAMES, 100);
+		int warmup = getInteger(line, OPTION_WARMUP, 20);
+
+		RenderingConfig renderingConfig = null;
+		try {
+			renderingConfig = CommonOptions.parseRenderingOptions(line);
+		} catch (ArgumentParseException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+
+		MapModel model = ModelLoader.load(pathInput);
+
+		RenderStatistics statistics = execute(model, renderingConfig, zoom,
+				width, height, frames, warmup);
+		System.out.print(statistics.toJson());
+	}
+
+	private static int getInteger(CommandLine line, String option,
+			int defaultValue) throws ArgumentParseException
+	{
+		IntegerOption argument = ArgumentHelper.getInteger(line, option);
+		return argument.hasValue() ? argument.getValue() : defaultValue;
+	}
+
+	/**
+	 * Render the same view of the model repeatedly, centered on its start
+	 * position, and collect statistics about the frames after warming up.
+	 */
+	private static RenderStatistics execute(MapModel model,
+			RenderingConfig renderingConfig, double zoom, int width,
+			int height, int frames, int warmup)
+	{
+		MapView view = model.getViews().get(0);
+		ViewConfig config = view.getConfig();
+
+		ImageView imageView = new ImageView(config.getScene(), width, height);
+		imageView.setZoom(zoom);
+		imageView.setPositionX(
+				-config.getStartPosition().getX() + width / 2 / zoom);
+		imageView.setPositionY(
+				-config.getStartPosition().getY() + height / 2 / zoom);
+
+		PlanRenderer planRenderer = new PlanRenderer(view.getLineNetwork(),
+				new MapViewStatus(), renderingConfig.getStationMode(),
+				renderingConfig.getSegmentMode(), imageView, imageView, 1,
+				new GenericPaintFactory());
+
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		AwtPainter painter = new AwtPainter(g);
+
+		RenderStatistics statistics = new RenderStatistics(
+				Math.max(1, frames));
+		for (int i = 0; i < warmup + frames; i++) {
+			if (i == warmup) {
+				planRenderer.setRenderMetrics(statistics);
+			}
+			g.setColor(Color.WHITE);
+			g.fillRect(0, 0, width, height);
+			painter.resetStateSwitches();
+			planRenderer.paint(painter);
+		}
+		g.dispose();
+
+		return statistics;
+	}
+
+}
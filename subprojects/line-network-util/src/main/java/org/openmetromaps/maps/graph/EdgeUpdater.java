@@ -0,0 +1,151 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Updates the edges of a network after any number of nodes have been moved.
+ * The edges whose geometry depends on the moved nodes are collected for all
+ * nodes at once, so that each edge is recomputed only once even if several
+ * of its neighbors have been moved, and the region of the scene affected by
+ * the move is computed along the way.
+ *
+ * An updater can be reused: add the moved nodes, then call {@link #update()}.
+ */
+public class EdgeUpdater
+{
+
+	private LineNetwork lineNetwork;
+
+	private List<Node> moved = new ArrayList<>();
+	private Set<Node> movedSet = new HashSet<>();
+	private List<Edge> dirty = new ArrayList<>();
+	private Set<Edge> dirtySet = new HashSet<>();
+
+	private SceneRegion damage = new SceneRegion();
+	private SceneRegion nodeDamage = new SceneRegion();
+
+	public EdgeUpdater(LineNetwork lineNetwork)
+	{
+		this.lineNetwork = lineNetwork;
+	}
+
+	/**
+	 * Register a node whose location has changed since the last update.
+	 */
+	public void add(Node node)
+	{
+		if (movedSet.add(node)) {
+			moved.add(node);
+		}
+	}
+
+	public void addAll(Collection<Node> nodes)
+	{
+		for (Node node : nodes) {
+			add(node);
+		}
+	}
+
+	/**
+	 * Recalculate the neighbor locations of all edges around the registered
+	 * nodes and relocate the nodes and their edges in the spatial index.
+	 *
+	 * @return the region of the scene covered by the affected nodes and edges
+	 *         before and after the move. The region is reused by the next
+	 *         update.
+	 */
+	public SceneRegion update()
+	{
+		damage.clear();
+		nodeDamage.clear();
+		if (moved.isEmpty()) {
+			return damage;
+		}
+
+		// the neighbor locations of an edge are derived from the nodes
+		// adjacent to its end nodes, so all edges of the neighbors of a moved
+		// node depend on it, including the moved node's own edges
+		for (Node node : moved) {
+			for (Edge edge : node.edges) {
+				addEdges(edge.n1 != node ? edge.n1 : edge.n2);
+			}
+		}
+
+		LineNetworkIndex index = lineNetwork.getIndex();
+		include(index);
+
+		for (Node node : moved) {
+			index.update(node);
+		}
+		for (Edge edge : dirty) {
+			LineNetworkUtil.calculateNeighborLocations(edge);
+		}
+
+		include(index);
+
+		moved.clear();
+		movedSet.clear();
+		dirty.clear();
+		dirtySet.clear();
+
+		return damage;
+	}
+
+	private void addEdges(Node neighbor)
+	{
+		for (Edge edge : neighbor.edges) {
+			if (dirtySet.add(edge)) {
+				dirty.add(edge);
+			}
+		}
+	}
+
+	/**
+	 * Get the region of the scene covered by the moved nodes before and after
+	 * the last update, which is where labels of nodes have moved. The region
+	 * is reused by the next update.
+	 */
+	public SceneRegion getNodeDamage()
+	{
+		return nodeDamage;
+	}
+
+	private void include(LineNetworkIndex index)
+	{
+		for (Node node : moved) {
+			int ordinal = index.getOrdinal(node);
+			if (ordinal >= 0) {
+				index.includeNode(ordinal, damage);
+				index.includeNode(ordinal, nodeDamage);
+			}
+		}
+		for (Edge edge : dirty) {
+			int ordinal = index.getOrdinal(edge);
+			if (ordinal >= 0) {
+				index.includeEdge(ordinal, damage);
+			}
+		}
+	}
+
+}
@@ -65,6 +65,10 @@ public class LineNetworkBuilder
 		computeRanks();
 
 		sortNodesByRank();
+
+		assignNodeIds();
+
+		graph.setCompact(new CompactLineNetwork(graph));
 	}
 
 	private void addStations(ModelData data)
@@ -87,6 +91,7 @@ public class LineNetworkBuilder
 			nameToLine.put(line.getName(), line);
 
 			NetworkLine networkLine = new NetworkLine(line);
+			networkLine.id = i;
 			graph.lines.add(networkLine);
 			nameToNetworkLine.put(line.getName(), networkLine);
 		}
@@ -254,6 +259,15 @@ public class LineNetworkBuilder
 		});
 	}
 
+	private void assignNodeIds()
+	{
+		// ids follow the final order of the node list
+		final int nNodes = graph.nodes.size();
+		for (int i = 0; i < nNodes; i++) {
+			graph.nodes.get(i).id = i;
+		}
+	}
+
 	private int rank(List<Edge> edges)
 	{
 		int rank = 0;
@@ -320,6 +334,7 @@ public class LineNetworkBuilder
 			Node node1 = stationToNode.get(stop1.getStation());
 			Node node2 = stationToNode.get(stop2.getStation());
 			edge = new Edge(node1, node2);
+			edge.id = graph.edges.size();
 			graph.edges.add(edge);
 			segmentToEdge.put(segment, edge);
 			node1.edges.add(edge);
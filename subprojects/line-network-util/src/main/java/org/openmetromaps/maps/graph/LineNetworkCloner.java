@@ -51,6 +51,21 @@ public class LineNetworkCloner
 		return copy;
 	}
 
+	public Map<Node, Node> getNodeToNode()
+	{
+		return nodeToNode;
+	}
+
+	public Map<Edge, Edge> getEdgeToEdge()
+	{
+		return edgeToEdge;
+	}
+
+	public Map<NetworkLine, NetworkLine> getLineToLine()
+	{
+		return lineToLine;
+	}
+
 	private void cloneNodes()
 	{
 		for (Node node : lineNetwork.getNodes()) {
@@ -59,6 +74,7 @@ public class LineNetworkCloner
 
 			nodeToNode.put(node, nodeCopy);
 
+			nodeCopy.id = node.id;
 			nodeCopy.location = Points.clonePoint(node.location);
 			nodeCopy.setRank(node.rank);
 			nodeCopy.setIsLastStopOfALine(node.isLastStopOfALine);
@@ -80,6 +96,7 @@ public class LineNetworkCloner
 		for (Edge edge : lineNetwork.getEdges()) {
 			Edge edgeCopy = new Edge(nodeToNode.get(edge.n1),
 					nodeToNode.get(edge.n2));
+			edgeCopy.id = edge.id;
 			copy.edges.add(edgeCopy);
 
 			edgeToEdge.put(edge, edgeCopy);
@@ -93,6 +110,7 @@ public class LineNetworkCloner
 	{
 		for (NetworkLine line : lineNetwork.getLines()) {
 			NetworkLine lineCopy = new NetworkLine(line.line);
+			lineCopy.id = line.id;
 
 			copy.lines.add(lineCopy);
 
@@ -105,32 +105,96 @@ public class LineNetworkUtil
 				edge.setNext(ln);
 			}
 		}
+
+		// only after the locations have been written
+		edge.revision++;
+	}
+
+	/**
+	 * Same as {@link #calculateNeighborLocations(Edge)} for the edge with the
+	 * specified id, using the array representation of the network instead of
+	 * the per-line neighbor maps.
+	 */
+	public static void calculateNeighborLocations(CompactLineNetwork network,
+			int edgeId)
+	{
+		Edge edge = network.getEdge(edgeId);
+
+		int[] offsets = network.getEdgeLineOffsets();
+		int start = offsets[edgeId];
+		int end = offsets[edgeId + 1];
+		if (end - start == 1) {
+			edge.revision++;
+			return;
+		}
+
+		int[] prevs = network.getEdgeLinePrevs();
+		int[] nexts = network.getEdgeLineNexts();
+
+		double px = 0, py = 0, nx = 0, ny = 0;
+		int numPrevs = 0, numNexts = 0;
+		for (int k = start; k < end; k++) {
+			if (prevs[k] >= 0) {
+				Point location = network.getNode(prevs[k]).location;
+				px += location.x;
+				py += location.y;
+				numPrevs++;
+			}
+			if (nexts[k] >= 0) {
+				Point location = network.getNode(nexts[k]).location;
+				nx += location.x;
+				ny += location.y;
+				numNexts++;
+			}
+		}
+
+		if (numPrevs > 0) {
+			edge.setPrev(new Point(px / numPrevs, py / numPrevs));
+		}
+		if (numNexts > 0) {
+			edge.setNext(new Point(nx / numNexts, ny / numNexts));
+		}
+
+		// only after the locations have been written
+		edge.revision++;
 	}
 
 	public static void calculateAllNeighborLocations(LineNetwork lineNetwork)
 	{
+		CompactLineNetwork compact = lineNetwork.getCompact();
+		if (compact != null) {
+			final int nEdges = compact.getNumEdges();
+			for (int i = 0; i < nEdges; i++) {
+				calculateNeighborLocations(compact, i);
+			}
+			return;
+		}
 		for (Edge edge : lineNetwork.edges) {
 			LineNetworkUtil.calculateNeighborLocations(edge);
 		}
 	}
 
+	/**
+	 * Update the edges around a node whose location has changed and keep the
+	 * spatial index of the network up to date.
+	 */
+	public static void updateEdges(LineNetwork lineNetwork, Node node)
+	{
+		updateEdges(node);
+		lineNetwork.updateIndex(node);
+	}
+
 	public static void updateEdges(Node node)
 	{
-		// Update all edges connected to neighbor nodes in the network graph
-		List<Node> neighbors = new ArrayList<>();
+		// Update all edges connected to neighbor nodes in the network graph,
+		// each of them once
+		Set<Edge> edges = new HashSet<>();
 		for (Edge edge : node.edges) {
-			if (edge.n1 != node) {
-				neighbors.add(edge.n1);
-			}
-			if (edge.n2 != node) {
-				neighbors.add(edge.n2);
-			}
-		}
-		for (Node n : neighbors) {
-			for (Edge edge : n.edges) {
-				logger.info(Formatting.format("Updating edge: %s - %s",
-						edge.n1.station.getName(), edge.n2.station.getName()));
-				LineNetworkUtil.calculateNeighborLocations(edge);
+			Node neighbor = edge.n1 != node ? edge.n1 : edge.n2;
+			for (Edge e : neighbor.edges) {
+				if (edges.add(e)) {
+					LineNetworkUtil.calculateNeighborLocations(e);
+				}
 			}
 		}
 	}
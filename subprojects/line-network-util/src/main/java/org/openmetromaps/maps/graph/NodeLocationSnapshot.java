@@ -0,0 +1,47 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+
+package org.openmetromaps.maps.graph;
+
+/**
+ * The locations of a set of nodes before an edit, created by
+ * {@link NodeMoveJournal#snapshot(java.util.Collection)} and passed back to
+ * {@link NodeMoveJournal#record(String, NodeLocationSnapshot, boolean)} once
+ * the nodes have been moved.
+ */
+public class NodeLocationSnapshot
+{
+
+	final int[] ordinals;
+	final double[] x;
+	final double[] y;
+	int size = 0;
+
+	NodeLocationSnapshot(int capacity)
+	{
+		ordinals = new int[capacity];
+		x = new double[capacity];
+		y = new double[capacity];
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+}
@@ -0,0 +1,361 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+
+package org.openmetromaps.maps.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.topobyte.lightgeom.lina.Point;
+
+/**
+ * A journal of node moves that allows to undo and redo edits of a network.
+ *
+ * Each edit is stored as the coordinate deltas of the nodes it moved, kept in
+ * primitive arrays indexed by the nodes' ordinals in the network's spatial
+ * index, so that undoing or redoing an edit only touches the nodes it moved.
+ * Consecutive steps of the same interaction, such as the steps of a drag, can
+ * be merged into a single edit. The number of moves kept is bounded: the
+ * oldest edits are dropped once the journal exceeds its capacity.
+ *
+ * To record an edit, take a snapshot of the nodes to be moved, move them,
+ * then pass the snapshot to {@link #record(String, NodeLocationSnapshot)}.
+ */
+public class NodeMoveJournal
+{
+
+	private LineNetworkIndex index;
+	private int capacity;
+
+	// the moves of all edits, oldest first
+	private int[] ordinals = new int[0];
+	private double[] dx = new double[0];
+	private double[] dy = new double[0];
+	private int size = 0;
+
+	// edit i consists of the moves from editStarts[i] up to the start of the
+	// next edit or the end of the moves
+	private int[] editStarts = new int[0];
+	private String[] editNames = new String[0];
+	private int edits = 0;
+
+	// the number of edits that are currently applied, edits above this
+	// position have been undone and can be redone
+	private int applied = 0;
+
+	// whether the next edit may be merged into the last one
+	private boolean mergeable = false;
+
+	// position of a node's move relative to the start of the last edit, valid
+	// if the node's stamp equals the current stamp
+	private int[] slots;
+	private int[] slotStamps;
+	private int slotStamp = 0;
+
+	// used to ignore duplicate nodes when taking a snapshot
+	private int[] seenStamps;
+	private int seenStamp = 0;
+
+	private List<NodeMoveListener> listeners = new ArrayList<>();
+
+	/**
+	 * @param capacity
+	 *            the maximum number of node moves to keep.
+	 */
+	public NodeMoveJournal(LineNetwork lineNetwork, int capacity)
+	{
+		this.index = lineNetwork.getIndex();
+		this.capacity = Math.max(0, capacity);
+		int numNodes = index.getNumNodes();
+		slots = new int[numNodes];
+		slotStamps = new int[numNodes];
+		seenStamps = new int[numNodes];
+	}
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Add a listener that is notified about the nodes moved by recorded,
+	 * undone and redone edits.
+	 */
+	public void addNodeMoveListener(NodeMoveListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	public void removeNodeMoveListener(NodeMoveListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	private void fireNodeMoved(Node node)
+	{
+		for (NodeMoveListener listener : listeners) {
+			listener.nodeMoved(node);
+		}
+	}
+
+	/**
+	 * Record the current locations of the specified nodes before moving them.
+	 */
+	public NodeLocationSnapshot snapshot(Collection<Node> nodes)
+	{
+		NodeLocationSnapshot snapshot = new NodeLocationSnapshot(nodes.size());
+		seenStamp++;
+		for (Node node : nodes) {
+			int ordinal = index.getOrdinal(node);
+			if (ordinal < 0 || seenStamps[ordinal] == seenStamp) {
+				continue;
+			}
+			seenStamps[ordinal] = seenStamp;
+			int i = snapshot.size++;
+			snapshot.ordinals[i] = ordinal;
+			snapshot.x[i] = node.location.x;
+			snapshot.y[i] = node.location.y;
+		}
+		return snapshot;
+	}
+
+	public boolean record(String name, NodeLocationSnapshot snapshot)
+	{
+		return record(name, snapshot, false);
+	}
+
+	/**
+	 * Record the moves of the nodes of the specified snapshot as an edit. Any
+	 * undone edits are discarded.
+	 *
+	 * @param merge
+	 *            whether to merge the moves into the last edit, which is
+	 *            possible unless edits have been undone or redone since the
+	 *            last edit has been recorded.
+	 * @return whether any node has been moved.
+	 */
+	public boolean record(String name, NodeLocationSnapshot snapshot,
+			boolean merge)
+	{
+		boolean append = merge && mergeable && edits > 0;
+		int sizeBefore = size;
+		if (!append) {
+			// undone edits are overwritten, but only discarded if the edit
+			// actually moved any nodes
+			if (applied < edits) {
+				size = editStarts[applied];
+			}
+			slotStamp++;
+		}
+		int start = append ? editStarts[edits - 1] : size;
+		boolean moved = false;
+
+		for (int i = 0; i < snapshot.size; i++) {
+			int ordinal = snapshot.ordinals[i];
+			Node node = index.getNode(ordinal);
+			double mx = node.location.x - snapshot.x[i];
+			double my = node.location.y - snapshot.y[i];
+			if (mx == 0 && my == 0) {
+				continue;
+			}
+			moved = true;
+			fireNodeMoved(node);
+			if (slotStamps[ordinal] == slotStamp) {
+				int k = start + slots[ordinal];
+				dx[k] += mx;
+				dy[k] += my;
+				continue;
+			}
+			ensureCapacity(size + 1);
+			ordinals[size] = ordinal;
+			dx[size] = mx;
+			dy[size] = my;
+			slots[ordinal] = size - start;
+			slotStamps[ordinal] = slotStamp;
+			size++;
+		}
+
+		if (!moved) {
+			size = sizeBefore;
+			return false;
+		}
+		if (!append) {
+			Arrays.fill(editNames, applied, edits, null);
+			edits = applied;
+			ensureEditCapacity(edits + 1);
+			editStarts[edits] = start;
+			editNames[edits] = name;
+			edits++;
+			applied = edits;
+		}
+		mergeable = true;
+
+		dropOldest();
+		return true;
+	}
+
+	private void dropOldest()
+	{
+		if (size <= capacity) {
+			return;
+		}
+		int drop = 0;
+		while (drop < edits && size - editStarts[drop] > capacity) {
+			drop++;
+		}
+		if (drop == edits) {
+			clear();
+			return;
+		}
+		int offset = editStarts[drop];
+		int remaining = size - offset;
+		System.arraycopy(ordinals, offset, ordinals, 0, remaining);
+		System.arraycopy(dx, offset, dx, 0, remaining);
+		System.arraycopy(dy, offset, dy, 0, remaining);
+		size = remaining;
+
+		int remainingEdits = edits - drop;
+		for (int i = 0; i < remainingEdits; i++) {
+			editStarts[i] = editStarts[drop + i] - offset;
+		}
+		System.arraycopy(editNames, drop, editNames, 0, remainingEdits);
+		Arrays.fill(editNames, remainingEdits, edits, null);
+		edits = remainingEdits;
+		applied -= drop;
+	}
+
+	/**
+	 * Remove all edits from the journal.
+	 */
+	public void clear()
+	{
+		Arrays.fill(editNames, 0, edits, null);
+		size = 0;
+		edits = 0;
+		applied = 0;
+		mergeable = false;
+		// start with small arrays again after a huge edit
+		if (ordinals.length > 16) {
+			ordinals = new int[0];
+			dx = new double[0];
+			dy = new double[0];
+		}
+	}
+
+	public boolean canUndo()
+	{
+		return applied > 0;
+	}
+
+	public boolean canRedo()
+	{
+		return applied < edits;
+	}
+
+	/**
+	 * Get the name of the edit that would be undone next or null if there is
+	 * none.
+	 */
+	public String getUndoName()
+	{
+		return canUndo() ? editNames[applied - 1] : null;
+	}
+
+	/**
+	 * Get the name of the edit that would be redone next or null if there is
+	 * none.
+	 */
+	public String getRedoName()
+	{
+		return canRedo() ? editNames[applied] : null;
+	}
+
+	/**
+	 * Move the nodes of the last applied edit back to their locations before
+	 * the edit. The moved nodes are added to the updater, whose update has to
+	 * be run by the caller.
+	 *
+	 * @return whether an edit has been undone.
+	 */
+	public boolean undo(EdgeUpdater updater)
+	{
+		if (!canUndo()) {
+			return false;
+		}
+		applied--;
+		apply(applied, -1, updater);
+		return true;
+	}
+
+	/**
+	 * Move the nodes of the next undone edit to their locations after the
+	 * edit. The moved nodes are added to the updater, whose update has to be
+	 * run by the caller.
+	 *
+	 * @return whether an edit has been redone.
+	 */
+	public boolean redo(EdgeUpdater updater)
+	{
+		if (!canRedo()) {
+			return false;
+		}
+		apply(applied, 1, updater);
+		applied++;
+		return true;
+	}
+
+	private void apply(int edit, int sign, EdgeUpdater updater)
+	{
+		mergeable = false;
+		int from = editStarts[edit];
+		int to = edit + 1 < edits ? editStarts[edit + 1] : size;
+		for (int k = from; k < to; k++) {
+			Node node = index.getNode(ordinals[k]);
+			Point location = node.location;
+			node.location = new Point(location.x + sign * dx[k],
+					location.y + sign * dy[k]);
+			updater.add(node);
+			fireNodeMoved(node);
+		}
+	}
+
+	private void ensureCapacity(int needed)
+	{
+		if (needed <= ordinals.length) {
+			return;
+		}
+		int length = Math.max(needed,
+				Math.min(Math.max(16, ordinals.length * 2), capacity));
+		ordinals = Arrays.copyOf(ordinals, length);
+		dx = Arrays.copyOf(dx, length);
+		dy = Arrays.copyOf(dy, length);
+	}
+
+	private void ensureEditCapacity(int needed)
+	{
+		if (needed <= editStarts.length) {
+			return;
+		}
+		int length = Math.max(needed, Math.max(16, editStarts.length * 2));
+		editStarts = Arrays.copyOf(editStarts, length);
+		editNames = Arrays.copyOf(editNames, length);
+	}
+
+}
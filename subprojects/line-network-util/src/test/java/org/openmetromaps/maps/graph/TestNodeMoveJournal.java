@@ -0,0 +1,225 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.graph;
+
+import static java.util.Arrays.asList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.topobyte.lightgeom.lina.Point;
+
+public class TestNodeMoveJournal
+{
+
+	private static final int NUM_NODES = 4;
+
+	private LineNetwork lineNetwork;
+	private EdgeUpdater updater;
+	private NodeMoveJournal journal;
+
+	private void setup(int capacity)
+	{
+		lineNetwork = new LineNetwork();
+		for (int i = 0; i < NUM_NODES; i++) {
+			Node node = new Node(null);
+			node.location = new Point(i, 0);
+			lineNetwork.nodes.add(node);
+		}
+		updater = new EdgeUpdater(lineNetwork);
+		journal = new NodeMoveJournal(lineNetwork, capacity);
+	}
+
+	@Test
+	public void testUndoRedo()
+	{
+		setup(100);
+		double[] initial = locations();
+
+		move("first", false, 0);
+		double[] first = locations();
+		move("second", false, 1, 2);
+		double[] second = locations();
+		move("third", false, 0, 3);
+		double[] third = locations();
+
+		Assert.assertEquals("undo name", "third", journal.getUndoName());
+		Assert.assertNull("redo name", journal.getRedoName());
+
+		undo(second);
+		undo(first);
+		Assert.assertEquals("undo name", "first", journal.getUndoName());
+		Assert.assertEquals("redo name", "second", journal.getRedoName());
+		undo(initial);
+		Assert.assertFalse("can undo", journal.canUndo());
+		Assert.assertFalse("undo", journal.undo(updater));
+
+		redo(first);
+		redo(second);
+		redo(third);
+		Assert.assertFalse("can redo", journal.canRedo());
+		Assert.assertFalse("redo", journal.redo(updater));
+
+		// a new edit discards the undone edits
+		undo(second);
+		move("fourth", false, 2);
+		double[] fourth = locations();
+		Assert.assertFalse("can redo", journal.canRedo());
+		undo(second);
+		Assert.assertEquals("redo name", "fourth", journal.getRedoName());
+		redo(fourth);
+	}
+
+	@Test
+	public void testMerge()
+	{
+		setup(100);
+		double[] initial = locations();
+
+		// the steps of a drag form a single edit
+		move("drag", false, 0, 1);
+		move("drag", true, 0, 1);
+		move("drag", true, 1, 2);
+		double[] dragged = locations();
+
+		undo(initial);
+		Assert.assertFalse("can undo", journal.canUndo());
+		redo(dragged);
+
+		// edits are not merged into an edit that has been undone or redone
+		move("other", true, 3);
+		double[] other = locations();
+		undo(dragged);
+		undo(initial);
+		redo(dragged);
+		redo(other);
+	}
+
+	@Test
+	public void testDropOldest()
+	{
+		setup(3);
+
+		move("first", false, 0, 1);
+		double[] first = locations();
+		move("second", false, 2);
+		double[] second = locations();
+		Assert.assertEquals("undo name", "second", journal.getUndoName());
+
+		// the journal holds three moves, so the first edit is dropped
+		move("third", false, 0, 3);
+		double[] third = locations();
+		undo(second);
+		undo(first);
+		Assert.assertFalse("can undo", journal.canUndo());
+		redo(second);
+		redo(third);
+
+		// an edit larger than the capacity clears the journal
+		move("fourth", false, 0, 1, 2, 3);
+		Assert.assertFalse("can undo", journal.canUndo());
+		Assert.assertFalse("can redo", journal.canRedo());
+
+		Assert.assertEquals("capacity", 3, journal.getCapacity());
+	}
+
+	@Test
+	public void testNoMove()
+	{
+		setup(100);
+		double[] initial = locations();
+
+		move("first", false, 0);
+		double[] first = locations();
+		undo(initial);
+
+		// recording an edit that did not move anything keeps the undone edits
+		NodeLocationSnapshot snapshot = journal.snapshot(lineNetwork.nodes);
+		Assert.assertFalse("record", journal.record("none", snapshot));
+		Assert.assertTrue("can redo", journal.canRedo());
+		Assert.assertFalse("can undo", journal.canUndo());
+		redo(first);
+
+		journal.clear();
+		Assert.assertFalse("can undo", journal.canUndo());
+		Assert.assertFalse("can redo", journal.canRedo());
+	}
+
+	private void move(String name, boolean merge, Integer... ordinals)
+	{
+		List<Node> nodes = nodes(asList(ordinals));
+		// duplicate nodes are recorded once
+		nodes.addAll(nodes(asList(ordinals)));
+		NodeLocationSnapshot snapshot = journal.snapshot(nodes);
+		for (int ordinal : ordinals) {
+			Node node = lineNetwork.nodes.get(ordinal);
+			node.location = new Point(node.location.x + 0.5 + ordinal,
+					node.location.y - 1.25);
+			updater.add(node);
+		}
+		updater.update();
+		Assert.assertTrue(name, journal.record(name, snapshot, merge));
+	}
+
+	private List<Node> nodes(List<Integer> ordinals)
+	{
+		List<Node> nodes = new ArrayList<>();
+		for (int ordinal : ordinals) {
+			nodes.add(lineNetwork.nodes.get(ordinal));
+		}
+		return nodes;
+	}
+
+	private void undo(double[] expected)
+	{
+		Assert.assertTrue("undo", journal.undo(updater));
+		updater.update();
+		assertLocations("undo", expected);
+	}
+
+	private void redo(double[] expected)
+	{
+		Assert.assertTrue("redo", journal.redo(updater));
+		updater.update();
+		assertLocations("redo", expected);
+	}
+
+	private double[] locations()
+	{
+		double[] locations = new double[NUM_NODES * 2];
+		for (int i = 0; i < NUM_NODES; i++) {
+			Point location = lineNetwork.nodes.get(i).location;
+			locations[i * 2] = location.x;
+			locations[i * 2 + 1] = location.y;
+		}
+		return locations;
+	}
+
+	private void assertLocations(String message, double[] expected)
+	{
+		double[] locations = locations();
+		for (int i = 0; i < locations.length; i++) {
+			Assert.assertEquals(message + ": node #" + i / 2, expected[i],
+					locations[i], 1e-9);
+		}
+	}
+
+}
@@ -0,0 +1,584 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import org.openmetromaps.maps.PlanRenderer.Pass;
+import org.openmetromaps.maps.PlanRenderer.Settings;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkCloner;
+import org.openmetromaps.maps.image.ImageView;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.core.GenericPaintFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.topobyte.viewports.geometry.Rectangle;
+import de.topobyte.viewports.scrolling.ViewportUtil;
+
+/**
+ * Renders the map of a {@link PlanRenderer} into images on a background
+ * thread so that painting a component never waits for a complete render.
+ *
+ * The background thread uses a renderer and viewport of its own that copy
+ * the settings of the requesting renderer. It renders a copy of the network
+ * that is brought up to date with a {@link RenderSnapshot} taken when a render
+ * is requested, so requests must be made on the thread that modifies the
+ * network. Each new request cancels the render that is currently running.
+ * Results are published to the event dispatch thread after each pass if there
+ * is no image for the requested zoom level yet, and only once they are
+ * complete otherwise.
+ */
+public class RenderScheduler
+{
+
+	final static Logger logger = LoggerFactory
+			.getLogger(RenderScheduler.class);
+
+	public interface Listener
+	{
+
+		/**
+		 * Called on the event dispatch thread after a new image has been
+		 * published.
+		 */
+		public void renderPublished();
+
+	}
+
+	public interface Repair
+	{
+
+		/**
+		 * Paint the damaged part of the view.
+		 *
+		 * @return false if the damaged part cannot be determined, without
+		 *         having painted anything.
+		 */
+		public boolean paint(Graphics2D g);
+
+	}
+
+	/**
+	 * The state of a view a render is requested for.
+	 */
+	public static class Request
+	{
+
+		private final PlanRenderer renderer;
+		private final int rendererRevision;
+		private final int statusRevision;
+		private final int indexRevision;
+		private final Rectangle scene;
+		private final Color background;
+		private final double positionX;
+		private final double positionY;
+		private final double zoom;
+		private final int width;
+		private final int height;
+		private final int margin;
+		private final Settings settings;
+
+		private int generation;
+
+		// set when the request is scheduled
+		private LineNetwork network;
+		private MapViewStatus status;
+		private RenderSnapshot.Locations locations;
+		private RenderSnapshot.Status statusSnapshot;
+
+		/**
+		 * @param margin
+		 *            the number of pixels to render around the view on each
+		 *            side, so that small moves of the view can be served from
+		 *            the same image.
+		 */
+		public Request(PlanRenderer renderer, Rectangle scene,
+				Color background, double positionX, double positionY,
+				double zoom, int width, int height, int margin)
+		{
+			this.renderer = renderer;
+			this.rendererRevision = renderer.getRevision();
+			this.statusRevision = renderer.getMapViewStatus().getRevision();
+			this.indexRevision = renderer.getLineNetwork().getIndex()
+					.getRevision();
+			this.scene = scene;
+			this.background = background;
+			this.positionX = positionX;
+			this.positionY = positionY;
+			this.zoom = zoom;
+			this.width = width;
+			this.height = height;
+			this.margin = margin;
+			this.settings = renderer.getSettings();
+		}
+
+		private Request(Request other)
+		{
+			this(other.renderer, other.scene, other.background,
+					other.positionX, other.positionY, other.zoom, other.width,
+					other.height, other.margin);
+			generation = other.generation;
+		}
+
+		/**
+		 * Whether the image rendered for this request also contains the view
+		 * described by the other request.
+		 */
+		boolean covers(Request other)
+		{
+			return statusRevision == other.statusRevision
+					&& indexRevision == other.indexRevision
+					&& showsView(other);
+		}
+
+		/**
+		 * Whether the image rendered for this request contains the view
+		 * described by the other request, ignoring changes of the network
+		 * and its status.
+		 */
+		boolean showsView(Request other)
+		{
+			if (renderer != other.renderer
+					|| rendererRevision != other.rendererRevision
+					|| scene != other.scene
+					|| !background.equals(other.background)
+					|| zoom != other.zoom || width != other.width
+					|| height != other.height || margin != other.margin) {
+				return false;
+			}
+			double dx = (other.positionX - positionX) * zoom;
+			double dy = (other.positionY - positionY) * zoom;
+			long ox = Math.round(dx);
+			long oy = Math.round(dy);
+			// images are only drawn at whole pixel offsets
+			return Math.abs(dx - ox) < 1e-3 && Math.abs(dy - oy) < 1e-3
+					&& Math.abs(ox) <= margin && Math.abs(oy) <= margin;
+		}
+
+	}
+
+	private static class Slot
+	{
+
+		private BufferedImage image;
+		private Graphics2D g;
+		private AwtPainter painter;
+
+		private void ensureSize(int width, int height)
+		{
+			if (image != null && image.getWidth() == width
+					&& image.getHeight() == height) {
+				return;
+			}
+			if (g != null) {
+				g.dispose();
+			}
+			image = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_RGB);
+			g = image.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+					RenderingHints.VALUE_ANTIALIAS_ON);
+			painter = new AwtPainter(g);
+		}
+
+	}
+
+	private Listener listener;
+
+	private ExecutorService executor;
+	private AtomicInteger generation = new AtomicInteger();
+	private AtomicReference<Request> pendingRefresh = new AtomicReference<>();
+
+	// only accessed on the thread making requests
+	private Request latest = null;
+	private PlanRenderer source = null;
+	private LineNetwork network = null;
+	private MapViewStatus status = null;
+	private RenderSnapshot.Locations locations = null;
+	private int locationsRevision;
+	private RenderSnapshot.Status statusSnapshot = null;
+	private int statusRevision;
+
+	// only accessed by the background thread
+	private Rectangle scene = null;
+	private ImageView imageView;
+	private PlanRenderer planRenderer;
+	private RenderSnapshot.Locations appliedLocations = null;
+	private RenderSnapshot.Status appliedStatus = null;
+
+	private final Object lock = new Object();
+	private Slot[] slots = new Slot[] { new Slot(), new Slot() };
+	// guarded by lock
+	private Slot front = null;
+	private Request frontRequest = null;
+	// whether the front slot has been painted completely and the labels
+	// placed for it
+	private boolean frontComplete = false;
+	private LabelLayout frontLabels = null;
+	// the labels last handed to the requesting renderer
+	private LabelLayout adoptedLabels = null;
+
+	public RenderScheduler(Listener listener)
+	{
+		this.listener = listener;
+		executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "map-renderer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Request a render of the specified view, which cancels the render that
+	 * is running at the moment unless the view is covered by the last
+	 * request.
+	 *
+	 * @param force
+	 *            whether to render again even if the view is covered by the
+	 *            last request, for example because the data has been changed
+	 *            in a way that is not reflected by any revision. The render
+	 *            that is running at the moment is completed first.
+	 */
+	public void request(Request request, boolean force)
+	{
+		if (latest != null && latest.covers(request)) {
+			if (force) {
+				// take a new snapshot of the latest view, replacing the one of
+				// a refresh that has not started yet
+				Request refresh = new Request(latest);
+				takeSnapshot(refresh, true);
+				latest = refresh;
+				if (pendingRefresh.getAndSet(refresh) == null) {
+					executor.execute(() -> {
+						Request pending = pendingRefresh.getAndSet(null);
+						render(pending);
+					});
+				}
+			}
+			return;
+		}
+		takeSnapshot(request, force);
+		latest = request;
+		request.generation = generation.incrementAndGet();
+		executor.execute(() -> render(request));
+	}
+
+	private void takeSnapshot(Request request, boolean force)
+	{
+		PlanRenderer renderer = request.renderer;
+		LineNetwork lineNetwork = renderer.getLineNetwork();
+		MapViewStatus mapViewStatus = renderer.getMapViewStatus();
+		if (source != renderer) {
+			source = renderer;
+			network = new LineNetworkCloner(lineNetwork).cloneLineNetwork();
+			status = new MapViewStatus();
+			locations = null;
+			statusSnapshot = null;
+		}
+		if (force || locations == null
+				|| locationsRevision != request.indexRevision) {
+			locations = new RenderSnapshot.Locations(lineNetwork);
+			locationsRevision = request.indexRevision;
+		}
+		if (force || statusSnapshot == null
+				|| statusRevision != request.statusRevision) {
+			statusSnapshot = new RenderSnapshot.Status(lineNetwork,
+					mapViewStatus);
+			statusRevision = request.statusRevision;
+		}
+		request.network = network;
+		request.status = status;
+		request.locations = locations;
+		request.statusSnapshot = statusSnapshot;
+	}
+
+	/**
+	 * Paint the latest published image into a view at the specified position
+	 * and zoom level. The image is moved and scaled as necessary if it has
+	 * been rendered for a different view.
+	 *
+	 * @return false if no image has been published yet.
+	 */
+	public boolean paint(Graphics2D g, double positionX, double positionY,
+			double zoom)
+	{
+		synchronized (lock) {
+			if (front == null) {
+				return false;
+			}
+			Request r = frontRequest;
+			double s = zoom / r.zoom;
+			double tx = (positionX - r.positionX) * zoom - r.margin * s;
+			double ty = (positionY - r.positionY) * zoom - r.margin * s;
+			if (s == 1) {
+				g.drawImage(front.image, (int) Math.round(tx),
+						(int) Math.round(ty), null);
+			} else {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+						RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				AffineTransform transform = new AffineTransform(s, 0, 0, s, tx,
+						ty);
+				g.drawImage(front.image, transform, null);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Paint a damaged part of a view into the latest published image on the
+	 * calling thread, instead of rendering the whole view again. This is
+	 * only possible if that image is complete, has been rendered for the
+	 * latest request and contains the specified view at the same zoom level.
+	 * The image is then considered to show the current state of the network.
+	 *
+	 * @param repair
+	 *            paints the damaged part into graphics that are set up to
+	 *            paint in coordinates of the view.
+	 * @return false if the image cannot be repaired, in which case the view
+	 *         needs to be requested again.
+	 */
+	public boolean repair(Request request, Repair repair)
+	{
+		synchronized (lock) {
+			Request r = frontRequest;
+			if (front == null || !frontComplete || r != latest
+					|| pendingRefresh.get() != null
+					|| r.statusRevision != request.statusRevision
+					|| !r.showsView(request)) {
+				return false;
+			}
+			long tx = Math
+					.round((request.positionX - r.positionX) * r.zoom);
+			long ty = Math
+					.round((request.positionY - r.positionY) * r.zoom);
+			Graphics2D g = (Graphics2D) front.g.create();
+			try {
+				g.translate(r.margin - tx, r.margin - ty);
+				if (!repair.paint(g)) {
+					return false;
+				}
+			} finally {
+				g.dispose();
+			}
+			// the image now shows the current state of the network
+			Request repaired = new Request(r);
+			frontRequest = repaired;
+			latest = repaired;
+			return true;
+		}
+	}
+
+	/**
+	 * Let the renderer of the requesting component use the labels of the
+	 * latest complete image as the labels that have been placed before the
+	 * network has been changed, so that it can determine the labels that
+	 * change with the edits made since (see
+	 * {@link PlanRenderer#includeLabelChanges}). Needs to be called on the
+	 * thread making requests before the renderer is asked for damage.
+	 */
+	public void adoptLabels(PlanRenderer renderer)
+	{
+		synchronized (lock) {
+			if (!frontComplete || frontLabels == null
+					|| frontLabels == adoptedLabels
+					|| frontRequest.renderer != renderer) {
+				return;
+			}
+			renderer.adoptLabelLayout(frontLabels, frontRequest.indexRevision);
+			adoptedLabels = frontLabels;
+		}
+	}
+
+	/**
+	 * Stop the background thread. Requests must not be made afterwards.
+	 */
+	public void shutdown()
+	{
+		generation.incrementAndGet();
+		executor.shutdown();
+	}
+
+	private boolean isStale(Request request)
+	{
+		return request.generation != generation.get();
+	}
+
+	private void render(Request request)
+	{
+		if (isStale(request)) {
+			return;
+		}
+		try {
+			renderRequest(request);
+		} catch (RuntimeException e) {
+			// keep the thread alive for further requests
+			logger.error("Error while rendering", e);
+		}
+	}
+
+	private void renderRequest(Request request)
+	{
+		setup(request);
+
+		Slot slot;
+		boolean progressive;
+		synchronized (lock) {
+			slot = front == slots[0] ? slots[1] : slots[0];
+			progressive = frontRequest == null
+					|| frontRequest.renderer != request.renderer
+					|| frontRequest.zoom != request.zoom;
+		}
+		int margin = request.margin;
+		slot.ensureSize(request.width + 2 * margin,
+				request.height + 2 * margin);
+
+		slot.g.setColor(request.background);
+		slot.g.fillRect(0, 0, slot.image.getWidth(), slot.image.getHeight());
+
+		// paint with the same viewport as the requesting component, so that
+		// the result is identical to painting the component directly
+		Graphics2D g = (Graphics2D) slot.g.create();
+		g.translate(margin, margin);
+		slot.painter.setGraphics(g);
+
+		try {
+			double x1 = ViewportUtil.getViewX(imageView, scene.getX1());
+			double y1 = ViewportUtil.getViewY(imageView, scene.getY1());
+			double x2 = ViewportUtil.getViewX(imageView, scene.getX2());
+			double y2 = ViewportUtil.getViewY(imageView, scene.getY2());
+			g.setColor(Color.WHITE);
+			g.fill(new Rectangle2D.Double(x1, y1, x2 - x1, y2 - y1));
+
+			paintMap(request, slot, progressive);
+		} finally {
+			g.dispose();
+		}
+	}
+
+	private void paintMap(Request request, Slot slot, boolean progressive)
+	{
+		planRenderer.paint(slot.painter, new RenderMonitor() {
+
+			@Override
+			public boolean isCancelled()
+			{
+				return isStale(request);
+			}
+
+			@Override
+			public void passFinished(Pass pass)
+			{
+				if (pass == Pass.LABELS) {
+					publish(request, slot);
+				} else if (progressive) {
+					publishCopy(request, slot);
+				}
+			}
+
+		});
+	}
+
+	private void setup(Request request)
+	{
+		int width = request.width;
+		int height = request.height;
+
+		if (appliedLocations != request.locations) {
+			request.locations.applyTo(request.network);
+			appliedLocations = request.locations;
+		}
+		if (appliedStatus != request.statusSnapshot) {
+			request.statusSnapshot.applyTo(request.network, request.status);
+			appliedStatus = request.statusSnapshot;
+		}
+
+		Settings settings = request.settings;
+		if (planRenderer == null
+				|| planRenderer.getLineNetwork() != request.network
+				|| scene != request.scene) {
+			scene = request.scene;
+			imageView = new ImageView(scene, width, height);
+			imageView.setZoom(request.zoom);
+			planRenderer = new PlanRenderer(request.network, request.status,
+					settings.getStationMode(), settings.getSegmentMode(),
+					imageView, imageView, settings.getScale(),
+					new GenericPaintFactory());
+		}
+		planRenderer.copySettings(settings);
+		// include elements that reach into the margin of the image
+		planRenderer.setOverDrawPixels(
+				settings.getOverDrawPixels() + request.margin);
+
+		if (imageView.getWidth() != width || imageView.getHeight() != height) {
+			imageView.setSize(width, height);
+		}
+		if (imageView.getZoom() != request.zoom) {
+			imageView.setZoom(request.zoom);
+		}
+		imageView.setPositionX(request.positionX);
+		imageView.setPositionY(request.positionY);
+	}
+
+	/**
+	 * Publish a slot that has been painted completely.
+	 */
+	private void publish(Request request, Slot slot)
+	{
+		LabelLayout labels = planRenderer.getPlacedLabelLayout();
+		synchronized (lock) {
+			front = slot;
+			frontRequest = request;
+			frontComplete = true;
+			frontLabels = labels;
+		}
+		SwingUtilities.invokeLater(() -> listener.renderPublished());
+	}
+
+	/**
+	 * Publish the current content of a slot that is still being painted by
+	 * copying it to the other slot, which is not painted into during this
+	 * render.
+	 */
+	private void publishCopy(Request request, Slot slot)
+	{
+		synchronized (lock) {
+			Slot copy = slot == slots[0] ? slots[1] : slots[0];
+			copy.ensureSize(slot.image.getWidth(), slot.image.getHeight());
+			copy.g.drawImage(slot.image, 0, 0, null);
+			front = copy;
+			frontRequest = request;
+			frontComplete = false;
+			frontLabels = null;
+		}
+		SwingUtilities.invokeLater(() -> listener.renderPublished());
+	}
+
+}
@@ -0,0 +1,215 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkCloner;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+
+/**
+ * The state of a line network and its view status at one point in time.
+ *
+ * A snapshot is taken on the thread that modifies the network and applied to
+ * a copy of the network that only the rendering thread uses, so that a render
+ * never sees a network that is being modified. Nodes, edges and lines are
+ * matched by their position within the network, which is the same in copies
+ * created by {@link LineNetworkCloner}.
+ */
+class RenderSnapshot
+{
+
+	/**
+	 * The locations of the nodes and the neighbor locations of the edges.
+	 */
+	static class Locations
+	{
+
+		// x and y of each node
+		private final double[] nodes;
+		// x and y of the previous and the next location of each edge, NaN if
+		// the edge has no such location
+		private final double[] edges;
+		private final int[] revisions;
+
+		Locations(LineNetwork network)
+		{
+			List<Node> nodeList = network.getNodes();
+			final int nNodes = nodeList.size();
+			nodes = new double[nNodes * 2];
+			for (int i = 0; i < nNodes; i++) {
+				Point location = nodeList.get(i).location;
+				nodes[i * 2] = location.x;
+				nodes[i * 2 + 1] = location.y;
+			}
+
+			List<Edge> edgeList = network.getEdges();
+			final int nEdges = edgeList.size();
+			edges = new double[nEdges * 4];
+			revisions = new int[nEdges];
+			for (int i = 0; i < nEdges; i++) {
+				Edge edge = edgeList.get(i);
+				put(edges, i * 4, edge.prev);
+				put(edges, i * 4 + 2, edge.next);
+				revisions[i] = edge.revision;
+			}
+		}
+
+		void applyTo(LineNetwork copy)
+		{
+			List<Node> moved = new ArrayList<>();
+			List<Node> nodeList = copy.getNodes();
+			final int nNodes = nodeList.size();
+			for (int i = 0; i < nNodes; i++) {
+				Node node = nodeList.get(i);
+				double x = nodes[i * 2];
+				double y = nodes[i * 2 + 1];
+				if (node.location.x != x || node.location.y != y) {
+					node.location = new Point(x, y);
+					moved.add(node);
+				}
+			}
+
+			List<Edge> edgeList = copy.getEdges();
+			final int nEdges = edgeList.size();
+			for (int i = 0; i < nEdges; i++) {
+				Edge edge = edgeList.get(i);
+				edge.setPrev(get(edges, i * 4, edge.prev));
+				edge.setNext(get(edges, i * 4 + 2, edge.next));
+				edge.revision = revisions[i];
+			}
+
+			// the index relocates edges as well, so update it last
+			for (Node node : moved) {
+				copy.updateIndex(node);
+			}
+		}
+
+		private static void put(double[] values, int offset, Point point)
+		{
+			if (point == null) {
+				values[offset] = Double.NaN;
+				values[offset + 1] = Double.NaN;
+			} else {
+				values[offset] = point.x;
+				values[offset + 1] = point.y;
+			}
+		}
+
+		private static Point get(double[] values, int offset, Point current)
+		{
+			double x = values[offset];
+			double y = values[offset + 1];
+			if (Double.isNaN(x)) {
+				return null;
+			}
+			if (current != null && current.x == x && current.y == y) {
+				return current;
+			}
+			return new Point(x, y);
+		}
+
+	}
+
+	/**
+	 * The selected nodes and the selected and hidden lines.
+	 */
+	static class Status
+	{
+
+		private final BitSet selectedNodes = new BitSet();
+		private final BitSet selectedLines = new BitSet();
+		private final BitSet hiddenLines = new BitSet();
+
+		Status(LineNetwork network, MapViewStatus status)
+		{
+			List<Node> nodes = network.getNodes();
+			final int nNodes = nodes.size();
+			for (int i = 0; i < nNodes; i++) {
+				if (status.isNodeSelected(nodes.get(i))) {
+					selectedNodes.set(i);
+				}
+			}
+
+			List<NetworkLine> lines = network.getLines();
+			final int nLines = lines.size();
+			for (int i = 0; i < nLines; i++) {
+				NetworkLine line = lines.get(i);
+				if (status.isLineSelected(line)) {
+					selectedLines.set(i);
+				}
+				if (status.isLineHidden(line)) {
+					hiddenLines.set(i);
+				}
+			}
+		}
+
+		/**
+		 * Change the status of the copy of the network to match this
+		 * snapshot. Only actual changes are applied, so that data derived from
+		 * the hidden lines stays valid if they did not change.
+		 */
+		void applyTo(LineNetwork copy, MapViewStatus status)
+		{
+			List<Node> nodes = copy.getNodes();
+			final int nNodes = nodes.size();
+			for (int i = 0; i < nNodes; i++) {
+				Node node = nodes.get(i);
+				boolean selected = selectedNodes.get(i);
+				if (selected != status.isNodeSelected(node)) {
+					if (selected) {
+						status.selectNode(node);
+					} else {
+						status.unselectNode(node);
+					}
+				}
+			}
+
+			List<NetworkLine> lines = copy.getLines();
+			final int nLines = lines.size();
+			for (int i = 0; i < nLines; i++) {
+				NetworkLine line = lines.get(i);
+				boolean selected = selectedLines.get(i);
+				if (selected != status.isLineSelected(line)) {
+					if (selected) {
+						status.selectLine(line);
+					} else {
+						status.unselectLine(line);
+					}
+				}
+				boolean hidden = hiddenLines.get(i);
+				if (hidden != status.isLineHidden(line)) {
+					if (hidden) {
+						status.hideLine(line);
+					} else {
+						status.unhideLine(line);
+					}
+				}
+			}
+		}
+
+	}
+
+}
@@ -18,36 +18,112 @@
 package org.openmetromaps.maps;
 
 import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 
+import org.openmetromaps.maps.PlanRenderer.Pass;
 import org.openmetromaps.maps.PlanRenderer.SegmentMode;
 import org.openmetromaps.maps.PlanRenderer.StationMode;
 import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.SceneRegion;
+import org.openmetromaps.maps.metrics.CompositeRenderMetrics;
+import org.openmetromaps.maps.metrics.FrameMetrics;
+import org.openmetromaps.maps.metrics.JfrRenderMetrics;
+import org.openmetromaps.maps.metrics.RenderMetrics;
+import org.openmetromaps.maps.metrics.RenderStatistics;
+import org.openmetromaps.maps.metrics.RollingHistogram;
 import org.openmetromaps.maps.model.ModelData;
 import org.openmetromaps.maps.painting.awt.AwtPainter;
 import org.openmetromaps.maps.painting.core.GenericPaintFactory;
-import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.core.RecordingPainter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import de.topobyte.viewports.geometry.Coordinate;
+import de.topobyte.viewports.geometry.Envelope;
+import de.topobyte.viewports.scrolling.ViewportListener;
 
 public class ScrollableAdvancedPanel extends BaseMapWindowPanel
 {
 
 	private static final long serialVersionUID = 1L;
 
+	// distance in pixels by which the view can be moved before the display
+	// list needs to be recorded again
+	private static final int RECORDING_MARGIN = 256;
+
+	final static Logger logger = LoggerFactory
+			.getLogger(ScrollableAdvancedPanel.class);
+
 	private ModelData data;
 	private MapView view;
 	private LineNetwork lineNetwork;
 	private MapViewStatus mapViewStatus;
 	private PlanRenderer renderer;
+	private AwtPainter painter = null;
 
 	private StationMode stationMode;
 	private SegmentMode segmentMode;
 
 	private float scale;
 
+	private RenderStatistics statistics = null;
+	private RenderMetrics jfrMetrics = JfrRenderMetrics.isEnabled()
+			? new JfrRenderMetrics() : null;
+	private Rectangle statisticsBounds = null;
+	private Rectangle selectionRectangle = null;
+
+	// regions of the scene changed since the last paint, see repaintScene()
+	private SceneRegion damage = new SceneRegion();
+	private SceneRegion labelDamage = new SceneRegion();
+	// whether only repaints of parts of the view that do not require
+	// painting more than the damaged region have been requested
+	private boolean partialRepaint = false;
+	private boolean fullRepaint = false;
+	private boolean requestingPartialRepaint = false;
+
+	private boolean asyncRendering = false;
+	private RenderScheduler scheduler = null;
+	private boolean published = false;
+
+	private boolean useBackBuffer = true;
+	private Image buffer = null;
+	private boolean zoomPreview = false;
+
+	// the state the buffer has been rendered for
+	private PlanRenderer bufferRenderer;
+	private int bufferRendererRevision;
+	private int bufferStatusRevision;
+	private int bufferIndexRevision;
+	private double bufferZoom;
+	private double bufferPositionX;
+	private double bufferPositionY;
+
+	private boolean useDisplayList = true;
+	private RecordingPainter displayList = null;
+	private boolean panned = false;
+
+	// the state the display list has been recorded for
+	private PlanRenderer recordedRenderer;
+	private int recordedRendererRevision;
+	private int recordedStatusRevision;
+	private int recordedIndexRevision;
+	private int recordedWidth;
+	private int recordedHeight;
+	private double recordedPositionX;
+	private double recordedPositionY;
+
 	public ScrollableAdvancedPanel(ModelData data, MapView view,
 			MapViewStatus mapViewStatus, StationMode stationMode,
 			SegmentMode segmentMode, int minZoom, int maxZoom, float scale)
@@ -68,6 +144,28 @@ public class ScrollableAdvancedPanel extends BaseMapWindowPanel
 
 		initRenderer();
 
+		addViewportListener(new ViewportListener() {
+
+			@Override
+			public void viewportChanged()
+			{
+				panned = true;
+			}
+
+			@Override
+			public void zoomChanged()
+			{
+				// the renderer's revision changes
+			}
+
+			@Override
+			public void complexChange()
+			{
+				// the renderer's revision changes
+			}
+
+		});
+
 		ViewActions.setupMovementActions(getInputMap(), getActionMap(), this);
 
 		setFocusable(true);
@@ -77,6 +175,15 @@ public class ScrollableAdvancedPanel extends BaseMapWindowPanel
 	{
 		renderer = new PlanRenderer(lineNetwork, mapViewStatus, stationMode,
 				segmentMode, this, this, scale, new GenericPaintFactory());
+		// interactive views trade detail for speed when zoomed out
+		renderer.setLevelOfDetail(LevelOfDetail.createDefault());
+		updateRenderMetrics();
+	}
+
+	private void updateRenderMetrics()
+	{
+		renderer.setRenderMetrics(
+				CompositeRenderMetrics.of(statistics, jfrMetrics));
 	}
 
 	public ModelData getData()
@@ -112,21 +219,672 @@ public class ScrollableAdvancedPanel extends BaseMapWindowPanel
 		return renderer;
 	}
 
+	public RenderStatistics getRenderStatistics()
+	{
+		return statistics;
+	}
+
+	/**
+	 * Collect statistics of the frames rendered for this panel and show them
+	 * on top of the map, or stop collecting them if null.
+	 */
+	public void setRenderStatistics(RenderStatistics statistics)
+	{
+		this.statistics = statistics;
+		updateRenderMetrics();
+		repaint();
+	}
+
+	public Rectangle getSelectionRectangle()
+	{
+		return selectionRectangle;
+	}
+
+	/**
+	 * Show a rectangle in view coordinates on top of the map, such as the
+	 * area spanned while selecting with the mouse, or nothing if null.
+	 */
+	public void setSelectionRectangle(Rectangle selectionRectangle)
+	{
+		Rectangle changed = union(this.selectionRectangle, selectionRectangle);
+		this.selectionRectangle = selectionRectangle;
+		if (changed != null) {
+			// include the outline drawn on the right and bottom edges
+			changed.width++;
+			changed.height++;
+			repaintView(changed);
+		}
+	}
+
+	private static Rectangle union(Rectangle a, Rectangle b)
+	{
+		if (a == null) {
+			return b == null ? null : new Rectangle(b);
+		}
+		return b == null ? new Rectangle(a) : a.union(b);
+	}
+
+	/**
+	 * Repaint the parts of the map affected by changes of nodes and edges
+	 * within the specified region of the scene, such as the regions computed
+	 * by an {@link org.openmetromaps.maps.graph.EdgeUpdater}, instead of the
+	 * whole map. The regions need to include the state before and after the
+	 * change.
+	 *
+	 * @param labels
+	 *            the region covered by nodes whose labels may have changed,
+	 *            such as moved nodes.
+	 */
+	public void repaintScene(SceneRegion region, SceneRegion labels)
+	{
+		if (region.isEmpty() && labels.isEmpty()) {
+			return;
+		}
+		if (scheduler != null) {
+			scheduler.adoptLabels(renderer);
+		}
+		Envelope area = renderer.getDamage(region, labels);
+		if (area == null) {
+			repaint();
+			return;
+		}
+		damage.include(region);
+		labelDamage.include(labels);
+		repaintView(toRectangle(area));
+	}
+
+	private boolean isDamaged()
+	{
+		return !damage.isEmpty() || !labelDamage.isEmpty();
+	}
+
+	/**
+	 * Request painting a part of the view, assuming that the map has not
+	 * changed outside of the damaged region of the scene.
+	 */
+	private void repaintView(Rectangle area)
+	{
+		partialRepaint = true;
+		requestingPartialRepaint = true;
+		try {
+			repaint(area);
+			if (statisticsBounds != null) {
+				repaint(statisticsBounds);
+			}
+		} finally {
+			requestingPartialRepaint = false;
+		}
+	}
+
+	@Override
+	public void repaint(long tm, int x, int y, int width, int height)
+	{
+		if (!requestingPartialRepaint) {
+			fullRepaint = true;
+		}
+		super.repaint(tm, x, y, width, height);
+	}
+
+	private static Rectangle toRectangle(Envelope envelope)
+	{
+		int x1 = (int) Math.floor(envelope.getMinX());
+		int y1 = (int) Math.floor(envelope.getMinY());
+		int x2 = (int) Math.ceil(envelope.getMaxX());
+		int y2 = (int) Math.ceil(envelope.getMaxY());
+		return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+	}
+
+	public boolean isUseDisplayList()
+	{
+		return useDisplayList;
+	}
+
+	/**
+	 * Whether to record the painted map into a display list that is replayed
+	 * at an offset while the view is only moved, instead of painting the map
+	 * again.
+	 */
+	public void setUseDisplayList(boolean useDisplayList)
+	{
+		this.useDisplayList = useDisplayList;
+		displayList = null;
+	}
+
+	public boolean isAsyncRendering()
+	{
+		return asyncRendering;
+	}
+
+	/**
+	 * Whether to render the map on a background thread. Painting then only
+	 * draws the latest rendered image, moved and scaled to the current view,
+	 * and requests a new render if that image does not match the view.
+	 * Damage reported with {@link #repaintScene(SceneRegion, SceneRegion)}
+	 * is still painted right away, into that image.
+	 */
+	public void setAsyncRendering(boolean asyncRendering)
+	{
+		this.asyncRendering = asyncRendering;
+		if (!asyncRendering && scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+		repaint();
+	}
+
+	public boolean isUseBackBuffer()
+	{
+		return useBackBuffer;
+	}
+
+	/**
+	 * Whether to render the map into an offscreen buffer that is larger than
+	 * the panel by the renderer's overdraw margin on each side. Small moves
+	 * of the view are then served by copying the buffer and only the newly
+	 * exposed parts of the map are rendered.
+	 */
+	public void setUseBackBuffer(boolean useBackBuffer)
+	{
+		this.useBackBuffer = useBackBuffer;
+		buffer = null;
+	}
+
 	@Override
 	protected void paintComponent(Graphics graphics)
 	{
 		super.paintComponent(graphics);
 
 		Graphics2D g = (Graphics2D) graphics;
+
+		// Repaints that are not caused by moving the view may be caused by
+		// modifications of the data that are not reflected by any revision,
+		// so cached results are only used after the view has been moved.
+		boolean moved = panned;
+		panned = false;
+
+		// Repaints requested for parts of the view only need to paint the
+		// damaged region, unless other repaints have been requested as well.
+		boolean partial = partialRepaint && !fullRepaint && !moved;
+		partialRepaint = false;
+		fullRepaint = false;
+
+		if (getWidth() > 0 && getHeight() > 0 && asyncRendering) {
+			if (partial) {
+				paintAsyncDamage(g);
+			} else {
+				paintAsync(g, moved);
+			}
+		} else if (getWidth() > 0 && getHeight() > 0 && useBackBuffer) {
+			paintBackBuffer(g, moved, partial);
+		} else if (partial) {
+			paintDamage(g);
+		} else {
+			renderMap(g, moved, false);
+		}
+		damage.clear();
+		labelDamage.clear();
+
+		if (selectionRectangle != null) {
+			g.setColor(new Color(0, 120, 215, 48));
+			g.fill(selectionRectangle);
+			g.setColor(new Color(0, 120, 215));
+			g.draw(selectionRectangle);
+		}
+
+		if (statistics != null) {
+			paintStatistics(g, statistics);
+		}
+	}
+
+	/**
+	 * @param direct
+	 *            whether to paint without the display list, which is useful
+	 *            if only a small part of the map is painted.
+	 */
+	private void renderMap(Graphics2D g, boolean moved, boolean direct)
+	{
+		setupPainter(g);
+		painter.resetStateSwitches();
+
+		g.setColor(Color.WHITE);
+		fillRect(g, scene.getX1(), scene.getY1(), scene.getX2(), scene.getY2());
+
+		if (useDisplayList && !direct) {
+			paintDisplayList(moved);
+		} else {
+			renderer.paint(painter);
+		}
+	}
+
+	private void setupPainter(Graphics2D g)
+	{
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
 				RenderingHints.VALUE_ANTIALIAS_ON);
 
-		Painter painter = new AwtPainter(g);
+		// reuse the painter to keep its cached strokes, colors and fonts
+		if (painter == null) {
+			painter = new AwtPainter(g);
+		} else {
+			painter.setGraphics(g);
+		}
+	}
+
+	/**
+	 * Get the area of the view affected by the damaged region of the scene,
+	 * including labels that are shown or hidden differently because of the
+	 * changes.
+	 *
+	 * @return the area or null if it cannot be determined.
+	 */
+	private Rectangle damageArea(Graphics2D g)
+	{
+		setupPainter(g);
+		if (!renderer.includeLabelChanges(painter, labelDamage)) {
+			return null;
+		}
+		Envelope area = renderer.getDamage(damage, labelDamage);
+		return area == null ? null : toRectangle(area);
+	}
+
+	/**
+	 * Paint the part of the map within the clip of the graphics directly,
+	 * after the map has changed within the damaged region only.
+	 */
+	private void paintDamage(Graphics2D g)
+	{
+		Rectangle area = null;
+		if (isDamaged()) {
+			area = damageArea(g);
+			if (area == null) {
+				repaint();
+				return;
+			}
+		}
+
+		renderMap(g, false, true);
 
+		// labels that changed because of the damage may be located outside of
+		// the area that has been requested to be painted
+		Rectangle clip = g.getClipBounds();
+		if (area != null && clip != null && !clip.contains(area)) {
+			repaintView(area);
+		}
+	}
+
+	private void paintStatistics(Graphics2D g, RenderStatistics statistics)
+	{
+		FrameMetrics last = statistics.getLast();
+		RollingHistogram total = statistics.getTotal();
+
+		String[] lines = new String[] {
+				String.format("frame: %.1f ms (p50 %.1f, p99 %.1f)",
+						millis(last.getTotalNanos()),
+						millis(total.getPercentile(0.5)),
+						millis(total.getPercentile(0.99))),
+				String.format("segments %.1f, stations %.1f, labels %.1f ms",
+						millis(last.getPassNanos(Pass.SEGMENTS)),
+						millis(last.getPassNanos(Pass.STATIONS)),
+						millis(last.getPassNanos(Pass.LABELS))),
+				String.format("edges: %d drawn, %d culled",
+						last.getEdgesDrawn(), last.getEdgesCulled()),
+				String.format("stations: %d drawn, %d culled",
+						last.getStationsDrawn(), last.getStationsCulled()),
+				String.format("labels: %d placed, %d rejected",
+						last.getLabelsPlaced(), last.getLabelsRejected()),
+				String.format("paint switches: %d", last.getPaintSwitches()),
+				String.format("frames: %d, cancelled: %d",
+						statistics.getFrames(), statistics.getCancelled()) };
+
+		g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+		FontMetrics metrics = g.getFontMetrics();
+		int lineHeight = metrics.getHeight();
+		int width = 0;
+		for (String line : lines) {
+			width = Math.max(width, metrics.stringWidth(line));
+		}
+
+		int padding = 5;
+		g.setColor(new Color(0, 0, 0, 160));
+		g.fillRect(padding, padding, width + 2 * padding,
+				lines.length * lineHeight + 2 * padding);
 		g.setColor(Color.WHITE);
-		fillRect(g, scene.getX1(), scene.getY1(), scene.getX2(), scene.getY2());
+		for (int i = 0; i < lines.length; i++) {
+			g.drawString(lines[i], 2 * padding,
+					2 * padding + i * lineHeight + metrics.getAscent());
+		}
+		statisticsBounds = new Rectangle(padding, padding,
+				width + 2 * padding, lines.length * lineHeight + 2 * padding);
+	}
+
+	private static double millis(long nanos)
+	{
+		return nanos / 1e6;
+	}
+
+	private void paintAsync(Graphics2D g, boolean moved)
+	{
+		if (scheduler == null) {
+			scheduler = new RenderScheduler(() -> {
+				published = true;
+				repaint();
+			});
+		}
+
+		// repaints caused by a published render do not need another one
+		boolean force = !moved && !published;
+		published = false;
+
+		scheduler.request(request(), force);
+		paintPublished(g);
+	}
+
+	private RenderScheduler.Request request()
+	{
+		return new RenderScheduler.Request(renderer, scene, getBackground(),
+				getPositionX(), getPositionY(), getZoom(), getWidth(),
+				getHeight(), renderer.getOverDrawPixels());
+	}
+
+	private void paintPublished(Graphics2D g)
+	{
+		g.setColor(getBackground());
+		g.fillRect(0, 0, getWidth(), getHeight());
+		scheduler.paint(g, getPositionX(), getPositionY(), getZoom());
+	}
+
+	/**
+	 * Paint the damaged region of the scene into the latest rendered image on
+	 * this thread, so that edits show up without waiting for the background
+	 * thread, and paint that image. Falls back to requesting a render of the
+	 * whole view if the image cannot be repaired.
+	 */
+	private void paintAsyncDamage(Graphics2D g)
+	{
+		if (scheduler == null) {
+			paintAsync(g, false);
+			return;
+		}
+
+		Rectangle[] area = new Rectangle[1];
+		if (isDamaged()) {
+			scheduler.adoptLabels(renderer);
+			boolean repaired = scheduler.repair(request(), ig -> {
+				area[0] = damageArea(ig);
+				if (area[0] == null) {
+					return false;
+				}
+				int margin = renderer.getOverDrawPixels();
+				// include elements that reach into the margin of the image
+				renderer.setOverDrawPixels(margin * 2);
+				try {
+					ig.setClip(area[0]);
+					ig.setColor(getBackground());
+					ig.fill(area[0]);
+					renderMap(ig, false, true);
+				} finally {
+					renderer.setOverDrawPixels(margin);
+				}
+				return true;
+			});
+			if (!repaired) {
+				paintAsync(g, false);
+				return;
+			}
+		}
+		paintPublished(g);
+
+		// labels that changed because of the damage may be located outside of
+		// the area that has been requested to be painted
+		Rectangle clip = g.getClipBounds();
+		if (area[0] != null && clip != null && !clip.contains(area[0])) {
+			repaintView(area[0]);
+		}
+	}
+
+	private void paintBackBuffer(Graphics2D g, boolean moved, boolean partial)
+	{
+		int margin = renderer.getOverDrawPixels();
+		int width = getWidth() + 2 * margin;
+		int height = getHeight() + 2 * margin;
+
+		boolean contentValid = validateBuffer(width, height);
+
+		if (contentValid && getZoom() != bufferZoom) {
+			// show the old buffer scaled to the new zoom level first and
+			// render in a later paint, which also coalesces quick zooming
+			if (!zoomPreview) {
+				paintZoomPreview(g, margin);
+				zoomPreview = true;
+				repaint();
+				return;
+			}
+			contentValid = false;
+		}
+
+		boolean reuse = contentValid && bufferRenderer == renderer
+				&& bufferRendererRevision == renderer.getRevision();
+		if (!partial) {
+			reuse &= moved && !isDamaged()
+					&& bufferStatusRevision == mapViewStatus.getRevision()
+					&& bufferIndexRevision == lineNetwork.getIndex()
+							.getRevision();
+		}
+
+		// the buffer is only changed within the damaged area
+		Rectangle area = null;
+		if (reuse && partial && isDamaged()) {
+			Graphics2D bg = (Graphics2D) buffer.getGraphics();
+			try {
+				area = damageArea(bg);
+			} finally {
+				bg.dispose();
+			}
+			reuse = area != null;
+		}
+
+		double dx = (getPositionX() - bufferPositionX) * getZoom();
+		double dy = (getPositionY() - bufferPositionY) * getZoom();
+		long ox = Math.round(dx);
+		long oy = Math.round(dy);
+		// the buffer can only be copied by whole pixels
+		boolean whole = Math.abs(dx - ox) < 1e-3 && Math.abs(dy - oy) < 1e-3;
+
+		if (!reuse || !whole || Math.abs(ox) >= width
+				|| Math.abs(oy) >= height) {
+			renderBuffer(null, margin, moved, false);
+			ox = 0;
+			oy = 0;
+		} else if (area != null) {
+			renderBuffer(new Rectangle(area.x + margin, area.y + margin,
+					area.width, area.height), margin, false, true);
+		} else if (Math.abs(ox) > margin || Math.abs(oy) > margin) {
+			scrollBuffer((int) ox, (int) oy, margin, moved);
+			ox = 0;
+			oy = 0;
+		}
+
+		g.drawImage(buffer, (int) ox - margin, (int) oy - margin, null);
+
+		// labels that changed because of the damage may be located outside of
+		// the area that has been requested to be painted
+		Rectangle clip = g.getClipBounds();
+		if (area != null && clip != null && !clip.contains(area)) {
+			repaintView(area);
+		}
+
+		if (buffer instanceof VolatileImage
+				&& ((VolatileImage) buffer).contentsLost()) {
+			// validating the buffer on the next paint restores it
+			repaint();
+		}
+	}
+
+	/**
+	 * Make sure that a buffer of the specified size exists.
+	 *
+	 * @return whether the buffer still has the content of the last render.
+	 */
+	private boolean validateBuffer(int width, int height)
+	{
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		if (buffer != null && buffer.getWidth(null) == width
+				&& buffer.getHeight(null) == height) {
+			if (!(buffer instanceof VolatileImage)) {
+				return true;
+			}
+			int status = ((VolatileImage) buffer).validate(gc);
+			if (status == VolatileImage.IMAGE_OK) {
+				return true;
+			}
+			if (status == VolatileImage.IMAGE_RESTORED) {
+				return false;
+			}
+		}
+
+		buffer = null;
+		if (gc != null) {
+			buffer = gc.createCompatibleVolatileImage(width, height);
+		}
+		if (buffer == null) {
+			buffer = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_RGB);
+		}
+		return false;
+	}
+
+	private void paintZoomPreview(Graphics2D g, int margin)
+	{
+		double zoom = getZoom();
+		double s = zoom / bufferZoom;
+		double tx = (getPositionX() - bufferPositionX) * zoom - margin * s;
+		double ty = (getPositionY() - bufferPositionY) * zoom - margin * s;
+
+		g.setColor(getBackground());
+		g.fillRect(0, 0, getWidth(), getHeight());
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+				RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(buffer, new AffineTransform(s, 0, 0, s, tx, ty), null);
+	}
+
+	/**
+	 * Move the content of the buffer to the current position of the view and
+	 * render the parts that have not been covered before.
+	 */
+	private void scrollBuffer(int ox, int oy, int margin, boolean moved)
+	{
+		int width = buffer.getWidth(null);
+		int height = buffer.getHeight(null);
+
+		Graphics2D g = (Graphics2D) buffer.getGraphics();
+		try {
+			g.copyArea(0, 0, width, height, ox, oy);
+		} finally {
+			g.dispose();
+		}
+
+		Area exposed = new Area();
+		if (ox > 0) {
+			exposed.add(new Area(new Rectangle(0, 0, ox, height)));
+		} else if (ox < 0) {
+			exposed.add(new Area(new Rectangle(width + ox, 0, -ox, height)));
+		}
+		if (oy > 0) {
+			exposed.add(new Area(new Rectangle(0, 0, width, oy)));
+		} else if (oy < 0) {
+			exposed.add(new Area(new Rectangle(0, height + oy, width, -oy)));
+		}
+
+		renderBuffer(exposed, margin, moved, false);
+	}
+
+	/**
+	 * Render the map into the specified region of the buffer or into the
+	 * whole buffer if the region is null.
+	 *
+	 * @param direct
+	 *            whether to paint without the display list.
+	 */
+	private void renderBuffer(Shape region, int margin, boolean moved,
+			boolean direct)
+	{
+		if (region == null) {
+			region = new Rectangle(0, 0, buffer.getWidth(null),
+					buffer.getHeight(null));
+		}
+
+		Graphics2D g = (Graphics2D) buffer.getGraphics();
+		// include elements that reach into the margin of the buffer
+		renderer.setOverDrawPixels(margin * 2);
+		try {
+			g.setClip(region);
+			g.setColor(getBackground());
+			g.fill(region);
+			g.translate(margin, margin);
+			renderMap(g, moved, direct);
+		} finally {
+			renderer.setOverDrawPixels(margin);
+			g.dispose();
+		}
+
+		zoomPreview = false;
+		bufferRenderer = renderer;
+		bufferRendererRevision = renderer.getRevision();
+		bufferStatusRevision = mapViewStatus.getRevision();
+		bufferIndexRevision = lineNetwork.getIndex().getRevision();
+		bufferZoom = getZoom();
+		bufferPositionX = getPositionX();
+		bufferPositionY = getPositionY();
+	}
+
+	private void paintDisplayList(boolean moved)
+	{
+		double dx = (getPositionX() - recordedPositionX) * getZoom();
+		double dy = (getPositionY() - recordedPositionY) * getZoom();
+
+		boolean valid = displayList != null && moved
+				&& recordedRenderer == renderer
+				&& recordedRendererRevision == renderer.getRevision()
+				&& recordedStatusRevision == mapViewStatus.getRevision()
+				&& recordedIndexRevision == lineNetwork.getIndex()
+						.getRevision()
+				&& recordedWidth == getWidth() && recordedHeight == getHeight()
+				&& Math.abs(dx) <= RECORDING_MARGIN
+				&& Math.abs(dy) <= RECORDING_MARGIN;
+
+		if (!valid) {
+			record();
+			dx = 0;
+			dy = 0;
+		}
+
+		displayList.replay(painter, dx, dy);
+	}
+
+	private void record()
+	{
+		if (displayList == null) {
+			displayList = new RecordingPainter(painter);
+		} else {
+			displayList.clear();
+			displayList.setMetrics(painter);
+		}
+
+		int overDraw = renderer.getOverDrawPixels();
+		renderer.setOverDrawPixels(overDraw + RECORDING_MARGIN);
+		try {
+			renderer.paint(displayList);
+		} finally {
+			renderer.setOverDrawPixels(overDraw);
+		}
 
-		renderer.paint(painter);
+		recordedRenderer = renderer;
+		recordedRendererRevision = renderer.getRevision();
+		recordedStatusRevision = mapViewStatus.getRevision();
+		recordedIndexRevision = lineNetwork.getIndex().getRevision();
+		recordedWidth = getWidth();
+		recordedHeight = getHeight();
+		recordedPositionX = getPositionX();
+		recordedPositionY = getPositionY();
 	}
 
 }
@@ -49,6 +49,22 @@ public class ImageUtil
 				segmentMode);
 	}
 
+	/**
+	 * Create a PNG image like {@link #createPng} by rendering tiles of the
+	 * specified size on a number of threads. Memory usage depends on the tile
+	 * size and the image width instead of the total size of the image.
+	 */
+	public static void createTiledPng(MapModel model, Path path, int width,
+			int height, double x, double y, double zoom,
+			StationMode stationMode, SegmentMode segmentMode, int tileSize,
+			int threads) throws IOException
+	{
+		MapView view = model.getViews().get(0);
+		TiledPngRenderer renderer = new TiledPngRenderer(view, width, height,
+				x, y, zoom, stationMode, segmentMode, tileSize, threads);
+		renderer.render(path);
+	}
+
 	public static void createImage(MapModel model, Path path, String format,
 			int width, int height, double x, double y, double zoom,
 			StationMode stationMode, SegmentMode segmentMode) throws IOException
@@ -63,6 +63,13 @@ public class ImageView implements ViewportWithSignals, LocationToPoint
 		return height;
 	}
 
+	public void setSize(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+		fireViewportListenersViewportChanged();
+	}
+
 	public Rectangle getScene()
 	{
 		return scene;
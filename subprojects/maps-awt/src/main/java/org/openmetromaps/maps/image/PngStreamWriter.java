@@ -0,0 +1,216 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.image;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an 8 bit RGB PNG image row by row, so that images can be encoded
+ * without ever holding all of their pixels in memory.
+ *
+ * Rows are passed as packed RGB integers like in a {@link java.awt.Color} or
+ * a {@link java.awt.image.BufferedImage} of type TYPE_INT_RGB, the highest
+ * byte is ignored. Each row is written with the 'Sub' filter.
+ */
+public class PngStreamWriter implements Closeable
+{
+
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r',
+			'\n', 0x1A, '\n' };
+
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	private DataOutputStream out;
+	private int width;
+	private int height;
+
+	private Deflater compressor;
+	private DeflaterOutputStream deflater;
+	private byte[] row;
+	private int rowsWritten = 0;
+	private boolean closed = false;
+
+	public PngStreamWriter(OutputStream out, int width, int height)
+			throws IOException
+	{
+		this(out, width, height, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	public PngStreamWriter(OutputStream out, int width, int height,
+			int compressionLevel) throws IOException
+	{
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+
+		row = new byte[1 + width * 3];
+
+		this.out.write(SIGNATURE);
+
+		byte[] header = new byte[13];
+		putInt(header, 0, width);
+		putInt(header, 4, height);
+		header[8] = 8; // bit depth
+		header[9] = 2; // color type: RGB
+		header[10] = 0; // compression: deflate
+		header[11] = 0; // filter method: per-row filter types
+		header[12] = 0; // interlace: none
+		writeChunk("IHDR", header, header.length);
+
+		compressor = new Deflater(compressionLevel);
+		deflater = new DeflaterOutputStream(new IdatOutputStream(), compressor,
+				CHUNK_SIZE);
+	}
+
+	/**
+	 * Write a number of rows from the specified array, row i starting at
+	 * offset + i * scanline.
+	 */
+	public void writeRows(int[] rgb, int offset, int scanline, int numRows)
+			throws IOException
+	{
+		if (rowsWritten + numRows > height) {
+			throw new IOException("Too many rows");
+		}
+		for (int k = 0; k < numRows; k++) {
+			int start = offset + k * scanline;
+			row[0] = 1; // filter: sub
+			int pr = 0, pg = 0, pb = 0;
+			for (int x = 0, i = 1; x < width; x++, i += 3) {
+				int pixel = rgb[start + x];
+				int r = (pixel >> 16) & 0xFF;
+				int g = (pixel >> 8) & 0xFF;
+				int b = pixel & 0xFF;
+				row[i] = (byte) (r - pr);
+				row[i + 1] = (byte) (g - pg);
+				row[i + 2] = (byte) (b - pb);
+				pr = r;
+				pg = g;
+				pb = b;
+			}
+			deflater.write(row);
+		}
+		rowsWritten += numRows;
+	}
+
+	/**
+	 * Finish the image. All rows must have been written before. The native
+	 * resources of the compressor are released in any case.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (rowsWritten != height) {
+				throw new IOException(String.format(
+						"Incomplete image: %d of %d rows written", rowsWritten,
+						height));
+			}
+			deflater.close();
+			writeChunk("IEND", new byte[0], 0);
+			out.flush();
+		} finally {
+			compressor.end();
+		}
+	}
+
+	private void writeChunk(String type, byte[] data, int length)
+			throws IOException
+	{
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	private static void putInt(byte[] bytes, int offset, int value)
+	{
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * Splits the compressed data into IDAT chunks. Closing it does not close
+	 * the underlying stream.
+	 */
+	private class IdatOutputStream extends OutputStream
+	{
+
+		private byte[] buffer = new byte[CHUNK_SIZE];
+		private int size = 0;
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			if (size == buffer.length) {
+				flush();
+			}
+			buffer[size++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			while (len > 0) {
+				if (size == buffer.length) {
+					flush();
+				}
+				int n = Math.min(len, buffer.length - size);
+				System.arraycopy(b, off, buffer, size, n);
+				size += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			if (size > 0) {
+				writeChunk("IDAT", buffer, size);
+				size = 0;
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			flush();
+		}
+
+	}
+
+}
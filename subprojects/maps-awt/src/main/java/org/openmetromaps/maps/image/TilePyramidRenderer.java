@@ -0,0 +1,596 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.image;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openmetromaps.maps.LabelLayout;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.PlanRenderer.SegmentMode;
+import org.openmetromaps.maps.PlanRenderer.StationMode;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.IntList;
+import org.openmetromaps.maps.graph.LineNetworkIndex;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.graph.SceneRegion;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.core.GenericPaintFactory;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Rectangle;
+
+/**
+ * Renders a map view into a pyramid of square tiles stored as
+ * {@code z/x/y.png} below an output directory, as used by slippy maps.
+ *
+ * At zoom level 0 the scene fits into a single tile and each further level
+ * doubles the scale. Only the tiles covered by the boxes of the stations and
+ * segments in the spatial index are rendered, other tiles are not written.
+ * Labels are placed once per level, so that they are consistent across the
+ * borders of tiles.
+ *
+ * A hash of everything that determines the content of a tile is stored in a
+ * manifest file in the output directory. When rendering into the same
+ * directory again, tiles whose hash did not change are not rendered again.
+ */
+public class TilePyramidRenderer
+{
+
+	public static final String MANIFEST = "tiles.hashes";
+
+	/**
+	 * The highest level supported for any tile size, at which the tile
+	 * coordinates still fit into an int.
+	 */
+	public static final int MAX_LEVEL = 30;
+
+	private MapView view;
+	private MapViewStatus mapViewStatus = new MapViewStatus();
+	private StationMode stationMode;
+	private SegmentMode segmentMode;
+
+	private int tileSize;
+	private int threads;
+
+	private int overDrawPixels;
+	private double labelMargin;
+
+	private AtomicInteger numRendered = new AtomicInteger();
+	private AtomicInteger numUnchanged = new AtomicInteger();
+	private AtomicLong numEmpty = new AtomicLong();
+
+	public TilePyramidRenderer(MapView view, StationMode stationMode,
+			SegmentMode segmentMode, int tileSize, int threads)
+	{
+		this.view = view;
+		this.stationMode = stationMode;
+		this.segmentMode = segmentMode;
+		this.tileSize = tileSize;
+		this.threads = threads;
+	}
+
+	public int getNumRendered()
+	{
+		return numRendered.get();
+	}
+
+	public int getNumUnchanged()
+	{
+		return numUnchanged.get();
+	}
+
+	public long getNumEmpty()
+	{
+		return numEmpty.get();
+	}
+
+	/**
+	 * Get the highest level that can be rendered with the specified tile
+	 * size, which is limited by the size of the whole level in pixels having
+	 * to fit into an int.
+	 */
+	public static int getMaxLevel(int tileSize)
+	{
+		int level = 0;
+		while (level < MAX_LEVEL
+				&& (long) tileSize << (level + 1) <= Integer.MAX_VALUE) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Get the zoom factor that scales the scene to the size of the specified
+	 * tile pyramid level.
+	 */
+	public double getZoom(int level)
+	{
+		Rectangle scene = view.getConfig().getScene();
+		double size = Math.max(scene.getWidth(), scene.getHeight());
+		return tileSize / size * (1L << level);
+	}
+
+	/**
+	 * Render the levels from {@code minLevel} to {@code maxLevel} inclusive.
+	 *
+	 * @param incremental
+	 *            whether to skip tiles whose content did not change since the
+	 *            last run into the same directory.
+	 */
+	public void render(Path dir, int minLevel, int maxLevel,
+			boolean incremental) throws IOException
+	{
+		if (minLevel < 0 || maxLevel > getMaxLevel(tileSize)) {
+			throw new IllegalArgumentException(String.format(
+					"Levels %d to %d not supported with tile size %d",
+					minLevel, maxLevel, tileSize));
+		}
+
+		Path manifest = dir.resolve(MANIFEST);
+		Map<String, Long> previous = Collections.emptyMap();
+		if (incremental && Files.exists(manifest)) {
+			previous = readManifest(manifest);
+		}
+		Map<String, Long> hashes = new ConcurrentHashMap<>(previous);
+
+		BlockingQueue<TileRenderer> renderers = new ArrayBlockingQueue<>(
+				threads + 1);
+		// the submitting thread renders tiles too when the work queue is full
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+				0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(threads * 4),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+
+		try {
+			for (int level = minLevel; level <= maxLevel; level++) {
+				renderLevel(dir, level, renderers, executor, previous, hashes);
+			}
+		} finally {
+			executor.shutdownNow();
+			for (TileRenderer renderer : renderers) {
+				renderer.dispose();
+			}
+		}
+
+		Files.createDirectories(dir);
+		writeManifest(manifest, hashes);
+	}
+
+	private void renderLevel(Path dir, int level,
+			BlockingQueue<TileRenderer> renderers, ThreadPoolExecutor executor,
+			Map<String, Long> previous, Map<String, Long> hashes)
+			throws IOException
+	{
+		Rectangle scene = view.getConfig().getScene();
+		double zoom = getZoom(level);
+		int width = (int) Math.ceil(scene.getWidth() * zoom);
+		int height = (int) Math.ceil(scene.getHeight() * zoom);
+		int numX = (width + tileSize - 1) / tileSize;
+		int numY = (height + tileSize - 1) / tileSize;
+
+		LabelLayout labelLayout = layoutLabels(width, height, zoom);
+
+		if (renderers.isEmpty()) {
+			for (int i = 0; i < threads + 1; i++) {
+				renderers.add(new TileRenderer(view, mapViewStatus,
+						stationMode, segmentMode, tileSize, zoom,
+						labelLayout));
+			}
+		} else {
+			for (TileRenderer renderer : renderers) {
+				renderer.setZoom(zoom, labelLayout);
+			}
+		}
+
+		long[] tiles = occupiedTiles(zoom, numX, numY);
+		numEmpty.addAndGet((long) numX * numY - tiles.length);
+
+		CountDownLatch done = new CountDownLatch(tiles.length);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		for (long tile : tiles) {
+			int x = tileX(tile);
+			int y = tileY(tile);
+			executor.execute(() -> {
+				try {
+					if (error.get() == null) {
+						renderTile(dir, level, x, y, zoom, labelLayout,
+								renderers, previous, hashes);
+					}
+				} catch (Throwable e) {
+					error.compareAndSet(null, e);
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering tiles", e);
+		}
+		if (error.get() != null) {
+			throw new IOException("Error while rendering tile", error.get());
+		}
+
+		// remove tiles of earlier runs that are not covered anymore
+		String prefix = level + "/";
+		for (String key : new ArrayList<>(hashes.keySet())) {
+			if (!key.startsWith(prefix)) {
+				continue;
+			}
+			String[] parts = key.split("/");
+			int x = Integer.parseInt(parts[1]);
+			int y = Integer.parseInt(parts[2]);
+			if (Arrays.binarySearch(tiles, tile(x, y)) < 0) {
+				hashes.remove(key);
+				Files.deleteIfExists(tilePath(dir, level, x, y));
+			}
+		}
+	}
+
+	/**
+	 * Find the tiles that the boxes of the nodes and edges in the spatial
+	 * index reach into, using the same margins as when querying the elements
+	 * of a tile.
+	 *
+	 * @return the tiles as created by {@link #tile(int, int)}, sorted by row
+	 *         and column.
+	 */
+	private long[] occupiedTiles(double zoom, int numX, int numY)
+	{
+		Rectangle scene = view.getConfig().getScene();
+		LineNetworkIndex index = view.getLineNetwork().getIndex();
+		double margin = overDrawPixels / zoom;
+		double nodeMargin = Math.max(margin, labelMargin / zoom);
+		double tileScene = tileSize / zoom;
+
+		TileList tiles = new TileList();
+		SceneRegion region = new SceneRegion();
+		int numNodes = index.getNumNodes();
+		int numEdges = index.getNumEdges();
+		for (int i = 0; i < numNodes + numEdges; i++) {
+			region.clear();
+			double m;
+			if (i < numNodes) {
+				index.includeNode(i, region);
+				m = nodeMargin;
+			} else {
+				index.includeEdge(i - numNodes, region);
+				m = margin;
+			}
+			int tx1 = tileIndex(region.getMinX() - m - scene.getX1(),
+					tileScene, numX);
+			int tx2 = tileIndex(region.getMaxX() + m - scene.getX1(),
+					tileScene, numX);
+			int ty1 = tileIndex(region.getMinY() - m - scene.getY1(),
+					tileScene, numY);
+			int ty2 = tileIndex(region.getMaxY() + m - scene.getY1(),
+					tileScene, numY);
+			for (int ty = ty1; ty <= ty2; ty++) {
+				for (int tx = tx1; tx <= tx2; tx++) {
+					tiles.add(tile(tx, ty));
+				}
+			}
+		}
+		return tiles.toSortedDistinct();
+	}
+
+	private static int tileIndex(double offset, double tileScene, int num)
+	{
+		double t = Math.floor(offset / tileScene);
+		return (int) Math.max(0, Math.min(num - 1, t));
+	}
+
+	private static long tile(int x, int y)
+	{
+		return (long) y << 32 | x;
+	}
+
+	private static int tileX(long tile)
+	{
+		return (int) tile;
+	}
+
+	private static int tileY(long tile)
+	{
+		return (int) (tile >>> 32);
+	}
+
+	private void renderTile(Path dir, int level, int x, int y, double zoom,
+			LabelLayout labelLayout, BlockingQueue<TileRenderer> renderers,
+			Map<String, Long> previous, Map<String, Long> hashes)
+			throws IOException, InterruptedException
+	{
+		Rectangle scene = view.getConfig().getScene();
+		String key = level + "/" + x + "/" + y;
+		Path path = tilePath(dir, level, x, y);
+
+		double x1 = scene.getX1() + x * tileSize / zoom;
+		double y1 = scene.getY1() + y * tileSize / zoom;
+		double x2 = x1 + tileSize / zoom;
+		double y2 = y1 + tileSize / zoom;
+
+		LineNetworkIndex index = view.getLineNetwork().getIndex();
+		double margin = overDrawPixels / zoom;
+		double nodeMargin = Math.max(margin, labelLayout.getMargin() / zoom);
+		IntList edges = new IntList();
+		IntList nodes = new IntList();
+		index.queryEdges(x1 - margin, y1 - margin, x2 + margin, y2 + margin,
+				edges);
+		index.queryNodes(x1 - nodeMargin, y1 - nodeMargin, x2 + nodeMargin,
+				y2 + nodeMargin, nodes);
+
+		if (edges.isEmpty() && nodes.isEmpty()) {
+			numEmpty.incrementAndGet();
+			hashes.remove(key);
+			Files.deleteIfExists(path);
+			return;
+		}
+
+		long hash = contentHash(x1, y1, zoom, index, edges, nodes,
+				labelLayout);
+		Long last = previous.get(key);
+		if (last != null && last == hash && Files.exists(path)) {
+			numUnchanged.incrementAndGet();
+			return;
+		}
+
+		TileRenderer renderer = renderers.take();
+		try {
+			int[] pixels = renderer.render(-x1, -y1);
+			Files.createDirectories(path.getParent());
+			try (OutputStream os = new BufferedOutputStream(
+					Files.newOutputStream(path));
+					PngStreamWriter png = new PngStreamWriter(os, tileSize,
+							tileSize)) {
+				png.writeRows(pixels, 0, tileSize, tileSize);
+			}
+		} finally {
+			renderers.put(renderer);
+		}
+		hashes.put(key, hash);
+		numRendered.incrementAndGet();
+	}
+
+	private LabelLayout layoutLabels(int width, int height, double zoom)
+	{
+		Rectangle scene = view.getConfig().getScene();
+		ImageView imageView = new ImageView(scene, width, height);
+		imageView.setZoom(zoom);
+		imageView.setPositionX(-scene.getX1());
+		imageView.setPositionY(-scene.getY1());
+		PlanRenderer planRenderer = new PlanRenderer(view.getLineNetwork(),
+				mapViewStatus, stationMode, segmentMode, imageView, imageView,
+				1, new GenericPaintFactory());
+		overDrawPixels = planRenderer.getOverDrawPixels();
+
+		// only used for measuring labels
+		BufferedImage image = new BufferedImage(1, 1,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = TileRenderer.createGraphics(image);
+		try {
+			LabelLayout labelLayout = planRenderer
+					.layoutLabels(new AwtPainter(g));
+			labelMargin = labelLayout.getMargin();
+			return labelLayout;
+		} finally {
+			g.dispose();
+		}
+	}
+
+	private Path tilePath(Path dir, int level, int x, int y)
+	{
+		return dir.resolve(Integer.toString(level))
+				.resolve(Integer.toString(x)).resolve(y + ".png");
+	}
+
+	/**
+	 * Hash everything that determines the content of a tile: the rendering
+	 * parameters, the position of the tile and the geometry, names, colors
+	 * and labels of the elements that reach into it.
+	 */
+	private long contentHash(double x1, double y1, double zoom,
+			LineNetworkIndex index, IntList edges, IntList nodes,
+			LabelLayout labelLayout)
+	{
+		ContentHash hash = new ContentHash();
+		hash.add(stationMode.ordinal());
+		hash.add(segmentMode.ordinal());
+		hash.add(tileSize);
+		hash.add(zoom);
+		hash.add(x1);
+		hash.add(y1);
+
+		for (int i = 0; i < edges.size(); i++) {
+			Edge edge = index.getEdge(edges.get(i));
+			hash.add(edge.n1.location);
+			hash.add(edge.n2.location);
+			hash.add(edge.prev);
+			hash.add(edge.next);
+			hash.add(edge.lines.size());
+			for (NetworkLine line : edge.lines) {
+				hash.add(line.line.getName());
+				hash.add(line.line.getColor());
+			}
+		}
+
+		for (int i = 0; i < nodes.size(); i++) {
+			int ordinal = nodes.get(i);
+			Node node = index.getNode(ordinal);
+			hash.add(node.location);
+			hash.add(node.station.getName());
+			hash.add(node.rank);
+			hash.add(node.isLastStopOfALine ? 1 : 0);
+			hash.add(labelLayout.isLabeled(ordinal) ? 1 : 0);
+			hash.add(node.edges.size());
+			for (Edge edge : node.edges) {
+				hash.add(edge.n1 == node ? edge.n2.location : edge.n1.location);
+				hash.add(edge.lines.size());
+			}
+		}
+
+		return hash.get();
+	}
+
+	private static Map<String, Long> readManifest(Path path) throws IOException
+	{
+		Map<String, Long> hashes = new HashMap<>();
+		for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+			String[] parts = line.trim().split(" ");
+			if (parts.length != 2) {
+				continue;
+			}
+			try {
+				hashes.put(parts[0], Long.parseUnsignedLong(parts[1], 16));
+			} catch (NumberFormatException e) {
+				// ignore broken entries, the tile will be rendered again
+			}
+		}
+		return hashes;
+	}
+
+	private static void writeManifest(Path path, Map<String, Long> hashes)
+			throws IOException
+	{
+		List<String> keys = new ArrayList<>(hashes.keySet());
+		Collections.sort(keys);
+
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(tmp,
+				StandardCharsets.UTF_8)) {
+			for (String key : keys) {
+				writer.write(key);
+				writer.write(' ');
+				writer.write(Long.toHexString(hashes.get(key)));
+				writer.newLine();
+			}
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * A growing list of tiles.
+	 */
+	private static class TileList
+	{
+
+		private long[] values = new long[64];
+		private int size = 0;
+
+		void add(long value)
+		{
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		long[] toSortedDistinct()
+		{
+			Arrays.sort(values, 0, size);
+			int n = 0;
+			for (int i = 0; i < size; i++) {
+				if (n == 0 || values[i] != values[n - 1]) {
+					values[n++] = values[i];
+				}
+			}
+			return Arrays.copyOf(values, n);
+		}
+
+	}
+
+	/**
+	 * 64 bit FNV-1a hash over a sequence of values.
+	 */
+	private static class ContentHash
+	{
+
+		private long hash = 0xcbf29ce484222325L;
+
+		void add(long value)
+		{
+			for (int i = 0; i < 8; i++) {
+				hash ^= (value >>> (i * 8)) & 0xff;
+				hash *= 0x100000001b3L;
+			}
+		}
+
+		void add(double value)
+		{
+			add(Double.doubleToLongBits(value));
+		}
+
+		void add(Point point)
+		{
+			if (point == null) {
+				add(-1L);
+				return;
+			}
+			add(point.x);
+			add(point.y);
+		}
+
+		void add(String value)
+		{
+			if (value == null) {
+				add(-1L);
+				return;
+			}
+			add(value.length());
+			for (int i = 0; i < value.length(); i++) {
+				add(value.charAt(i));
+			}
+		}
+
+		long get()
+		{
+			return hash;
+		}
+
+	}
+
+}
@@ -0,0 +1,118 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.openmetromaps.maps.LabelLayout;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.PlanRenderer.SegmentMode;
+import org.openmetromaps.maps.PlanRenderer.StationMode;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.core.GenericPaintFactory;
+
+/**
+ * Renders square tiles of a map view at a fixed zoom level, using a viewport
+ * and renderer of its own. An instance must only be used by one thread at a
+ * time, but several instances can render tiles of the same view
+ * concurrently.
+ */
+class TileRenderer
+{
+
+	private int tileSize;
+
+	private ImageView imageView;
+	private PlanRenderer planRenderer;
+	private BufferedImage image;
+	private Graphics2D g;
+	private AwtPainter painter;
+	private int[] pixels;
+
+	TileRenderer(MapView view, MapViewStatus mapViewStatus,
+			StationMode stationMode, SegmentMode segmentMode, int tileSize,
+			double zoom, LabelLayout labelLayout)
+	{
+		this.tileSize = tileSize;
+
+		imageView = new ImageView(view.getConfig().getScene(), tileSize,
+				tileSize);
+		imageView.setZoom(zoom);
+		planRenderer = new PlanRenderer(view.getLineNetwork(), mapViewStatus,
+				stationMode, segmentMode, imageView, imageView, 1,
+				new GenericPaintFactory());
+		planRenderer.setLabelLayout(labelLayout);
+
+		image = new BufferedImage(tileSize, tileSize,
+				BufferedImage.TYPE_INT_RGB);
+		g = createGraphics(image);
+		painter = new AwtPainter(g);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+				.getData();
+	}
+
+	/**
+	 * Switch to another zoom level, using the specified label layout for that
+	 * level.
+	 */
+	void setZoom(double zoom, LabelLayout labelLayout)
+	{
+		imageView.setZoom(zoom);
+		planRenderer.setLabelLayout(labelLayout);
+	}
+
+	static Graphics2D createGraphics(BufferedImage image)
+	{
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		return g;
+	}
+
+	/**
+	 * Render the tile whose top left corner has the specified viewport
+	 * position.
+	 *
+	 * @return the pixels of the tile in TYPE_INT_RGB format, row by row with
+	 *         a scanline of the tile size. The array is reused for the next
+	 *         tile.
+	 */
+	int[] render(double positionX, double positionY)
+	{
+		imageView.setPositionX(positionX);
+		imageView.setPositionY(positionY);
+
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, tileSize, tileSize);
+		planRenderer.paint(painter);
+
+		return pixels;
+	}
+
+	void dispose()
+	{
+		g.dispose();
+	}
+
+}
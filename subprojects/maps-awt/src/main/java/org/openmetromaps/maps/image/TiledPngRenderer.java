@@ -0,0 +1,192 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.image;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openmetromaps.maps.LabelLayout;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.MapViewStatus;
+import org.openmetromaps.maps.PlanRenderer;
+import org.openmetromaps.maps.PlanRenderer.SegmentMode;
+import org.openmetromaps.maps.PlanRenderer.StationMode;
+import org.openmetromaps.maps.painting.awt.AwtPainter;
+import org.openmetromaps.maps.painting.core.GenericPaintFactory;
+
+import de.topobyte.viewports.geometry.Rectangle;
+
+/**
+ * Renders a map view into a PNG file tile by tile on a pool of worker threads.
+ *
+ * The image is processed in bands of one row of tiles. While one band is
+ * encoded, the tiles of the next band are rendered, so that at most two bands
+ * and one tile per worker are held in memory at any time. Labels are placed
+ * once for the whole image and each tile paints the labels that reach into
+ * it, so that labels are consistent across the borders of tiles.
+ */
+public class TiledPngRenderer
+{
+
+	private MapView view;
+	private MapViewStatus mapViewStatus = new MapViewStatus();
+	private StationMode stationMode;
+	private SegmentMode segmentMode;
+
+	private int width;
+	private int height;
+	private double x;
+	private double y;
+	private double zoom;
+
+	private int tileSize;
+	private int threads;
+
+	public TiledPngRenderer(MapView view, int width, int height, double x,
+			double y, double zoom, StationMode stationMode,
+			SegmentMode segmentMode, int tileSize, int threads)
+	{
+		this.view = view;
+		this.width = width;
+		this.height = height;
+		this.x = x;
+		this.y = y;
+		this.zoom = zoom;
+		this.stationMode = stationMode;
+		this.segmentMode = segmentMode;
+		this.tileSize = tileSize;
+		this.threads = threads;
+	}
+
+	public void render(Path path) throws IOException
+	{
+		LabelLayout labelLayout = layoutLabels();
+
+		BlockingQueue<TileRenderer> renderers = new ArrayBlockingQueue<>(
+				threads);
+		for (int i = 0; i < threads; i++) {
+			renderers.add(new TileRenderer(view, mapViewStatus, stationMode,
+					segmentMode, tileSize, zoom, labelLayout));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		int[][] buffers = new int[2][width * tileSize];
+		int numBands = (height + tileSize - 1) / tileSize;
+
+		try (OutputStream os = new BufferedOutputStream(
+				Files.newOutputStream(path));
+				PngStreamWriter png = new PngStreamWriter(os, width, height)) {
+			List<Future<?>> current = submitBand(executor, renderers, 0,
+					buffers[0]);
+			for (int band = 0; band < numBands; band++) {
+				List<Future<?>> next = null;
+				if (band + 1 < numBands) {
+					next = submitBand(executor, renderers, band + 1,
+							buffers[(band + 1) % 2]);
+				}
+				await(current);
+				int bandHeight = Math.min(tileSize, height - band * tileSize);
+				png.writeRows(buffers[band % 2], 0, width, bandHeight);
+				current = next;
+			}
+		} finally {
+			executor.shutdownNow();
+			for (TileRenderer renderer : renderers) {
+				renderer.dispose();
+			}
+		}
+	}
+
+	private LabelLayout layoutLabels()
+	{
+		Rectangle scene = view.getConfig().getScene();
+		ImageView imageView = new ImageView(scene, width, height);
+		imageView.setZoom(zoom);
+		imageView.setPositionX(x);
+		imageView.setPositionY(y);
+		PlanRenderer planRenderer = new PlanRenderer(view.getLineNetwork(),
+				mapViewStatus, stationMode, segmentMode, imageView, imageView,
+				1, new GenericPaintFactory());
+
+		// only used for measuring labels
+		BufferedImage image = new BufferedImage(1, 1,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = TileRenderer.createGraphics(image);
+		try {
+			return planRenderer.layoutLabels(new AwtPainter(g));
+		} finally {
+			g.dispose();
+		}
+	}
+
+	private List<Future<?>> submitBand(ExecutorService executor,
+			BlockingQueue<TileRenderer> renderers, int band, int[] buffer)
+	{
+		int ty = band * tileSize;
+		int th = Math.min(tileSize, height - ty);
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (int tx = 0; tx < width; tx += tileSize) {
+			int tileX = tx;
+			int tw = Math.min(tileSize, width - tx);
+			futures.add(executor.submit(() -> {
+				TileRenderer renderer = renderers.take();
+				try {
+					int[] pixels = renderer.render(x - tileX / zoom,
+							y - ty / zoom);
+					for (int row = 0; row < th; row++) {
+						System.arraycopy(pixels, row * tileSize, buffer,
+								row * width + tileX, tw);
+					}
+				} finally {
+					renderers.put(renderer);
+				}
+				return null;
+			}));
+		}
+		return futures;
+	}
+
+	private static void await(List<Future<?>> futures) throws IOException
+	{
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering tiles", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Error while rendering tile", e.getCause());
+		}
+	}
+
+}
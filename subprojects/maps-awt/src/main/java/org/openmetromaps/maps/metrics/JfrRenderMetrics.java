@@ -0,0 +1,66 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.metrics;
+
+import org.openmetromaps.maps.PlanRenderer.Pass;
+
+/**
+ * Emits a {@link RenderFrameEvent} for each frame while a flight recording
+ * with the event enabled is running.
+ *
+ * Map panels register an instance if the system property
+ * {@value #PROPERTY} is set to true, e.g. by passing
+ * '-Dopenmetromaps.jfr=true' to the JVM, as measuring frames is not free.
+ */
+public class JfrRenderMetrics implements RenderMetrics
+{
+
+	public static final String PROPERTY = "openmetromaps.jfr";
+
+	/**
+	 * Whether flight recorder events have been enabled using the system
+	 * property {@value #PROPERTY}.
+	 */
+	public static boolean isEnabled()
+	{
+		return Boolean.getBoolean(PROPERTY);
+	}
+
+	@Override
+	public void frameFinished(FrameMetrics frame)
+	{
+		RenderFrameEvent event = new RenderFrameEvent();
+		if (!event.shouldCommit()) {
+			return;
+		}
+		event.total = frame.getTotalNanos();
+		event.segments = frame.getPassNanos(Pass.SEGMENTS);
+		event.stations = frame.getPassNanos(Pass.STATIONS);
+		event.labels = frame.getPassNanos(Pass.LABELS);
+		event.edgesDrawn = frame.getEdgesDrawn();
+		event.edgesCulled = frame.getEdgesCulled();
+		event.stationsDrawn = frame.getStationsDrawn();
+		event.stationsCulled = frame.getStationsCulled();
+		event.labelsPlaced = frame.getLabelsPlaced();
+		event.labelsRejected = frame.getLabelsRejected();
+		event.paintSwitches = frame.getPaintSwitches();
+		event.cancelled = frame.isCancelled();
+		event.commit();
+	}
+
+}
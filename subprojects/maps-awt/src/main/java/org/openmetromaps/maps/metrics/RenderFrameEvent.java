@@ -0,0 +1,77 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event with the measurements of a frame painted by a
+ * renderer, see {@link JfrRenderMetrics}.
+ */
+@Name("org.openmetromaps.RenderFrame")
+@Label("Render Frame")
+@Category({ "OpenMetroMaps", "Rendering" })
+@Description("A frame painted by a map renderer")
+public class RenderFrameEvent extends jdk.jfr.Event
+{
+
+	@Label("Total Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long total;
+
+	@Label("Segments Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long segments;
+
+	@Label("Stations Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long stations;
+
+	@Label("Labels Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long labels;
+
+	@Label("Edges Drawn")
+	int edgesDrawn;
+
+	@Label("Edges Culled")
+	int edgesCulled;
+
+	@Label("Stations Drawn")
+	int stationsDrawn;
+
+	@Label("Stations Culled")
+	int stationsCulled;
+
+	@Label("Labels Placed")
+	int labelsPlaced;
+
+	@Label("Labels Rejected")
+	int labelsRejected;
+
+	@Label("Paint Switches")
+	int paintSwitches;
+
+	@Label("Cancelled")
+	boolean cancelled;
+
+}
@@ -20,16 +20,16 @@ package org.openmetromaps.maps.painting.awt;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Shape;
-import java.awt.font.FontRenderContext;
-import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.CubicCurve2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.QuadCurve2D;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.openmetromaps.maps.painting.core.AbstractPainter;
 import org.openmetromaps.maps.painting.core.ColorCode;
@@ -43,18 +43,85 @@ import org.openmetromaps.maps.painting.core.geom.Path;
 import de.topobyte.lightgeom.curves.spline.CubicSpline;
 import de.topobyte.lightgeom.curves.spline.QuadraticSpline;
 import de.topobyte.lightgeom.curves.spline.awt.LightGeomAwt;
+import de.topobyte.viewports.geometry.Envelope;
 
 public class AwtPainter extends AbstractPainter
 {
 
+	// maximum number of entries per cache of AWT objects, stroke widths
+	// change with the zoom level, so the caches are cleared from time to time
+	private static final int MAX_CACHE_SIZE = 256;
+
 	private Graphics2D g;
 	private GenericPaintInfo paintInfo;
 
+	private Map<Long, BasicStroke> strokes = new HashMap<>();
+	private Map<Integer, Color> colors = new HashMap<>();
+	private Map<Integer, Font> fonts = new HashMap<>();
+
+	private BasicStroke stroke;
+	private Color color;
+	private Font font;
+
+	private int stateSwitches = 0;
+
+	private GlyphCache glyphCache = GlyphCache.getShared();
+
 	public AwtPainter(Graphics2D g)
 	{
 		this.g = g;
 	}
 
+	/**
+	 * Paint to another graphics object, for example for the next frame. This
+	 * keeps the cached AWT objects of this painter.
+	 */
+	public void setGraphics(Graphics2D g)
+	{
+		this.g = g;
+	}
+
+	public GlyphCache getGlyphCache()
+	{
+		return glyphCache;
+	}
+
+	/**
+	 * Use another cache for text outlines and metrics than the one shared by
+	 * all painters.
+	 */
+	public void setGlyphCache(GlyphCache glyphCache)
+	{
+		this.glyphCache = glyphCache;
+	}
+
+	/**
+	 * Get the number of times the stroke, color or font of the graphics
+	 * object has been changed since the last call to
+	 * {@link #resetStateSwitches()}.
+	 */
+	@Override
+	public int getStateSwitches()
+	{
+		return stateSwitches;
+	}
+
+	public void resetStateSwitches()
+	{
+		stateSwitches = 0;
+	}
+
+	@Override
+	public Envelope getClipBounds()
+	{
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) {
+			return null;
+		}
+		return new Envelope(clip.getMinX(), clip.getMaxX(), clip.getMinY(),
+				clip.getMaxY());
+	}
+
 	@Override
 	public Path createPath()
 	{
@@ -148,11 +215,7 @@ public class AwtPainter extends AbstractPainter
 	{
 		AffineTransform backup = g.getTransform();
 
-		FontRenderContext frc = g.getFontRenderContext();
-		Font f = g.getFont();
-
-		TextLayout layout = new TextLayout(string, f, frc);
-		Shape outline = layout.getOutline(null);
+		Shape outline = glyphCache.get(g, string).getOutline();
 		g.translate(x, y);
 		g.draw(outline);
 
@@ -162,8 +225,7 @@ public class AwtPainter extends AbstractPainter
 	@Override
 	public int getStringWidth(String string)
 	{
-		FontMetrics metrics = g.getFontMetrics();
-		return metrics.stringWidth(string);
+		return glyphCache.get(g, string).getWidth();
 	}
 
 	@Override
@@ -171,16 +233,79 @@ public class AwtPainter extends AbstractPainter
 	{
 		this.paintInfo = (GenericPaintInfo) paintInfo;
 		GenericPaintInfo paint = (GenericPaintInfo) paintInfo;
-		ColorCode color = paint.getColor();
+
+		// Resolve the AWT objects for the paint info and only pass them to the
+		// graphics object if they differ from the current ones. Comparing
+		// with the graphics object also detects changes made by others.
 		int join = AwtPaintInfo.getJoin(paint.getJoin());
 		int cap = AwtPaintInfo.getCap(paint.getCap());
-		g.setStroke(new BasicStroke(paint.getWidth(), cap, join));
-		g.setColor(new Color(color.getValue(), true));
+		if (stroke == null || stroke.getLineWidth() != paint.getWidth()
+				|| stroke.getEndCap() != cap || stroke.getLineJoin() != join) {
+			stroke = stroke(paint.getWidth(), cap, join);
+		}
+		if (g.getStroke() != stroke) {
+			g.setStroke(stroke);
+			stateSwitches++;
+		}
+
+		int argb = paint.getColor().getValue();
+		if (color == null || color.getRGB() != argb) {
+			color = color(argb);
+		}
+		if (g.getColor() != color) {
+			g.setColor(color);
+			stateSwitches++;
+		}
+
+		int fontSize = paint.getFontSize();
+		if (font == null || font.getSize() != fontSize) {
+			font = font(fontSize);
+		}
+		if (g.getFont() != font) {
+			g.setFont(font);
+			stateSwitches++;
+		}
+	}
+
+	private BasicStroke stroke(float width, int cap, int join)
+	{
+		long key = ((long) Float.floatToIntBits(width) << 32) | (cap << 8)
+				| join;
+		BasicStroke stroke = strokes.get(key);
+		if (stroke == null) {
+			if (strokes.size() >= MAX_CACHE_SIZE) {
+				strokes.clear();
+			}
+			stroke = new BasicStroke(width, cap, join);
+			strokes.put(key, stroke);
+		}
+		return stroke;
+	}
 
-		String family = Font.SANS_SERIF;
-		int style = Font.BOLD;
-		Font font = new Font(family, style, paint.getFontSize());
-		g.setFont(font);
+	private Color color(int argb)
+	{
+		Color color = colors.get(argb);
+		if (color == null) {
+			if (colors.size() >= MAX_CACHE_SIZE) {
+				colors.clear();
+			}
+			color = new Color(argb, true);
+			colors.put(argb, color);
+		}
+		return color;
+	}
+
+	private Font font(int size)
+	{
+		Font font = fonts.get(size);
+		if (font == null) {
+			if (fonts.size() >= MAX_CACHE_SIZE) {
+				fonts.clear();
+			}
+			font = new Font(Font.SANS_SERIF, Font.BOLD, size);
+			fonts.put(size, font);
+		}
+		return font;
 	}
 
 	@Override
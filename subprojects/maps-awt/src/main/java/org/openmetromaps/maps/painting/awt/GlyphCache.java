@@ -0,0 +1,247 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.awt;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A cache of text outlines and metrics for label rendering, shared by all
+ * {@link AwtPainter} instances. Entries are keyed by the text, the font and
+ * the font render context and are evicted in least recently used order once
+ * the estimated memory usage of all outlines exceeds a limit.
+ */
+public class GlyphCache
+{
+
+	private static final GlyphCache SHARED = new GlyphCache(8 * 1024 * 1024);
+
+	public static GlyphCache getShared()
+	{
+		return SHARED;
+	}
+
+	/**
+	 * The cached outline and metrics of a text.
+	 */
+	public static class Glyphs
+	{
+
+		private final Shape outline;
+		private final int width;
+		private final Rectangle2D bounds;
+		private final long bytes;
+
+		Glyphs(Shape outline, int width, Rectangle2D bounds, long bytes)
+		{
+			this.outline = outline;
+			this.width = width;
+			this.bounds = bounds;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Get the outline of the text with its baseline starting at the
+		 * origin.
+		 */
+		public Shape getOutline()
+		{
+			return outline;
+		}
+
+		/**
+		 * Get the advance width of the text as reported by
+		 * {@link FontMetrics#stringWidth(String)}.
+		 */
+		public int getWidth()
+		{
+			return width;
+		}
+
+		public Rectangle2D getBounds()
+		{
+			return bounds;
+		}
+
+	}
+
+	private static class Key
+	{
+
+		private final String text;
+		private final Font font;
+		private final FontRenderContext frc;
+		private final int hash;
+
+		Key(String text, Font font, FontRenderContext frc)
+		{
+			this.text = text;
+			this.font = font;
+			this.frc = frc;
+			hash = Objects.hash(text, font, frc);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && text.equals(other.text)
+					&& font.equals(other.font) && frc.equals(other.frc);
+		}
+
+	}
+
+	private final long maxBytes;
+	private long bytes = 0;
+	private final LinkedHashMap<Key, Glyphs> entries = new LinkedHashMap<>(
+			256, 0.75f, true);
+
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * @param maxBytes
+	 *            the approximate maximum amount of memory to use for cached
+	 *            entries.
+	 */
+	public GlyphCache(long maxBytes)
+	{
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Get the outline and metrics of the specified text using the current
+	 * font and font render context of the graphics object.
+	 */
+	public Glyphs get(Graphics2D g, String text)
+	{
+		Font font = g.getFont();
+		FontRenderContext frc = g.getFontRenderContext();
+		Key key = new Key(text, font, frc);
+
+		synchronized (this) {
+			Glyphs glyphs = entries.get(key);
+			if (glyphs != null) {
+				hits++;
+				return glyphs;
+			}
+			misses++;
+		}
+
+		// create outside of the lock, concurrent misses for the same key
+		// compute equal entries
+		Glyphs glyphs = create(g, text, font, frc);
+
+		synchronized (this) {
+			Glyphs previous = entries.put(key, glyphs);
+			if (previous != null) {
+				bytes -= previous.bytes;
+			}
+			bytes += glyphs.bytes;
+			evict();
+		}
+		return glyphs;
+	}
+
+	private static Glyphs create(Graphics2D g, String text, Font font,
+			FontRenderContext frc)
+	{
+		FontMetrics metrics = g.getFontMetrics(font);
+		int width = metrics.stringWidth(text);
+
+		if (text.isEmpty()) {
+			// TextLayout does not accept empty strings
+			Rectangle2D.Float empty = new Rectangle2D.Float();
+			return new Glyphs(empty, width, empty, 64);
+		}
+
+		TextLayout layout = new TextLayout(text, font, frc);
+		Shape outline = layout.getOutline(null);
+		Rectangle2D bounds = outline.getBounds2D();
+
+		// rough estimate: object overhead, the key and each path segment
+		// with up to three points in float precision
+		long size = 128 + 2 * text.length();
+		for (PathIterator iterator = outline.getPathIterator(null); !iterator
+				.isDone(); iterator.next()) {
+			size += 28;
+		}
+
+		return new Glyphs(outline, width, bounds, size);
+	}
+
+	private void evict()
+	{
+		Iterator<Map.Entry<Key, Glyphs>> iterator = entries.entrySet()
+				.iterator();
+		while (bytes > maxBytes && iterator.hasNext()) {
+			Glyphs glyphs = iterator.next().getValue();
+			bytes -= glyphs.bytes;
+			iterator.remove();
+		}
+	}
+
+	public synchronized void clear()
+	{
+		entries.clear();
+		bytes = 0;
+	}
+
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Get the approximate amount of memory used by the cached entries.
+	 */
+	public synchronized long getBytes()
+	{
+		return bytes;
+	}
+
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+}
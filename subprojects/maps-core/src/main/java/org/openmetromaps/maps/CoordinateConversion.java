@@ -67,6 +67,7 @@ public class CoordinateConversion
 		}
 
 		for (Edge edge : view.getLineNetwork().getEdges()) {
+			edge.revision++;
 			if (edge.prev != null) {
 				edge.prev = converter.convert(edge.prev);
 			}
@@ -0,0 +1,100 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.IntList;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkIndex;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.viewports.scrolling.Viewport;
+import de.topobyte.viewports.scrolling.ViewportUtil;
+
+/**
+ * Find the nodes and edges of a network at positions of a viewport using the
+ * network's spatial index instead of visiting every element.
+ */
+public class HitTestUtil
+{
+
+	/**
+	 * Get the node closest to the specified position in view coordinates, or
+	 * null if the network does not have any nodes.
+	 */
+	public static Node closestNode(LineNetwork lineNetwork, Viewport viewport,
+			double vx, double vy)
+	{
+		return nodeAt(lineNetwork, viewport, vx, vy, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Get the node closest to the specified position in view coordinates, if
+	 * it is within the specified distance in pixels, otherwise null.
+	 */
+	public static Node nodeAt(LineNetwork lineNetwork, Viewport viewport,
+			double vx, double vy, double radius)
+	{
+		LineNetworkIndex index = lineNetwork.getIndex();
+		int ordinal = index.nearestNode(ViewportUtil.getRealX(viewport, vx),
+				ViewportUtil.getRealY(viewport, vy),
+				radius / viewport.getZoom());
+		return ordinal < 0 ? null : index.getNode(ordinal);
+	}
+
+	/**
+	 * Get the edge closest to the specified position in view coordinates, if
+	 * it is within the specified distance in pixels, otherwise null.
+	 */
+	public static Edge edgeAt(LineNetwork lineNetwork, Viewport viewport,
+			double vx, double vy, double radius)
+	{
+		LineNetworkIndex index = lineNetwork.getIndex();
+		int ordinal = index.nearestEdge(ViewportUtil.getRealX(viewport, vx),
+				ViewportUtil.getRealY(viewport, vy),
+				radius / viewport.getZoom());
+		return ordinal < 0 ? null : index.getEdge(ordinal);
+	}
+
+	/**
+	 * Get the nodes within the rectangle spanned by two positions in view
+	 * coordinates, in network order.
+	 */
+	public static List<Node> nodesIn(LineNetwork lineNetwork,
+			Viewport viewport, double vx1, double vy1, double vx2, double vy2)
+	{
+		double x1 = ViewportUtil.getRealX(viewport, Math.min(vx1, vx2));
+		double y1 = ViewportUtil.getRealY(viewport, Math.min(vy1, vy2));
+		double x2 = ViewportUtil.getRealX(viewport, Math.max(vx1, vx2));
+		double y2 = ViewportUtil.getRealY(viewport, Math.max(vy1, vy2));
+
+		LineNetworkIndex index = lineNetwork.getIndex();
+		IntList hits = new IntList();
+		index.queryNodes(x1, y1, x2, y2, hits);
+
+		List<Node> nodes = new ArrayList<>(hits.size());
+		for (int i = 0; i < hits.size(); i++) {
+			nodes.add(index.getNode(hits.get(i)));
+		}
+		return nodes;
+	}
+
+}
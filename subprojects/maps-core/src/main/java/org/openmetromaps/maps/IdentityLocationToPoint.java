@@ -1,4 +1,4 @@
-// Copyright 2017 Sebastian Kuerten
+// Copyright 2019 Sebastian Kuerten
 //
 // This file is part of OpenMetroMaps.
 //
@@ -17,42 +17,37 @@
 
 package org.openmetromaps.maps;
 
-import java.util.HashMap;
-import java.util.Map;
+import de.topobyte.lightgeom.lina.Point;
 
-import org.slf4j.Logger;
-
-import de.topobyte.formatting.Formatting;
-
-public class TimeMeasuring
+/**
+ * Maps locations to points with the same coordinates, for computing geometry
+ * in scene coordinates with code written for view coordinates.
+ */
+public class IdentityLocationToPoint implements LocationToPoint
 {
 
-	private Logger logger;
-
-	public TimeMeasuring(Logger logger)
+	@Override
+	public Point getPoint(Point location)
 	{
-		this.logger = logger;
+		return new Point(location.x, location.y);
 	}
 
-	private Map<String, Long> starts = new HashMap<>();
-	private Map<String, Long> stops = new HashMap<>();
-
-	public void start(String key)
+	@Override
+	public Point getPoint(Point location, Point point)
 	{
-		starts.put(key, System.currentTimeMillis());
+		return point.set(location.x, location.y);
 	}
 
-	public void stop(String key)
+	@Override
+	public double getX(double lon)
 	{
-		stops.put(key, System.currentTimeMillis());
+		return lon;
 	}
 
-	public void log(String key, String message)
+	@Override
+	public double getY(double lat)
 	{
-		long start = starts.get(key);
-		long stop = stops.get(key);
-		long interval = stop - start;
-		logger.info(Formatting.format(message, interval));
+		return lat;
 	}
 
 }
@@ -0,0 +1,64 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.BitSet;
+
+import org.openmetromaps.maps.graph.LineNetworkIndex;
+
+/**
+ * The result of placing station labels for a region of a map: the set of
+ * nodes whose labels do not collide with other labels, identified by their
+ * ordinal in the {@link LineNetworkIndex} of the network.
+ *
+ * A layout computed once for a whole image can be used by several renderers
+ * that each paint a part of that image, so that labels are consistent across
+ * the borders of those parts.
+ */
+public class LabelLayout
+{
+
+	private BitSet nodes;
+	private double margin;
+
+	public LabelLayout(BitSet nodes, double margin)
+	{
+		this.nodes = nodes;
+		this.margin = margin;
+	}
+
+	public boolean isLabeled(int ordinal)
+	{
+		return nodes.get(ordinal);
+	}
+
+	public BitSet getNodes()
+	{
+		return nodes;
+	}
+
+	/**
+	 * Get the maximum distance in pixels that a label reaches away from the
+	 * location of its node.
+	 */
+	public double getMargin()
+	{
+		return margin;
+	}
+
+}
@@ -0,0 +1,110 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Label layouts of a whole network for discrete bands of zoom levels.
+ *
+ * Label boxes have a fixed size in pixels while the distance between nodes
+ * grows with the zoom level, so a layout computed for the lowest zoom level
+ * of a band is free of collisions for all zoom levels within that band. The
+ * same labels are therefore shown while panning and zooming within a band.
+ *
+ * The cached layouts need to be invalidated when nodes move, when the set of
+ * hidden lines changes or when the scale of labels changes.
+ */
+public class LabelLayoutCache
+{
+
+	/**
+	 * Number of bands per doubling of the zoom level.
+	 */
+	public static final int BANDS_PER_OCTAVE = 4;
+
+	private Map<Integer, LabelLayout> layouts = new HashMap<>();
+
+	private int indexRevision;
+	private int hiddenLinesRevision;
+
+	public static int getBand(double zoom)
+	{
+		return (int) Math
+				.floor(Math.log(zoom) / Math.log(2) * BANDS_PER_OCTAVE);
+	}
+
+	/**
+	 * Get the lowest zoom level of the specified band.
+	 */
+	public static double getMinZoom(int band)
+	{
+		return Math.pow(2, band / (double) BANDS_PER_OCTAVE);
+	}
+
+	/**
+	 * Get the highest zoom level of the specified band.
+	 */
+	public static double getMaxZoom(int band)
+	{
+		return getMinZoom(band + 1);
+	}
+
+	/**
+	 * Drop all layouts if they have been computed for other revisions of the
+	 * network index or the hidden lines.
+	 */
+	public void validate(int indexRevision, int hiddenLinesRevision)
+	{
+		if (this.indexRevision != indexRevision
+				|| this.hiddenLinesRevision != hiddenLinesRevision) {
+			layouts.clear();
+			this.indexRevision = indexRevision;
+			this.hiddenLinesRevision = hiddenLinesRevision;
+		}
+	}
+
+	/**
+	 * Get the layout for the specified band or null if it has not been
+	 * computed yet.
+	 *
+	 * @param onlyImportant
+	 *            whether the layout is restricted to important stations.
+	 */
+	public LabelLayout get(int band, boolean onlyImportant)
+	{
+		return layouts.get(key(band, onlyImportant));
+	}
+
+	public void put(int band, boolean onlyImportant, LabelLayout layout)
+	{
+		layouts.put(key(band, onlyImportant), layout);
+	}
+
+	public void clear()
+	{
+		layouts.clear();
+	}
+
+	private static int key(int band, boolean onlyImportant)
+	{
+		return band * 2 + (onlyImportant ? 1 : 0);
+	}
+
+}
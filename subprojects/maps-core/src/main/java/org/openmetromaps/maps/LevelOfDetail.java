@@ -0,0 +1,94 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Tiers of detail for different ranges of zoom levels. When zoomed out,
+ * lines and stations are small enough that painting every line of a bundle
+ * separately, curved segments and convex station shapes mostly cost time
+ * without being visible, so lower tiers paint a simplified map.
+ */
+public class LevelOfDetail
+{
+
+	private List<LodTier> tiers = new ArrayList<>();
+
+	/**
+	 * Create a level of detail without any tiers, which always paints the
+	 * full detail.
+	 */
+	public LevelOfDetail()
+	{
+		// empty
+	}
+
+	/**
+	 * Create the default tiers: an overview tier below zoom level 0.75 with
+	 * bundled lines and most stations as dots, a reduced tier below 1.5 with
+	 * straight segments and simple station shapes, and full detail above.
+	 */
+	public static LevelOfDetail createDefault()
+	{
+		LevelOfDetail lod = new LevelOfDetail();
+		lod.addTier(new LodTier(0, true, false, false, 3));
+		lod.addTier(new LodTier(0.75, false, false, false, 2));
+		lod.addTier(new LodTier(1.5, false, true, true, 0));
+		return lod;
+	}
+
+	public void addTier(LodTier tier)
+	{
+		tiers.add(tier);
+		Collections.sort(tiers, new Comparator<LodTier>() {
+
+			@Override
+			public int compare(LodTier o1, LodTier o2)
+			{
+				return Double.compare(o1.getMinZoom(), o2.getMinZoom());
+			}
+
+		});
+	}
+
+	public List<LodTier> getTiers()
+	{
+		return Collections.unmodifiableList(tiers);
+	}
+
+	/**
+	 * Get the tier for the specified zoom level or null if no tier applies,
+	 * in which case the full detail should be painted.
+	 */
+	public LodTier getTier(double zoom)
+	{
+		LodTier result = null;
+		for (LodTier tier : tiers) {
+			if (tier.getMinZoom() > zoom) {
+				break;
+			}
+			result = tier;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,83 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+/**
+ * The amount of detail a map is painted with from a certain zoom level on,
+ * see {@link LevelOfDetail}.
+ */
+public class LodTier
+{
+
+	private double minZoom;
+	private boolean bundleLines;
+	private boolean curves;
+	private boolean convexStations;
+	private int minShapeRank;
+
+	/**
+	 * @param minZoom
+	 *            the lowest zoom level the tier applies to.
+	 * @param bundleLines
+	 *            whether to paint the lines of an edge as a single stroke,
+	 *            with chains of edges that share the same lines joined into
+	 *            one path.
+	 * @param curves
+	 *            whether segments may be painted as curves.
+	 * @param convexStations
+	 *            whether stations may be painted as convex shapes.
+	 * @param minShapeRank
+	 *            the lowest rank of nodes that are painted with the shape of
+	 *            the station mode. Nodes with a lower rank are painted as dots.
+	 */
+	public LodTier(double minZoom, boolean bundleLines, boolean curves,
+			boolean convexStations, int minShapeRank)
+	{
+		this.minZoom = minZoom;
+		this.bundleLines = bundleLines;
+		this.curves = curves;
+		this.convexStations = convexStations;
+		this.minShapeRank = minShapeRank;
+	}
+
+	public double getMinZoom()
+	{
+		return minZoom;
+	}
+
+	public boolean isBundleLines()
+	{
+		return bundleLines;
+	}
+
+	public boolean isCurves()
+	{
+		return curves;
+	}
+
+	public boolean isConvexStations()
+	{
+		return convexStations;
+	}
+
+	public int getMinShapeRank()
+	{
+		return minShapeRank;
+	}
+
+}
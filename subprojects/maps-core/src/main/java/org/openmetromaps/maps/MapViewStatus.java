@@ -19,64 +19,202 @@ package org.openmetromaps.maps;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.openmetromaps.maps.graph.NetworkLine;
 import org.openmetromaps.maps.graph.Node;
 
+/**
+ * Selection and visibility state of the elements of a line network.
+ *
+ * Selection is tracked by the dense ids that the network builder assigns to
+ * nodes and lines, so that lookups take constant time and also work for
+ * copies of the network, which share the ids of the original elements.
+ * Elements without an id are tracked by identity.
+ */
 public class MapViewStatus
 {
 
-    private List<Node> selectedNodes = new ArrayList<>();
+	// selected nodes in the order of selection. Unselected nodes are only
+	// dropped from the list lazily, entries are valid if the node is still
+	// selected at the position stored for it.
+	private List<Node> selectedNodes = new ArrayList<>();
+	private int numSelectedNodes = 0;
+	private BitSet selectedNodeIds = new BitSet();
+	private int[] selectedNodePositions = new int[0];
+	private Map<Node, Integer> selectedNodesWithoutId = new IdentityHashMap<>();
+
 	private Set<NetworkLine> hiddenLines = new HashSet<>();
 	private Set<NetworkLine> selectedLines = new HashSet<>();
+	private BitSet selectedLineIds = new BitSet();
+
+	private int hiddenLinesRevision = 0;
+	private int revision = 0;
 
 	public boolean isNodeSelected(Node node)
 	{
-		return selectedNodes.contains(node);
+		if (node.id < 0) {
+			return selectedNodesWithoutId.containsKey(node);
+		}
+		return selectedNodeIds.get(node.id);
+	}
+
+	public boolean isNodeSelected(int nodeId)
+	{
+		return selectedNodeIds.get(nodeId);
 	}
 
 	public void selectNode(Node node)
 	{
+		revision++;
+		if (isNodeSelected(node)) {
+			return;
+		}
+		setPosition(node, selectedNodes.size());
 		selectedNodes.add(node);
+		numSelectedNodes++;
 	}
 
 	public void unselectNode(Node node)
 	{
-		selectedNodes.remove(node);
+		revision++;
+		if (!isNodeSelected(node)) {
+			return;
+		}
+		if (node.id < 0) {
+			selectedNodesWithoutId.remove(node);
+		} else {
+			selectedNodeIds.clear(node.id);
+		}
+		numSelectedNodes--;
+		// keep the number of stale entries proportional to the selection
+		if (selectedNodes.size() > 2 * numSelectedNodes + 16) {
+			compactSelectedNodes();
+		}
 	}
 
 	public void selectNoNodes()
 	{
+		revision++;
 		selectedNodes.clear();
+		numSelectedNodes = 0;
+		selectedNodeIds.clear();
+		selectedNodesWithoutId.clear();
 	}
 
 	public int getNumSelectedNodes()
 	{
-		return selectedNodes.size();
+		return numSelectedNodes;
 	}
 
 	public List<Node> getSelectedNodes()
 	{
+		if (selectedNodes.size() != numSelectedNodes) {
+			compactSelectedNodes();
+		}
 		return Collections.unmodifiableList(selectedNodes);
 	}
 
+	private void setPosition(Node node, int position)
+	{
+		if (node.id < 0) {
+			selectedNodesWithoutId.put(node, position);
+			return;
+		}
+		selectedNodeIds.set(node.id);
+		if (node.id >= selectedNodePositions.length) {
+			selectedNodePositions = Arrays.copyOf(selectedNodePositions,
+					Math.max(node.id + 1, selectedNodePositions.length * 2));
+		}
+		selectedNodePositions[node.id] = position;
+	}
+
+	private boolean isSelectedAt(Node node, int position)
+	{
+		if (node.id < 0) {
+			Integer stored = selectedNodesWithoutId.get(node);
+			return stored != null && stored == position;
+		}
+		return selectedNodeIds.get(node.id)
+				&& selectedNodePositions[node.id] == position;
+	}
+
+	/**
+	 * Drop the entries of unselected nodes from the list of selected nodes,
+	 * keeping the order of selection.
+	 */
+	private void compactSelectedNodes()
+	{
+		int n = 0;
+		final int size = selectedNodes.size();
+		for (int i = 0; i < size; i++) {
+			Node node = selectedNodes.get(i);
+			if (isSelectedAt(node, i)) {
+				selectedNodes.set(n, node);
+				setPosition(node, n);
+				n++;
+			}
+		}
+		selectedNodes.subList(n, size).clear();
+	}
+
+	/**
+	 * Store the ids of all selected nodes in the specified set, replacing its
+	 * previous content.
+	 */
+	public void getSelectedNodeIds(BitSet result)
+	{
+		result.clear();
+		result.or(selectedNodeIds);
+	}
+
 	public boolean isLineHidden(NetworkLine line) {
 		return hiddenLines.contains(line);
 	}
 
 	public void hideLine(NetworkLine line) {
-		hiddenLines.add(line);
+		revision++;
+		if (hiddenLines.add(line)) {
+			hiddenLinesRevision++;
+		}
 	}
 
 	public void unhideLine(NetworkLine line) {
-		hiddenLines.remove(line);
+		revision++;
+		if (hiddenLines.remove(line)) {
+			hiddenLinesRevision++;
+		}
 	}
 
 	public void hideNoLines() {
-		hiddenLines.clear();
+		revision++;
+		if (!hiddenLines.isEmpty()) {
+			hiddenLines.clear();
+			hiddenLinesRevision++;
+		}
+	}
+
+	/**
+	 * Get a counter that changes whenever the set of hidden lines changes.
+	 * Can be used to detect whether data derived from the hidden lines needs
+	 * to be recomputed.
+	 */
+	public int getHiddenLinesRevision() {
+		return hiddenLinesRevision;
+	}
+
+	/**
+	 * Get a counter that changes whenever the selection or the set of hidden
+	 * lines changes.
+	 */
+	public int getRevision() {
+		return revision;
 	}
 
 	public int getNumHiddenLines() {
@@ -88,19 +226,49 @@ public class MapViewStatus
 	}
 
 	public boolean isLineSelected(NetworkLine line) {
-		return selectedLines.contains(line);
+		if (line.id < 0) {
+			return selectedLines.contains(line);
+		}
+		return selectedLineIds.get(line.id);
+	}
+
+	public boolean isLineSelected(int lineId) {
+		return selectedLineIds.get(lineId);
+	}
+
+	/**
+	 * Store the selection state of each of the specified lines in the result
+	 * list, which is cleared first.
+	 */
+	public void getLineSelection(List<NetworkLine> lines,
+			List<Boolean> result) {
+		result.clear();
+		final int nLines = lines.size();
+		for (int i = 0; i < nLines; i++) {
+			result.add(isLineSelected(lines.get(i)));
+		}
 	}
 
 	public void selectLine(NetworkLine line) {
+		revision++;
 		selectedLines.add(line);
+		if (line.id >= 0) {
+			selectedLineIds.set(line.id);
+		}
 	}
 
 	public void unselectLine(NetworkLine line) {
+		revision++;
 		selectedLines.remove(line);
+		if (line.id >= 0) {
+			selectedLineIds.clear(line.id);
+		}
 	}
 
 	public void selectNoLines() {
+		revision++;
 		selectedLines.clear();
+		selectedLineIds.clear();
 	}
 
 	public int getNumSelectedLines() {
@@ -17,19 +17,24 @@
 
 package org.openmetromaps.maps;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.openmetromaps.maps.graph.*;
-import org.openmetromaps.maps.model.Station;
+import org.openmetromaps.maps.metrics.FrameMetrics;
+import org.openmetromaps.maps.metrics.RenderMetrics;
 import org.openmetromaps.maps.painting.core.ColorCode;
 import org.openmetromaps.maps.painting.core.Colors;
 import org.openmetromaps.maps.painting.core.IPaintInfo;
 import org.openmetromaps.maps.painting.core.PaintFactory;
 import org.openmetromaps.maps.painting.core.Painter;
 import org.openmetromaps.maps.painting.core.geom.Path;
+import org.openmetromaps.maps.rendering.components.BundleDrawer;
+import org.openmetromaps.maps.rendering.components.BundleGeometry;
+import org.openmetromaps.maps.rendering.components.DrawerScratch;
 import org.openmetromaps.maps.rendering.components.SegmentDrawer;
 import org.openmetromaps.maps.rendering.components.SegmentDrawerCurved;
 import org.openmetromaps.maps.rendering.components.SegmentDrawerStraight;
@@ -42,7 +47,6 @@ import org.slf4j.LoggerFactory;
 
 import com.infomatiq.jsi.Rectangle;
 
-import de.topobyte.formatting.Formatting;
 import de.topobyte.jsi.intersectiontester.RTreeIntersectionTester;
 import de.topobyte.jsi.intersectiontester.RectangleIntersectionTester;
 import de.topobyte.lightgeom.lina.Point;
@@ -67,12 +71,85 @@ public class PlanRenderer implements ViewportListener
 		CURVE
 	}
 
+	/**
+	 * The passes of a render in the order they are painted.
+	 */
+	public static enum Pass {
+		SEGMENTS,
+		STATIONS,
+		LABELS
+	}
+
+	/**
+	 * The settings of a renderer at one point in time, which can be applied
+	 * to another renderer that may be used on a different thread.
+	 */
+	public static class Settings
+	{
+
+		private final float scale;
+		private final StationMode stationMode;
+		private final SegmentMode segmentMode;
+		private final boolean debugTangents;
+		private final boolean batchSegments;
+		private final boolean isRenderLabels;
+		private final boolean renderStationCenters;
+		private final boolean debugRanks;
+		private final int overDrawPixels;
+		private final LabelLayout labelLayout;
+		private final LevelOfDetail levelOfDetail;
+		private final RenderMetrics metrics;
+
+		private Settings(PlanRenderer renderer)
+		{
+			scale = renderer.scale;
+			stationMode = renderer.stationMode;
+			segmentMode = renderer.segmentMode;
+			debugTangents = renderer.debugTangents;
+			batchSegments = renderer.batchSegments;
+			isRenderLabels = renderer.isRenderLabels;
+			renderStationCenters = renderer.renderStationCenters;
+			debugRanks = renderer.debugRanks;
+			overDrawPixels = renderer.overDrawPixels;
+			labelLayout = renderer.labelLayout;
+			levelOfDetail = renderer.levelOfDetail;
+			metrics = renderer.metrics;
+		}
+
+		public float getScale()
+		{
+			return scale;
+		}
+
+		public StationMode getStationMode()
+		{
+			return stationMode;
+		}
+
+		public SegmentMode getSegmentMode()
+		{
+			return segmentMode;
+		}
+
+		public int getOverDrawPixels()
+		{
+			return overDrawPixels;
+		}
+
+	}
+
+	// number of elements painted between checks for cancellation
+	private static final int CANCEL_CHECK_INTERVAL = 64;
+
 	private boolean debugRanks = false;
 	private boolean debugTangents = false;
+	private boolean batchSegments = true;
 
 	private boolean isRenderLabels = true;
 	private boolean renderStationCenters = false;
 
+	private RenderMetrics metrics = null;
+
 	private StationMode stationMode;
 	private SegmentMode segmentMode;
 
@@ -89,8 +166,23 @@ public class PlanRenderer implements ViewportListener
 
 	private int overDrawPixels = 100;
 
+	// highest number of lines along a single edge, computed when needed
+	private int maxLinesPerEdge = -1;
+
+	private int revision = 0;
+
+	private LevelOfDetail levelOfDetail = null;
+	private BundleGeometry bundleGeometry = null;
+	private int bundleIndexRevision;
+	private int bundleHiddenLinesRevision;
+
+	private LabelLayout labelLayout = null;
+	private LabelLayoutCache labelLayoutCache = new LabelLayoutCache();
+
 	private LineNetwork lineNetwork;
 	private MapViewStatus mapViewStatus;
+	private VisibleLineNetwork visibleNetwork;
+	private LineNetworkIndex index;
 	private Map<NetworkLine, ColorCode> colors = new HashMap<>();
 
 	protected ViewportWithSignals viewport;
@@ -99,6 +191,12 @@ public class PlanRenderer implements ViewportListener
 	private SegmentDrawer segmentDrawer;
 	private StationDrawer stationDrawer;
 
+	// drawers for lower levels of detail
+	private SegmentDrawer straightSegmentDrawer;
+	private StationDrawer simpleStationDrawer;
+	private StationDrawer dotStationDrawer;
+	private BundleDrawer bundleDrawer;
+
 	public PlanRenderer(LineNetwork lineNetwork, MapViewStatus mapViewStatus,
 			StationMode stationMode, SegmentMode segmentMode,
 			ViewportWithSignals viewport, LocationToPoint ltp, float scale,
@@ -106,6 +204,9 @@ public class PlanRenderer implements ViewportListener
 	{
 		this.lineNetwork = lineNetwork;
 		this.mapViewStatus = mapViewStatus;
+		this.visibleNetwork = new VisibleLineNetwork(lineNetwork,
+				mapViewStatus);
+		this.index = lineNetwork.getIndex();
 		this.viewport = viewport;
 		this.ltp = ltp;
 
@@ -120,6 +221,8 @@ public class PlanRenderer implements ViewportListener
 
 		setupSegmentDrawer();
 		setupStationDrawer();
+		bundleDrawer = new BundleDrawer(pf, lineNetwork, colors, ltp,
+				spreadFactor);
 
 		viewport.addViewportListener(this);
 		zoomChanged();
@@ -130,6 +233,59 @@ public class PlanRenderer implements ViewportListener
 		return lineNetwork;
 	}
 
+	public MapViewStatus getMapViewStatus()
+	{
+		return mapViewStatus;
+	}
+
+	/**
+	 * Get the current settings of this renderer, such as the modes, the scale
+	 * and debugging options.
+	 */
+	public Settings getSettings()
+	{
+		return new Settings(this);
+	}
+
+	/**
+	 * Apply settings taken from another renderer for the same network to this
+	 * renderer.
+	 */
+	public void copySettings(Settings settings)
+	{
+		if (scale != settings.scale) {
+			setScale(settings.scale);
+		}
+		if (stationMode != settings.stationMode) {
+			setStationMode(settings.stationMode);
+		}
+		if (segmentMode != settings.segmentMode) {
+			setSegmentMode(settings.segmentMode);
+		}
+		if (debugTangents != settings.debugTangents) {
+			setDebugTangents(settings.debugTangents);
+		}
+		if (batchSegments != settings.batchSegments) {
+			setBatchSegments(settings.batchSegments);
+		}
+		if (isRenderLabels != settings.isRenderLabels) {
+			setRenderLabels(settings.isRenderLabels);
+		}
+		if (renderStationCenters != settings.renderStationCenters) {
+			setRenderStationCenters(settings.renderStationCenters);
+		}
+		if (debugRanks != settings.debugRanks) {
+			setDebugRanks(settings.debugRanks);
+		}
+		if (labelLayout != settings.labelLayout) {
+			setLabelLayout(settings.labelLayout);
+		}
+		if (levelOfDetail != settings.levelOfDetail) {
+			setLevelOfDetail(settings.levelOfDetail);
+		}
+		metrics = settings.metrics;
+	}
+
 	public boolean isRenderLabels()
 	{
 		return isRenderLabels;
@@ -138,6 +294,7 @@ public class PlanRenderer implements ViewportListener
 	public void setRenderLabels(boolean isRenderLabels)
 	{
 		this.isRenderLabels = isRenderLabels;
+		revision++;
 	}
 
 	public boolean isRenderStationCenters()
@@ -148,6 +305,7 @@ public class PlanRenderer implements ViewportListener
 	public void setRenderStationCenters(boolean renderStationCenters)
 	{
 		this.renderStationCenters = renderStationCenters;
+		revision++;
 	}
 
 	public boolean isDebugRanks()
@@ -158,6 +316,7 @@ public class PlanRenderer implements ViewportListener
 	public void setDebugRanks(boolean debugRanks)
 	{
 		this.debugRanks = debugRanks;
+		revision++;
 	}
 
 	public boolean isDebugTangents()
@@ -168,12 +327,76 @@ public class PlanRenderer implements ViewportListener
 	public void setDebugTangents(boolean debugTangents)
 	{
 		this.debugTangents = debugTangents;
+		revision++;
 		if (segmentMode == SegmentMode.CURVE) {
 			SegmentDrawerCurved curvedDrawer = (SegmentDrawerCurved) segmentDrawer;
 			curvedDrawer.setDebugTangents(debugTangents);
 		}
 	}
 
+	public boolean isBatchSegments()
+	{
+		return batchSegments;
+	}
+
+	/**
+	 * Draw consecutive segments that share a paint with a single call instead
+	 * of one call per segment, if the painter supports it. Segments are still
+	 * drawn in the same order, so the output looks the same.
+	 */
+	public void setBatchSegments(boolean batchSegments)
+	{
+		this.batchSegments = batchSegments;
+		revision++;
+		segmentDrawer.setBatching(batchSegments);
+		straightSegmentDrawer.setBatching(batchSegments);
+	}
+
+	public RenderMetrics getRenderMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Report the time spent on each pass and the number of painted elements
+	 * of every frame to the specified metrics, or stop measuring if null.
+	 */
+	public void setRenderMetrics(RenderMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	public LabelLayout getLabelLayout()
+	{
+		return labelLayout;
+	}
+
+	/**
+	 * Use a fixed label layout instead of the layout for the current zoom
+	 * level. This is useful when painting parts of a larger image with
+	 * several renderers, see {@link #layoutLabels(Painter)}.
+	 */
+	public void setLabelLayout(LabelLayout labelLayout)
+	{
+		this.labelLayout = labelLayout;
+		revision++;
+	}
+
+	public LevelOfDetail getLevelOfDetail()
+	{
+		return levelOfDetail;
+	}
+
+	/**
+	 * Set the tiers of detail to paint with depending on the zoom level or
+	 * null to always paint the full detail.
+	 */
+	public void setLevelOfDetail(LevelOfDetail levelOfDetail)
+	{
+		this.levelOfDetail = levelOfDetail;
+		revision++;
+	}
+
 	public StationMode getStationMode()
 	{
 		return stationMode;
@@ -183,6 +406,7 @@ public class PlanRenderer implements ViewportListener
 	{
 		this.stationMode = stationMode;
 		setupStationDrawer();
+		revision++;
 		zoomChanged();
 	}
 
@@ -195,6 +419,7 @@ public class PlanRenderer implements ViewportListener
 	{
 		this.segmentMode = segmentMode;
 		setupSegmentDrawer();
+		revision++;
 		zoomChanged();
 	}
 
@@ -203,28 +428,64 @@ public class PlanRenderer implements ViewportListener
 		return scale;
 	}
 
+	/**
+	 * Get the distance in pixels around the viewport within which elements
+	 * are painted because they may still reach into the viewport.
+	 */
+	public int getOverDrawPixels()
+	{
+		return overDrawPixels;
+	}
+
+	public void setOverDrawPixels(int overDrawPixels)
+	{
+		this.overDrawPixels = overDrawPixels;
+	}
+
+	/**
+	 * Get a counter that changes whenever the zoom level or a setting that
+	 * affects painting changes.
+	 */
+	public int getRevision()
+	{
+		return revision;
+	}
+
 	public void setScale(float scale)
 	{
 		this.scale = scale;
 		segmentDrawer.setScale(scale);
 		stationDrawer.setScale(scale);
+		straightSegmentDrawer.setScale(scale);
+		simpleStationDrawer.setScale(scale);
+		dotStationDrawer.setScale(scale);
+		labelLayoutCache.clear();
+		revision++;
 	}
 
 	private void setupStationDrawer()
 	{
-		switch (stationMode) {
-		case DOT:
-			stationDrawer = new StationDrawerDot(pf, lineNetwork, colors, scale,
-					ltp, spreadFactor);
-			break;
+		stationDrawer = createStationDrawer(stationMode);
+		simpleStationDrawer = stationMode == StationMode.CONVEX
+				? createStationDrawer(StationMode.SIMPLE)
+				: stationDrawer;
+		dotStationDrawer = stationMode == StationMode.DOT ? stationDrawer
+				: createStationDrawer(StationMode.DOT);
+	}
+
+	private StationDrawer createStationDrawer(StationMode mode)
+	{
+		switch (mode) {
 		case SIMPLE:
-			stationDrawer = new StationDrawerSimple(pf, lineNetwork, colors,
-					scale, ltp, spreadFactor);
-			break;
+			return new StationDrawerSimple(pf, lineNetwork, colors, scale,
+					ltp, spreadFactor);
 		case CONVEX:
-			stationDrawer = new StationDrawerConvex(pf, lineNetwork, colors,
-					scale, ltp, spreadFactor);
-			break;
+			return new StationDrawerConvex(pf, lineNetwork, colors, scale,
+					ltp, spreadFactor);
+		case DOT:
+		default:
+			return new StationDrawerDot(pf, lineNetwork, colors, scale, ltp,
+					spreadFactor);
 		}
 	}
 
@@ -234,14 +495,19 @@ public class PlanRenderer implements ViewportListener
 		case STRAIGHT:
 			segmentDrawer = new SegmentDrawerStraight(pf, lineNetwork, colors,
 					scale, ltp, spreadFactor, lineWidth);
+			straightSegmentDrawer = segmentDrawer;
 			break;
 		case CURVE:
 			segmentDrawer = new SegmentDrawerCurved(pf, lineNetwork, colors,
 					scale, ltp, spreadFactor, lineWidth);
 			SegmentDrawerCurved curvedDrawer = (SegmentDrawerCurved) segmentDrawer;
 			curvedDrawer.setDebugTangents(debugTangents);
+			straightSegmentDrawer = new SegmentDrawerStraight(pf, lineNetwork,
+					colors, scale, ltp, spreadFactor, lineWidth);
 			break;
 		}
+		segmentDrawer.setBatching(batchSegments);
+		straightSegmentDrawer.setBatching(batchSegments);
 	}
 
 	@Override
@@ -267,26 +533,59 @@ public class PlanRenderer implements ViewportListener
 
 		segmentDrawer.zoomChanged(factor, lineWidth);
 		stationDrawer.zoomChanged(factor, lineWidth);
+		straightSegmentDrawer.zoomChanged(factor, lineWidth);
+		simpleStationDrawer.zoomChanged(factor, lineWidth);
+		dotStationDrawer.zoomChanged(factor, lineWidth);
+		bundleDrawer.zoomChanged(factor, lineWidth);
+		revision++;
 	}
 
-	private static final String LOG_SEGMENTS = "segments";
-	private static final String LOG_STATIONS = "stations";
-	private static final String LOG_LABELS = "labels";
+	private Envelope envelope = new Envelope();
+	private IntList hits = new IntList();
+	private List<Boolean> selectedLines = new ArrayList<>();
+
+	private FrameMetrics frame = new FrameMetrics();
 
 	public void paint(Painter g)
 	{
-		LineNetwork lineNetwork = new LineNetworkCloner(this.lineNetwork).cloneLineNetwork();
-		lineNetwork.lines = lineNetwork.lines.stream()
-				.filter(nl -> !mapViewStatus.isLineHidden(this.lineNetwork.lines.stream().filter(onl -> onl.line == nl.line).findFirst().get()))
-				.toList();
-		lineNetwork.edges = lineNetwork.edges.stream()
-				.peek(e -> e.lines = e.lines.stream().filter(nl -> lineNetwork.lines.contains(nl)).toList())
-				.filter(e -> !e.lines.isEmpty())
-				.toList();
-		lineNetwork.nodes = lineNetwork.nodes.stream()
-				.peek(n -> n.edges = n.edges.stream().filter(e -> lineNetwork.edges.contains(e)).toList())
-				.filter(n -> !n.edges.isEmpty())
-				.toList();
+		paint(g, null);
+	}
+
+	/**
+	 * Paint the map in passes, first segments, then stations and finally
+	 * labels.
+	 *
+	 * @param monitor
+	 *            is notified after each pass and can cancel the render. May
+	 *            be null.
+	 */
+	public void paint(Painter g, RenderMonitor monitor)
+	{
+		RenderMetrics metrics = this.metrics;
+		boolean measure = metrics != null;
+
+		frame.reset();
+		int switches = g.getStateSwitches();
+		long start = now(measure);
+
+		boolean finished = paintPasses(g, monitor, measure);
+
+		if (measure) {
+			frame.setTotalNanos(System.nanoTime() - start);
+			frame.setPaintSwitches(g.getStateSwitches() - switches);
+			frame.setCancelled(!finished);
+			metrics.frameFinished(frame);
+		}
+	}
+
+	/**
+	 * @return false if the render has been cancelled.
+	 */
+	private boolean paintPasses(Painter g, RenderMonitor monitor,
+			boolean measure)
+	{
+		visibleNetwork.update();
+		LineNetwork lineNetwork = visibleNetwork.getVisible();
 
 		double x1 = ViewportUtil.getRealX(viewport, 0);
 		double y1 = ViewportUtil.getRealY(viewport, 0);
@@ -295,67 +594,138 @@ public class PlanRenderer implements ViewportListener
 		double y2 = ViewportUtil.getRealY(viewport,
 				viewport.getViewportHeight());
 
-		Envelope envelope = new Envelope(x1, x2, y1, y2);
+		envelope.init(x1, x2, y1, y2);
+
+		// include elements just outside of the viewport that may still reach
+		// into it, such as station shapes and wide segments
+		double margin = overDrawPixels / viewport.getZoom();
+		double qx1 = envelope.getMinX() - margin;
+		double qx2 = envelope.getMaxX() + margin;
+		double qy1 = envelope.getMinY() - margin;
+		double qy2 = envelope.getMaxY() + margin;
+
+		LabelLayout labels = null;
+		if (isRenderLabels) {
+			labels = labelLayout != null ? labelLayout : bandLabelLayout(g);
+		}
+
+		// labels of nodes further away may reach into the viewport
+		double nodeMargin = margin;
+		if (labels != null) {
+			nodeMargin = Math.max(margin,
+					labels.getMargin() / viewport.getZoom());
+		}
+		double nx1 = envelope.getMinX() - nodeMargin;
+		double nx2 = envelope.getMaxX() + nodeMargin;
+		double ny1 = envelope.getMinY() - nodeMargin;
+		double ny2 = envelope.getMaxY() + nodeMargin;
+
+		// skip elements that do not reach into the area painting is
+		// restricted to, such as a damaged part of the view
+		Envelope clip = g.getClipBounds();
+		if (clip != null) {
+			double reach = getElementReach() / viewport.getZoom();
+			double labelReach = reach;
+			if (labels != null) {
+				labelReach = Math.max(reach,
+						labels.getMargin() / viewport.getZoom());
+			}
+			double cx1 = ViewportUtil.getRealX(viewport, clip.getMinX());
+			double cy1 = ViewportUtil.getRealY(viewport, clip.getMinY());
+			double cx2 = ViewportUtil.getRealX(viewport, clip.getMaxX());
+			double cy2 = ViewportUtil.getRealY(viewport, clip.getMaxY());
+			qx1 = Math.max(qx1, cx1 - reach);
+			qy1 = Math.max(qy1, cy1 - reach);
+			qx2 = Math.min(qx2, cx2 + reach);
+			qy2 = Math.min(qy2, cy2 + reach);
+			nx1 = Math.max(nx1, cx1 - labelReach);
+			ny1 = Math.max(ny1, cy1 - labelReach);
+			nx2 = Math.min(nx2, cx2 + labelReach);
+			ny2 = Math.min(ny2, cy2 + labelReach);
+		}
+
+		LodTier tier = null;
+		if (levelOfDetail != null) {
+			tier = levelOfDetail.getTier(viewport.getZoom());
+		}
 
-		TimeMeasuring tm = new TimeMeasuring(logger);
+		DrawerScratch scratch = new DrawerScratch();
 
 		final int nNodes = lineNetwork.nodes.size();
-		final int nEdges = lineNetwork.edges.size();
 
 		/*
 		 * Segments
 		 */
 
-		Envelope edgeEnvelope = new Envelope();
-
-		tm.start(LOG_SEGMENTS);
-		segmentDrawer.startSegments();
-		for (int i = 0; i < nEdges; i++) {
-			Edge edge = lineNetwork.edges.get(i);
-			Point locationA = edge.n1.location;
-			Point locationB = edge.n2.location;
-
-			edgeEnvelope.expandToInclude(locationA.x, locationA.y);
-			edgeEnvelope.expandToInclude(locationB.x, locationB.y);
-
-			if (!envelope.intersects(edgeEnvelope)) {
-				continue;
+		long time = now(measure);
+		if (tier != null && tier.isBundleLines()) {
+			if (!paintBundles(g, monitor, qx1, qy1, qx2, qy2)) {
+				return false;
 			}
+		} else {
+			SegmentDrawer drawer = segmentDrawer;
+			if (tier != null && !tier.isCurves()) {
+				drawer = straightSegmentDrawer;
+			}
+			index.queryEdges(qx1, qy1, qx2, qy2, hits);
+			drawer.startSegments(g, scratch);
+			int drawn = 0;
+			for (int i = 0; i < hits.size(); i++) {
+				if (isCancelled(monitor, i)) {
+					return false;
+				}
+				Edge edge = visibleNetwork.getVisibleEdge(hits.get(i));
+				if (edge == null) {
+					continue;
+				}
+				drawn++;
+
+				// copies share the ids of the original elements, which the
+				// selection is based on
+				List<NetworkLine> lines = edge.lines;
+				mapViewStatus.getLineSelection(lines, selectedLines);
+				drawer.drawSegment(g, scratch, lines, edge, selectedLines);
+			}
+			drawer.finishSegments(g, scratch);
+			frame.setEdges(drawn, lineNetwork.edges.size() - drawn);
+		}
+		time = passFinished(measure, Pass.SEGMENTS, time);
 
-			List<NetworkLine> lines = edge.lines;
-			segmentDrawer.drawSegment(
-				g, lines, edge,
-				lines.stream()
-					.map(l -> mapViewStatus.isLineSelected(this.lineNetwork.lines.stream().filter(nl -> nl.line == l.line).findFirst().get()))
-					.toList()
-			);
+		if (finishPass(monitor, Pass.SEGMENTS)) {
+			return false;
 		}
-		segmentDrawer.finishSegments();
-		tm.stop(LOG_SEGMENTS);
 
 		/*
 		 * Stations
 		 */
 
-		tm.start(LOG_STATIONS);
-		logger.debug("*** Stations ***");
+		// ordinals are sorted, so stations are drawn in network order
+		index.queryNodes(nx1, ny1, nx2, ny2, hits);
 
 		Path path = g.createPath();
-		for (int i = 0; i < nNodes; i++) {
-			Node node = lineNetwork.nodes.get(i);
-
-			Point location = node.location;
-
-			if (!envelope.contains(location.x, location.y)) {
+		int drawn = 0;
+		for (int i = 0; i < hits.size(); i++) {
+			if (isCancelled(monitor, i)) {
+				return false;
+			}
+			Node node = visibleNetwork.getVisibleNode(hits.get(i));
+			if (node == null) {
 				continue;
 			}
+			drawn++;
 
-			boolean selected = mapViewStatus.isNodeSelected(this.lineNetwork.nodes.stream().filter(n -> n.station == node.station).findFirst().get());
+			boolean selected = mapViewStatus.isNodeSelected(node);
 
-			stationDrawer.drawStation(g, node, path, selected,
+			StationDrawer drawer = stationDrawer(tier, node);
+			drawer.drawStation(g, scratch, node, path, selected,
 					renderStationCenters);
 		}
-		tm.stop(LOG_STATIONS);
+		frame.setStations(drawn, nNodes - drawn);
+		time = passFinished(measure, Pass.STATIONS, time);
+
+		if (finishPass(monitor, Pass.STATIONS)) {
+			return false;
+		}
 
 		/*
 		 * Labels
@@ -383,62 +753,390 @@ public class PlanRenderer implements ViewportListener
 			}
 		}
 
-		tm.start(LOG_LABELS);
-		if (isRenderLabels) {
-			renderLabels(g, envelope, lineNetwork, nNodes, fontSize, piOutline, piText);
+		if (labels != null) {
+			if (!renderLabels(g, monitor, hits, labels, piOutline, piText)) {
+				return false;
+			}
 		}
-		tm.stop(LOG_LABELS);
+		passFinished(measure, Pass.LABELS, time);
 
-		tm.log(LOG_SEGMENTS, "Time for segments: %d");
-		tm.log(LOG_STATIONS, "Time for stations: %d");
-		tm.log(LOG_LABELS, "Time for labels: %d");
-		if (segmentMode == SegmentMode.CURVE) {
-			SegmentDrawerCurved curvedDrawer = (SegmentDrawerCurved) segmentDrawer;
-			logger.info(Formatting.format("Time for curve drawing: %d",
-					curvedDrawer.getDurationCurves()));
+		return !finishPass(monitor, Pass.LABELS);
+	}
+
+	/**
+	 * Get the distance in pixels that station shapes and segments may reach
+	 * beyond the location of their nodes and the boxes of their edges in the
+	 * index, which grows with the number of lines drawn next to each other.
+	 */
+	private double getElementReach()
+	{
+		if (maxLinesPerEdge < 0) {
+			maxLinesPerEdge = 1;
+			for (Edge edge : lineNetwork.edges) {
+				maxLinesPerEdge = Math.max(maxLinesPerEdge, edge.lines.size());
+			}
+		}
+		return lineWidth * (spreadFactor * maxLinesPerEdge + 2) + 2;
+	}
+
+	/**
+	 * Get the area of the view that needs to be painted again after nodes and
+	 * edges within the specified region of the scene have changed, including
+	 * station shapes and segments that reach out of the region.
+	 *
+	 * @param labels
+	 *            the region covered by nodes whose labels have changed, such
+	 *            as moved nodes, around which the labels need to be painted
+	 *            again.
+	 * @return the area in view coordinates or null if it cannot be determined
+	 *         because labels have not been placed yet, in which case the
+	 *         whole view needs to be painted.
+	 */
+	public Envelope getDamage(SceneRegion region, SceneRegion labels)
+	{
+		Envelope damage = new Envelope();
+		double reach = getElementReach();
+		includeDamage(damage, region, reach);
+
+		if (isRenderLabels && !labels.isEmpty()) {
+			LabelLayout layout = labelLayout;
+			if (layout == null) {
+				int band = LabelLayoutCache.getBand(viewport.getZoom());
+				layout = labelLayoutCache.get(band, onlyImportant);
+			}
+			if (layout == null) {
+				return null;
+			}
+			includeDamage(damage, labels,
+					Math.max(reach, layout.getMargin()));
+		}
+		return damage;
+	}
+
+	private void includeDamage(Envelope damage, SceneRegion region,
+			double margin)
+	{
+		if (region.isEmpty()) {
+			return;
+		}
+		damage.expandToInclude(
+				ViewportUtil.getViewX(viewport, region.getMinX()) - margin,
+				ViewportUtil.getViewY(viewport, region.getMinY()) - margin);
+		damage.expandToInclude(
+				ViewportUtil.getViewX(viewport, region.getMaxX()) + margin,
+				ViewportUtil.getViewY(viewport, region.getMaxY()) + margin);
+	}
+
+	/**
+	 * Place the labels for the current zoom level again if nodes have moved
+	 * since they have been placed the last time and grow the region to
+	 * include the nodes whose labels are shown or hidden differently now.
+	 * The painter is only used to measure labels.
+	 *
+	 * @return false if the labels placed before are not known, in which case
+	 *         any label may have changed.
+	 */
+	public boolean includeLabelChanges(Painter g, SceneRegion labels)
+	{
+		if (!isRenderLabels || labelLayout != null) {
+			return true;
+		}
+
+		int band = LabelLayoutCache.getBand(viewport.getZoom());
+		LabelLayout before = labelLayoutCache.get(band, onlyImportant);
+		if (before == null) {
+			return false;
+		}
+		LabelLayout after = layoutLabels(g);
+		if (after == before) {
+			return true;
+		}
+
+		BitSet changed = (BitSet) after.getNodes().clone();
+		changed.xor(before.getNodes());
+		for (int i = changed.nextSetBit(0); i >= 0; i = changed
+				.nextSetBit(i + 1)) {
+			index.includeNode(i, labels);
+		}
+
+		// the damage is computed with the margin of the new labels, which
+		// also needs to cover the old labels
+		double shrunk = (before.getMargin() - after.getMargin())
+				/ viewport.getZoom();
+		if (shrunk > 0 && !labels.isEmpty()) {
+			labels.include(labels.getMinX() - shrunk,
+					labels.getMinY() - shrunk, labels.getMaxX() + shrunk,
+					labels.getMaxY() + shrunk);
+		}
+		return true;
+	}
+
+	private static long now(boolean measure)
+	{
+		return measure ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Record the time spent on a pass if measuring.
+	 *
+	 * @return the time the pass has been finished at.
+	 */
+	private long passFinished(boolean measure, Pass pass, long start)
+	{
+		if (!measure) {
+			return 0;
+		}
+		long time = System.nanoTime();
+		frame.setPassNanos(pass, time - start);
+		return time;
+	}
+
+	/**
+	 * Paint all lines as bundles along the precomputed chains of edges.
+	 *
+	 * @return false if the render has been cancelled.
+	 */
+	private boolean paintBundles(Painter g, RenderMonitor monitor, double x1,
+			double y1, double x2, double y2)
+	{
+		int indexRevision = index.getRevision();
+		int hiddenLinesRevision = mapViewStatus.getHiddenLinesRevision();
+		if (bundleGeometry == null || bundleIndexRevision != indexRevision
+				|| bundleHiddenLinesRevision != hiddenLinesRevision) {
+			bundleGeometry = new BundleGeometry(visibleNetwork.getVisible());
+			bundleIndexRevision = indexRevision;
+			bundleHiddenLinesRevision = hiddenLinesRevision;
+		}
+
+		Path path = g.createPath();
+		final int nChains = bundleGeometry.getNumChains();
+		int drawn = 0;
+		for (int i = 0; i < nChains; i++) {
+			if (isCancelled(monitor, i)) {
+				return false;
+			}
+			if (!bundleGeometry.intersects(i, x1, y1, x2, y2)) {
+				continue;
+			}
+			drawn++;
+			mapViewStatus.getLineSelection(bundleGeometry.getLines(i),
+					selectedLines);
+			boolean selected = selectedLines.contains(Boolean.TRUE);
+			bundleDrawer.drawChain(g, path, bundleGeometry, i, selected);
+		}
+		frame.setEdges(drawn, nChains - drawn);
+		return true;
+	}
+
+	private StationDrawer stationDrawer(LodTier tier, Node node)
+	{
+		if (tier == null) {
+			return stationDrawer;
+		}
+		if (node.rank < tier.getMinShapeRank()) {
+			return dotStationDrawer;
+		}
+		if (!tier.isConvexStations()) {
+			return simpleStationDrawer;
 		}
+		return stationDrawer;
 	}
 
-	private void renderLabels(Painter g, Envelope envelope, LineNetwork lineNetwork, int nNodes,
-			int fontSize, IPaintInfo piOutline, IPaintInfo piText)
+	private static boolean isCancelled(RenderMonitor monitor, int i)
 	{
+		return monitor != null && i % CANCEL_CHECK_INTERVAL == 0
+				&& monitor.isCancelled();
+	}
+
+	/**
+	 * Notify the monitor about a finished pass.
+	 *
+	 * @return whether the render has been cancelled.
+	 */
+	private static boolean finishPass(RenderMonitor monitor, Pass pass)
+	{
+		if (monitor == null) {
+			return false;
+		}
+		if (monitor.isCancelled()) {
+			return true;
+		}
+		monitor.passFinished(pass);
+		return false;
+	}
+
+	/**
+	 * Get the label layout for the current zoom level without painting
+	 * anything. The painter is only used to measure labels.
+	 *
+	 * Labels are placed for the whole network once per band of zoom levels
+	 * (see {@link LabelLayoutCache}) and reused until nodes move, the hidden
+	 * lines change or the scale changes.
+	 */
+	public LabelLayout layoutLabels(Painter g)
+	{
+		visibleNetwork.update();
+		return bandLabelLayout(g);
+	}
+
+	/**
+	 * Get the label layout that has been placed for the current zoom level
+	 * or null if labels have not been placed for it yet.
+	 */
+	public LabelLayout getPlacedLabelLayout()
+	{
+		if (labelLayout != null) {
+			return labelLayout;
+		}
+		int band = LabelLayoutCache.getBand(viewport.getZoom());
+		return labelLayoutCache.get(band, onlyImportant);
+	}
+
+	/**
+	 * Use a label layout placed by another renderer for the current zoom
+	 * level and the specified revision of the network index, such as the
+	 * renderer of a {@code RenderScheduler}. Labels are placed again once
+	 * the index has changed, and
+	 * {@link #includeLabelChanges(Painter, SceneRegion)} then compares
+	 * against the adopted layout.
+	 */
+	public void adoptLabelLayout(LabelLayout layout, int indexRevision)
+	{
+		labelLayoutCache.validate(indexRevision,
+				mapViewStatus.getHiddenLinesRevision());
+		int band = LabelLayoutCache.getBand(viewport.getZoom());
+		labelLayoutCache.put(band, onlyImportant, layout);
+	}
+
+	private LabelLayout bandLabelLayout(Painter g)
+	{
+		labelLayoutCache.validate(index.getRevision(),
+				mapViewStatus.getHiddenLinesRevision());
+
+		int band = LabelLayoutCache.getBand(viewport.getZoom());
+		LabelLayout layout = labelLayoutCache.get(band, onlyImportant);
+		if (layout == null) {
+			layout = placeLabels(g, LabelLayoutCache.getMinZoom(band),
+					LabelLayoutCache.getMaxZoom(band));
+			labelLayoutCache.put(band, onlyImportant, layout);
+		}
+		return layout;
+	}
+
+	/**
+	 * Greedily place the labels of all visible nodes in network order,
+	 * skipping labels that collide with labels placed before.
+	 *
+	 * @param zoom
+	 *            the zoom level to check collisions at.
+	 * @param maxZoom
+	 *            the highest zoom level the layout will be used for, which
+	 *            determines how far labels may reach.
+	 */
+	private LabelLayout placeLabels(Painter g, double zoom, double maxZoom)
+	{
+		int fontSize = Math.round(12 * scale);
+		IPaintInfo piText = pf.create(Colors.BLACK, 1 * scale);
+		piText.setFontSize(fontSize);
+		g.setPaintInfo(piText);
+
+		BitSet labeled = new BitSet();
+		double maxReach = 0;
+		double offset = labelOffset(zoom);
+		double maxOffset = labelOffset(maxZoom);
+
 		RectangleIntersectionTester tester = new RTreeIntersectionTester();
-		for (int i = 0; i < nNodes; i++) {
-			Node node = lineNetwork.nodes.get(i);
-			Station station = node.station;
+		final int nNodes = index.getNumNodes();
+		for (int ordinal = 0; ordinal < nNodes; ordinal++) {
+			Node node = visibleNetwork.getVisibleNode(ordinal);
+			if (node == null) {
+				continue;
+			}
 			if (onlyImportant && node.rank < 2) {
 				continue;
 			}
 
-			Point location = node.location;
+			// label positions at the zoom level, relative to the origin
+			Point p = new Point(node.location.x * zoom,
+					node.location.y * zoom - offset);
+			int sw = g.getStringWidth(node.station.getName());
+
+			Rectangle r = labelRectangle(p, sw, fontSize);
+			if (tester.isFree(r)) {
+				tester.add(r, false);
+				labeled.set(ordinal);
+				double reach = Math.max(sw / 2.0, maxOffset + fontSize)
+						+ 2 * scale;
+				maxReach = Math.max(maxReach, reach);
+			}
+		}
+
+		return new LabelLayout(labeled, maxReach);
+	}
+
+	/**
+	 * Distance in pixels between a node and the center of its label.
+	 */
+	private double labelOffset(double zoom)
+	{
+		return 6 * scale * (zoom / 3);
+	}
+
+	private Point labelPosition(Node node)
+	{
+		Point p = ltp.getPoint(node.location);
+		p.y -= 6 * scale * factor;
+		return p;
+	}
+
+	private static Rectangle labelRectangle(Point p, int sw, int fontSize)
+	{
+		return new Rectangle((float) (p.x - sw / 2),
+				(float) (p.y - fontSize / 2), (float) (p.x + sw / 2),
+				(float) (p.y + fontSize / 2));
+	}
 
-			if (!envelope.contains(location.x, location.y)) {
+	/**
+	 * @return false if the render has been cancelled.
+	 */
+	private boolean renderLabels(Painter g, RenderMonitor monitor,
+			IntList nodeHits, LabelLayout labels, IPaintInfo piOutline,
+			IPaintInfo piText)
+	{
+		int placed = 0;
+		int rejected = 0;
+		for (int i = 0; i < nodeHits.size(); i++) {
+			if (isCancelled(monitor, i)) {
+				return false;
+			}
+			int ordinal = nodeHits.get(i);
+			Node node = visibleNetwork.getVisibleNode(ordinal);
+			if (node == null) {
+				continue;
+			}
+			if (!labels.isLabeled(ordinal)) {
+				rejected++;
 				continue;
 			}
+			placed++;
 
-			String name = station.getName();
-			Point p = ltp.getPoint(location);
-			p.y -= 6 * scale * factor;
+			String name = node.station.getName();
+			Point p = labelPosition(node);
 
 			g.setPaintInfo(piText);
 			int sw = g.getStringWidth(name);
 
-			Rectangle r = new Rectangle((float) (p.x - sw / 2),
-					(float) (p.y - fontSize / 2), (float) (p.x + sw / 2),
-					(float) (p.y + fontSize / 2));
-			if (tester.isFree(r)) {
-				float x = (float) (p.x - sw / 2);
-				float y = (float) p.y;
-
-				g.setPaintInfo(piOutline);
-				g.outlineString(name, x, y);
+			float x = (float) (p.x - sw / 2);
+			float y = (float) p.y;
 
-				g.setPaintInfo(piText);
-				g.drawString(name, x, y);
+			g.setPaintInfo(piOutline);
+			g.outlineString(name, x, y);
 
-				tester.add(r, false);
-			}
+			g.setPaintInfo(piText);
+			g.drawString(name, x, y);
 		}
+		frame.setLabels(placed, rejected);
+		return true;
 	}
 
 }
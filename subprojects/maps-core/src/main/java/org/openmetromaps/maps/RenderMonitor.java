@@ -0,0 +1,41 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import org.openmetromaps.maps.PlanRenderer.Pass;
+import org.openmetromaps.maps.painting.core.Painter;
+
+/**
+ * Observes a render of a {@link PlanRenderer} and allows to abort it early,
+ * see {@link PlanRenderer#paint(Painter, RenderMonitor)}.
+ */
+public interface RenderMonitor
+{
+
+	/**
+	 * Called regularly while painting. Once this returns true, the renderer
+	 * stops painting as soon as possible and leaves the result incomplete.
+	 */
+	public boolean isCancelled();
+
+	/**
+	 * Called after all elements of a pass have been painted.
+	 */
+	public void passFinished(Pass pass);
+
+}
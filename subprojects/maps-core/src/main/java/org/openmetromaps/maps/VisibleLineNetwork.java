@@ -0,0 +1,281 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkCloner;
+import org.openmetromaps.maps.graph.LineNetworkIndex;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+
+/**
+ * A copy of a {@link LineNetwork} that contains only the lines that are not
+ * hidden in a {@link MapViewStatus}, together with the edges and nodes that
+ * are still used by at least one visible line.
+ *
+ * The copy is only rebuilt when the set of hidden lines changes. Locations of
+ * nodes and neighbor locations of edges are shared with the original network
+ * and synchronized by {@link #update()}, so that nodes moved in the original
+ * network are picked up without rebuilding the copy.
+ *
+ * Visible elements can also be looked up by their ordinal in the
+ * {@link LineNetworkIndex} of the original network, which allows to map index
+ * query results to the copy.
+ */
+public class VisibleLineNetwork
+{
+
+	private LineNetwork original;
+	private MapViewStatus mapViewStatus;
+
+	private LineNetwork visible;
+	private int revision;
+
+	private Node[] visibleNodes;
+	private Node[] originalNodes;
+	private Edge[] visibleEdges;
+	private Edge[] originalEdges;
+
+	private Node[] visibleNodeByOrdinal;
+	private Edge[] visibleEdgeByOrdinal;
+
+	private Map<Node, Node> originalToCopyNode;
+	private Map<Edge, Edge> originalToCopyEdge;
+	private Map<NetworkLine, NetworkLine> originalToCopyLine;
+
+	private Map<Node, Node> copyToOriginalNode = new IdentityHashMap<>();
+	private Map<Edge, Edge> copyToOriginalEdge = new IdentityHashMap<>();
+	private Map<NetworkLine, NetworkLine> copyToOriginalLine = new IdentityHashMap<>();
+
+	public VisibleLineNetwork(LineNetwork original,
+			MapViewStatus mapViewStatus)
+	{
+		this.original = original;
+		this.mapViewStatus = mapViewStatus;
+		rebuild();
+	}
+
+	public LineNetwork getOriginal()
+	{
+		return original;
+	}
+
+	/**
+	 * Get the network of visible elements. Call {@link #update()} before to
+	 * make sure it reflects the current state of the original network.
+	 */
+	public LineNetwork getVisible()
+	{
+		return visible;
+	}
+
+	/**
+	 * Bring the visible network up to date. Rebuilds the copy if the hidden
+	 * lines changed since the last call and otherwise only synchronizes
+	 * locations, which does not allocate any objects.
+	 */
+	public void update()
+	{
+		if (revision != mapViewStatus.getHiddenLinesRevision()) {
+			rebuild();
+		} else {
+			syncLocations();
+		}
+	}
+
+	/**
+	 * Get the copy of the specified node of the original network. The result
+	 * may not be part of the visible network if all of its lines are hidden.
+	 */
+	public Node getCopy(Node node)
+	{
+		return originalToCopyNode.get(node);
+	}
+
+	public Edge getCopy(Edge edge)
+	{
+		return originalToCopyEdge.get(edge);
+	}
+
+	public NetworkLine getCopy(NetworkLine line)
+	{
+		return originalToCopyLine.get(line);
+	}
+
+	/**
+	 * Get the visible copy of the node with the specified ordinal in the index
+	 * of the original network or null if the node is not visible.
+	 */
+	public Node getVisibleNode(int ordinal)
+	{
+		return visibleNodeByOrdinal[ordinal];
+	}
+
+	/**
+	 * Get the visible copy of the edge with the specified ordinal in the index
+	 * of the original network or null if the edge is not visible.
+	 */
+	public Edge getVisibleEdge(int ordinal)
+	{
+		return visibleEdgeByOrdinal[ordinal];
+	}
+
+	public Node getOriginal(Node copy)
+	{
+		return copyToOriginalNode.get(copy);
+	}
+
+	public Edge getOriginal(Edge copy)
+	{
+		return copyToOriginalEdge.get(copy);
+	}
+
+	public NetworkLine getOriginal(NetworkLine copy)
+	{
+		return copyToOriginalLine.get(copy);
+	}
+
+	private void rebuild()
+	{
+		revision = mapViewStatus.getHiddenLinesRevision();
+
+		LineNetworkCloner cloner = new LineNetworkCloner(original);
+		LineNetwork copy = cloner.cloneLineNetwork();
+
+		originalToCopyNode = cloner.getNodeToNode();
+		originalToCopyEdge = cloner.getEdgeToEdge();
+		originalToCopyLine = cloner.getLineToLine();
+
+		copyToOriginalNode.clear();
+		copyToOriginalEdge.clear();
+		copyToOriginalLine.clear();
+		invert(originalToCopyNode, copyToOriginalNode);
+		invert(originalToCopyEdge, copyToOriginalEdge);
+		invert(originalToCopyLine, copyToOriginalLine);
+
+		Set<NetworkLine> lines = new HashSet<>();
+		List<NetworkLine> visibleLines = new ArrayList<>();
+		for (NetworkLine line : copy.lines) {
+			// the cloner may produce unreferenced copies for lines that are
+			// listed more than once in the original network
+			NetworkLine originalLine = copyToOriginalLine.get(line);
+			if (originalLine == null
+					|| mapViewStatus.isLineHidden(originalLine)) {
+				continue;
+			}
+			if (lines.add(line)) {
+				visibleLines.add(line);
+			}
+		}
+
+		Set<Edge> edges = new HashSet<>();
+		List<Edge> visibleEdges = new ArrayList<>();
+		for (Edge edge : copy.edges) {
+			List<NetworkLine> edgeLines = new ArrayList<>();
+			for (NetworkLine line : edge.lines) {
+				if (lines.contains(line)) {
+					edgeLines.add(line);
+				}
+			}
+			edge.lines = edgeLines;
+			if (!edgeLines.isEmpty()) {
+				edges.add(edge);
+				visibleEdges.add(edge);
+			}
+		}
+
+		List<Node> visibleNodes = new ArrayList<>();
+		for (Node node : copy.nodes) {
+			List<Edge> nodeEdges = new ArrayList<>();
+			for (Edge edge : node.edges) {
+				if (edges.contains(edge)) {
+					nodeEdges.add(edge);
+				}
+			}
+			node.edges = nodeEdges;
+			if (!nodeEdges.isEmpty()) {
+				visibleNodes.add(node);
+			}
+		}
+
+		copy.lines = visibleLines;
+		copy.edges = visibleEdges;
+		copy.nodes = visibleNodes;
+		visible = copy;
+
+		this.visibleNodes = visibleNodes.toArray(new Node[0]);
+		this.visibleEdges = visibleEdges.toArray(new Edge[0]);
+
+		LineNetworkIndex index = original.getIndex();
+		visibleNodeByOrdinal = new Node[index.getNumNodes()];
+		for (int i = 0; i < visibleNodeByOrdinal.length; i++) {
+			Node node = originalToCopyNode.get(index.getNode(i));
+			if (node != null && !node.edges.isEmpty()) {
+				visibleNodeByOrdinal[i] = node;
+			}
+		}
+		visibleEdgeByOrdinal = new Edge[index.getNumEdges()];
+		for (int i = 0; i < visibleEdgeByOrdinal.length; i++) {
+			Edge edge = originalToCopyEdge.get(index.getEdge(i));
+			if (edge != null && edges.contains(edge)) {
+				visibleEdgeByOrdinal[i] = edge;
+			}
+		}
+		originalNodes = new Node[this.visibleNodes.length];
+		for (int i = 0; i < originalNodes.length; i++) {
+			originalNodes[i] = copyToOriginalNode.get(this.visibleNodes[i]);
+		}
+		originalEdges = new Edge[this.visibleEdges.length];
+		for (int i = 0; i < originalEdges.length; i++) {
+			originalEdges[i] = copyToOriginalEdge.get(this.visibleEdges[i]);
+		}
+
+		syncLocations();
+	}
+
+	private void syncLocations()
+	{
+		for (int i = 0; i < visibleNodes.length; i++) {
+			visibleNodes[i].location = originalNodes[i].location;
+		}
+		for (int i = 0; i < visibleEdges.length; i++) {
+			Edge edge = visibleEdges[i];
+			Edge originalEdge = originalEdges[i];
+			edge.prev = originalEdge.prev;
+			edge.next = originalEdge.next;
+			edge.revision = originalEdge.revision;
+		}
+	}
+
+	private static <T> void invert(Map<T, T> originalToCopy,
+			Map<T, T> copyToOriginal)
+	{
+		for (Map.Entry<T, T> entry : originalToCopy.entrySet()) {
+			copyToOriginal.put(entry.getValue(), entry.getKey());
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Passes the measurements of each frame on to a number of other metrics, so
+ * that a renderer can report to more than one of them at a time.
+ */
+public class CompositeRenderMetrics implements RenderMetrics
+{
+
+	/**
+	 * Combine the specified metrics, ignoring null elements.
+	 *
+	 * @return null if all elements are null, the only non-null element if
+	 *         there is one, and a composite of the elements otherwise.
+	 */
+	public static RenderMetrics of(RenderMetrics... metrics)
+	{
+		List<RenderMetrics> list = new ArrayList<>();
+		for (RenderMetrics element : metrics) {
+			if (element != null) {
+				list.add(element);
+			}
+		}
+		if (list.isEmpty()) {
+			return null;
+		}
+		if (list.size() == 1) {
+			return list.get(0);
+		}
+		return new CompositeRenderMetrics(list);
+	}
+
+	private RenderMetrics[] metrics;
+
+	public CompositeRenderMetrics(List<RenderMetrics> metrics)
+	{
+		this.metrics = metrics.toArray(new RenderMetrics[0]);
+	}
+
+	@Override
+	public void frameFinished(FrameMetrics frame)
+	{
+		for (RenderMetrics element : metrics) {
+			element.frameFinished(frame);
+		}
+	}
+
+}
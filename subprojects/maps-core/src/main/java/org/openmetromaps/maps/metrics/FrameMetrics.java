@@ -0,0 +1,189 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.metrics;
+
+import java.util.Arrays;
+
+import org.openmetromaps.maps.PlanRenderer.Pass;
+
+/**
+ * Measurements of a single frame painted by a renderer. The renderer reuses
+ * the same instance for every frame, so consumers need to copy the values
+ * they want to keep.
+ */
+public class FrameMetrics
+{
+
+	private final long[] passNanos = new long[Pass.values().length];
+	private long totalNanos;
+
+	private int edgesDrawn;
+	private int edgesCulled;
+	private int stationsDrawn;
+	private int stationsCulled;
+	private int labelsPlaced;
+	private int labelsRejected;
+	private int paintSwitches;
+
+	private boolean cancelled;
+
+	public void reset()
+	{
+		Arrays.fill(passNanos, 0);
+		totalNanos = 0;
+		edgesDrawn = 0;
+		edgesCulled = 0;
+		stationsDrawn = 0;
+		stationsCulled = 0;
+		labelsPlaced = 0;
+		labelsRejected = 0;
+		paintSwitches = 0;
+		cancelled = false;
+	}
+
+	public void set(FrameMetrics other)
+	{
+		System.arraycopy(other.passNanos, 0, passNanos, 0, passNanos.length);
+		totalNanos = other.totalNanos;
+		edgesDrawn = other.edgesDrawn;
+		edgesCulled = other.edgesCulled;
+		stationsDrawn = other.stationsDrawn;
+		stationsCulled = other.stationsCulled;
+		labelsPlaced = other.labelsPlaced;
+		labelsRejected = other.labelsRejected;
+		paintSwitches = other.paintSwitches;
+		cancelled = other.cancelled;
+	}
+
+	/**
+	 * Get the time in nanoseconds spent on the pass, 0 if the pass has not
+	 * been finished.
+	 */
+	public long getPassNanos(Pass pass)
+	{
+		return passNanos[pass.ordinal()];
+	}
+
+	public void setPassNanos(Pass pass, long nanos)
+	{
+		passNanos[pass.ordinal()] = nanos;
+	}
+
+	/**
+	 * Get the time in nanoseconds spent on the whole frame, including the
+	 * preparation of the passes.
+	 */
+	public long getTotalNanos()
+	{
+		return totalNanos;
+	}
+
+	public void setTotalNanos(long totalNanos)
+	{
+		this.totalNanos = totalNanos;
+	}
+
+	/**
+	 * Get the number of edges drawn. In frames that draw bundles of lines
+	 * instead of single edges, this is the number of bundles.
+	 */
+	public int getEdgesDrawn()
+	{
+		return edgesDrawn;
+	}
+
+	/**
+	 * Get the number of edges (or bundles) that have been skipped because
+	 * they are outside of the view.
+	 */
+	public int getEdgesCulled()
+	{
+		return edgesCulled;
+	}
+
+	public void setEdges(int drawn, int culled)
+	{
+		edgesDrawn = drawn;
+		edgesCulled = culled;
+	}
+
+	public int getStationsDrawn()
+	{
+		return stationsDrawn;
+	}
+
+	public int getStationsCulled()
+	{
+		return stationsCulled;
+	}
+
+	public void setStations(int drawn, int culled)
+	{
+		stationsDrawn = drawn;
+		stationsCulled = culled;
+	}
+
+	public int getLabelsPlaced()
+	{
+		return labelsPlaced;
+	}
+
+	/**
+	 * Get the number of stations within the view whose labels have been left
+	 * out, because they collide with other labels or because only important
+	 * stations are labeled at the zoom level.
+	 */
+	public int getLabelsRejected()
+	{
+		return labelsRejected;
+	}
+
+	public void setLabels(int placed, int rejected)
+	{
+		labelsPlaced = placed;
+		labelsRejected = rejected;
+	}
+
+	/**
+	 * Get the number of changes of the state of the graphics object while
+	 * painting the frame, as far as the painter keeps track of them.
+	 */
+	public int getPaintSwitches()
+	{
+		return paintSwitches;
+	}
+
+	public void setPaintSwitches(int paintSwitches)
+	{
+		this.paintSwitches = paintSwitches;
+	}
+
+	/**
+	 * Whether the frame has been cancelled before all passes were finished.
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	public void setCancelled(boolean cancelled)
+	{
+		this.cancelled = cancelled;
+	}
+
+}
@@ -0,0 +1,34 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.metrics;
+
+/**
+ * Receives the measurements of each frame painted by a renderer that it has
+ * been registered with. Renderers without a registered instance do not take
+ * any timings.
+ */
+public interface RenderMetrics
+{
+
+	/**
+	 * Called on the thread that painted the frame, after the frame has been
+	 * finished or cancelled. The metrics object is reused for the next frame.
+	 */
+	public void frameFinished(FrameMetrics frame);
+
+}
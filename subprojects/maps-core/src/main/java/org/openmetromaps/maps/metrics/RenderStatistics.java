@@ -0,0 +1,209 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.metrics;
+
+import java.util.Locale;
+
+import org.openmetromaps.maps.PlanRenderer.Pass;
+
+/**
+ * Collects the measurements of frames into rolling histograms of the time
+ * spent on each pass and on whole frames, and sums up the counters of all
+ * frames. Cancelled frames are only counted.
+ *
+ * Frames may be reported from a rendering thread while the statistics are
+ * read on another thread, the accessors therefore return copies.
+ */
+public class RenderStatistics implements RenderMetrics
+{
+
+	public static final int DEFAULT_WINDOW = 120;
+
+	private final RollingHistogram total;
+	private final RollingHistogram[] passes;
+
+	private final FrameMetrics last = new FrameMetrics();
+
+	private long frames;
+	private long cancelled;
+
+	private long edgesDrawn;
+	private long edgesCulled;
+	private long stationsDrawn;
+	private long stationsCulled;
+	private long labelsPlaced;
+	private long labelsRejected;
+	private long paintSwitches;
+
+	public RenderStatistics()
+	{
+		this(DEFAULT_WINDOW);
+	}
+
+	/**
+	 * @param window
+	 *            the number of frames the histograms are based on.
+	 */
+	public RenderStatistics(int window)
+	{
+		total = new RollingHistogram(window);
+		passes = new RollingHistogram[Pass.values().length];
+		for (int i = 0; i < passes.length; i++) {
+			passes[i] = new RollingHistogram(window);
+		}
+	}
+
+	@Override
+	public synchronized void frameFinished(FrameMetrics frame)
+	{
+		if (frame.isCancelled()) {
+			cancelled++;
+			return;
+		}
+
+		frames++;
+		last.set(frame);
+
+		total.add(frame.getTotalNanos());
+		for (Pass pass : Pass.values()) {
+			passes[pass.ordinal()].add(frame.getPassNanos(pass));
+		}
+
+		edgesDrawn += frame.getEdgesDrawn();
+		edgesCulled += frame.getEdgesCulled();
+		stationsDrawn += frame.getStationsDrawn();
+		stationsCulled += frame.getStationsCulled();
+		labelsPlaced += frame.getLabelsPlaced();
+		labelsRejected += frame.getLabelsRejected();
+		paintSwitches += frame.getPaintSwitches();
+	}
+
+	public synchronized void clear()
+	{
+		total.clear();
+		for (RollingHistogram histogram : passes) {
+			histogram.clear();
+		}
+		last.reset();
+		frames = 0;
+		cancelled = 0;
+		edgesDrawn = 0;
+		edgesCulled = 0;
+		stationsDrawn = 0;
+		stationsCulled = 0;
+		labelsPlaced = 0;
+		labelsRejected = 0;
+		paintSwitches = 0;
+	}
+
+	/**
+	 * Get the number of finished frames.
+	 */
+	public synchronized long getFrames()
+	{
+		return frames;
+	}
+
+	public synchronized long getCancelled()
+	{
+		return cancelled;
+	}
+
+	/**
+	 * Get a copy of the measurements of the last finished frame.
+	 */
+	public synchronized FrameMetrics getLast()
+	{
+		FrameMetrics copy = new FrameMetrics();
+		copy.set(last);
+		return copy;
+	}
+
+	public synchronized RollingHistogram getTotal()
+	{
+		return new RollingHistogram(total);
+	}
+
+	public synchronized RollingHistogram getPass(Pass pass)
+	{
+		return new RollingHistogram(passes[pass.ordinal()]);
+	}
+
+	/**
+	 * Write the statistics as a JSON object. Durations are in nanoseconds.
+	 */
+	public synchronized String toJson()
+	{
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("{\n");
+		buffer.append("  \"frames\": ").append(frames).append(",\n");
+		buffer.append("  \"cancelled\": ").append(cancelled).append(",\n");
+		buffer.append("  \"total\": ");
+		appendHistogram(buffer, total);
+		buffer.append(",\n");
+		buffer.append("  \"passes\": {\n");
+		Pass[] values = Pass.values();
+		for (int i = 0; i < values.length; i++) {
+			Pass pass = values[i];
+			buffer.append("    \"")
+					.append(pass.name().toLowerCase(Locale.US))
+					.append("\": ");
+			appendHistogram(buffer, passes[pass.ordinal()]);
+			buffer.append(i < values.length - 1 ? ",\n" : "\n");
+		}
+		buffer.append("  },\n");
+		buffer.append("  \"counters\": {\n");
+		appendCounter(buffer, "edgesDrawn", edgesDrawn, true);
+		appendCounter(buffer, "edgesCulled", edgesCulled, true);
+		appendCounter(buffer, "stationsDrawn", stationsDrawn, true);
+		appendCounter(buffer, "stationsCulled", stationsCulled, true);
+		appendCounter(buffer, "labelsPlaced", labelsPlaced, true);
+		appendCounter(buffer, "labelsRejected", labelsRejected, true);
+		appendCounter(buffer, "paintSwitches", paintSwitches, false);
+		buffer.append("  }\n");
+		buffer.append("}\n");
+		return buffer.toString();
+	}
+
+	private static void appendHistogram(StringBuilder buffer,
+			RollingHistogram histogram)
+	{
+		buffer.append("{ \"count\": ").append(histogram.getCount());
+		buffer.append(", \"mean\": ").append(histogram.getMean());
+		buffer.append(", \"p50\": ").append(histogram.getPercentile(0.5));
+		buffer.append(", \"p90\": ").append(histogram.getPercentile(0.9));
+		buffer.append(", \"p99\": ").append(histogram.getPercentile(0.99));
+		buffer.append(", \"max\": ").append(histogram.getMax());
+		buffer.append(", \"buckets\": [");
+		for (int i = 0; i < RollingHistogram.NUM_BUCKETS; i++) {
+			if (i > 0) {
+				buffer.append(", ");
+			}
+			buffer.append(histogram.getBucketCount(i));
+		}
+		buffer.append("] }");
+	}
+
+	private static void appendCounter(StringBuilder buffer, String name,
+			long value, boolean more)
+	{
+		buffer.append("    \"").append(name).append("\": ").append(value);
+		buffer.append(more ? ",\n" : "\n");
+	}
+
+}
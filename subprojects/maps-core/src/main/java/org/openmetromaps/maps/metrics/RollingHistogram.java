@@ -0,0 +1,136 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.metrics;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of the durations of the last samples added, with buckets that
+ * double in size starting at one microsecond. Older samples are replaced
+ * once the window is full.
+ */
+public class RollingHistogram
+{
+
+	public static final int NUM_BUCKETS = 24;
+
+	private final long[] samples;
+	private final int[] buckets = new int[NUM_BUCKETS];
+	private int next = 0;
+	private int count = 0;
+	private long sum = 0;
+
+	public RollingHistogram(int window)
+	{
+		samples = new long[window];
+	}
+
+	public RollingHistogram(RollingHistogram other)
+	{
+		samples = other.samples.clone();
+		System.arraycopy(other.buckets, 0, buckets, 0, NUM_BUCKETS);
+		next = other.next;
+		count = other.count;
+		sum = other.sum;
+	}
+
+	/**
+	 * Get the bucket that a duration in nanoseconds falls into.
+	 */
+	public static int bucket(long nanos)
+	{
+		long micros = nanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return Math.min(bucket, NUM_BUCKETS - 1);
+	}
+
+	/**
+	 * Get the exclusive upper bound in nanoseconds of the durations in a
+	 * bucket. The last bucket does not have an upper bound.
+	 */
+	public static long getUpperBound(int bucket)
+	{
+		if (bucket == NUM_BUCKETS - 1) {
+			return Long.MAX_VALUE;
+		}
+		return 1000L << bucket;
+	}
+
+	public void add(long nanos)
+	{
+		if (count == samples.length) {
+			long old = samples[next];
+			buckets[bucket(old)]--;
+			sum -= old;
+		} else {
+			count++;
+		}
+		samples[next] = nanos;
+		buckets[bucket(nanos)]++;
+		sum += nanos;
+		next = (next + 1) % samples.length;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(buckets, 0);
+		next = 0;
+		count = 0;
+		sum = 0;
+	}
+
+	public int getCount()
+	{
+		return count;
+	}
+
+	public int getBucketCount(int bucket)
+	{
+		return buckets[bucket];
+	}
+
+	public long getMean()
+	{
+		return count == 0 ? 0 : sum / count;
+	}
+
+	public long getMax()
+	{
+		long max = 0;
+		for (int i = 0; i < count; i++) {
+			max = Math.max(max, samples[i]);
+		}
+		return max;
+	}
+
+	/**
+	 * Get the duration in nanoseconds that the specified fraction of the
+	 * samples does not exceed.
+	 */
+	public long getPercentile(double fraction)
+	{
+		if (count == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(fraction * count) - 1;
+		return sorted[Math.max(0, Math.min(count - 1, index))];
+	}
+
+}
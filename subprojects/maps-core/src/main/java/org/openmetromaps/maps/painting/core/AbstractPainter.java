@@ -20,10 +20,13 @@ package org.openmetromaps.maps.painting.core;
 import org.openmetromaps.maps.graph.Edge;
 import org.openmetromaps.maps.graph.NetworkLine;
 import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.painting.core.geom.Path;
 import org.openmetromaps.maps.painting.core.ref.LineEdgeReference;
 import org.openmetromaps.maps.painting.core.ref.NodeReference;
 import org.openmetromaps.maps.painting.core.ref.Reference;
 
+import de.topobyte.viewports.geometry.Envelope;
+
 public abstract class AbstractPainter implements Painter
 {
 
@@ -47,4 +50,28 @@ public abstract class AbstractPainter implements Painter
 		reference = null;
 	}
 
+	@Override
+	public boolean supportsBatches()
+	{
+		return true;
+	}
+
+	@Override
+	public void drawBatch(Path path)
+	{
+		draw(path);
+	}
+
+	@Override
+	public int getStateSwitches()
+	{
+		return 0;
+	}
+
+	@Override
+	public Envelope getClipBounds()
+	{
+		return null;
+	}
+
 }
@@ -26,6 +26,7 @@ import org.openmetromaps.maps.painting.core.geom.Path;
 
 import de.topobyte.lightgeom.curves.spline.CubicSpline;
 import de.topobyte.lightgeom.curves.spline.QuadraticSpline;
+import de.topobyte.viewports.geometry.Envelope;
 
 public interface Painter
 {
@@ -40,6 +41,19 @@ public interface Painter
 
 	public Path createPath();
 
+	/**
+	 * Whether unrelated geometry that shares a paint info may be collected
+	 * into a single path and drawn at once with {@link #drawBatch(Path)}.
+	 * Painters that need the reference of each drawn element return false.
+	 */
+	public boolean supportsBatches();
+
+	/**
+	 * Draw a path consisting of any number of unconnected subpaths with the
+	 * current paint info, as if each subpath was drawn on its own.
+	 */
+	public void drawBatch(Path path);
+
 	public void draw(Circle circle);
 
 	public void drawCircle(double x, double y, double radius);
@@ -60,4 +74,18 @@ public interface Painter
 
 	public void setPaintInfo(IPaintInfo paint);
 
+	/**
+	 * Get the number of times the state of the underlying graphics has been
+	 * changed, such as its stroke, color or font. Painters that do not keep
+	 * track of this return 0.
+	 */
+	public int getStateSwitches();
+
+	/**
+	 * Get the bounds of the area that drawing is restricted to, in the
+	 * coordinates used for drawing, or null if drawing is not restricted.
+	 * Elements that do not reach into this area do not need to be drawn.
+	 */
+	public Envelope getClipBounds();
+
 }
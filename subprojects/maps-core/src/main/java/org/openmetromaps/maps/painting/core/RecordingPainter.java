@@ -0,0 +1,445 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.painting.core;
+
+import java.util.Arrays;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.painting.core.geom.Circle;
+import org.openmetromaps.maps.painting.core.geom.LineSegment;
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+import de.topobyte.lightgeom.curves.spline.CubicSpline;
+import de.topobyte.lightgeom.curves.spline.CubicSplineB;
+import de.topobyte.lightgeom.curves.spline.QuadraticSpline;
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.lightgeom.lina.Vector2;
+
+/**
+ * A painter that records all drawing operations into a compact display list
+ * instead of painting them, so that they can be replayed into another painter
+ * any number of times, optionally shifted by an offset.
+ *
+ * Replaying is much cheaper than painting a map again because all geometry
+ * has already been computed, which makes it suitable for panning, where only
+ * the translation of the view changes. Paint infos are recorded by reference,
+ * so the display list needs to be recorded again when they change.
+ *
+ * String widths are measured with a separate painter that receives all paint
+ * infos set on this painter.
+ */
+public class RecordingPainter extends AbstractPainter
+{
+
+	private static final byte OP_PAINT_INFO = 0;
+	private static final byte OP_REF_NODE = 1;
+	private static final byte OP_REF_EDGE = 2;
+	private static final byte OP_NO_REF = 3;
+	private static final byte OP_PATH = 4;
+	private static final byte OP_MOVE_TO = 5;
+	private static final byte OP_LINE_TO = 6;
+	private static final byte OP_PATH_END = 7;
+	private static final byte OP_CIRCLE = 8;
+	private static final byte OP_CUBIC = 9;
+	private static final byte OP_LINE = 10;
+	private static final byte OP_STRING = 11;
+	private static final byte OP_OUTLINE_STRING = 12;
+	private static final byte OP_CURVE_TO = 13;
+	private static final byte OP_BATCH_END = 14;
+
+	private Painter metrics;
+
+	private byte[] ops = new byte[1024];
+	private int numOps = 0;
+	private double[] coords = new double[4096];
+	private int numCoords = 0;
+	private Object[] objects = new Object[256];
+	private int numObjects = 0;
+
+	// scratch objects for replaying
+	private CubicSpline spline = new CubicSplineB(0, 0, 0, 0, 0, 0, 0, 0);
+
+	/**
+	 * @param metrics
+	 *            the painter to measure strings with.
+	 */
+	public RecordingPainter(Painter metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	public void setMetrics(Painter metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Discard all recorded operations, keeping the allocated buffers.
+	 */
+	public void clear()
+	{
+		numOps = 0;
+		numCoords = 0;
+		Arrays.fill(objects, 0, numObjects, null);
+		numObjects = 0;
+	}
+
+	public boolean isEmpty()
+	{
+		return numOps == 0;
+	}
+
+	/**
+	 * Get the number of recorded operations.
+	 */
+	public int size()
+	{
+		return numOps;
+	}
+
+	/**
+	 * Paint all recorded operations with the specified painter, shifting all
+	 * coordinates by the specified offset.
+	 */
+	public void replay(Painter g, double dx, double dy)
+	{
+		Path path = null;
+		int c = 0;
+		int o = 0;
+		for (int i = 0; i < numOps; i++) {
+			switch (ops[i]) {
+			case OP_PAINT_INFO:
+				g.setPaintInfo((IPaintInfo) objects[o++]);
+				break;
+			case OP_REF_NODE:
+				g.setRef((Node) objects[o++]);
+				break;
+			case OP_REF_EDGE:
+				g.setRef((Edge) objects[o++], (NetworkLine) objects[o++]);
+				break;
+			case OP_NO_REF:
+				g.setNoRef();
+				break;
+			case OP_PATH:
+				if (path == null) {
+					path = g.createPath();
+				} else {
+					path.reset();
+				}
+				break;
+			case OP_MOVE_TO:
+				path.moveTo(coords[c++] + dx, coords[c++] + dy);
+				break;
+			case OP_LINE_TO:
+				path.lineTo(coords[c++] + dx, coords[c++] + dy);
+				break;
+			case OP_CURVE_TO:
+				path.curveTo(coords[c++] + dx, coords[c++] + dy,
+						coords[c++] + dx, coords[c++] + dy, coords[c++] + dx,
+						coords[c++] + dy);
+				break;
+			case OP_PATH_END:
+				g.draw(path);
+				break;
+			case OP_BATCH_END:
+				g.drawBatch(path);
+				break;
+			case OP_CIRCLE:
+				g.drawCircle(coords[c++] + dx, coords[c++] + dy, coords[c++]);
+				break;
+			case OP_CUBIC:
+				spline.getP1().set(coords[c++] + dx, coords[c++] + dy);
+				spline.getC1().set(coords[c++] + dx, coords[c++] + dy);
+				spline.getC2().set(coords[c++] + dx, coords[c++] + dy);
+				spline.getP2().set(coords[c++] + dx, coords[c++] + dy);
+				g.draw(spline);
+				break;
+			case OP_LINE:
+				g.drawLine(coords[c++] + dx, coords[c++] + dy,
+						coords[c++] + dx, coords[c++] + dy);
+				break;
+			case OP_STRING:
+				g.drawString((String) objects[o++], (float) (coords[c++] + dx),
+						(float) (coords[c++] + dy));
+				break;
+			case OP_OUTLINE_STRING:
+				g.outlineString((String) objects[o++],
+						(float) (coords[c++] + dx), (float) (coords[c++] + dy));
+				break;
+			}
+		}
+	}
+
+	private void op(byte op)
+	{
+		if (numOps == ops.length) {
+			ops = Arrays.copyOf(ops, ops.length * 2);
+		}
+		ops[numOps++] = op;
+	}
+
+	private void coord(double a)
+	{
+		if (numCoords == coords.length) {
+			coords = Arrays.copyOf(coords, coords.length * 2);
+		}
+		coords[numCoords++] = a;
+	}
+
+	private void coords(double a, double b)
+	{
+		if (numCoords + 2 > coords.length) {
+			coords = Arrays.copyOf(coords, coords.length * 2);
+		}
+		coords[numCoords++] = a;
+		coords[numCoords++] = b;
+	}
+
+	private void object(Object object)
+	{
+		if (numObjects == objects.length) {
+			objects = Arrays.copyOf(objects, objects.length * 2);
+		}
+		objects[numObjects++] = object;
+	}
+
+	@Override
+	public void setRef(Node node)
+	{
+		super.setRef(node);
+		op(OP_REF_NODE);
+		object(node);
+	}
+
+	@Override
+	public void setRef(Edge edge, NetworkLine line)
+	{
+		super.setRef(edge, line);
+		op(OP_REF_EDGE);
+		object(edge);
+		object(line);
+	}
+
+	@Override
+	public void setNoRef()
+	{
+		super.setNoRef();
+		op(OP_NO_REF);
+	}
+
+	@Override
+	public void setPaintInfo(IPaintInfo paint)
+	{
+		metrics.setPaintInfo(paint);
+		op(OP_PAINT_INFO);
+		object(paint);
+	}
+
+	@Override
+	public Path createPath()
+	{
+		return new RecordedPath();
+	}
+
+	@Override
+	public void draw(Path path)
+	{
+		record((RecordedPath) path);
+		op(OP_PATH_END);
+	}
+
+	@Override
+	public void drawBatch(Path path)
+	{
+		record((RecordedPath) path);
+		op(OP_BATCH_END);
+	}
+
+	private void record(RecordedPath recorded)
+	{
+		op(OP_PATH);
+		for (int i = 0; i < recorded.numOps; i++) {
+			op(recorded.ops[i]);
+		}
+		for (int i = 0; i < recorded.numCoords; i++) {
+			coord(recorded.coords[i]);
+		}
+	}
+
+	@Override
+	public void draw(Circle circle)
+	{
+		drawCircle(circle.getX(), circle.getY(), circle.getRadius());
+	}
+
+	@Override
+	public void drawCircle(double x, double y, double radius)
+	{
+		op(OP_CIRCLE);
+		coords(x, y);
+		coord(radius);
+	}
+
+	@Override
+	public void draw(QuadraticSpline spline)
+	{
+		// record as the equivalent cubic curve
+		Point p1 = spline.getP1();
+		Point p2 = spline.getP2();
+		Point c = spline.getC();
+		op(OP_CUBIC);
+		coords(p1.x, p1.y);
+		coords(p1.x + 2 / 3.0 * (c.x - p1.x), p1.y + 2 / 3.0 * (c.y - p1.y));
+		coords(p2.x + 2 / 3.0 * (c.x - p2.x), p2.y + 2 / 3.0 * (c.y - p2.y));
+		coords(p2.x, p2.y);
+	}
+
+	@Override
+	public void draw(CubicSpline spline)
+	{
+		op(OP_CUBIC);
+		coords(spline.getP1().x, spline.getP1().y);
+		coords(spline.getC1().x, spline.getC1().y);
+		coords(spline.getC2().x, spline.getC2().y);
+		coords(spline.getP2().x, spline.getP2().y);
+	}
+
+	@Override
+	public void draw(LineSegment l)
+	{
+		drawLine(l.getX1(), l.getY1(), l.getX2(), l.getY2());
+	}
+
+	@Override
+	public void drawLine(double x1, double y1, double x2, double y2)
+	{
+		op(OP_LINE);
+		coords(x1, y1);
+		coords(x2, y2);
+	}
+
+	@Override
+	public void drawString(String string, float x, float y)
+	{
+		op(OP_STRING);
+		object(string);
+		coords(x, y);
+	}
+
+	@Override
+	public void outlineString(String string, float x, float y)
+	{
+		op(OP_OUTLINE_STRING);
+		object(string);
+		coords(x, y);
+	}
+
+	@Override
+	public int getStringWidth(String string)
+	{
+		return metrics.getStringWidth(string);
+	}
+
+	/**
+	 * A path that stores its segments until it is drawn.
+	 */
+	private static class RecordedPath implements Path
+	{
+
+		private byte[] ops = new byte[16];
+		private double[] coords = new double[32];
+		private int numOps = 0;
+		private int numCoords = 0;
+
+		private void add(byte op)
+		{
+			if (numOps == ops.length) {
+				ops = Arrays.copyOf(ops, ops.length * 2);
+			}
+			ops[numOps++] = op;
+		}
+
+		private void add(double x, double y)
+		{
+			if (numCoords + 2 > coords.length) {
+				coords = Arrays.copyOf(coords, coords.length * 2);
+			}
+			coords[numCoords++] = x;
+			coords[numCoords++] = y;
+		}
+
+		@Override
+		public void reset()
+		{
+			numOps = 0;
+			numCoords = 0;
+		}
+
+		@Override
+		public void moveTo(double x, double y)
+		{
+			add(OP_MOVE_TO);
+			add(x, y);
+		}
+
+		@Override
+		public void lineTo(double x, double y)
+		{
+			add(OP_LINE_TO);
+			add(x, y);
+		}
+
+		@Override
+		public void curveTo(double c1x, double c1y, double c2x, double c2y,
+				double x, double y)
+		{
+			add(OP_CURVE_TO);
+			add(c1x, c1y);
+			add(c2x, c2y);
+			add(x, y);
+		}
+
+		@Override
+		public void moveTo(Point p)
+		{
+			moveTo(p.x, p.y);
+		}
+
+		@Override
+		public void lineTo(Point p)
+		{
+			lineTo(p.x, p.y);
+		}
+
+		@Override
+		public void moveTo(Vector2 p)
+		{
+			moveTo(p.getX(), p.getY());
+		}
+
+		@Override
+		public void lineTo(Vector2 p)
+		{
+			lineTo(p.getX(), p.getY());
+		}
+
+	}
+
+}
@@ -29,6 +29,13 @@ public interface Path
 
 	public void lineTo(double x, double y);
 
+	/**
+	 * Add a cubic curve from the current point to (x, y), using (c1x, c1y)
+	 * and (c2x, c2y) as control points.
+	 */
+	public void curveTo(double c1x, double c1y, double c2x, double c2y,
+			double x, double y);
+
 	public void moveTo(Point p);
 
 	public void lineTo(Point p);
@@ -27,6 +27,8 @@ import org.openmetromaps.maps.painting.core.ColorCode;
 import org.openmetromaps.maps.painting.core.IPaintInfo;
 import org.openmetromaps.maps.painting.core.PaintFactory;
 import org.openmetromaps.maps.painting.core.PaintType;
+import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.core.geom.Path;
 
 public abstract class AbstractSegmentDrawer implements SegmentDrawer
 {
@@ -39,6 +41,8 @@ public abstract class AbstractSegmentDrawer implements SegmentDrawer
 	protected float spreadFactor;
 	protected float lineWidth;
 
+	private boolean batching = true;
+
 	protected IPaintInfo[] lineToPaintForLines;
 	protected IPaintInfo lineToPaintForSelectedLines;
 
@@ -65,6 +69,29 @@ public abstract class AbstractSegmentDrawer implements SegmentDrawer
 		lineToPaintForSelectedLines.setStyle(PaintType.STROKE);
 	}
 
+	/**
+	 * Get the batch that collects the segment of the specified line, which
+	 * continues the current batch if the segment is drawn with the same
+	 * paint.
+	 */
+	protected Path batch(Painter g, PathBatches batches, NetworkLine line,
+			boolean selected)
+	{
+		if (selected) {
+			return batches.get(g, lineToPaintForSelectedLines);
+		}
+		return batches.get(g, lineToPaintForLines[line.line.getId()]);
+	}
+
+	/**
+	 * Get the width of lines in scene coordinates. This assumes that the
+	 * mapping to view coordinates scales both axes by the same factor.
+	 */
+	protected float sceneLineWidth()
+	{
+		return (float) (lineWidth / (ltp.getX(1) - ltp.getX(0)));
+	}
+
 	@Override
 	public void zoomChanged(float factor, float lineWidth)
 	{
@@ -93,15 +120,29 @@ public abstract class AbstractSegmentDrawer implements SegmentDrawer
 	}
 
 	@Override
-	public void startSegments()
+	public boolean isBatching()
 	{
-		// do nothing
+		return batching;
+	}
+
+	@Override
+	public void setBatching(boolean batching)
+	{
+		this.batching = batching;
+	}
+
+	@Override
+	public void startSegments(Painter g, DrawerScratch scratch)
+	{
+		if (batching && g.supportsBatches()) {
+			scratch.batches.start();
+		}
 	}
 
 	@Override
-	public void finishSegments()
+	public void finishSegments(Painter g, DrawerScratch scratch)
 	{
-		// do nothing
+		scratch.batches.flush(g);
 	}
 
 }
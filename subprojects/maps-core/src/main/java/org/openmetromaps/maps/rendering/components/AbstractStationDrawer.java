@@ -22,7 +22,6 @@ import java.util.Map;
 import org.openmetromaps.maps.EdgeUtil;
 import org.openmetromaps.maps.LocationToPoint;
 import org.openmetromaps.maps.SegmentEndPointPaintInfo;
-import org.openmetromaps.maps.SegmentEndPointPool;
 import org.openmetromaps.maps.graph.Edge;
 import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.NetworkLine;
@@ -37,7 +36,6 @@ import org.openmetromaps.maps.painting.core.PaintType;
 import org.openmetromaps.maps.painting.core.Painter;
 import org.openmetromaps.maps.painting.core.geom.Path;
 
-import de.topobyte.lightgeom.convexhull.ConvexHull;
 import de.topobyte.lightgeom.convexhull.PointArray;
 import de.topobyte.lightgeom.lina.Point;
 import de.topobyte.lightgeom.lina.Vector2;
@@ -73,8 +71,6 @@ public abstract class AbstractStationDrawer implements StationDrawer
 
 	protected IPaintInfo[] lineToPaintForStations;
 
-	protected SegmentEndPointPool spiPool = new SegmentEndPointPool();
-
 	public AbstractStationDrawer(PaintFactory pf, LineNetwork data,
 			Map<NetworkLine, ColorCode> colors, float scale,
 			LocationToPoint ltp, float spreadFactor)
@@ -132,6 +128,15 @@ public abstract class AbstractStationDrawer implements StationDrawer
 		this.scale = scale;
 	}
 
+	/**
+	 * Get the width of lines in scene coordinates. This assumes that the
+	 * mapping to view coordinates scales both axes by the same factor.
+	 */
+	protected float sceneLineWidth()
+	{
+		return (float) (lineWidth / (ltp.getX(1) - ltp.getX(0)));
+	}
+
 	@Override
 	public void zoomChanged(float factor, float lineWidth)
 	{
@@ -179,12 +184,12 @@ public abstract class AbstractStationDrawer implements StationDrawer
 	}
 
 	protected void drawLineal(Painter g, Path path, double px, double py,
-			SegmentEndPointPaintInfo spi, boolean selected,
+			double x1, double y1, double x2, double y2, boolean selected,
 			boolean renderCenter)
 	{
 		path.reset();
-		path.moveTo(px + spi.sx, py + spi.sy);
-		path.lineTo(px + spi.ex, py + spi.ey);
+		path.moveTo(x1, y1);
+		path.lineTo(x2, y2);
 
 		if (selected) {
 			g.setPaintInfo(paintSelectedStationsStrokeOutline);
@@ -228,23 +233,20 @@ public abstract class AbstractStationDrawer implements StationDrawer
 		return null;
 	}
 
-	private ConvexHull convexHull = new ConvexHull();
-
-	protected void hull(Path path, PointArray coords)
+	protected void hull(DrawerScratch scratch, CachedGeometry shape,
+			PointArray coords)
 	{
-		PointArray hull = convexHull.computePolygon(coords, false);
+		PointArray hull = scratch.convexHull.computePolygon(coords, false);
 
-		path.reset();
 		int nPoints = hull.size / 2;
-		path.moveTo(hull.getX(0), hull.getY(0));
-		for (int i = 1; i < nPoints; i++) {
-			path.lineTo(hull.getX(i), hull.getY(i));
+		for (int i = 0; i < nPoints; i++) {
+			shape.add(hull.getX(i), hull.getY(i));
 		}
 	}
 
-	protected SegmentEndPointPaintInfo endpointInfo(Edge edge, Node node,
-			LocationToPoint ltp, float lineWidth, float spreadFactor,
-			int nLines)
+	protected SegmentEndPointPaintInfo endpointInfo(DrawerScratch scratch,
+			Edge edge, Node node, LocationToPoint ltp, float lineWidth,
+			float spreadFactor, int nLines)
 	{
 		Point locationA = edge.n1.location;
 		Point locationB = edge.n2.location;
@@ -256,7 +258,7 @@ public abstract class AbstractStationDrawer implements StationDrawer
 
 		boolean reverse = edge.n2 == node;
 
-		SegmentEndPointPaintInfo spi = spiPool.get();
+		SegmentEndPointPaintInfo spi = scratch.spiPool.get();
 		if (!reverse) {
 			Point lp = edge.prev;
 			spi = EdgeUtil.endpointInfo(spi, ax, ay, bx, by, lp, ltp, lineWidth,
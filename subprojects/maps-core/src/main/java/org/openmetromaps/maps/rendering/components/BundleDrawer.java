@@ -0,0 +1,142 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.rendering.components;
+
+import java.util.List;
+import java.util.Map;
+
+import org.openmetromaps.maps.LocationToPoint;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.painting.core.Cap;
+import org.openmetromaps.maps.painting.core.ColorCode;
+import org.openmetromaps.maps.painting.core.IPaintInfo;
+import org.openmetromaps.maps.painting.core.Join;
+import org.openmetromaps.maps.painting.core.PaintFactory;
+import org.openmetromaps.maps.painting.core.PaintType;
+import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+/**
+ * Paints the chains of a {@link BundleGeometry} as single strokes that are as
+ * wide as the bundle of lines they replace, in the color of the first line.
+ */
+public class BundleDrawer
+{
+
+	private PaintFactory pf;
+	private LocationToPoint ltp;
+
+	private float spreadFactor;
+	private float lineWidth;
+
+	private ColorCode[] colorForLines;
+
+	// paints are created lazily for each line and number of bundled lines
+	// and never changed once created, as painters may keep references to
+	// them until the end of a frame
+	private IPaintInfo[][] paintForLines;
+	private IPaintInfo[] paintForSelectedLines;
+
+	public BundleDrawer(PaintFactory pf, LineNetwork data,
+			Map<NetworkLine, ColorCode> colors, LocationToPoint ltp,
+			float spreadFactor)
+	{
+		this.pf = pf;
+		this.ltp = ltp;
+		this.spreadFactor = spreadFactor;
+
+		List<NetworkLine> lines = data.getLines();
+		colorForLines = new ColorCode[lines.size()];
+		for (NetworkLine line : lines) {
+			colorForLines[line.line.getId()] = colors.get(line);
+		}
+		createPaints();
+	}
+
+	private void createPaints()
+	{
+		int nLines = colorForLines.length;
+		paintForLines = new IPaintInfo[nLines][];
+		paintForSelectedLines = new IPaintInfo[nLines];
+	}
+
+	private IPaintInfo createPaint(ColorCode color, int nLines)
+	{
+		IPaintInfo paint = pf.create(color);
+		paint.setStyle(PaintType.STROKE);
+		paint.setCap(Cap.ROUND);
+		paint.setJoin(Join.ROUND);
+		paint.setWidth(lineWidth + (nLines - 1) * lineWidth * spreadFactor);
+		return paint;
+	}
+
+	public void zoomChanged(float factor, float lineWidth)
+	{
+		if (this.lineWidth == lineWidth) {
+			return;
+		}
+		this.lineWidth = lineWidth;
+		createPaints();
+	}
+
+	private IPaintInfo paint(int line, int nLines, boolean selected)
+	{
+		if (selected) {
+			IPaintInfo paint = paintForSelectedLines[nLines - 1];
+			if (paint == null) {
+				paint = createPaint(new ColorCode(0xffff0000), nLines);
+				paintForSelectedLines[nLines - 1] = paint;
+			}
+			return paint;
+		}
+		IPaintInfo[] paints = paintForLines[line];
+		if (paints == null) {
+			paints = new IPaintInfo[colorForLines.length];
+			paintForLines[line] = paints;
+		}
+		IPaintInfo paint = paints[nLines - 1];
+		if (paint == null) {
+			paint = createPaint(colorForLines[line], nLines);
+			paints[nLines - 1] = paint;
+		}
+		return paint;
+	}
+
+	public void drawChain(Painter g, Path path, BundleGeometry geometry,
+			int chain, boolean selected)
+	{
+		List<NetworkLine> lines = geometry.getLines(chain);
+		int nLines = lines.size();
+
+		g.setPaintInfo(paint(lines.get(0).line.getId(), nLines, selected));
+
+		double[] coords = geometry.getCoords();
+		int[] offsets = geometry.getOffsets();
+		int start = offsets[chain] * 2;
+		int end = offsets[chain + 1] * 2;
+
+		path.reset();
+		path.moveTo(ltp.getX(coords[start]), ltp.getY(coords[start + 1]));
+		for (int i = start + 2; i < end; i += 2) {
+			path.lineTo(ltp.getX(coords[i]), ltp.getY(coords[i + 1]));
+		}
+		g.draw(path);
+	}
+
+}
@@ -0,0 +1,204 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.rendering.components;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+
+/**
+ * The edges of a network joined into chains for painting line bundles as
+ * single strokes. A chain is a maximal sequence of edges with the same set of
+ * lines whose inner nodes have no other edges. Coordinates are stored in
+ * world coordinates, so the geometry only needs to be computed again when
+ * nodes move or the network changes.
+ */
+public class BundleGeometry
+{
+
+	private int numChains;
+	private double[] coords;
+	private int[] offsets;
+	private double[] bounds;
+	private List<List<NetworkLine>> lines = new ArrayList<>();
+
+	public BundleGeometry(LineNetwork network)
+	{
+		List<double[]> chains = new ArrayList<>();
+		int numPoints = 0;
+
+		Set<Edge> visited = Collections
+				.newSetFromMap(new IdentityHashMap<Edge, Boolean>());
+		Deque<Point> points = new ArrayDeque<>();
+		for (Edge edge : network.edges) {
+			if (!visited.add(edge)) {
+				continue;
+			}
+			points.clear();
+			points.add(edge.n1.location);
+			points.add(edge.n2.location);
+			extend(points, visited, edge, edge.n2, false);
+			extend(points, visited, edge, edge.n1, true);
+
+			double[] chain = new double[points.size() * 2];
+			int i = 0;
+			for (Point point : points) {
+				chain[i++] = point.x;
+				chain[i++] = point.y;
+			}
+			chains.add(chain);
+			lines.add(edge.lines);
+			numPoints += points.size();
+		}
+
+		numChains = chains.size();
+		coords = new double[numPoints * 2];
+		offsets = new int[numChains + 1];
+		bounds = new double[numChains * 4];
+		int k = 0;
+		for (int i = 0; i < numChains; i++) {
+			double[] chain = chains.get(i);
+			offsets[i] = k / 2;
+			System.arraycopy(chain, 0, coords, k, chain.length);
+			k += chain.length;
+
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int j = 0; j < chain.length; j += 2) {
+				minX = Math.min(minX, chain[j]);
+				minY = Math.min(minY, chain[j + 1]);
+				maxX = Math.max(maxX, chain[j]);
+				maxY = Math.max(maxY, chain[j + 1]);
+			}
+			bounds[i * 4] = minX;
+			bounds[i * 4 + 1] = minY;
+			bounds[i * 4 + 2] = maxX;
+			bounds[i * 4 + 3] = maxY;
+		}
+		offsets[numChains] = numPoints;
+	}
+
+	/**
+	 * Follow the chain that starts with the specified edge beyond the
+	 * specified node and add the locations of the nodes passed.
+	 */
+	private static void extend(Deque<Point> points, Set<Edge> visited,
+			Edge edge, Node node, boolean atStart)
+	{
+		while (true) {
+			Edge next = continuation(node, edge);
+			if (next == null || !visited.add(next)) {
+				return;
+			}
+			node = next.n1 == node ? next.n2 : next.n1;
+			if (atStart) {
+				points.addFirst(node.location);
+			} else {
+				points.addLast(node.location);
+			}
+			edge = next;
+		}
+	}
+
+	private static Edge continuation(Node node, Edge edge)
+	{
+		List<Edge> edges = node.edges;
+		if (edges.size() != 2) {
+			return null;
+		}
+		Edge other = edges.get(0) == edge ? edges.get(1) : edges.get(0);
+		if (!sameLines(edge.lines, other.lines)) {
+			return null;
+		}
+		return other;
+	}
+
+	private static boolean sameLines(List<NetworkLine> lines1,
+			List<NetworkLine> lines2)
+	{
+		if (lines1.size() != lines2.size()) {
+			return false;
+		}
+		for (int i = 0; i < lines1.size(); i++) {
+			int id = lines1.get(i).line.getId();
+			boolean found = false;
+			for (int j = 0; j < lines2.size(); j++) {
+				if (lines2.get(j).line.getId() == id) {
+					found = true;
+					break;
+				}
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getNumChains()
+	{
+		return numChains;
+	}
+
+	/**
+	 * Get the coordinates of all chains as pairs of x and y.
+	 */
+	public double[] getCoords()
+	{
+		return coords;
+	}
+
+	/**
+	 * Get the index of the first point of each chain in the coordinates,
+	 * followed by the total number of points.
+	 */
+	public int[] getOffsets()
+	{
+		return offsets;
+	}
+
+	/**
+	 * Get the lines of the edges of the specified chain.
+	 */
+	public List<NetworkLine> getLines(int chain)
+	{
+		return lines.get(chain);
+	}
+
+	public boolean intersects(int chain, double x1, double y1, double x2,
+			double y2)
+	{
+		int i = chain * 4;
+		return bounds[i] <= x2 && bounds[i + 2] >= x1 && bounds[i + 1] <= y2
+				&& bounds[i + 3] >= y1;
+	}
+
+}
@@ -0,0 +1,89 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.rendering.components;
+
+import java.util.Arrays;
+
+/**
+ * Geometry derived from an element of the network, stored as a sequence of
+ * coordinates in scene coordinates. It stays valid as long as the element,
+ * the revision of the locations it has been derived from and the line width
+ * it has been computed for do not change.
+ */
+public class CachedGeometry
+{
+
+	private Object owner = null;
+	private int revision;
+	private double lineWidth;
+
+	private int kind;
+	private double[] coords = new double[16];
+	private int size = 0;
+
+	public boolean isValid(Object owner, int revision, double lineWidth)
+	{
+		return this.owner == owner && this.revision == revision
+				&& this.lineWidth == lineWidth;
+	}
+
+	/**
+	 * Discard the current coordinates to store the geometry of the specified
+	 * element.
+	 */
+	public void reset(Object owner, int revision, double lineWidth, int kind)
+	{
+		this.owner = owner;
+		this.revision = revision;
+		this.lineWidth = lineWidth;
+		this.kind = kind;
+		size = 0;
+	}
+
+	public void add(double x, double y)
+	{
+		if (size + 2 > coords.length) {
+			coords = Arrays.copyOf(coords, coords.length * 2);
+		}
+		coords[size++] = x;
+		coords[size++] = y;
+	}
+
+	/**
+	 * Get a drawer specific value that describes what kind of geometry has
+	 * been stored.
+	 */
+	public int getKind()
+	{
+		return kind;
+	}
+
+	public double[] getCoords()
+	{
+		return coords;
+	}
+
+	/**
+	 * Get the number of values stored, which is twice the number of points.
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+}
@@ -0,0 +1,79 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.rendering.components;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openmetromaps.maps.SegmentEndPointPaintInfo;
+import org.openmetromaps.maps.SegmentEndPointPool;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.NetworkLine;
+
+import de.topobyte.lightgeom.convexhull.ConvexHull;
+import de.topobyte.lightgeom.convexhull.PointArray;
+import de.topobyte.lightgeom.curves.spline.CubicSpline;
+import de.topobyte.lightgeom.curves.spline.CubicSplineB;
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.lightgeom.lina.Vector2;
+
+/**
+ * Temporary objects used by the segment and station drawers while painting.
+ * Apart from caches of geometry in scene coordinates, the drawers themselves
+ * do not keep any state that changes during painting, so that each render
+ * can use its own scratch object and renders never overwrite each other's
+ * intermediate results.
+ */
+public class DrawerScratch
+{
+
+	// segments
+	CubicSpline spline = new CubicSplineB(0, 0, 0, 0, 0, 0, 0, 0);
+	Vector2 v1 = new Vector2(0, 0);
+	Vector2 v2 = new Vector2(0, 0);
+	SegmentEndPointPaintInfo spiA = new SegmentEndPointPaintInfo();
+	SegmentEndPointPaintInfo spiB = new SegmentEndPointPaintInfo();
+	PathBatches batches = new PathBatches();
+	CachedGeometry geometry = new CachedGeometry();
+
+	// stations
+	SegmentEndPointPool spiPool = new SegmentEndPointPool();
+	ConvexHull convexHull = new ConvexHull();
+
+	Vector2 da = new Vector2(0, 0);
+	Vector2 db = new Vector2(0, 0);
+	Vector2 m = new Vector2(0, 0);
+
+	Vector2 wa = new Vector2(0, 0);
+	Vector2 wb = new Vector2(0, 0);
+	Vector2 sa1 = new Vector2(0, 0);
+	Vector2 sa2 = new Vector2(0, 0);
+	Vector2 sb1 = new Vector2(0, 0);
+	Vector2 sb2 = new Vector2(0, 0);
+
+	Point p1 = new Point(0, 0);
+	Point p2 = new Point(0, 0);
+	Point p3 = new Point(0, 0);
+	Point p4 = new Point(0, 0);
+
+	List<List<NetworkLine>> done = new ArrayList<>();
+	PointArray coords = new PointArray();
+	List<SegmentEndPointPaintInfo> spis = new ArrayList<>();
+	List<Edge> skipped = new ArrayList<>();
+
+}
@@ -0,0 +1,53 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.rendering.components;
+
+import java.util.Arrays;
+
+/**
+ * Cached geometry of nodes or edges, indexed by their id in the network.
+ */
+public class GeometryCache
+{
+
+	private CachedGeometry[] entries = new CachedGeometry[0];
+
+	/**
+	 * Get the entry for the element with the specified id, which needs to be
+	 * non-negative.
+	 */
+	public CachedGeometry get(int id)
+	{
+		if (id >= entries.length) {
+			entries = Arrays.copyOf(entries,
+					Math.max(id + 1, entries.length * 2));
+		}
+		CachedGeometry entry = entries[id];
+		if (entry == null) {
+			entry = new CachedGeometry();
+			entries[id] = entry;
+		}
+		return entry;
+	}
+
+	public void clear()
+	{
+		entries = new CachedGeometry[0];
+	}
+
+}
@@ -0,0 +1,101 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.rendering.components;
+
+import org.openmetromaps.maps.painting.core.IPaintInfo;
+import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.core.geom.Path;
+
+/**
+ * Collects runs of consecutive geometry that share a paint info into a single
+ * path, so that each run can be drawn with a single call instead of one call
+ * per element.
+ *
+ * A run ends as soon as geometry with a different paint info is added, so
+ * everything is drawn in the same order as if it had been drawn directly and
+ * overlaps exactly the same way.
+ */
+public class PathBatches
+{
+
+	private boolean active = false;
+
+	private IPaintInfo paint;
+	private Path path;
+
+	/**
+	 * Start collecting geometry.
+	 */
+	public void start()
+	{
+		active = true;
+	}
+
+	/**
+	 * Whether geometry is currently being collected. If not, drawers paint
+	 * their geometry directly.
+	 */
+	public boolean isActive()
+	{
+		return active;
+	}
+
+	/**
+	 * Get the path that collects the geometry to be drawn with the specified
+	 * paint info. If the current run has a different paint info, it is drawn
+	 * and a new run is started.
+	 */
+	public Path get(Painter g, IPaintInfo paint)
+	{
+		if (path != null && this.paint == paint) {
+			return path;
+		}
+		drawPending(g);
+		this.paint = paint;
+		path = g.createPath();
+		return path;
+	}
+
+	/**
+	 * Draw the current run, if any, and keep collecting. Drawers call this
+	 * before drawing anything directly while collecting.
+	 */
+	public void drawPending(Painter g)
+	{
+		if (path == null) {
+			return;
+		}
+		g.setPaintInfo(paint);
+		g.drawBatch(path);
+		path = null;
+		paint = null;
+	}
+
+	/**
+	 * Draw the current run and stop collecting.
+	 */
+	public void flush(Painter g)
+	{
+		if (!active) {
+			return;
+		}
+		active = false;
+		drawPending(g);
+	}
+
+}
@@ -26,11 +26,12 @@ import org.openmetromaps.maps.painting.core.Painter;
 public interface SegmentDrawer
 {
 
-	public void startSegments();
+	public void startSegments(Painter g, DrawerScratch scratch);
 
-	public void finishSegments();
+	public void finishSegments(Painter g, DrawerScratch scratch);
 
-	public void drawSegment(Painter g, List<NetworkLine> lines, Edge edge, List<Boolean> selected);
+	public void drawSegment(Painter g, DrawerScratch scratch,
+			List<NetworkLine> lines, Edge edge, List<Boolean> selected);
 
 	public void zoomChanged(float factor, float lineWidth);
 
@@ -38,4 +39,12 @@ public interface SegmentDrawer
 
 	public void setScale(float scale);
 
+	public boolean isBatching();
+
+	/**
+	 * Collect runs of consecutive segments that share a paint info into a
+	 * single path while painting with painters that support batches.
+	 */
+	public void setBatching(boolean batching);
+
 }
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.openmetromaps.maps.EdgeUtil;
+import org.openmetromaps.maps.IdentityLocationToPoint;
 import org.openmetromaps.maps.LocationToPoint;
 import org.openmetromaps.maps.SegmentEndPointPaintInfo;
 import org.openmetromaps.maps.graph.Edge;
@@ -33,20 +34,28 @@ import org.openmetromaps.maps.painting.core.IPaintInfo;
 import org.openmetromaps.maps.painting.core.PaintFactory;
 import org.openmetromaps.maps.painting.core.Painter;
 import org.openmetromaps.maps.painting.core.geom.LineSegment;
+import org.openmetromaps.maps.painting.core.geom.Path;
 
 import de.topobyte.lightgeom.curves.spline.CubicSpline;
-import de.topobyte.lightgeom.curves.spline.CubicSplineB;
 import de.topobyte.lightgeom.curves.spline.SplineUtil;
 import de.topobyte.lightgeom.lina.Point;
 import de.topobyte.lightgeom.lina.Vector2;
 
+/**
+ * Draws segments as cubic curves. The control points of the curves of each
+ * edge are computed in scene coordinates and cached until the edge changes
+ * or the width of lines changes relative to the scene, so that only the
+ * mapping to view coordinates needs to be applied for each frame.
+ */
 public class SegmentDrawerCurved extends AbstractSegmentDrawer
 {
 
 	private double f = 0.3;
-	private long durationCurves = 0;
 	private boolean debugTangents = false;
 
+	private LocationToPoint scene = new IdentityLocationToPoint();
+	private GeometryCache cache = new GeometryCache();
+
 	public SegmentDrawerCurved(PaintFactory pf, LineNetwork lineNetwork,
 			Map<NetworkLine, ColorCode> colors, float scale,
 			LocationToPoint ltp, float spreadFactor, float lineWidth)
@@ -54,57 +63,102 @@ public class SegmentDrawerCurved extends AbstractSegmentDrawer
 		super(pf, lineNetwork, colors, scale, ltp, spreadFactor, lineWidth);
 	}
 
-	@Override
-	public void startSegments()
+	public boolean isDebugTangents()
 	{
-		durationCurves = 0;
+		return debugTangents;
 	}
 
-	public long getDurationCurves()
+	public void setDebugTangents(boolean debugTangents)
 	{
-		return durationCurves;
+		this.debugTangents = debugTangents;
 	}
 
-	public boolean isDebugTangents()
+	@Override
+	public void drawSegment(Painter g, DrawerScratch scratch,
+			List<NetworkLine> lines, Edge edge, List<Boolean> selected)
 	{
-		return debugTangents;
+		CachedGeometry curves = curves(scratch, lines, edge);
+		double[] c = curves.getCoords();
+
+		CubicSpline spline = scratch.spline;
+		PathBatches batches = scratch.batches;
+
+		final int nLines = lines.size();
+		for (int i = 0; i < nLines; i++) {
+			int k = i * 8;
+			spline.getP1().set(ltp.getX(c[k]), ltp.getY(c[k + 1]));
+			spline.getC1().set(ltp.getX(c[k + 2]), ltp.getY(c[k + 3]));
+			spline.getC2().set(ltp.getX(c[k + 4]), ltp.getY(c[k + 5]));
+			spline.getP2().set(ltp.getX(c[k + 6]), ltp.getY(c[k + 7]));
+
+			NetworkLine line = lines.get(i);
+			IPaintInfo paint = selected.get(i) ? lineToPaintForSelectedLines : lineToPaintForLines[line.line.getId()];
+
+			if (batches.isActive()) {
+				append(batch(g, batches, line, selected.get(i)), spline);
+			} else {
+				g.setPaintInfo(paint);
+				g.setRef(edge, line);
+				g.draw(spline);
+				g.setNoRef();
+			}
+
+			if (debugTangents && nLines > 1) {
+				batches.drawPending(g);
+				g.setPaintInfo(paint);
+				g.draw(new LineSegment(spline.getP1(), spline.getC1()));
+				g.draw(new LineSegment(spline.getC2(), spline.getP2()));
+			}
+		}
 	}
 
-	public void setDebugTangents(boolean debugTangents)
+	private static void append(Path path, CubicSpline spline)
 	{
-		this.debugTangents = debugTangents;
+		Point p1 = spline.getP1();
+		Point c1 = spline.getC1();
+		Point c2 = spline.getC2();
+		Point p2 = spline.getP2();
+		path.moveTo(p1.x, p1.y);
+		path.curveTo(c1.x, c1.y, c2.x, c2.y, p2.x, p2.y);
 	}
 
-	@Override
-	public void drawSegment(Painter g, List<NetworkLine> lines, Edge edge, List<Boolean> selected)
+	/**
+	 * Get the control points of the curves of all lines of the edge in scene
+	 * coordinates, computing them if necessary.
+	 */
+	private CachedGeometry curves(DrawerScratch scratch,
+			List<NetworkLine> lines, Edge edge)
 	{
+		float width = sceneLineWidth();
+
+		CachedGeometry curves = edge.id < 0 ? scratch.geometry
+				: cache.get(edge.id);
+		if (curves.isValid(edge, edge.revision, width)) {
+			return curves;
+		}
+		curves.reset(edge, edge.revision, width, 0);
+
 		Point locationA = edge.n1.location;
 		Point locationB = edge.n2.location;
 
-		double ax = ltp.getX(locationA.x);
-		double ay = ltp.getY(locationA.y);
-		double bx = ltp.getX(locationB.x);
-		double by = ltp.getY(locationB.y);
+		double ax = locationA.x;
+		double ay = locationA.y;
+		double bx = locationB.x;
+		double by = locationB.y;
 
 		if (lines.size() == 1) {
 			NetworkLine line = lines.get(0);
-			drawSingleLineEdgeCurved(g, line, edge, selected.get(0), ax, ay, bx, by);
+			singleLineEdgeCurve(scratch, curves, line, edge, ax, ay, bx, by);
 		} else {
-			drawMultiLineEdgeCurved(g, lines, edge, selected, ax, ay, bx, by);
+			multiLineEdgeCurves(scratch, curves, lines, edge, width, ax, ay, bx, by);
 		}
+		return curves;
 	}
 
-	private CubicSpline spline = new CubicSplineB(0, 0, 0, 0, 0, 0, 0, 0);
-
-	private Vector2 v1 = new Vector2(0, 0);
-	private Vector2 v2 = new Vector2(0, 0);
-
-	private void drawSingleLineEdgeCurved(Painter g, NetworkLine line,
-			Edge edge, boolean selected, double ax, double ay, double bx, double by)
+	private void singleLineEdgeCurve(DrawerScratch scratch,
+			CachedGeometry curves, NetworkLine line, Edge edge, double ax,
+			double ay, double bx, double by)
 	{
-		IPaintInfo paint = selected ? lineToPaintForSelectedLines : lineToPaintForLines[line.line.getId()];
-		g.setPaintInfo(paint);
-
 		NeighborInfo neighbors = line.getNeighbors(edge);
 
 		Node prev = neighbors.prev;
@@ -113,39 +167,31 @@ public class SegmentDrawerCurved extends AbstractSegmentDrawer
 		Vector2 d02 = null, d31 = null;
 
 		if (prev != null) {
-			double sp0x = ltp.getX(prev.location.x);
-			double sp0y = ltp.getY(prev.location.y);
-			d02 = v1;
-			d02.set(bx, by);
-			d02.sub(sp0x, sp0y);
-			d02.normalize();
+			d02 = scratch.v1.set(bx, by).sub(prev.location.x, prev.location.y)
+					.normalize();
 		}
 		if (next != null) {
-			double sp3x = ltp.getX(next.location.x);
-			double sp3y = ltp.getY(next.location.y);
-			d31 = v2;
-			d31.set(ax, ay);
-			d31.sub(sp3x, sp3y);
-			d31.normalize();
+			d31 = scratch.v2.set(ax, ay).sub(next.location.x, next.location.y)
+					.normalize();
 		}
 
+		CubicSpline spline = scratch.spline;
 		SplineUtil.spline(spline, ax, ay, bx, by, d02, d31, f, true);
-
-		g.setRef(edge, line);
-		g.draw(spline);
-		g.setNoRef();
+		add(curves, spline);
 	}
 
-	private SegmentEndPointPaintInfo spiA = new SegmentEndPointPaintInfo();
-	private SegmentEndPointPaintInfo spiB = new SegmentEndPointPaintInfo();
-
-	private void drawMultiLineEdgeCurved(Painter g, List<NetworkLine> lines,
-			Edge edge, List<Boolean> selected, double ax, double ay, double bx, double by)
+	private void multiLineEdgeCurves(DrawerScratch scratch,
+			CachedGeometry curves, List<NetworkLine> lines, Edge edge,
+			float width, double ax, double ay, double bx, double by)
 	{
+		SegmentEndPointPaintInfo spiA = scratch.spiA;
+		SegmentEndPointPaintInfo spiB = scratch.spiB;
+		CubicSpline spline = scratch.spline;
+
 		Point lp = edge.prev;
 		Point ln = edge.next;
 
-		EdgeUtil.segmentInfo(spiA, spiB, ax, ay, bx, by, lp, ln, ltp, lineWidth,
+		EdgeUtil.segmentInfo(spiA, spiB, ax, ay, bx, by, lp, ln, scene, width,
 				spreadFactor, lines.size());
 
 		for (int i = 0; i < lines.size(); i++) {
@@ -154,37 +200,26 @@ public class SegmentDrawerCurved extends AbstractSegmentDrawer
 			double lbx = bx + spiB.sx + spiB.ndy * i * spiB.shift;
 			double lby = by + spiB.sy - spiB.ndx * i * spiB.shift;
 
-			NetworkLine line = lines.get(i);
-			IPaintInfo paint = selected.get(i) ? lineToPaintForSelectedLines : lineToPaintForLines[line.line.getId()];
-			g.setPaintInfo(paint);
-
 			Vector2 d02 = null, d31 = null;
 
 			if (lp != null) {
-				double sp0x = ltp.getX(lp.x);
-				double sp0y = ltp.getY(lp.y);
-				d02 = v1.set(bx, by).sub(sp0x, sp0y).normalize();
+				d02 = scratch.v1.set(bx, by).sub(lp.x, lp.y).normalize();
 			}
 			if (ln != null) {
-				double sp3x = ltp.getX(ln.x);
-				double sp3y = ltp.getY(ln.y);
-				d31 = v2.set(ax, ay).sub(sp3x, sp3y).normalize();
+				d31 = scratch.v2.set(ax, ay).sub(ln.x, ln.y).normalize();
 			}
 
-			g.setRef(edge, line);
-
 			SplineUtil.spline(spline, lax, lay, lbx, lby, d02, d31, f, true);
-			long ta = System.currentTimeMillis();
-			g.draw(spline);
-			long tb = System.currentTimeMillis();
-			durationCurves += tb - ta;
-
-			if (debugTangents) {
-				g.draw(new LineSegment(spline.getP1(), spline.getC1()));
-				g.draw(new LineSegment(spline.getC2(), spline.getP2()));
-			}
-
-			g.setNoRef();
+			add(curves, spline);
 		}
 	}
+
+	private static void add(CachedGeometry curves, CubicSpline spline)
+	{
+		curves.add(spline.getP1().x, spline.getP1().y);
+		curves.add(spline.getC1().x, spline.getC1().y);
+		curves.add(spline.getC2().x, spline.getC2().y);
+		curves.add(spline.getP2().x, spline.getP2().y);
+	}
+
 }
@@ -31,6 +31,7 @@ import org.openmetromaps.maps.painting.core.ColorCode;
 import org.openmetromaps.maps.painting.core.IPaintInfo;
 import org.openmetromaps.maps.painting.core.PaintFactory;
 import org.openmetromaps.maps.painting.core.Painter;
+import org.openmetromaps.maps.painting.core.geom.Path;
 
 import de.topobyte.lightgeom.lina.Point;
 
@@ -45,7 +46,8 @@ public class SegmentDrawerStraight extends AbstractSegmentDrawer
 	}
 
 	@Override
-	public void drawSegment(Painter g, List<NetworkLine> lines, Edge edge, List<Boolean> selected)
+	public void drawSegment(Painter g, DrawerScratch scratch,
+			List<NetworkLine> lines, Edge edge, List<Boolean> selected)
 	{
 		Point locationA = edge.n1.location;
 		Point locationB = edge.n2.location;
@@ -57,15 +59,21 @@ public class SegmentDrawerStraight extends AbstractSegmentDrawer
 
 		if (lines.size() == 1) {
 			NetworkLine line = lines.get(0);
-			drawSingleLineEdgeStraight(g, line, edge, selected.get(0), ax, ay, bx, by);
+			drawSingleLineEdgeStraight(g, scratch.batches, line, edge, selected.get(0), ax, ay, bx, by);
 		} else {
-			drawMultiLineEdgeStraight(g, lines, edge, selected, ax, ay, bx, by);
+			drawMultiLineEdgeStraight(g, scratch.batches, lines, edge, selected, ax, ay, bx, by);
 		}
 	}
 
-	private void drawSingleLineEdgeStraight(Painter g, NetworkLine line,
-			Edge edge, boolean selected, double ax, double ay, double bx, double by)
+	private void drawSingleLineEdgeStraight(Painter g, PathBatches batches,
+			NetworkLine line, Edge edge, boolean selected, double ax, double ay,
+			double bx, double by)
 	{
+		if (batches.isActive()) {
+			append(batch(g, batches, line, selected), ax, ay, bx, by);
+			return;
+		}
+
 		IPaintInfo paint = selected ? lineToPaintForSelectedLines : lineToPaintForLines[line.line.getId()];
 
 		g.setPaintInfo(paint);
@@ -75,7 +83,7 @@ public class SegmentDrawerStraight extends AbstractSegmentDrawer
 		g.setNoRef();
 	}
 
-	private void drawMultiLineEdgeStraight(Painter g,
+	private void drawMultiLineEdgeStraight(Painter g, PathBatches batches,
 			Collection<NetworkLine> lines, Edge edge, List<Boolean> selected,
 		    double ax, double ay, double bx, double by)
 	{
@@ -91,6 +99,12 @@ public class SegmentDrawerStraight extends AbstractSegmentDrawer
 			double lby = by + spi.sy - spi.ndx * i * spi.shift;
 
 			NetworkLine line = iter.next();
+			if (batches.isActive()) {
+				append(batch(g, batches, line, selected.get(i)), lax, lay,
+						lbx, lby);
+				continue;
+			}
+
 			IPaintInfo paint = selected.get(i) ? lineToPaintForSelectedLines : lineToPaintForLines[line.line.getId()];
 			g.setPaintInfo(paint);
 
@@ -100,4 +114,11 @@ public class SegmentDrawerStraight extends AbstractSegmentDrawer
 		}
 	}
 
+	private static void append(Path path, double ax, double ay, double bx,
+			double by)
+	{
+		path.moveTo(ax, ay);
+		path.lineTo(bx, by);
+	}
+
 }
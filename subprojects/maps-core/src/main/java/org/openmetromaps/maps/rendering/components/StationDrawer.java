@@ -24,8 +24,8 @@ import org.openmetromaps.maps.painting.core.geom.Path;
 public interface StationDrawer
 {
 
-	public void drawStation(Painter g, Node node, Path path, boolean selected,
-			boolean renderCenter);
+	public void drawStation(Painter g, DrawerScratch scratch, Node node,
+			Path path, boolean selected, boolean renderCenter);
 
 	public void zoomChanged(float factor, float lineWidth);
 
@@ -17,27 +17,21 @@
 
 package org.openmetromaps.maps.rendering.components;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.openmetromaps.maps.IdentityLocationToPoint;
 import org.openmetromaps.maps.LocationToPoint;
 import org.openmetromaps.maps.SegmentEndPointPaintInfo;
 import org.openmetromaps.maps.graph.Edge;
 import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.NetworkLine;
 import org.openmetromaps.maps.graph.Node;
-import org.openmetromaps.maps.painting.core.Cap;
 import org.openmetromaps.maps.painting.core.ColorCode;
-import org.openmetromaps.maps.painting.core.Colors;
-import org.openmetromaps.maps.painting.core.IPaintInfo;
-import org.openmetromaps.maps.painting.core.Join;
 import org.openmetromaps.maps.painting.core.PaintFactory;
-import org.openmetromaps.maps.painting.core.PaintType;
 import org.openmetromaps.maps.painting.core.Painter;
-import org.openmetromaps.maps.painting.core.geom.LineSegment;
 import org.openmetromaps.maps.painting.core.geom.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,61 +47,118 @@ public class StationDrawerConvex extends AbstractStationDrawer
 	static final Logger logger = LoggerFactory
 			.getLogger(StationDrawerConvex.class);
 
-	private final static boolean DEBUG = false;
+	private static final int KIND_NONE = 0;
+	private static final int KIND_SINGLE_PUNTAL = 1;
+	private static final int KIND_MULTI_PUNTAL = 2;
+	private static final int KIND_LINEAL = 3;
+	private static final int KIND_HULL = 4;
 
-	private ColorCode debugBlack = new ColorCode(0xaa000000, true);
-	private ColorCode debugWhite = new ColorCode(0xaaffffff, true);
-	private ColorCode debugRed = new ColorCode(0xaaff0000, true);
-	private ColorCode debugBlue = new ColorCode(0xaa0000ff, true);
-	private ColorCode debugGreen = new ColorCode(0xaa00ff00, true);
-
-	protected IPaintInfo paintDebug;
+	private LocationToPoint scene = new IdentityLocationToPoint();
+	private GeometryCache cache = new GeometryCache();
 
 	public StationDrawerConvex(PaintFactory pf, LineNetwork data,
 			Map<NetworkLine, ColorCode> colors, float scale,
 			LocationToPoint ltp, float spreadFactor)
 	{
 		super(pf, data, colors, scale, ltp, spreadFactor);
+	}
 
-		paintDebug = pf.create(Colors.WHITE);
-		paintDebug.setCap(Cap.ROUND);
-		paintDebug.setJoin(Join.ROUND);
-		paintDebug.setStyle(PaintType.STROKE);
+	@Override
+	public void drawStation(Painter g, DrawerScratch scratch, Node node,
+			Path path, boolean selected, boolean renderCenter)
+	{
+		g.setRef(node);
+		drawStationInternal(g, scratch, node, path, selected, renderCenter);
+		g.setNoRef();
 	}
 
-	private Vector2 da = new Vector2(0, 0);
-	private Vector2 db = new Vector2(0, 0);
-	private Vector2 m = new Vector2(0, 0);
+	private void drawStationInternal(Painter g, DrawerScratch scratch,
+			Node node, Path path, boolean selected, boolean renderCenter)
+	{
+		CachedGeometry shape = shape(scratch, node);
+		double[] c = shape.getCoords();
 
-	private Vector2 wa = new Vector2(0, 0);
-	private Vector2 wb = new Vector2(0, 0);
-	private Vector2 sa1 = new Vector2(0, 0);
-	private Vector2 sa2 = new Vector2(0, 0);
-	private Vector2 sb1 = new Vector2(0, 0);
-	private Vector2 sb2 = new Vector2(0, 0);
+		Point location = node.location;
+		double px = ltp.getX(location.x);
+		double py = ltp.getY(location.y);
 
-	private Point p1 = new Point(0, 0);
-	private Point p2 = new Point(0, 0);
-	private Point p3 = new Point(0, 0);
-	private Point p4 = new Point(0, 0);
+		switch (shape.getKind()) {
+		default:
+		case KIND_NONE:
+			return;
+		case KIND_SINGLE_PUNTAL:
+			drawSinglePuntal(g, px, py, lineToPaintForStations[(int) c[0]],
+					selected);
+			return;
+		case KIND_MULTI_PUNTAL:
+			drawMultiPuntal(g, px, py, selected);
+			return;
+		case KIND_LINEAL:
+			drawLineal(g, path, px, py, ltp.getX(c[0]), ltp.getY(c[1]),
+					ltp.getX(c[2]), ltp.getY(c[3]), selected, renderCenter);
+			return;
+		case KIND_HULL:
+			break;
+		}
 
-	private List<List<NetworkLine>> done = new ArrayList<>();
-	private PointArray coords = new PointArray();
-	private List<SegmentEndPointPaintInfo> spis = new ArrayList<>();
-	private List<Edge> skipped = new ArrayList<>();
+		path.reset();
+		path.moveTo(ltp.getX(c[0]), ltp.getY(c[1]));
+		for (int i = 2; i < shape.getSize(); i += 2) {
+			path.lineTo(ltp.getX(c[i]), ltp.getY(c[i + 1]));
+		}
 
-	@Override
-	public void drawStation(Painter g, Node node, Path path, boolean selected,
-			boolean renderCenter)
+		if (selected) {
+			g.setPaintInfo(paintSelectedStationsStrokeOutline);
+		} else {
+			g.setPaintInfo(paintStationsStrokeOutline);
+		}
+		g.draw(path);
+		g.setPaintInfo(paintStationsFill);
+		g.draw(path);
+		g.setPaintInfo(paintStationsStroke);
+		g.draw(path);
+
+		if (renderCenter) {
+			renderCenter(g, px, py);
+		}
+	}
+
+	/**
+	 * Get the shape of the station in scene coordinates, computing it if
+	 * necessary. The shape depends on the edges of the node only, so it stays
+	 * valid until the revision of one of them changes.
+	 */
+	private CachedGeometry shape(DrawerScratch scratch, Node node)
 	{
-		g.setRef(node);
-		drawStationInternal(g, node, path, selected, renderCenter);
-		g.setNoRef();
+		float width = sceneLineWidth();
+
+		int revision = 0;
+		List<Edge> edges = node.edges;
+		final int nEdges = edges.size();
+		for (int i = 0; i < nEdges; i++) {
+			// revisions only increase, so the sum changes with any of them
+			revision += edges.get(i).revision;
+		}
+
+		CachedGeometry shape = node.id < 0 ? scratch.geometry
+				: cache.get(node.id);
+		if (!shape.isValid(node, revision, width)) {
+			computeShape(scratch, shape, node, revision, width);
+		}
+		return shape;
 	}
 
-	private void drawStationInternal(Painter g, Node node, Path path,
-			boolean selected, boolean renderCenter)
+	private void computeShape(DrawerScratch scratch, CachedGeometry shape,
+			Node node, int revision, float width)
 	{
+		List<List<NetworkLine>> done = scratch.done;
+		PointArray coords = scratch.coords;
+		List<SegmentEndPointPaintInfo> spis = scratch.spis;
+		List<Edge> skipped = scratch.skipped;
+		Vector2 da = scratch.da;
+		Vector2 db = scratch.db;
+		Vector2 m = scratch.m;
+
 		Point location = node.location;
 		List<Edge> nodeEdges = node.edges;
 
@@ -117,23 +168,21 @@ public class StationDrawerConvex extends AbstractStationDrawer
 		}
 
 		if (nodeLines.isEmpty()) {
+			shape.reset(node, revision, width, KIND_NONE);
 			return;
 		}
 
 		if (nodeLines.size() == 1) {
 			NetworkLine line = nodeLines.iterator().next();
-			int lineId = line.line.getId();
-			IPaintInfo paint = lineToPaintForStations[lineId];
-			double px = ltp.getX(location.x);
-			double py = ltp.getY(location.y);
-			drawSinglePuntal(g, px, py, paint, selected);
+			shape.reset(node, revision, width, KIND_SINGLE_PUNTAL);
+			shape.add(line.line.getId(), 0);
 			return;
 		}
 
 		List<Edge> edges = node.edges;
 
-		double px = ltp.getX(location.x);
-		double py = ltp.getY(location.y);
+		double px = location.x;
+		double py = location.y;
 
 		done.clear();
 		spis.clear();
@@ -154,22 +203,22 @@ public class StationDrawerConvex extends AbstractStationDrawer
 			}
 			done.add(lines);
 
-			SegmentEndPointPaintInfo spi = endpointInfo(edge, node, ltp,
-					lineWidth, spreadFactor, lines.size());
+			SegmentEndPointPaintInfo spi = endpointInfo(scratch, edge, node,
+					scene, width, spreadFactor, lines.size());
 			spis.add(spi);
 		}
 
 		// Simple stations with only one line
 		if (spis.size() == 0) {
-			drawMultiPuntal(g, px, py, selected);
+			shape.reset(node, revision, width, KIND_MULTI_PUNTAL);
 			return;
 		}
 
 		// Stations with multiple lines but all on the the same one or two edges
 		if (spis.size() == 1) {
 			SegmentEndPointPaintInfo spi = spis.get(0);
-			drawLineal(g, path, px, py, spi, selected, renderCenter);
-			spiPool.give(spi);
+			lineal(shape, node, revision, width, px, py, spi);
+			scratch.spiPool.give(spi);
 			return;
 		}
 
@@ -185,9 +234,9 @@ public class StationDrawerConvex extends AbstractStationDrawer
 				// > ~172 degrees
 				SegmentEndPointPaintInfo spi = spi1.nShift > spi2.nShift ? spi1
 						: spi2;
-				drawLineal(g, path, px, py, spi, selected, renderCenter);
-				spiPool.give(spi1);
-				spiPool.give(spi2);
+				lineal(shape, node, revision, width, px, py, spi);
+				scratch.spiPool.give(spi1);
+				scratch.spiPool.give(spi2);
 				return;
 			}
 		}
@@ -204,8 +253,8 @@ public class StationDrawerConvex extends AbstractStationDrawer
 				continue;
 			}
 
-			SegmentEndPointPaintInfo spi = endpointInfo(edge, node, ltp,
-					lineWidth, spreadFactor, lines.size());
+			SegmentEndPointPaintInfo spi = endpointInfo(scratch, edge, node,
+					scene, width, spreadFactor, lines.size());
 			spis.add(spi);
 		}
 
@@ -237,16 +286,16 @@ public class StationDrawerConvex extends AbstractStationDrawer
 					continue;
 				}
 
-				wa.set(spi1.sx, spi1.sy);
-				wb.set(spi2.sx, spi2.sy);
-				sa1.set(m).add(wa);
-				sa2.set(m).sub(wa);
-				sb1.set(m).add(wb);
-				sb2.set(m).sub(wb);
-				Point po1 = rayIntersection(p1, sa1, da, sb1, db);
-				Point po2 = rayIntersection(p2, sa1, da, sb2, db);
-				Point po3 = rayIntersection(p3, sa2, da, sb1, db);
-				Point po4 = rayIntersection(p4, sa2, da, sb2, db);
+				Vector2 wa = scratch.wa.set(spi1.sx, spi1.sy);
+				Vector2 wb = scratch.wb.set(spi2.sx, spi2.sy);
+				Vector2 sa1 = scratch.sa1.set(m).add(wa);
+				Vector2 sa2 = scratch.sa2.set(m).sub(wa);
+				Vector2 sb1 = scratch.sb1.set(m).add(wb);
+				Vector2 sb2 = scratch.sb2.set(m).sub(wb);
+				Point po1 = rayIntersection(scratch.p1, sa1, da, sb1, db);
+				Point po2 = rayIntersection(scratch.p2, sa1, da, sb2, db);
+				Point po3 = rayIntersection(scratch.p3, sa2, da, sb1, db);
+				Point po4 = rayIntersection(scratch.p4, sa2, da, sb2, db);
 				addIfNonNull(coords, po1);
 				addIfNonNull(coords, po2);
 				addIfNonNull(coords, po3);
@@ -258,49 +307,20 @@ public class StationDrawerConvex extends AbstractStationDrawer
 				node.station.getName()));
 
 		logger.info("number of points: " + coords.numPoints());
-		hull(path, coords);
-
-		if (selected) {
-			g.setPaintInfo(paintSelectedStationsStrokeOutline);
-		} else {
-			g.setPaintInfo(paintStationsStrokeOutline);
-		}
-		g.draw(path);
-		g.setPaintInfo(paintStationsFill);
-		g.draw(path);
-		g.setPaintInfo(paintStationsStroke);
-		g.draw(path);
-
-		if (renderCenter) {
-			renderCenter(g, px, py);
-		}
-
-		if (DEBUG) {
-			paintDebug.setWidth(2);
-
-			paintDebug.setColor(debugBlue);
-			g.setPaintInfo(paintDebug);
-			final int nPoints = coords.numPoints();
-			for (int i = 0; i < nPoints; i++) {
-				g.draw(new LineSegment(m.x, m.y, coords.getX(i),
-						coords.getY(i)));
-			}
-
-			paintDebug.setColor(debugBlack);
-			g.setPaintInfo(paintDebug);
-			for (int i = 0; i < nSpis; i++) {
-				SegmentEndPointPaintInfo spi = spis.get(i);
-
-				Point p1 = new Point(px + spi.sx, py + spi.sy);
-				Point p2 = new Point(px + spi.ex, py + spi.ey);
-
-				g.draw(new LineSegment(p1, p2));
-			}
-		}
+		shape.reset(node, revision, width, KIND_HULL);
+		hull(scratch, shape, coords);
 
 		for (int i = 0; i < nSpis; i++) {
-			spiPool.give(spis.get(i));
+			scratch.spiPool.give(spis.get(i));
 		}
 	}
 
+	private static void lineal(CachedGeometry shape, Node node, int revision,
+			float width, double px, double py, SegmentEndPointPaintInfo spi)
+	{
+		shape.reset(node, revision, width, KIND_LINEAL);
+		shape.add(px + spi.sx, py + spi.sy);
+		shape.add(px + spi.ex, py + spi.ey);
+	}
+
 }
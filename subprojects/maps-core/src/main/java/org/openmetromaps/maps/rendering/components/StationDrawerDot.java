@@ -49,16 +49,16 @@ public class StationDrawerDot extends AbstractStationDrawer
 	}
 
 	@Override
-	public void drawStation(Painter g, Node node, Path path, boolean selected,
-			boolean renderCenter)
+	public void drawStation(Painter g, DrawerScratch scratch, Node node,
+			Path path, boolean selected, boolean renderCenter)
 	{
 		g.setRef(node);
-		drawStationInternal(g, node, path, selected, renderCenter);
+		drawStationInternal(g, scratch, node, path, selected, renderCenter);
 		g.setNoRef();
 	}
 
-	private void drawStationInternal(Painter g, Node node, Path path,
-			boolean selected, boolean renderCenter)
+	private void drawStationInternal(Painter g, DrawerScratch scratch,
+			Node node, Path path, boolean selected, boolean renderCenter)
 	{
 		List<Stop> stops = node.station.getStops();
 		Point location = node.location;
@@ -52,16 +52,16 @@ public class StationDrawerSimple extends AbstractStationDrawer
 	}
 
 	@Override
-	public void drawStation(Painter g, Node node, Path path, boolean selected,
-			boolean renderCenter)
+	public void drawStation(Painter g, DrawerScratch scratch, Node node,
+			Path path, boolean selected, boolean renderCenter)
 	{
 		g.setRef(node);
-		drawStationInternal(g, node, path, selected, renderCenter);
+		drawStationInternal(g, scratch, node, path, selected, renderCenter);
 		g.setNoRef();
 	}
 
-	private void drawStationInternal(Painter g, Node node, Path path,
-			boolean selected, boolean renderCenter)
+	private void drawStationInternal(Painter g, DrawerScratch scratch,
+			Node node, Path path, boolean selected, boolean renderCenter)
 	{
 		List<Stop> stops = node.station.getStops();
 		Point location = node.location;
@@ -98,13 +98,13 @@ public class StationDrawerSimple extends AbstractStationDrawer
 			}
 			done.add(lines);
 
-			SegmentEndPointPaintInfo spi = endpointInfo(edge, node, ltp,
-					lineWidth, spreadFactor, lines.size());
+			SegmentEndPointPaintInfo spi = endpointInfo(scratch, edge, node,
+					ltp, lineWidth, spreadFactor, lines.size());
 
 			path.moveTo(px + spi.sx, py + spi.sy);
 			path.lineTo(px + spi.ex, py + spi.ey);
 
-			spiPool.give(spi);
+			scratch.spiPool.give(spi);
 		}
 
 		if (moreThanDot) {
@@ -30,7 +30,9 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.imageio.ImageIO;
 import javax.swing.JFrame;
@@ -45,6 +47,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.openmetromaps.maps.Constants;
 import org.openmetromaps.maps.CoordinateConversionType;
 import org.openmetromaps.maps.DataChangeListener;
+import org.openmetromaps.maps.HitTestUtil;
 import org.openmetromaps.maps.InitialViewportSetupListener;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.MapView;
@@ -63,9 +66,11 @@ import org.openmetromaps.maps.editor.actions.edit.AlignVerticallyAction;
 import org.openmetromaps.maps.editor.actions.edit.AutoLayoutBetweenAction;
 import org.openmetromaps.maps.editor.actions.edit.DistributeEvenlyAction;
 import org.openmetromaps.maps.editor.actions.edit.DocumentPropertiesAction;
+import org.openmetromaps.maps.editor.actions.edit.RedoAction;
 import org.openmetromaps.maps.editor.actions.edit.SelectAllAction;
 import org.openmetromaps.maps.editor.actions.edit.SelectLinesAction;
 import org.openmetromaps.maps.editor.actions.edit.SelectNodesInBetweenAction;
+import org.openmetromaps.maps.editor.actions.edit.UndoAction;
 import org.openmetromaps.maps.editor.actions.file.ExitAction;
 import org.openmetromaps.maps.editor.actions.file.NewAction;
 import org.openmetromaps.maps.editor.actions.file.OpenAction;
@@ -78,15 +83,21 @@ import org.openmetromaps.maps.editor.actions.view.DebugRanksAction;
 import org.openmetromaps.maps.editor.actions.view.DebugTangentsAction;
 import org.openmetromaps.maps.editor.actions.view.ShowLabelsAction;
 import org.openmetromaps.maps.editor.actions.view.ShowStationCentersAction;
+import org.openmetromaps.maps.editor.autosave.Autosave;
 import org.openmetromaps.maps.editor.config.ConfigurationHelper;
 import org.openmetromaps.maps.editor.config.PermanentConfigReader;
 import org.openmetromaps.maps.editor.config.PermanentConfiguration;
 import org.openmetromaps.maps.editor.config.VolatileConfigReader;
 import org.openmetromaps.maps.editor.config.VolatileConfiguration;
 import org.openmetromaps.maps.editor.dockables.DockableHelper;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.EdgeUpdater;
 import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkIndex;
 import org.openmetromaps.maps.graph.NetworkLine;
 import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.graph.NodeMoveJournal;
+import org.openmetromaps.maps.graph.SceneRegion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
@@ -95,8 +106,6 @@ import bibliothek.gui.dock.common.CControl;
 import bibliothek.gui.dock.common.CGrid;
 import bibliothek.gui.dock.common.DefaultSingleCDockable;
 import de.topobyte.awt.util.GridBagConstraintsEditor;
-import de.topobyte.lightgeom.lina.Point;
-import de.topobyte.lightgeom.lina.Vector2;
 import de.topobyte.melon.io.StreamUtil;
 import de.topobyte.melon.resources.Resources;
 import de.topobyte.swing.util.EmptyIcon;
@@ -107,7 +116,6 @@ import de.topobyte.swing.util.action.enums.EnumActions;
 import de.topobyte.swing.util.action.enums.EnumValueHolder;
 import de.topobyte.viewports.scrolling.PanMouseAdapter;
 import de.topobyte.viewports.scrolling.ScrollableView;
-import de.topobyte.viewports.scrolling.ViewportUtil;
 
 public class MapEditor
 {
@@ -120,6 +128,8 @@ public class MapEditor
 	private MapModel model;
 	private MapView view;
 	private MapViewStatus mapViewStatus;
+	private NodeMoveJournal journal;
+	private Autosave autosave = new Autosave(this);
 
 	private Path source;
 
@@ -219,13 +229,23 @@ public class MapEditor
 		}
 
 		init(model);
+		autosave.open(source);
 
 		dataChangeListeners = new ArrayList<>();
 	}
 
+	/**
+	 * Set the file the current document has been loaded from or saved to.
+	 * Edits of the document are journaled next to that file from now on.
+	 */
 	public void setSource(Path source)
 	{
+		autosave.close(true);
 		this.source = source;
+		if (autosave.open(source) && map != null) {
+			map.repaint();
+			updateStationPanel();
+		}
 	}
 
 	public Path getSource()
@@ -245,6 +265,7 @@ public class MapEditor
 
 	public void setModel(MapModel model)
 	{
+		autosave.close(true);
 		init(model);
 		map.setData(model.getData(), view.getLineNetwork(), mapViewStatus);
 		map.setViewConfig(viewConfig, Constants.DEFAULT_ZOOM);
@@ -353,6 +374,10 @@ public class MapEditor
 
 		view = model.getViews().get(0);
 		viewConfig = view.getConfig();
+
+		journal = new NodeMoveJournal(view.getLineNetwork(),
+				permanentConfig.getUndoJournalSize());
+		journal.addNodeMoveListener(autosave);
 	}
 
 	public MapModel getModel()
@@ -370,6 +395,45 @@ public class MapEditor
 		return mapViewStatus;
 	}
 
+	public Autosave getAutosave()
+	{
+		return autosave;
+	}
+
+	public NodeMoveJournal getJournal()
+	{
+		return journal;
+	}
+
+	/**
+	 * Revert the last edit recorded in the journal.
+	 */
+	public void undo()
+	{
+		EdgeUpdater updater = new EdgeUpdater(view.getLineNetwork());
+		if (journal.undo(updater)) {
+			repaintMoves(updater);
+		}
+	}
+
+	/**
+	 * Reapply the last edit reverted from the journal.
+	 */
+	public void redo()
+	{
+		EdgeUpdater updater = new EdgeUpdater(view.getLineNetwork());
+		if (journal.redo(updater)) {
+			repaintMoves(updater);
+		}
+	}
+
+	private void repaintMoves(EdgeUpdater updater)
+	{
+		SceneRegion damage = updater.update();
+		map.repaintScene(damage, updater.getNodeDamage());
+		updateStationPanel();
+	}
+
 	public Window getFrame()
 	{
 		return frame;
@@ -493,6 +557,11 @@ public class MapEditor
 
 	private void setupMenuEdit(JMenu menuEdit)
 	{
+		JMenus.addItem(menuEdit, new UndoAction(this), KeyEvent.CTRL_DOWN_MASK,
+				KeyEvent.VK_Z);
+		JMenus.addItem(menuEdit, new RedoAction(this),
+				KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK,
+				KeyEvent.VK_Z);
 		JMenus.addItem(menuEdit, new DocumentPropertiesAction(this),
 				KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK,
 				KeyEvent.VK_P);
@@ -585,6 +654,7 @@ public class MapEditor
 		map = new ScrollableAdvancedPanel(model.getData(), view, mapViewStatus,
 				PlanRenderer.StationMode.CONVEX, PlanRenderer.SegmentMode.CURVE,
 				10, 15, 1);
+		map.setAsyncRendering(true);
 
 		ScrollableView<ScrollableAdvancedPanel> scrollableView = new ScrollableView<>(
 				map);
@@ -628,55 +698,47 @@ public class MapEditor
 
 		String stationName = node == null ? "none" : node.station.getName();
 
-		statusBar.setText(String.format("Location: %d,%d, Station: %s", x, y,
-				stationName));
+		String lineNames = "none";
+		Edge edge = node == null ? mouseEdge(x, y) : null;
+		if (edge != null) {
+			List<String> names = new ArrayList<>();
+			for (NetworkLine line : edge.lines) {
+				names.add(line.line.getName());
+			}
+			lineNames = String.join(", ", names);
+		}
+
+		statusBar.setText(
+				String.format("Location: %d,%d, Station: %s, Lines: %s", x, y,
+						stationName, lineNames));
 	}
 
 	protected Node mouseNode(int x, int y)
 	{
-		Node best = closestNode(x, y);
-
-		if (best == null) {
-			return null;
-		}
-
-		double sx = ViewportUtil.getViewX(map, best.location.x);
-		double sy = ViewportUtil.getViewY(map, best.location.y);
-
-		double dx = Math.abs(sx - x);
-		double dy = Math.abs(sy - y);
-		double d = Math.sqrt(dx * dx + dy * dy);
-
-		if (d < 8) {
-			return best;
-		}
-
-		return null;
+		LineNetwork lineNetwork = map.getPlanRenderer().getLineNetwork();
+		return HitTestUtil.nodeAt(lineNetwork, map, x, y, 8);
 	}
 
 	protected Node closestNode(int vx, int vy)
 	{
-		double x = ViewportUtil.getRealX(map, vx);
-		double y = ViewportUtil.getRealY(map, vy);
-
 		LineNetwork lineNetwork = map.getPlanRenderer().getLineNetwork();
+		return HitTestUtil.closestNode(lineNetwork, map, vx, vy);
+	}
 
-		double bestDistance = Double.MAX_VALUE;
-		Node best = null;
-
-		// TODO: use an index to speed this up
-		for (Node node : lineNetwork.nodes) {
-			Point location = node.location;
-			Vector2 v1 = new Vector2(location);
-			Vector2 v2 = new Vector2(x, y);
-			double d = v2.sub(v1).length2();
-			if (d < bestDistance) {
-				bestDistance = d;
-				best = node;
-			}
-		}
+	protected Edge mouseEdge(int x, int y)
+	{
+		LineNetwork lineNetwork = map.getPlanRenderer().getLineNetwork();
+		return HitTestUtil.edgeAt(lineNetwork, map, x, y, 8);
+	}
 
-		return best;
+	/**
+	 * Get the nodes within the rectangle spanned by two positions of the map
+	 * panel.
+	 */
+	protected List<Node> nodesIn(int x1, int y1, int x2, int y2)
+	{
+		LineNetwork lineNetwork = map.getPlanRenderer().getLineNetwork();
+		return HitTestUtil.nodesIn(lineNetwork, map, x1, y1, x2, y2);
 	}
 
 	void select(Node node)
@@ -696,12 +758,51 @@ public class MapEditor
 		updateStationPanel();
 	}
 
+	void addToSelection(List<Node> nodes)
+	{
+		for (Node node : nodes) {
+			mapViewStatus.selectNode(node);
+		}
+		updateStationPanel();
+	}
+
 	void selectNone()
 	{
 		mapViewStatus.selectNoNodes();
 		updateStationPanel();
 	}
 
+	/**
+	 * Repaint the stations whose selection state differs from the specified
+	 * list of nodes that have been selected before.
+	 */
+	void repaintSelectionChange(List<Node> selectedBefore)
+	{
+		LineNetworkIndex index = map.getLineNetwork().getIndex();
+		SceneRegion region = new SceneRegion();
+
+		Set<Node> unselected = new HashSet<>(selectedBefore);
+		for (Node node : mapViewStatus.getSelectedNodes()) {
+			if (!unselected.remove(node)) {
+				includeNode(index, node, region);
+			}
+		}
+		for (Node node : unselected) {
+			includeNode(index, node, region);
+		}
+
+		map.repaintScene(region, new SceneRegion());
+	}
+
+	private static void includeNode(LineNetworkIndex index, Node node,
+			SceneRegion region)
+	{
+		int ordinal = index.getOrdinal(node);
+		if (ordinal >= 0) {
+			index.includeNode(ordinal, region);
+		}
+	}
+
 	void hideLine(NetworkLine line) {
 		mapViewStatus.hideLine(line);
 		map.repaint();
@@ -782,6 +883,7 @@ public class MapEditor
 				"Confirm Exit", JOptionPane.DEFAULT_OPTION,
 				JOptionPane.QUESTION_MESSAGE, null, options, cancel);
 		if (status == JOptionPane.YES_OPTION) {
+			autosave.close(true);
 			System.exit(0);
 		}
 	}
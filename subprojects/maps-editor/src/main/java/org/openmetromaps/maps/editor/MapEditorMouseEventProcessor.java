@@ -17,12 +17,19 @@
 
 package org.openmetromaps.maps.editor;
 
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.openmetromaps.maps.BaseMapWindowPanel;
 import org.openmetromaps.maps.BaseMouseEventProcessor;
-import org.openmetromaps.maps.graph.LineNetworkUtil;
+import org.openmetromaps.maps.graph.EdgeUpdater;
+import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.graph.NodeLocationSnapshot;
+import org.openmetromaps.maps.graph.NodeMoveJournal;
+import org.openmetromaps.maps.graph.SceneRegion;
 import org.openmetromaps.swing.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,12 +54,23 @@ public class MapEditorMouseEventProcessor
 
 	private boolean draggingNodes = false;
 	private java.awt.Point lastPoint = null;
+	// whether a step of the current drag has been recorded in the journal
+	private boolean dragRecorded = false;
+
+	// start of the rectangle spanned for selecting nodes, if any
+	private java.awt.Point selectionStart = null;
+
+	// reused for the edges of dragged nodes, bound to the current network
+	private EdgeUpdater edgeUpdater = null;
+	private LineNetwork edgeUpdaterNetwork = null;
 
 	@Override
 	public void mousePressed(MouseEvent e)
 	{
 		super.mousePressed(e);
 		Node node = mapEditor.mouseNode(e.getX(), e.getY());
+		List<Node> selectedBefore = new ArrayList<>(
+				mapEditor.getMapViewStatus().getSelectedNodes());
 
 		boolean control = Util.isControlPressed(e);
 		boolean shift = Util.isShiftPressed(e);
@@ -69,7 +87,10 @@ public class MapEditorMouseEventProcessor
 				}
 			} else if (control && someSelected) {
 				draggingNodes = true;
+				dragRecorded = false;
 				lastPoint = e.getPoint();
+			} else if (shift && !onNode) {
+				selectionStart = e.getPoint();
 			}
 		}
 
@@ -77,7 +98,7 @@ public class MapEditorMouseEventProcessor
 			mapEditor.selectNone();
 		}
 
-		mapEditor.getMap().repaint();
+		mapEditor.repaintSelectionChange(selectedBefore);
 	}
 
 	@Override
@@ -86,6 +107,16 @@ public class MapEditorMouseEventProcessor
 		super.mouseReleased(e);
 		if (e.getButton() == MouseEvent.BUTTON1) {
 			draggingNodes = false;
+			if (selectionStart != null) {
+				List<Node> nodes = mapEditor.nodesIn(selectionStart.x,
+						selectionStart.y, e.getX(), e.getY());
+				List<Node> selectedBefore = new ArrayList<>(
+						mapEditor.getMapViewStatus().getSelectedNodes());
+				mapEditor.addToSelection(nodes);
+				mapEditor.repaintSelectionChange(selectedBefore);
+				selectionStart = null;
+				mapEditor.getMap().setSelectionRectangle(null);
+			}
 		}
 	}
 
@@ -99,6 +130,14 @@ public class MapEditorMouseEventProcessor
 	@Override
 	public void mouseDragged(MouseEvent e)
 	{
+		if (selectionStart != null) {
+			java.awt.Point p = e.getPoint();
+			Rectangle rectangle = new Rectangle(selectionStart);
+			rectangle.add(p);
+			mapEditor.getMap().setSelectionRectangle(rectangle);
+			return;
+		}
+
 		if (!draggingNodes) {
 			super.mouseDragged(e);
 			return;
@@ -110,17 +149,33 @@ public class MapEditorMouseEventProcessor
 			int dy = currentPoint.y - lastPoint.y;
 			lastPoint = currentPoint;
 
-			for (Node node : mapEditor.getMapViewStatus().getSelectedNodes()) {
+			List<Node> nodes = mapEditor.getMapViewStatus().getSelectedNodes();
+			NodeMoveJournal journal = mapEditor.getJournal();
+			NodeLocationSnapshot snapshot = journal.snapshot(nodes);
+			for (Node node : nodes) {
 				update(node, dx, dy);
+				edgeUpdater().add(node);
 			}
-
-			for (Node node : mapEditor.getMapViewStatus().getSelectedNodes()) {
-				LineNetworkUtil.updateEdges(node);
+			// all steps of a drag are undone at once
+			if (journal.record("Move Stations", snapshot, dragRecorded)) {
+				dragRecorded = true;
 			}
+			EdgeUpdater updater = edgeUpdater();
+			SceneRegion damage = updater.update();
 
 			mapEditor.triggerDataChanged();
-			c.repaint();
+			mapEditor.getMap().repaintScene(damage, updater.getNodeDamage());
+		}
+	}
+
+	private EdgeUpdater edgeUpdater()
+	{
+		LineNetwork lineNetwork = mapEditor.getMap().getLineNetwork();
+		if (edgeUpdater == null || edgeUpdaterNetwork != lineNetwork) {
+			edgeUpdater = new EdgeUpdater(lineNetwork);
+			edgeUpdaterNetwork = lineNetwork;
 		}
+		return edgeUpdater;
 	}
 
 	private void update(Node node, int dx, int dy)
@@ -22,6 +22,7 @@ import java.awt.GridBagLayout;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
+import java.util.Collections;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -30,6 +31,8 @@ import javax.swing.JTextField;
 import org.openmetromaps.maps.DataChangeListener;
 import org.openmetromaps.maps.graph.LineNetworkUtil;
 import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.graph.NodeLocationSnapshot;
+import org.openmetromaps.maps.graph.NodeMoveJournal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -157,13 +160,21 @@ public class StationPanel extends JPanel
 		String valX = inputX.getText();
 		String valY = inputY.getText();
 
-		node.station.setName(valName);
+		if (!valName.equals(node.station.getName())) {
+			node.station.setName(valName);
+			mapEditor.getAutosave().stationRenamed(node);
+		}
 
 		try {
 			double parsedX = Double.parseDouble(valX);
 			double parsedY = Double.parseDouble(valY);
+			NodeMoveJournal journal = mapEditor.getJournal();
+			NodeLocationSnapshot snapshot = journal
+					.snapshot(Collections.singletonList(node));
 			node.location = new Point(parsedX, parsedY);
-			LineNetworkUtil.updateEdges(node);
+			journal.record("Edit Station", snapshot);
+			LineNetworkUtil.updateEdges(mapEditor.getMap().getLineNetwork(),
+					node);
 			mapEditor.getMap().repaint();
 		} catch (NumberFormatException e) {
 			logger.warn("Error while parsing value. " + e.getMessage());
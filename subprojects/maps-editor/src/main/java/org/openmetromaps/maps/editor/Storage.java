@@ -41,7 +41,18 @@ public class Storage
 
 	final static Logger logger = LoggerFactory.getLogger(Storage.class);
 
-	public static void save(File file, MapEditor mapEditor)
+	/**
+	 * Get the path of the autosave journal kept for the specified file.
+	 */
+	public static Path getAutosavePath(Path file)
+	{
+		return file.resolveSibling(file.getFileName() + ".journal");
+	}
+
+	/**
+	 * @return whether the file has been written successfully.
+	 */
+	public static boolean save(File file, MapEditor mapEditor)
 	{
 		try {
 			FileOutputStream os = new FileOutputStream(file);
@@ -50,9 +61,11 @@ public class Storage
 			List<MapView> views = Arrays.asList(view);
 			new XmlModelWriter().write(os, model.getData(), views);
 			os.close();
+			return true;
 		} catch (ParserConfigurationException | IOException e) {
 			logger.error("Error while saving file", e);
 			// TODO: display an error dialog
+			return false;
 		}
 	}
 
@@ -74,7 +87,11 @@ public class Storage
 		if (value == JFileChooser.APPROVE_OPTION) {
 			File file = chooser.getSelectedFile();
 			logger.debug("attempting to save document to file: " + file);
-			save(file, mapEditor);
+			if (!save(file, mapEditor)) {
+				return;
+			}
+			// the edits journaled for the previous file are part of the new one
+			mapEditor.getAutosave().close(false);
 			mapEditor.setSource(file.toPath());
 
 			Path newLastUsed = file.toPath().getParent();
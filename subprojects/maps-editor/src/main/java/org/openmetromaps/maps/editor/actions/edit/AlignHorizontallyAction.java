@@ -24,8 +24,12 @@ import java.util.List;
 import org.openmetromaps.maps.Points;
 import org.openmetromaps.maps.editor.MapEditor;
 import org.openmetromaps.maps.editor.actions.MapEditorAction;
-import org.openmetromaps.maps.graph.LineNetworkUtil;
+import org.openmetromaps.maps.graph.EdgeUpdater;
+import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.graph.NodeLocationSnapshot;
+import org.openmetromaps.maps.graph.NodeMoveJournal;
+import org.openmetromaps.maps.graph.SceneRegion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,15 +62,19 @@ public class AlignHorizontallyAction extends MapEditorAction
 		}
 		Point mean = Points.mean(locations);
 
+		NodeMoveJournal journal = mapEditor.getJournal();
+		NodeLocationSnapshot snapshot = journal.snapshot(nodes);
 		for (Node node : nodes) {
 			node.location = new Point(mean.getX(), node.location.getY());
 		}
+		journal.record("Align Horizontally", snapshot);
 
-		for (Node node : nodes) {
-			LineNetworkUtil.updateEdges(node);
-		}
+		LineNetwork lineNetwork = mapEditor.getMap().getLineNetwork();
+		EdgeUpdater updater = new EdgeUpdater(lineNetwork);
+		updater.addAll(nodes);
+		SceneRegion damage = updater.update();
 
-		mapEditor.getMap().repaint();
+		mapEditor.getMap().repaintScene(damage, updater.getNodeDamage());
 	}
 
 }
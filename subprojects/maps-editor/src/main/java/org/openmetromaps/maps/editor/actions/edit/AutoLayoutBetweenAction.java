@@ -8,12 +8,16 @@ import javax.swing.JOptionPane;
 
 import org.openmetromaps.maps.editor.MapEditor;
 import org.openmetromaps.maps.editor.actions.MapEditorAction;
+import org.openmetromaps.maps.graph.EdgeUpdater;
 import org.openmetromaps.maps.graph.LineConnectionResult;
 import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.LineNetworkUtil;
 import org.openmetromaps.maps.graph.Node;
 import org.openmetromaps.maps.graph.NodeConnectionResult;
+import org.openmetromaps.maps.graph.NodeLocationSnapshot;
+import org.openmetromaps.maps.graph.NodeMoveJournal;
 import org.openmetromaps.maps.graph.NodesInBetweenResult;
+import org.openmetromaps.maps.graph.SceneRegion;
 import org.openmetromaps.maps.model.Line;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,8 +85,19 @@ public class AutoLayoutBetweenAction  extends MapEditorAction
 			return;
 		}
 
-        // Get the start and end coordinate
 		LineNetwork lineNetwork = mapEditor.getMap().getLineNetwork();
+
+        // The nodes between start and end, distributed evenly below
+        NodesInBetweenResult nodesBetween = LineNetworkUtil.getNodesBetween(lineNetwork, line, lineConnection.getIdxNode1(), lineConnection.getIdxNode2());
+        List<Node> between = nodesBetween.getNodes();
+
+        // Remember the locations of all nodes moved below
+        List<Node> moved = new ArrayList<>(between);
+        moved.add(endNode);
+        NodeMoveJournal journal = mapEditor.getJournal();
+        NodeLocationSnapshot snapshot = journal.snapshot(moved);
+
+        // Get the start and end coordinate
         Point startPoint = startNode.location;
         Point endPoint = endNode.location;
 
@@ -121,9 +136,6 @@ public class AutoLayoutBetweenAction  extends MapEditorAction
             endNode.location = new Point(startPoint.getX(), endPoint.getY());
         }
 
-        // Distribute the rest of the nodes evenly between start and end
-        NodesInBetweenResult nodesBetween = LineNetworkUtil.getNodesBetween(lineNetwork, line, lineConnection.getIdxNode1(), lineConnection.getIdxNode2());
-
         // Recalculate diffs
         endPoint = endNode.location;
 
@@ -131,7 +143,6 @@ public class AutoLayoutBetweenAction  extends MapEditorAction
         diffX = endPoint.getX() - startPoint.getX();
         diffY = endPoint.getY() - startPoint.getY();
 
-        List<Node> between = nodesBetween.getNodes();
         double dx = diffX / (between.size() + 1);
 		double dy = diffY / (between.size() + 1);
 
@@ -141,13 +152,13 @@ public class AutoLayoutBetweenAction  extends MapEditorAction
 			double y = startPoint.y + dy * (i + 1);
 			node.location = new Point(x, y);
 		}
+		journal.record("Auto Layout Between", snapshot);
 
-		LineNetworkUtil.updateEdges(nodesBetween.getStart());
-		LineNetworkUtil.updateEdges(nodesBetween.getEnd());
-		for (Node node : between) {
-			LineNetworkUtil.updateEdges(node);
-		}
+		EdgeUpdater updater = new EdgeUpdater(lineNetwork);
+		updater.add(endNode);
+		updater.addAll(between);
+		SceneRegion damage = updater.update();
 
-		mapEditor.getMap().repaint();
+		mapEditor.getMap().repaintScene(damage, updater.getNodeDamage());
     }
 }
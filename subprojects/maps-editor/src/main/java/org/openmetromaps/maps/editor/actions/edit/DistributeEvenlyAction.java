@@ -25,12 +25,16 @@ import javax.swing.JOptionPane;
 
 import org.openmetromaps.maps.editor.MapEditor;
 import org.openmetromaps.maps.editor.actions.MapEditorAction;
+import org.openmetromaps.maps.graph.EdgeUpdater;
 import org.openmetromaps.maps.graph.LineConnectionResult;
 import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.LineNetworkUtil;
 import org.openmetromaps.maps.graph.Node;
 import org.openmetromaps.maps.graph.NodeConnectionResult;
+import org.openmetromaps.maps.graph.NodeLocationSnapshot;
+import org.openmetromaps.maps.graph.NodeMoveJournal;
 import org.openmetromaps.maps.graph.NodesInBetweenResult;
+import org.openmetromaps.maps.graph.SceneRegion;
 import org.openmetromaps.maps.model.Line;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -114,20 +118,21 @@ public class DistributeEvenlyAction extends MapEditorAction
 		double dx = diffX / (num + 1);
 		double dy = diffY / (num + 1);
 
+		NodeMoveJournal journal = mapEditor.getJournal();
+		NodeLocationSnapshot snapshot = journal.snapshot(between);
 		for (int i = 0; i < num; i++) {
 			Node node = between.get(i);
 			double x = c1.x + dx * (i + 1);
 			double y = c1.y + dy * (i + 1);
 			node.location = new Point(x, y);
 		}
+		journal.record("Distribute Evenly", snapshot);
 
-		LineNetworkUtil.updateEdges(nodesBetween.getStart());
-		LineNetworkUtil.updateEdges(nodesBetween.getEnd());
-		for (Node node : between) {
-			LineNetworkUtil.updateEdges(node);
-		}
+		EdgeUpdater updater = new EdgeUpdater(lineNetwork);
+		updater.addAll(between);
+		SceneRegion damage = updater.update();
 
-		mapEditor.getMap().repaint();
+		mapEditor.getMap().repaintScene(damage, updater.getNodeDamage());
 	}
 
 }
@@ -46,7 +46,9 @@ public class SaveAction extends MapEditorAction
 			Storage.saveAs(mapEditor, "Save As...");
 		} else {
 			Path file = mapEditor.getSource();
-			Storage.save(file.toFile(), mapEditor);
+			if (Storage.save(file.toFile(), mapEditor)) {
+				mapEditor.getAutosave().saved();
+			}
 		}
 	}
 
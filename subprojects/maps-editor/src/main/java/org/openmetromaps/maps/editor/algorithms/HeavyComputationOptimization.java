@@ -32,6 +32,7 @@ import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.LineNetworkUtil;
 import org.openmetromaps.maps.graph.NetworkLine;
 import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.graph.NodeLocationSnapshot;
 import org.openmetromaps.maps.model.Line;
 import org.openmetromaps.maps.model.ModelData;
 import org.openmetromaps.maps.model.Station;
@@ -51,6 +52,8 @@ public class HeavyComputationOptimization
 	private int numSteps;
 	private int lengthPause;
 
+	private NodeLocationSnapshot snapshot;
+
 	public void runOptimization(MapEditor mapEditor, int numSteps,
 			int lengthPause)
 	{
@@ -58,6 +61,10 @@ public class HeavyComputationOptimization
 		this.numSteps = numSteps;
 		this.lengthPause = lengthPause;
 
+		// the whole computation is recorded as a single edit once it is done
+		LineNetwork network = mapEditor.getView().getLineNetwork();
+		snapshot = mapEditor.getJournal().snapshot(network.nodes);
+
 		// run the computation in a separate thread
 		Runnable r = new Runnable() {
 
@@ -89,6 +96,9 @@ public class HeavyComputationOptimization
 				mapEditor.getMap().repaint();
 			});
 		}
+		SwingUtilities.invokeLater(() -> {
+			mapEditor.getJournal().record("Heavy Computation", snapshot);
+		});
 	}
 
 	/*
@@ -181,7 +191,8 @@ public class HeavyComputationOptimization
 				+ (1 - factor) * neighbor2.location.getY();
 
 		node.location = new Point(x, y);
-		LineNetworkUtil.updateEdges(node);
+		LineNetworkUtil.updateEdges(mapEditor.getView().getLineNetwork(),
+				node);
 	}
 
 }
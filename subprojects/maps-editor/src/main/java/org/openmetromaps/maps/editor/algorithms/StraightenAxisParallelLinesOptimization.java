@@ -25,9 +25,11 @@ import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.MapView;
 import org.openmetromaps.maps.Points;
 import org.openmetromaps.maps.editor.MapEditor;
+import org.openmetromaps.maps.graph.EdgeUpdater;
 import org.openmetromaps.maps.graph.LineNetwork;
-import org.openmetromaps.maps.graph.LineNetworkUtil;
 import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.graph.NodeLocationSnapshot;
+import org.openmetromaps.maps.graph.NodeMoveJournal;
 import org.openmetromaps.maps.model.Line;
 import org.openmetromaps.maps.model.ModelData;
 import org.openmetromaps.maps.model.Station;
@@ -67,13 +69,18 @@ public class StraightenAxisParallelLinesOptimization
 
 		stationToNode = network.getStationToNode();
 
+		NodeMoveJournal journal = mapEditor.getJournal();
+		NodeLocationSnapshot snapshot = journal.snapshot(network.nodes);
+
 		for (Line line : data.lines) {
 			checkLine(line);
 		}
 
-		for (Node node : network.nodes) {
-			LineNetworkUtil.updateEdges(node);
-		}
+		journal.record("Straighten Axis-parallel Lines", snapshot);
+
+		EdgeUpdater updater = new EdgeUpdater(network);
+		updater.addAll(network.nodes);
+		updater.update();
 	}
 
 	private void checkLine(Line line)
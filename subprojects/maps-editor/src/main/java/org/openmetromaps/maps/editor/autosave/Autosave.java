@@ -0,0 +1,322 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+
+package org.openmetromaps.maps.editor.autosave;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Timer;
+
+import org.openmetromaps.maps.editor.MapEditor;
+import org.openmetromaps.maps.editor.Storage;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkIndex;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.graph.NodeMoveListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a journal of the edits of the current document next to its source
+ * file, so that the edits can be recovered after a crash.
+ *
+ * Edits are reported on the UI thread and collected into batches that are
+ * written to the journal by a background thread. Once the user has been idle
+ * for a while, the background thread compacts the journal so that it holds
+ * only the latest state of each edited node. A journal left behind by a crash
+ * or by closing the document without saving it is replayed when the document
+ * is opened again. The source file itself is only written by an explicit
+ * save.
+ */
+public class Autosave implements NodeMoveListener
+{
+
+	final static Logger logger = LoggerFactory.getLogger(Autosave.class);
+
+	// time in milliseconds that edits are collected before writing them
+	private static final int FLUSH_DELAY = 500;
+	// time in milliseconds without edits after which the journal is compacted
+	private static final int IDLE_DELAY = 30000;
+
+	private MapEditor mapEditor;
+
+	private ScheduledExecutorService writer;
+	private Timer idleTimer;
+
+	// accessed on the writer thread only
+	private AutosaveJournal journal = null;
+
+	// accessed on the UI thread only
+	private Path source = null;
+	private LineNetworkIndex index = null;
+	private boolean dirty = false;
+
+	// edits are collected in the pending batch on the UI thread while the
+	// writer thread writes the other one
+	private final Object lock = new Object();
+	private Batch pending;
+	private Batch writing;
+	private boolean flushScheduled = false;
+
+	public Autosave(MapEditor mapEditor)
+	{
+		this.mapEditor = mapEditor;
+
+		writer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "autosave");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		idleTimer = new Timer(IDLE_DELAY, e -> idle());
+		idleTimer.setRepeats(false);
+	}
+
+	/**
+	 * Start journaling the edits of the current document, which has been
+	 * loaded from the specified file. Edits found in an existing journal of
+	 * the file are applied to the document first.
+	 *
+	 * @return whether any edits have been recovered from an existing journal.
+	 */
+	public boolean open(Path source)
+	{
+		if (source == null) {
+			return false;
+		}
+
+		LineNetwork lineNetwork = mapEditor.getView().getLineNetwork();
+		LineNetworkIndex index = lineNetwork.getIndex();
+		Path file = Storage.getAutosavePath(source);
+
+		AutosaveJournal journal;
+		try {
+			Stamp stamp = Stamp.of(source, index.getNumNodes());
+			journal = AutosaveJournal.open(file, stamp);
+		} catch (IOException e) {
+			logger.warn("Unable to open autosave journal: " + file, e);
+			return false;
+		}
+
+		int replayed = journal.replay(lineNetwork);
+		if (replayed > 0) {
+			logger.info(String.format(
+					"Recovered %d edits from autosave journal: %s", replayed,
+					file));
+		}
+
+		this.source = source;
+		this.index = index;
+		synchronized (lock) {
+			pending = new Batch(index.getNumNodes());
+			writing = new Batch(index.getNumNodes());
+		}
+		dirty = !journal.isEmpty();
+		if (dirty) {
+			idleTimer.restart();
+		}
+
+		await(() -> {
+			this.journal = journal;
+			return null;
+		});
+		return replayed > 0;
+	}
+
+	/**
+	 * Stop journaling the current document.
+	 *
+	 * @param keepJournal
+	 *            whether to keep the journal if the document has been edited
+	 *            since it has last been saved, so that the edits are
+	 *            recovered when it is opened again. Otherwise the journal is
+	 *            removed.
+	 */
+	public void close(boolean keepJournal)
+	{
+		if (source == null) {
+			return;
+		}
+		idleTimer.stop();
+
+		final boolean delete = !keepJournal || !dirty;
+		await(() -> {
+			if (journal != null) {
+				if (!delete) {
+					// keep the pending edits for recovery
+					flush();
+				}
+				journal.close(delete);
+				journal = null;
+			}
+			synchronized (lock) {
+				pending.clear();
+			}
+			return null;
+		});
+
+		source = null;
+		index = null;
+		dirty = false;
+	}
+
+	/**
+	 * Notify the autosave that the current document has been saved to its
+	 * source file, so that the journaled edits are no longer needed.
+	 */
+	public void saved()
+	{
+		if (source == null) {
+			return;
+		}
+		idleTimer.stop();
+		dirty = false;
+
+		Stamp stamp;
+		try {
+			stamp = Stamp.of(source, index.getNumNodes());
+		} catch (IOException e) {
+			logger.warn("Unable to access saved file", e);
+			return;
+		}
+
+		synchronized (lock) {
+			pending.clear();
+		}
+		writer.execute(() -> {
+			if (journal != null) {
+				journal.reset(stamp);
+			}
+		});
+	}
+
+	@Override
+	public void nodeMoved(Node node)
+	{
+		if (source == null) {
+			return;
+		}
+		int ordinal = index.getOrdinal(node);
+		if (ordinal < 0) {
+			return;
+		}
+		synchronized (lock) {
+			pending.move(ordinal, node.location.x, node.location.y);
+			scheduleFlush();
+		}
+		edited();
+	}
+
+	public void stationRenamed(Node node)
+	{
+		if (source == null) {
+			return;
+		}
+		int ordinal = index.getOrdinal(node);
+		if (ordinal < 0) {
+			return;
+		}
+		synchronized (lock) {
+			pending.rename(ordinal, node.station.getName());
+			scheduleFlush();
+		}
+		edited();
+	}
+
+	private void edited()
+	{
+		dirty = true;
+		idleTimer.restart();
+	}
+
+	private void scheduleFlush()
+	{
+		if (!flushScheduled) {
+			flushScheduled = true;
+			writer.schedule(this::flush, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Write the pending edits to the journal, run on the writer thread.
+	 */
+	private void flush()
+	{
+		Batch batch;
+		synchronized (lock) {
+			batch = pending;
+			pending = writing;
+			writing = batch;
+			flushScheduled = false;
+		}
+		try {
+			if (journal != null && !batch.isEmpty()) {
+				batch.writeTo(journal);
+				journal.force();
+			}
+		} catch (IOException e) {
+			logger.warn("Error while writing autosave journal", e);
+		}
+		batch.clear();
+	}
+
+	private void idle()
+	{
+		if (source != null && dirty) {
+			writer.execute(this::compact);
+		}
+	}
+
+	/**
+	 * Compact the journal, run on the writer thread.
+	 */
+	private void compact()
+	{
+		if (journal == null || journal.isEmpty()) {
+			return;
+		}
+		AutosaveJournal current = journal;
+		try {
+			journal = current.compact();
+			logger.debug("Compacted autosave journal");
+		} catch (IOException e) {
+			logger.warn("Unable to compact autosave journal", e);
+			// stop journaling if the journal could not be opened again
+			journal = current.isOpen() ? current : null;
+		}
+	}
+
+	/**
+	 * Run a task on the writer thread and wait for it to complete.
+	 */
+	private void await(Callable<Void> task)
+	{
+		try {
+			writer.submit(task).get();
+		} catch (InterruptedException | ExecutionException e) {
+			logger.warn("Error in autosave journal", e);
+		}
+	}
+
+}
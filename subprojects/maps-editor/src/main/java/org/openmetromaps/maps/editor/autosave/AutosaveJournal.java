@@ -0,0 +1,372 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+
+package org.openmetromaps.maps.editor.autosave;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import org.openmetromaps.maps.graph.EdgeUpdater;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkIndex;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+
+/**
+ * An append-only journal file of the edits applied to a document since it
+ * has last been saved, written through a memory mapping.
+ *
+ * The header identifies the saved file the journal applies to by its size and
+ * modification time and the number of nodes of its network. It is followed by
+ * records that store the new location of a node or the new name of its
+ * station, each identified by the node's ordinal in the spatial index and
+ * terminated by a checksum, so that a record torn by a crash is detected and
+ * ignored. As records store absolute values, replaying a record more than once
+ * is harmless.
+ */
+class AutosaveJournal
+{
+
+	private static final int MAGIC = 0x4f4d4d4a; // OMMJ
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 32;
+	private static final int INITIAL_SIZE = 64 * 1024;
+
+	static final byte TYPE_MOVE = 1;
+	static final byte TYPE_RENAME = 2;
+
+	// type and ordinal before the payload, checksum after it
+	private static final int RECORD_OVERHEAD = 1 + 4 + 4;
+
+	private Path file;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int position;
+
+	private CRC32 crc = new CRC32();
+
+	private AutosaveJournal(Path file, FileChannel channel)
+	{
+		this.file = file;
+		this.channel = channel;
+	}
+
+	/**
+	 * Open the journal at the specified path, creating it if necessary.
+	 * Records of an existing journal are kept if its header matches the
+	 * specified stamp and can be applied using {@link #replay(LineNetwork)},
+	 * otherwise the journal is started anew.
+	 */
+	static AutosaveJournal open(Path file, Stamp stamp) throws IOException
+	{
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+		AutosaveJournal journal = new AutosaveJournal(file, channel);
+		int size = (int) Math.max(INITIAL_SIZE, channel.size());
+		journal.map(size);
+		if (stamp.equals(journal.readHeader())) {
+			journal.position = journal.findEnd();
+			journal.clear(journal.position, size);
+		} else {
+			journal.clear(HEADER_SIZE, size);
+			journal.writeHeader(stamp);
+		}
+		return journal;
+	}
+
+	private void map(int size) throws IOException
+	{
+		buffer = channel.map(MapMode.READ_WRITE, 0, size);
+	}
+
+	private Stamp readHeader()
+	{
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			return null;
+		}
+		return new Stamp(buffer.getLong(8), buffer.getLong(16),
+				buffer.getInt(24));
+	}
+
+	private void writeHeader(Stamp stamp)
+	{
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putLong(8, stamp.size);
+		buffer.putLong(16, stamp.modified);
+		buffer.putInt(24, stamp.numNodes);
+		buffer.putInt(28, 0);
+		buffer.force();
+		position = HEADER_SIZE;
+	}
+
+	private void clear(int from, int to)
+	{
+		for (int i = from; i < to; i++) {
+			buffer.put(i, (byte) 0);
+		}
+	}
+
+	/**
+	 * Find the end of the valid records.
+	 */
+	private int findEnd()
+	{
+		int pos = HEADER_SIZE;
+		while (true) {
+			int length = recordLength(pos);
+			if (length < 0) {
+				return pos;
+			}
+			pos += length;
+		}
+	}
+
+	/**
+	 * Get the length of the valid record at the specified position or -1 if
+	 * there is none.
+	 */
+	private int recordLength(int pos)
+	{
+		int limit = buffer.capacity();
+		if (pos + RECORD_OVERHEAD > limit) {
+			return -1;
+		}
+		byte type = buffer.get(pos);
+		int payload;
+		if (type == TYPE_MOVE) {
+			payload = 16;
+		} else if (type == TYPE_RENAME) {
+			if (pos + RECORD_OVERHEAD + 2 > limit) {
+				return -1;
+			}
+			payload = 2 + (buffer.getShort(pos + 5) & 0xffff);
+		} else {
+			return -1;
+		}
+		int length = RECORD_OVERHEAD + payload;
+		if (pos + length > limit) {
+			return -1;
+		}
+		if (buffer.getInt(pos + length - 4) != checksum(pos, length - 4)) {
+			return -1;
+		}
+		return length;
+	}
+
+	private int checksum(int pos, int length)
+	{
+		crc.reset();
+		for (int i = 0; i < length; i++) {
+			crc.update(buffer.get(pos + i));
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Apply the records of the journal to the specified network.
+	 *
+	 * @return the number of records applied.
+	 */
+	int replay(LineNetwork lineNetwork)
+	{
+		LineNetworkIndex index = lineNetwork.getIndex();
+		EdgeUpdater updater = new EdgeUpdater(lineNetwork);
+		int count = 0;
+		for (int pos = HEADER_SIZE; pos < position;) {
+			int length = recordLength(pos);
+			byte type = buffer.get(pos);
+			int ordinal = buffer.getInt(pos + 1);
+			if (ordinal >= 0 && ordinal < index.getNumNodes()) {
+				Node node = index.getNode(ordinal);
+				if (type == TYPE_MOVE) {
+					node.location = new Point(buffer.getDouble(pos + 5),
+							buffer.getDouble(pos + 13));
+					updater.add(node);
+				} else {
+					byte[] bytes = new byte[buffer.getShort(pos + 5) & 0xffff];
+					buffer.get(pos + 7, bytes);
+					node.station.setName(
+							new String(bytes, StandardCharsets.UTF_8));
+				}
+				count++;
+			}
+			pos += length;
+		}
+		updater.update();
+		return count;
+	}
+
+	/**
+	 * Collect the records of the journal into the specified batch, which
+	 * keeps the latest location and the latest name of each node only.
+	 */
+	void readInto(Batch batch, int numNodes)
+	{
+		for (int pos = HEADER_SIZE; pos < position;) {
+			int length = recordLength(pos);
+			byte type = buffer.get(pos);
+			int ordinal = buffer.getInt(pos + 1);
+			if (ordinal >= 0 && ordinal < numNodes) {
+				if (type == TYPE_MOVE) {
+					batch.move(ordinal, buffer.getDouble(pos + 5),
+							buffer.getDouble(pos + 13));
+				} else {
+					byte[] bytes = new byte[buffer.getShort(pos + 5) & 0xffff];
+					buffer.get(pos + 7, bytes);
+					batch.rename(ordinal,
+							new String(bytes, StandardCharsets.UTF_8));
+				}
+			}
+			pos += length;
+		}
+	}
+
+	/**
+	 * Replace the journal with one that holds a single record for each edit
+	 * of a node. The compacted journal is written to a separate file first,
+	 * which replaces this one only once it is complete, so that a crash
+	 * during compaction leaves one of both intact. This journal must not be
+	 * used afterwards.
+	 *
+	 * @return the compacted journal.
+	 */
+	AutosaveJournal compact() throws IOException
+	{
+		Stamp stamp = readHeader();
+		Batch batch = new Batch(stamp.numNodes);
+		readInto(batch, stamp.numNodes);
+
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.deleteIfExists(tmp);
+		AutosaveJournal compacted = open(tmp, stamp);
+		try {
+			batch.writeTo(compacted);
+			compacted.force();
+		} catch (IOException e) {
+			compacted.close(true);
+			throw e;
+		}
+
+		close(false);
+		try {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// continue with the journal as it is
+			compacted.close(true);
+			return open(file, stamp);
+		}
+		compacted.file = file;
+		return compacted;
+	}
+
+	boolean isOpen()
+	{
+		return channel.isOpen();
+	}
+
+	boolean isEmpty()
+	{
+		return position == HEADER_SIZE;
+	}
+
+	void appendMove(int ordinal, double x, double y) throws IOException
+	{
+		int start = begin(TYPE_MOVE, ordinal, 16);
+		buffer.putDouble(position, x);
+		buffer.putDouble(position + 8, y);
+		position += 16;
+		end(start);
+	}
+
+	void appendRename(int ordinal, String name) throws IOException
+	{
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, 0xffff);
+		int start = begin(TYPE_RENAME, ordinal, 2 + length);
+		buffer.putShort(position, (short) length);
+		buffer.put(position + 2, bytes, 0, length);
+		position += 2 + length;
+		end(start);
+	}
+
+	private int begin(byte type, int ordinal, int payload) throws IOException
+	{
+		int needed = position + RECORD_OVERHEAD + payload;
+		if (needed > buffer.capacity()) {
+			int size = buffer.capacity();
+			while (size < needed) {
+				size *= 2;
+			}
+			map(size);
+		}
+		int start = position;
+		buffer.put(position, type);
+		buffer.putInt(position + 1, ordinal);
+		position += 5;
+		return start;
+	}
+
+	private void end(int start)
+	{
+		buffer.putInt(position, checksum(start, position - start));
+		position += 4;
+	}
+
+	/**
+	 * Make sure that all records appended so far are stored on disk.
+	 */
+	void force()
+	{
+		buffer.force();
+	}
+
+	/**
+	 * Drop all records, as they have been included in a save of the document
+	 * identified by the specified stamp.
+	 */
+	void reset(Stamp stamp)
+	{
+		// remove the records before updating the header, so that the records
+		// never apply to the new file
+		clear(HEADER_SIZE, position);
+		buffer.force();
+		writeHeader(stamp);
+	}
+
+	void close(boolean delete) throws IOException
+	{
+		buffer = null;
+		channel.close();
+		if (delete) {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
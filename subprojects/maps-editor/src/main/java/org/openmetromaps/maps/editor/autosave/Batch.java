@@ -0,0 +1,105 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+
+package org.openmetromaps.maps.editor.autosave;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Edits collected on the UI thread until they are written to the journal.
+ * Repeated edits of a node are merged, so that only its latest location and
+ * name are written.
+ */
+class Batch
+{
+
+	private int[] ordinals = new int[16];
+	private double[] x = new double[16];
+	private double[] y = new double[16];
+	private int numMoves = 0;
+
+	// position of each node's move within the batch or -1
+	private int[] slots;
+
+	private List<Integer> renamedOrdinals = new ArrayList<>();
+	private List<String> names = new ArrayList<>();
+
+	Batch(int numNodes)
+	{
+		slots = new int[numNodes];
+		Arrays.fill(slots, -1);
+	}
+
+	boolean isEmpty()
+	{
+		return numMoves == 0 && names.isEmpty();
+	}
+
+	void move(int ordinal, double nx, double ny)
+	{
+		int slot = slots[ordinal];
+		if (slot < 0) {
+			if (numMoves == ordinals.length) {
+				int length = numMoves * 2;
+				ordinals = Arrays.copyOf(ordinals, length);
+				x = Arrays.copyOf(x, length);
+				y = Arrays.copyOf(y, length);
+			}
+			slot = numMoves++;
+			slots[ordinal] = slot;
+			ordinals[slot] = ordinal;
+		}
+		x[slot] = nx;
+		y[slot] = ny;
+	}
+
+	void rename(int ordinal, String name)
+	{
+		int index = renamedOrdinals.indexOf(ordinal);
+		if (index >= 0) {
+			names.set(index, name);
+		} else {
+			renamedOrdinals.add(ordinal);
+			names.add(name);
+		}
+	}
+
+	void writeTo(AutosaveJournal journal) throws IOException
+	{
+		for (int i = 0; i < numMoves; i++) {
+			journal.appendMove(ordinals[i], x[i], y[i]);
+		}
+		for (int i = 0; i < names.size(); i++) {
+			journal.appendRename(renamedOrdinals.get(i), names.get(i));
+		}
+	}
+
+	void clear()
+	{
+		for (int i = 0; i < numMoves; i++) {
+			slots[ordinals[i]] = -1;
+		}
+		numMoves = 0;
+		renamedOrdinals.clear();
+		names.clear();
+	}
+
+}
@@ -0,0 +1,66 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+
+package org.openmetromaps.maps.editor.autosave;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Identifies the saved state of a document an autosave journal applies to.
+ */
+class Stamp
+{
+
+	final long size;
+	final long modified;
+	final int numNodes;
+
+	Stamp(long size, long modified, int numNodes)
+	{
+		this.size = size;
+		this.modified = modified;
+		this.numNodes = numNodes;
+	}
+
+	static Stamp of(Path file, int numNodes) throws IOException
+	{
+		return new Stamp(Files.size(file),
+				Files.getLastModifiedTime(file).toMillis(), numNodes);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (!(obj instanceof Stamp)) {
+			return false;
+		}
+		Stamp other = (Stamp) obj;
+		return size == other.size && modified == other.modified
+				&& numNodes == other.numNodes;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Long.hashCode(size) * 31 + Long.hashCode(modified) * 17
+				+ numNodes;
+	}
+
+}
@@ -78,6 +78,13 @@ class PermanentConfigHandler extends DefaultHandler
 			configuration.setLookAndFeel(value);
 		} else if (name.equals("docking-frames-theme")) {
 			configuration.setDockingFramesTheme(value);
+		} else if (name.equals("undo-journal-size")) {
+			try {
+				configuration.setUndoJournalSize(Integer.parseInt(value));
+			} catch (NumberFormatException e) {
+				logger.warn(String.format("invalid value for option %s: %s",
+						name, value));
+			}
 		} else {
 			logger.debug(String.format("unhandled option: %s:%s", name, value));
 		}
@@ -57,6 +57,8 @@ public class PermanentConfigWriter
 			addOption(documentFactory, eConfiguration, "docking-frames-theme",
 					configuration.getDockingFramesTheme());
 		}
+		addOption(documentFactory, eConfiguration, "undo-journal-size",
+				Integer.toString(configuration.getUndoJournalSize()));
 	}
 
 	private static void addOption(DocumentFactory documentFactory,
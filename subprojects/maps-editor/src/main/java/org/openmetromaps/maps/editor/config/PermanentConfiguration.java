@@ -22,6 +22,7 @@ public class PermanentConfiguration
 
 	private String lookAndFeel = null;
 	private String dockingFramesTheme = null;
+	private int undoJournalSize = 100000;
 
 	public static PermanentConfiguration createDefaultConfiguration()
 	{
@@ -50,4 +51,17 @@ public class PermanentConfiguration
 		this.dockingFramesTheme = dockingFramesTheme;
 	}
 
+	/**
+	 * Get the maximum number of node moves kept for undoing edits.
+	 */
+	public int getUndoJournalSize()
+	{
+		return undoJournalSize;
+	}
+
+	public void setUndoJournalSize(int undoJournalSize)
+	{
+		this.undoJournalSize = undoJournalSize;
+	}
+
 }
@@ -0,0 +1,221 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.editor.autosave;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.model.Coordinate;
+import org.openmetromaps.maps.model.Station;
+
+import de.topobyte.lightgeom.lina.Point;
+
+public class TestAutosaveJournal
+{
+
+	private static final int NUM_NODES = 10;
+
+	// type, ordinal, two coordinates and the checksum
+	private static final int SIZE_MOVE = 1 + 4 + 16 + 4;
+	private static final int HEADER_SIZE = 32;
+
+	private static final Stamp STAMP = new Stamp(123, 456, NUM_NODES);
+
+	@Test
+	public void testReplay() throws IOException
+	{
+		Path file = createFile();
+		try {
+			AutosaveJournal journal = AutosaveJournal.open(file, STAMP);
+			Assert.assertTrue("empty", journal.isEmpty());
+			journal.appendMove(1, 10, 20);
+			journal.appendMove(2, 30, 40);
+			journal.appendMove(1, 50, 60);
+			journal.appendRename(3, "Zoo");
+			journal.appendRename(3, "Zoologischer Garten");
+			journal.force();
+			journal.close(false);
+
+			LineNetwork lineNetwork = createNetwork();
+			journal = AutosaveJournal.open(file, STAMP);
+			Assert.assertFalse("empty", journal.isEmpty());
+			Assert.assertEquals("records", 5, journal.replay(lineNetwork));
+			assertLocation("node 1", lineNetwork, 1, 50, 60);
+			assertLocation("node 2", lineNetwork, 2, 30, 40);
+			assertLocation("node 4", lineNetwork, 4, 4, 0);
+			Assert.assertEquals("name", "Zoologischer Garten",
+					lineNetwork.nodes.get(3).station.getName());
+
+			// appending continues after the existing records
+			journal.appendMove(4, 70, 80);
+			journal.close(false);
+			journal = AutosaveJournal.open(file, STAMP);
+			Assert.assertEquals("records", 6,
+					journal.replay(createNetwork()));
+			journal.close(true);
+			Assert.assertFalse("deleted", Files.exists(file));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testTornRecord() throws IOException
+	{
+		Path file = createFile();
+		try {
+			AutosaveJournal journal = AutosaveJournal.open(file, STAMP);
+			journal.appendMove(1, 10, 20);
+			journal.appendMove(2, 30, 40);
+			journal.appendMove(3, 50, 60);
+			journal.close(false);
+
+			// corrupt the coordinates of the last record as if the write
+			// had been interrupted
+			byte[] bytes = Files.readAllBytes(file);
+			bytes[HEADER_SIZE + 2 * SIZE_MOVE + 10] ^= 1;
+			Files.write(file, bytes);
+
+			LineNetwork lineNetwork = createNetwork();
+			journal = AutosaveJournal.open(file, STAMP);
+			Assert.assertEquals("records", 2, journal.replay(lineNetwork));
+			assertLocation("node 2", lineNetwork, 2, 30, 40);
+			assertLocation("node 3", lineNetwork, 3, 3, 0);
+
+			// new records replace the torn one
+			journal.appendMove(5, 70, 80);
+			journal.close(false);
+			lineNetwork = createNetwork();
+			journal = AutosaveJournal.open(file, STAMP);
+			Assert.assertEquals("records", 3, journal.replay(lineNetwork));
+			assertLocation("node 3", lineNetwork, 3, 3, 0);
+			assertLocation("node 5", lineNetwork, 5, 70, 80);
+			journal.close(false);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testStamp() throws IOException
+	{
+		Path file = createFile();
+		try {
+			AutosaveJournal journal = AutosaveJournal.open(file, STAMP);
+			journal.appendMove(1, 10, 20);
+			journal.close(false);
+
+			// records of a journal for a different file are dropped
+			Stamp other = new Stamp(124, 456, NUM_NODES);
+			journal = AutosaveJournal.open(file, other);
+			Assert.assertTrue("empty", journal.isEmpty());
+			journal.appendMove(1, 10, 20);
+			journal.close(false);
+
+			// records included in a save are dropped
+			journal = AutosaveJournal.open(file, other);
+			Assert.assertFalse("empty", journal.isEmpty());
+			journal.reset(STAMP);
+			Assert.assertTrue("empty", journal.isEmpty());
+			journal.close(false);
+			journal = AutosaveJournal.open(file, STAMP);
+			Assert.assertTrue("empty", journal.isEmpty());
+			Assert.assertEquals("records", 0,
+					journal.replay(createNetwork()));
+			journal.close(false);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testCompact() throws IOException
+	{
+		Path file = createFile();
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			AutosaveJournal journal = AutosaveJournal.open(file, STAMP);
+			for (int i = 0; i < 1000; i++) {
+				int ordinal = i % NUM_NODES;
+				journal.appendMove(ordinal, i, -i);
+			}
+			journal.appendRename(3, "Zoo");
+			journal.appendRename(3, "Zoologischer Garten");
+
+			journal = journal.compact();
+			Assert.assertTrue("open", journal.isOpen());
+			Assert.assertFalse("temporary file", Files.exists(tmp));
+			LineNetwork lineNetwork = createNetwork();
+			Assert.assertEquals("records", NUM_NODES + 1,
+					journal.replay(lineNetwork));
+			for (int ordinal = 0; ordinal < NUM_NODES; ordinal++) {
+				int i = 1000 - NUM_NODES + ordinal;
+				assertLocation("node " + ordinal, lineNetwork, ordinal, i,
+						-i);
+			}
+			Assert.assertEquals("name", "Zoologischer Garten",
+					lineNetwork.nodes.get(3).station.getName());
+
+			// the compacted journal replaces the original file
+			journal.appendMove(1, 10, 20);
+			journal.close(false);
+			journal = AutosaveJournal.open(file, STAMP);
+			Assert.assertEquals("records", NUM_NODES + 2,
+					journal.replay(createNetwork()));
+			journal.close(false);
+		} finally {
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private static Path createFile() throws IOException
+	{
+		Path file = Files.createTempFile("autosave", ".journal");
+		// the journal creates the file itself
+		Files.delete(file);
+		return file;
+	}
+
+	private static LineNetwork createNetwork()
+	{
+		LineNetwork lineNetwork = new LineNetwork();
+		for (int i = 0; i < NUM_NODES; i++) {
+			Station station = new Station(i, "Station " + i,
+					new Coordinate(i, 0), null);
+			Node node = new Node(station);
+			node.location = new Point(i, 0);
+			lineNetwork.nodes.add(node);
+		}
+		return lineNetwork;
+	}
+
+	private static void assertLocation(String message,
+			LineNetwork lineNetwork, int ordinal, double x, double y)
+	{
+		Point location = lineNetwork.getIndex().getNode(ordinal).location;
+		Assert.assertEquals(message, x, location.x, 0);
+		Assert.assertEquals(message, y, location.y, 0);
+	}
+
+}
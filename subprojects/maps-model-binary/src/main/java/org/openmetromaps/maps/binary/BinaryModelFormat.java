@@ -0,0 +1,70 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.binary;
+
+/**
+ * Constants of the binary model format.
+ *
+ * A file consists of a header (magic and version) followed by a pool of UTF-8
+ * strings and a number of tables with fixed size records, each preceded by
+ * its number of records. All values are stored in big endian byte order.
+ * Records reference strings and records of other tables by index, a string
+ * reference of -1 denotes null and missing locations are stored as NaN.
+ *
+ * <pre>
+ * strings:   count, offsets[count + 1], bytes
+ * stations:  id, name, lon, lat
+ * lines:     id, name, color, circular, first stop, number of stops
+ * stops:     station
+ * views:     name, scene x1, y1, x2, y2, start x, y,
+ *            first / number of edges definitions, nodes and edges
+ * edges:     line name, first interval, number of intervals
+ * intervals: from, to
+ * nodes:     station, x, y
+ * segments:  station 1, station 2, prev x, y, next x, y
+ * </pre>
+ *
+ * The nodes and segments tables store the precomputed locations of the line
+ * networks of the views, so that they do not have to be recalculated when
+ * loading a model. The topology of the networks is not stored, the networks
+ * are built from the model data when reading.
+ */
+public class BinaryModelFormat
+{
+
+	/**
+	 * The bytes 'OMMB'
+	 */
+	public static final int MAGIC = 0x4F4D4D42;
+
+	public static final int VERSION = 1;
+
+	public static final int SIZE_HEADER = 8;
+
+	public static final int SIZE_STATION = 4 + 4 + 8 + 8;
+	public static final int SIZE_LINE = 6 * 4;
+	public static final int SIZE_STOP = 4;
+	public static final int SIZE_VIEW = 4 + 6 * 8 + 6 * 4;
+	public static final int SIZE_EDGES = 3 * 4;
+	public static final int SIZE_INTERVAL = 2 * 4;
+	public static final int SIZE_NODE = 4 + 2 * 8;
+	public static final int SIZE_SEGMENT = 2 * 4 + 4 * 8;
+
+	public static final int NULL = -1;
+
+}
@@ -0,0 +1,377 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.binary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.openmetromaps.maps.Edges;
+import org.openmetromaps.maps.Interval;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.ViewConfig;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkBuilder;
+import org.openmetromaps.maps.graph.LineNetworkUtil;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.model.Line;
+import org.openmetromaps.maps.model.ModelData;
+import org.openmetromaps.maps.model.Station;
+import org.openmetromaps.maps.model.Stop;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Coordinate;
+import de.topobyte.viewports.geometry.Rectangle;
+
+/**
+ * Reads a {@link MapModel} in the format described in
+ * {@link BinaryModelFormat}.
+ *
+ * Files are memory-mapped and decoded in a single pass. The format does not
+ * store the topology of the line networks, so the network of each view is
+ * still built from the model data with a {@link LineNetworkBuilder}, just as
+ * when reading XML. Only the node and neighbor locations are read from the
+ * file instead of being recalculated.
+ */
+public class BinaryModelReader
+{
+
+	/**
+	 * Check whether the specified file starts with the magic bytes of the
+	 * binary model format.
+	 */
+	public static boolean isBinaryModel(Path file) throws IOException
+	{
+		try (InputStream is = Files.newInputStream(file)) {
+			byte[] magic = new byte[4];
+			int n = 0;
+			while (n < magic.length) {
+				int r = is.read(magic, n, magic.length - n);
+				if (r < 0) {
+					return false;
+				}
+				n += r;
+			}
+			return ByteBuffer.wrap(magic).getInt() == BinaryModelFormat.MAGIC;
+		}
+	}
+
+	public static MapModel read(Path file) throws IOException
+	{
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		}
+		return read(buffer);
+	}
+
+	public static MapModel read(ByteBuffer buffer) throws IOException
+	{
+		try {
+			return new BinaryModelReader(buffer).read();
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException("Truncated or corrupt binary model", e);
+		}
+	}
+
+	private ByteBuffer buffer;
+
+	private String[] strings;
+	private List<Station> stations;
+	private List<Line> lines;
+
+	private BinaryModelReader(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	private MapModel read() throws IOException
+	{
+		int magic = buffer.getInt();
+		if (magic != BinaryModelFormat.MAGIC) {
+			throw new IOException("Not a binary model file");
+		}
+		int version = buffer.getInt();
+		if (version != BinaryModelFormat.VERSION) {
+			throw new IOException(
+					"Unsupported binary model version: " + version);
+		}
+
+		readStrings();
+		readStations();
+		readLines();
+
+		MapModel model = new MapModel(new ModelData(lines, stations));
+		readViews(model);
+		return model;
+	}
+
+	private void readStrings() throws IOException
+	{
+		int count = readCount(4);
+		int[] offsets = new int[count + 1];
+		for (int i = 0; i <= count; i++) {
+			offsets[i] = buffer.getInt();
+		}
+		int length = offsets[count];
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IOException("Truncated or corrupt binary model");
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+
+		strings = new String[count];
+		for (int i = 0; i < count; i++) {
+			strings[i] = new String(bytes, offsets[i],
+					offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Read the number of records of a table and check that the buffer is
+	 * large enough to hold them, so that corrupt counts are detected before
+	 * anything is allocated for them.
+	 */
+	private int readCount(int recordSize) throws IOException
+	{
+		int count = buffer.getInt();
+		if (count < 0 || count > buffer.remaining() / recordSize) {
+			throw new IOException("Truncated or corrupt binary model");
+		}
+		return count;
+	}
+
+	private static boolean isRange(int first, int count, int total)
+	{
+		return first >= 0 && count >= 0 && first <= total - count;
+	}
+
+	private String string(int index)
+	{
+		return index == BinaryModelFormat.NULL ? null : strings[index];
+	}
+
+	private void readStations() throws IOException
+	{
+		int count = readCount(BinaryModelFormat.SIZE_STATION);
+		stations = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int id = buffer.getInt();
+			String name = string(buffer.getInt());
+			double lon = buffer.getDouble();
+			double lat = buffer.getDouble();
+			org.openmetromaps.maps.model.Coordinate location = null;
+			if (!Double.isNaN(lon)) {
+				location = new org.openmetromaps.maps.model.Coordinate(lon,
+						lat);
+			}
+			stations.add(new Station(id, name, location, new ArrayList<>()));
+		}
+	}
+
+	private void readLines() throws IOException
+	{
+		int count = readCount(BinaryModelFormat.SIZE_LINE);
+		lines = new ArrayList<>(count);
+		int[] numStops = new int[count];
+		// stops are stored in line order, so each line's stops follow those
+		// of the previous line
+		int firstStop = 0;
+		for (int i = 0; i < count; i++) {
+			int id = buffer.getInt();
+			String name = string(buffer.getInt());
+			String color = string(buffer.getInt());
+			boolean circular = buffer.getInt() != 0;
+			int first = buffer.getInt();
+			int n = buffer.getInt();
+			if (first != firstStop || n < 0
+					|| n > buffer.remaining() / BinaryModelFormat.SIZE_STOP) {
+				throw new IOException("Invalid stops of line " + i);
+			}
+			numStops[i] = n;
+			firstStop += n;
+			lines.add(new Line(id, name, color, circular,
+					new ArrayList<>(n)));
+		}
+
+		int totalStops = buffer.getInt();
+		if (totalStops != firstStop) {
+			throw new IOException("Invalid number of stops: " + totalStops
+					+ ", expected " + firstStop);
+		}
+		for (int i = 0; i < count; i++) {
+			Line line = lines.get(i);
+			List<Stop> stops = line.getStops();
+			for (int k = 0; k < numStops[i]; k++) {
+				Station station = stations.get(buffer.getInt());
+				Stop stop = new Stop(station, line);
+				stops.add(stop);
+				station.getStops().add(stop);
+			}
+		}
+	}
+
+	private void readViews(MapModel model) throws IOException
+	{
+		int count = readCount(BinaryModelFormat.SIZE_VIEW);
+		String[] names = new String[count];
+		ViewConfig[] configs = new ViewConfig[count];
+		int[] ranges = new int[count * 6];
+		for (int i = 0; i < count; i++) {
+			names[i] = string(buffer.getInt());
+			Rectangle scene = new Rectangle(buffer.getDouble(),
+					buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+			Coordinate start = new Coordinate(buffer.getDouble(),
+					buffer.getDouble());
+			configs[i] = new ViewConfig(scene, start);
+			for (int k = 0; k < 6; k++) {
+				ranges[i * 6 + k] = buffer.getInt();
+			}
+		}
+
+		int numEdges = readCount(BinaryModelFormat.SIZE_EDGES);
+		int[] edgesRecords = new int[numEdges * 3];
+		for (int i = 0; i < edgesRecords.length; i++) {
+			edgesRecords[i] = buffer.getInt();
+		}
+
+		int numIntervals = readCount(BinaryModelFormat.SIZE_INTERVAL);
+		int[] intervalRecords = new int[numIntervals * 2];
+		for (int i = 0; i < intervalRecords.length; i++) {
+			intervalRecords[i] = buffer.getInt();
+		}
+
+		int numNodes = readCount(BinaryModelFormat.SIZE_NODE);
+		int nodesStart = buffer.position();
+		buffer.position(nodesStart + numNodes * BinaryModelFormat.SIZE_NODE);
+
+		int numSegments = readCount(BinaryModelFormat.SIZE_SEGMENT);
+		int segmentsStart = buffer.position();
+
+		for (int i = 0; i < count; i++) {
+			int firstEdges = ranges[i * 6];
+			int nEdges = ranges[i * 6 + 1];
+			int firstNode = ranges[i * 6 + 2];
+			int nNodes = ranges[i * 6 + 3];
+			int firstSegment = ranges[i * 6 + 4];
+			int nSegments = ranges[i * 6 + 5];
+			if (!isRange(firstEdges, nEdges, numEdges)
+					|| !isRange(firstNode, nNodes, numNodes)
+					|| !isRange(firstSegment, nSegments, numSegments)) {
+				throw new IOException("Invalid records of view " + i);
+			}
+
+			List<Edges> allEdges = new ArrayList<>(nEdges);
+			for (int e = firstEdges; e < firstEdges + nEdges; e++) {
+				Edges edges = new Edges(string(edgesRecords[e * 3]));
+				int first = edgesRecords[e * 3 + 1];
+				int n = edgesRecords[e * 3 + 2];
+				for (int k = first; k < first + n; k++) {
+					edges.addInterval(
+							new Interval(string(intervalRecords[k * 2]),
+									string(intervalRecords[k * 2 + 1])));
+				}
+				allEdges.add(edges);
+			}
+
+			LineNetworkBuilder builder = new LineNetworkBuilder(
+					model.getData(), allEdges);
+			LineNetwork lineNetwork = builder.getGraph();
+
+			applyNodes(lineNetwork,
+					nodesStart + firstNode * BinaryModelFormat.SIZE_NODE,
+					nNodes);
+			if (!applySegments(lineNetwork, segmentsStart
+					+ firstSegment * BinaryModelFormat.SIZE_SEGMENT,
+					nSegments)) {
+				LineNetworkUtil.calculateAllNeighborLocations(lineNetwork);
+			}
+
+			model.getViews().add(
+					new MapView(names[i], allEdges, lineNetwork, configs[i]));
+		}
+	}
+
+	private void applyNodes(LineNetwork lineNetwork, int position, int count)
+	{
+		Map<Station, Node> stationToNode = lineNetwork.getStationToNode();
+		for (int i = 0; i < count; i++) {
+			int offset = position + i * BinaryModelFormat.SIZE_NODE;
+			Station station = stations.get(buffer.getInt(offset));
+			Node node = stationToNode.get(station);
+			Point location = point(offset + 4);
+			if (node != null && location != null) {
+				node.location = location;
+			}
+		}
+	}
+
+	/**
+	 * Apply the stored neighbor locations to the edges of the network. This
+	 * requires the stored edges to match the edges of the network built from
+	 * the model data, otherwise nothing is applied and false is returned.
+	 */
+	private boolean applySegments(LineNetwork lineNetwork, int position,
+			int count)
+	{
+		List<Edge> edges = lineNetwork.edges;
+		if (edges.size() != count) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			int offset = position + i * BinaryModelFormat.SIZE_SEGMENT;
+			Edge edge = edges.get(i);
+			if (stations.get(buffer.getInt(offset)) != edge.n1.station
+					|| stations.get(buffer.getInt(offset + 4)) != edge.n2.station) {
+				return false;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			int offset = position + i * BinaryModelFormat.SIZE_SEGMENT;
+			Edge edge = edges.get(i);
+			edge.prev = point(offset + 8);
+			edge.next = point(offset + 24);
+		}
+		return true;
+	}
+
+	private Point point(int offset)
+	{
+		double x = buffer.getDouble(offset);
+		double y = buffer.getDouble(offset + 8);
+		if (Double.isNaN(x)) {
+			return null;
+		}
+		return new Point(x, y);
+	}
+
+}
@@ -0,0 +1,276 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openmetromaps.maps.Edges;
+import org.openmetromaps.maps.Interval;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.ViewConfig;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.model.Coordinate;
+import org.openmetromaps.maps.model.Line;
+import org.openmetromaps.maps.model.ModelData;
+import org.openmetromaps.maps.model.Station;
+import org.openmetromaps.maps.model.Stop;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Rectangle;
+
+/**
+ * Writes a {@link MapModel} in the format described in
+ * {@link BinaryModelFormat}.
+ */
+public class BinaryModelWriter
+{
+
+	private List<String> strings = new ArrayList<>();
+	private Map<String, Integer> stringToIndex = new HashMap<>();
+
+	private Map<Station, Integer> stationToIndex = new IdentityHashMap<>();
+
+	public void write(OutputStream os, MapModel model) throws IOException
+	{
+		strings.clear();
+		stringToIndex.clear();
+		stationToIndex.clear();
+
+		ModelData data = model.getData();
+		List<MapView> views = model.getViews();
+
+		for (int i = 0; i < data.stations.size(); i++) {
+			stationToIndex.put(data.stations.get(i), i);
+		}
+		collectStrings(data, views);
+
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(os));
+
+		out.writeInt(BinaryModelFormat.MAGIC);
+		out.writeInt(BinaryModelFormat.VERSION);
+
+		writeStrings(out);
+		writeStations(out, data.stations);
+		writeLines(out, data.lines);
+		writeViews(out, views);
+
+		out.flush();
+	}
+
+	private void collectStrings(ModelData data, List<MapView> views)
+	{
+		for (Station station : data.stations) {
+			string(station.getName());
+		}
+		for (Line line : data.lines) {
+			string(line.getName());
+			string(line.getColor());
+		}
+		for (MapView view : views) {
+			string(view.getName());
+			for (Edges edges : view.getEdges()) {
+				string(edges.getLine());
+				for (Interval interval : edges.getIntervals()) {
+					string(interval.getFrom());
+					string(interval.getTo());
+				}
+			}
+		}
+	}
+
+	private int string(String string)
+	{
+		if (string == null) {
+			return BinaryModelFormat.NULL;
+		}
+		Integer index = stringToIndex.get(string);
+		if (index == null) {
+			index = strings.size();
+			strings.add(string);
+			stringToIndex.put(string, index);
+		}
+		return index;
+	}
+
+	private void writeStrings(DataOutputStream out) throws IOException
+	{
+		List<byte[]> bytes = new ArrayList<>(strings.size());
+		for (String string : strings) {
+			bytes.add(string.getBytes(StandardCharsets.UTF_8));
+		}
+
+		out.writeInt(strings.size());
+		int offset = 0;
+		out.writeInt(offset);
+		for (byte[] b : bytes) {
+			offset += b.length;
+			out.writeInt(offset);
+		}
+		for (byte[] b : bytes) {
+			out.write(b);
+		}
+	}
+
+	private void writeStations(DataOutputStream out, List<Station> stations)
+			throws IOException
+	{
+		out.writeInt(stations.size());
+		for (Station station : stations) {
+			out.writeInt(station.getId());
+			out.writeInt(string(station.getName()));
+			Coordinate location = station.getLocation();
+			if (location == null) {
+				out.writeDouble(Double.NaN);
+				out.writeDouble(Double.NaN);
+			} else {
+				out.writeDouble(location.getLongitude());
+				out.writeDouble(location.getLatitude());
+			}
+		}
+	}
+
+	private void writeLines(DataOutputStream out, List<Line> lines)
+			throws IOException
+	{
+		out.writeInt(lines.size());
+		int firstStop = 0;
+		for (Line line : lines) {
+			int numStops = line.getStops().size();
+			out.writeInt(line.getId());
+			out.writeInt(string(line.getName()));
+			out.writeInt(string(line.getColor()));
+			out.writeInt(line.isCircular() ? 1 : 0);
+			out.writeInt(firstStop);
+			out.writeInt(numStops);
+			firstStop += numStops;
+		}
+
+		out.writeInt(firstStop);
+		for (Line line : lines) {
+			for (Stop stop : line.getStops()) {
+				out.writeInt(stationToIndex.get(stop.getStation()));
+			}
+		}
+	}
+
+	private void writeViews(DataOutputStream out, List<MapView> views)
+			throws IOException
+	{
+		out.writeInt(views.size());
+		int firstEdges = 0;
+		int firstNode = 0;
+		int firstSegment = 0;
+		int numIntervals = 0;
+		for (MapView view : views) {
+			ViewConfig config = view.getConfig();
+			Rectangle scene = config.getScene();
+			LineNetwork lineNetwork = view.getLineNetwork();
+
+			out.writeInt(string(view.getName()));
+			out.writeDouble(scene.getX1());
+			out.writeDouble(scene.getY1());
+			out.writeDouble(scene.getX2());
+			out.writeDouble(scene.getY2());
+			out.writeDouble(config.getStartPosition().getX());
+			out.writeDouble(config.getStartPosition().getY());
+
+			int numEdges = view.getEdges().size();
+			int numNodes = lineNetwork.nodes.size();
+			int numSegments = lineNetwork.edges.size();
+			out.writeInt(firstEdges);
+			out.writeInt(numEdges);
+			out.writeInt(firstNode);
+			out.writeInt(numNodes);
+			out.writeInt(firstSegment);
+			out.writeInt(numSegments);
+			firstEdges += numEdges;
+			firstNode += numNodes;
+			firstSegment += numSegments;
+
+			for (Edges edges : view.getEdges()) {
+				numIntervals += edges.getIntervals().size();
+			}
+		}
+
+		out.writeInt(firstEdges);
+		int firstInterval = 0;
+		for (MapView view : views) {
+			for (Edges edges : view.getEdges()) {
+				int n = edges.getIntervals().size();
+				out.writeInt(string(edges.getLine()));
+				out.writeInt(firstInterval);
+				out.writeInt(n);
+				firstInterval += n;
+			}
+		}
+
+		out.writeInt(numIntervals);
+		for (MapView view : views) {
+			for (Edges edges : view.getEdges()) {
+				for (Interval interval : edges.getIntervals()) {
+					out.writeInt(string(interval.getFrom()));
+					out.writeInt(string(interval.getTo()));
+				}
+			}
+		}
+
+		out.writeInt(firstNode);
+		for (MapView view : views) {
+			for (Node node : view.getLineNetwork().nodes) {
+				out.writeInt(stationToIndex.get(node.station));
+				writePoint(out, node.location);
+			}
+		}
+
+		out.writeInt(firstSegment);
+		for (MapView view : views) {
+			for (Edge edge : view.getLineNetwork().edges) {
+				out.writeInt(stationToIndex.get(edge.n1.station));
+				out.writeInt(stationToIndex.get(edge.n2.station));
+				writePoint(out, edge.prev);
+				writePoint(out, edge.next);
+			}
+		}
+	}
+
+	private static void writePoint(DataOutputStream out, Point point)
+			throws IOException
+	{
+		if (point == null) {
+			out.writeDouble(Double.NaN);
+			out.writeDouble(Double.NaN);
+		} else {
+			out.writeDouble(point.x);
+			out.writeDouble(point.y);
+		}
+	}
+
+}
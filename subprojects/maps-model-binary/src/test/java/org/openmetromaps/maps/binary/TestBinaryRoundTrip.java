@@ -0,0 +1,267 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.model.Line;
+import org.openmetromaps.maps.model.Station;
+import org.openmetromaps.maps.xml.DesktopXmlModelReader;
+import org.openmetromaps.maps.xml.XmlModelConverter;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.viewports.geometry.Rectangle;
+import de.topobyte.xml.domabstraction.iface.ParsingException;
+
+/**
+ * Writing a model in the binary format and reading it back must preserve the
+ * model data and the locations of the line networks exactly, and corrupt
+ * files must be rejected.
+ */
+public class TestBinaryRoundTrip
+{
+
+	private static final Path EXAMPLE_DATA = Paths.get("../../example-data");
+
+	private static final String[] MODELS = { "berlin.xml", "wien.xml",
+			"budapest.xml", "example.xml" };
+
+	@Test
+	public void test() throws IOException, ParsingException
+	{
+		for (String name : MODELS) {
+			MapModel model = load(name);
+			byte[] bytes = write(model);
+			assertModels(name, model,
+					BinaryModelReader.read(ByteBuffer.wrap(bytes)));
+
+			Path file = Files.createTempFile("model", ".omb");
+			try {
+				Files.write(file, bytes);
+				Assert.assertTrue(name, BinaryModelReader.isBinaryModel(file));
+				assertModels(name, model, BinaryModelReader.read(file));
+			} finally {
+				Files.delete(file);
+			}
+		}
+	}
+
+	@Test
+	public void testTruncated() throws IOException, ParsingException
+	{
+		byte[] bytes = write(load("berlin.xml"));
+		for (int length : new int[] { 0, 7, bytes.length / 3,
+				bytes.length / 2, bytes.length - 1 }) {
+			assertInvalid("length " + length, Arrays.copyOf(bytes, length));
+		}
+	}
+
+	@Test
+	public void testInvalidStops() throws IOException, ParsingException
+	{
+		byte[] bytes = write(load("berlin.xml"));
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+		// skip the strings and the stations to the first line record
+		int numStrings = buffer.getInt(BinaryModelFormat.SIZE_HEADER);
+		int stringsEnd = BinaryModelFormat.SIZE_HEADER + 4
+				+ (numStrings + 1) * 4
+				+ buffer.getInt(BinaryModelFormat.SIZE_HEADER + 4
+						+ numStrings * 4);
+		int numStations = buffer.getInt(stringsEnd);
+		int firstLine = stringsEnd + 4
+				+ numStations * BinaryModelFormat.SIZE_STATION + 4;
+		int firstStop = firstLine + 16;
+		int numStops = firstLine + 20;
+
+		byte[] copy = bytes.clone();
+		ByteBuffer.wrap(copy).putInt(firstStop, 1);
+		assertInvalid("first stop", copy);
+
+		copy = bytes.clone();
+		ByteBuffer.wrap(copy).putInt(numStops, -1);
+		assertInvalid("negative number of stops", copy);
+
+		copy = bytes.clone();
+		ByteBuffer.wrap(copy).putInt(numStops,
+				buffer.getInt(numStops) + 1);
+		assertInvalid("number of stops", copy);
+	}
+
+	private static MapModel load(String name)
+			throws IOException, ParsingException
+	{
+		try (InputStream input = Files
+				.newInputStream(EXAMPLE_DATA.resolve(name))) {
+			return new XmlModelConverter()
+					.convert(DesktopXmlModelReader.read(input));
+		}
+	}
+
+	private static byte[] write(MapModel model) throws IOException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new BinaryModelWriter().write(baos, model);
+		return baos.toByteArray();
+	}
+
+	private static void assertInvalid(String message, byte[] bytes)
+	{
+		try {
+			BinaryModelReader.read(ByteBuffer.wrap(bytes));
+			Assert.fail(message + ": no exception");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private void assertModels(String name, MapModel expected,
+			MapModel actual)
+	{
+		List<Station> expectedStations = expected.getData().stations;
+		List<Station> actualStations = actual.getData().stations;
+		Assert.assertEquals(name + ": number of stations",
+				expectedStations.size(), actualStations.size());
+		for (int i = 0; i < expectedStations.size(); i++) {
+			Station e = expectedStations.get(i);
+			Station a = actualStations.get(i);
+			String message = name + ": station " + e.getName();
+			Assert.assertEquals(message, e.getId(), a.getId());
+			Assert.assertEquals(message, e.getName(), a.getName());
+			Assert.assertEquals(message, e.getLocation().getLatitude(),
+					a.getLocation().getLatitude(), 0);
+			Assert.assertEquals(message, e.getLocation().getLongitude(),
+					a.getLocation().getLongitude(), 0);
+			Assert.assertEquals(message + ": number of stops",
+					e.getStops().size(), a.getStops().size());
+		}
+
+		List<Line> expectedLines = expected.getData().lines;
+		List<Line> actualLines = actual.getData().lines;
+		Assert.assertEquals(name + ": number of lines", expectedLines.size(),
+				actualLines.size());
+		for (int i = 0; i < expectedLines.size(); i++) {
+			Line e = expectedLines.get(i);
+			Line a = actualLines.get(i);
+			String message = name + ": line " + e.getName();
+			Assert.assertEquals(message, e.getId(), a.getId());
+			Assert.assertEquals(message, e.getName(), a.getName());
+			Assert.assertEquals(message, e.getColor(), a.getColor());
+			Assert.assertEquals(message, e.isCircular(), a.isCircular());
+			Assert.assertEquals(message + ": number of stops",
+					e.getStops().size(), a.getStops().size());
+			for (int k = 0; k < e.getStops().size(); k++) {
+				Assert.assertEquals(message + ": stop #" + k,
+						e.getStops().get(k).getStation().getId(),
+						a.getStops().get(k).getStation().getId());
+			}
+		}
+
+		List<MapView> expectedViews = expected.getViews();
+		List<MapView> actualViews = actual.getViews();
+		Assert.assertEquals(name + ": number of views", expectedViews.size(),
+				actualViews.size());
+		for (int i = 0; i < expectedViews.size(); i++) {
+			assertViews(name + ": view #" + i, expectedViews.get(i),
+					actualViews.get(i));
+		}
+	}
+
+	private void assertViews(String message, MapView expected,
+			MapView actual)
+	{
+		Assert.assertEquals(message, expected.getName(), actual.getName());
+		Rectangle expectedScene = expected.getConfig().getScene();
+		Rectangle actualScene = actual.getConfig().getScene();
+		Assert.assertEquals(message, expectedScene.getX1(),
+				actualScene.getX1(), 0);
+		Assert.assertEquals(message, expectedScene.getY1(),
+				actualScene.getY1(), 0);
+		Assert.assertEquals(message, expectedScene.getX2(),
+				actualScene.getX2(), 0);
+		Assert.assertEquals(message, expectedScene.getY2(),
+				actualScene.getY2(), 0);
+		Assert.assertEquals(message,
+				expected.getConfig().getStartPosition().getX(),
+				actual.getConfig().getStartPosition().getX(), 0);
+		Assert.assertEquals(message,
+				expected.getConfig().getStartPosition().getY(),
+				actual.getConfig().getStartPosition().getY(), 0);
+		Assert.assertEquals(message + ": number of edges definitions",
+				expected.getEdges().size(), actual.getEdges().size());
+
+		LineNetwork e = expected.getLineNetwork();
+		LineNetwork a = actual.getLineNetwork();
+		Assert.assertEquals(message + ": number of nodes", e.nodes.size(),
+				a.nodes.size());
+		Map<Integer, Node> idToNode = new HashMap<>();
+		for (Node node : a.nodes) {
+			idToNode.put(node.station.getId(), node);
+		}
+		for (Node node : e.nodes) {
+			Node other = idToNode.get(node.station.getId());
+			String nodeMessage = message + ": node " + node.station.getName();
+			Assert.assertNotNull(nodeMessage, other);
+			assertPoints(nodeMessage, node.location, other.location);
+		}
+
+		Assert.assertEquals(message + ": number of edges", e.edges.size(),
+				a.edges.size());
+		for (int i = 0; i < e.edges.size(); i++) {
+			Edge edge = e.edges.get(i);
+			Edge other = a.edges.get(i);
+			String edgeMessage = message + ": edge #" + i;
+			Assert.assertEquals(edgeMessage, edge.n1.station.getId(),
+					other.n1.station.getId());
+			Assert.assertEquals(edgeMessage, edge.n2.station.getId(),
+					other.n2.station.getId());
+			assertPoints(edgeMessage + ": prev", edge.prev, other.prev);
+			assertPoints(edgeMessage + ": next", edge.next, other.next);
+		}
+	}
+
+	private static void assertPoints(String message, Point expected,
+			Point actual)
+	{
+		if (expected == null) {
+			Assert.assertNull(message, actual);
+			return;
+		}
+		Assert.assertNotNull(message, actual);
+		Assert.assertEquals(message, expected.x, actual.x, 0);
+		Assert.assertEquals(message, expected.y, actual.y, 0);
+	}
+
+}
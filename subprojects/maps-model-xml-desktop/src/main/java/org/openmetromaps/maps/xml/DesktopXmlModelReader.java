@@ -26,6 +26,14 @@ public class DesktopXmlModelReader
 {
 
 	public static XmlModel read(InputStream is) throws ParsingException
+	{
+		return StaxXmlModelReader.read(is);
+	}
+
+	/**
+	 * Read the model through a DOM representation of the whole document.
+	 */
+	public static XmlModel readDom(InputStream is) throws ParsingException
 	{
 		return XmlModelReader.read(new DesktopDocumentFactory(), is);
 	}
@@ -0,0 +1,310 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.xml;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openmetromaps.maps.model.Coordinate;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.xml.domabstraction.iface.ParsingException;
+
+/**
+ * A reader for OMM files that produces the same {@link XmlModel} as
+ * {@link XmlModelReader}, but reads the document in a single pass with a
+ * streaming pull parser instead of building a DOM first.
+ *
+ * Stops are resolved against stations through hash maps once the whole
+ * document has been read, so that the order of the stations and lines
+ * sections does not matter.
+ */
+public class StaxXmlModelReader
+{
+
+	public static XmlModel read(InputStream is) throws ParsingException
+	{
+		StaxXmlModelReader reader = new StaxXmlModelReader();
+		return reader.readModel(is);
+	}
+
+	private static class StopRef
+	{
+
+		private XmlLine line;
+		private int id;
+		private String name;
+
+		private StopRef(XmlLine line, int id, String name)
+		{
+			this.line = line;
+			this.id = id;
+			this.name = name;
+		}
+
+	}
+
+	private String version;
+	private List<XmlStation> xmlStations = new ArrayList<>();
+	private List<XmlLine> xmlLines = new ArrayList<>();
+	private List<XmlView> xmlViews = new ArrayList<>();
+
+	private Map<Integer, XmlStation> idToStation = new HashMap<>();
+	private Map<String, XmlStation> nameToStation = new HashMap<>();
+
+	private List<StopRef> stopRefs = new ArrayList<>();
+
+	private boolean seenOmmFile = false;
+	private boolean seenStations = false;
+	private boolean seenLines = false;
+
+	private boolean inStations = false;
+	private boolean inLines = false;
+	private XmlLine currentLine = null;
+	private XmlView currentView = null;
+	private XmlEdges currentEdges = null;
+
+	private StaxXmlModelReader()
+	{
+		// private constructor
+	}
+
+	private XmlModel readModel(InputStream is) throws ParsingException
+	{
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+				false);
+
+		XMLStreamReader reader = null;
+		try {
+			reader = factory.createXMLStreamReader(is);
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					startElement(reader);
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					endElement(reader.getLocalName());
+				}
+			}
+		} catch (XMLStreamException | NumberFormatException e) {
+			throw new ParsingException("Error while parsing document", e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					// ignore
+				}
+			}
+		}
+
+		if (!seenOmmFile) {
+			throw new ParsingException("No omm-file element found");
+		}
+
+		resolveStops();
+
+		return new XmlModel(version, xmlStations, xmlLines, xmlViews);
+	}
+
+	private void startElement(XMLStreamReader reader)
+	{
+		String name = reader.getLocalName();
+		switch (name) {
+		case "omm-file":
+			if (!seenOmmFile) {
+				seenOmmFile = true;
+				version = attribute(reader, "version");
+			}
+			break;
+		case "stations":
+			if (!seenStations) {
+				seenStations = true;
+				inStations = true;
+			}
+			break;
+		case "station":
+			if (currentView != null) {
+				currentView.getStations().add(parseViewStation(reader));
+			} else if (inStations) {
+				parseStation(reader);
+			}
+			break;
+		case "lines":
+			if (!seenLines) {
+				seenLines = true;
+				inLines = true;
+			}
+			break;
+		case "line":
+			if (inLines) {
+				parseLine(reader);
+			}
+			break;
+		case "stop":
+			if (currentLine != null) {
+				parseStop(reader);
+			}
+			break;
+		case "view":
+			currentView = parseView(reader);
+			xmlViews.add(currentView);
+			break;
+		case "edges":
+			if (currentView != null) {
+				currentEdges = new XmlEdges(attribute(reader, "line"));
+				currentView.getEdges().add(currentEdges);
+			}
+			break;
+		case "interval":
+			if (currentEdges != null) {
+				currentEdges.addInterval(new XmlInterval(
+						attribute(reader, "from"), attribute(reader, "to")));
+			}
+			break;
+		}
+	}
+
+	private void endElement(String name)
+	{
+		switch (name) {
+		case "stations":
+			inStations = false;
+			break;
+		case "lines":
+			inLines = false;
+			break;
+		case "line":
+			currentLine = null;
+			break;
+		case "view":
+			currentView = null;
+			break;
+		case "edges":
+			currentEdges = null;
+			break;
+		}
+	}
+
+	private void parseStation(XMLStreamReader reader)
+	{
+		String valId = reader.getAttributeValue(null, "id");
+		int stationId = valId != null ? Integer.parseInt(valId)
+				: xmlStations.size();
+		String stationName = attribute(reader, "name");
+		double lon = Double.parseDouble(attribute(reader, "lon"));
+		double lat = Double.parseDouble(attribute(reader, "lat"));
+
+		XmlStation station = new XmlStation(stationId, stationName,
+				new Coordinate(lon, lat));
+		xmlStations.add(station);
+
+		idToStation.put(stationId, station);
+		// stops referring to a name use the first station with that name
+		nameToStation.putIfAbsent(stationName, station);
+	}
+
+	private void parseLine(XMLStreamReader reader)
+	{
+		String valId = reader.getAttributeValue(null, "id");
+		int lineId = valId != null ? Integer.parseInt(valId) : xmlLines.size();
+		String lineName = attribute(reader, "name");
+		String color = attribute(reader, "color");
+		String circular = attribute(reader, "circular");
+
+		boolean isCircular = circular.equals("true");
+
+		currentLine = new XmlLine(lineId, lineName, color, isCircular,
+				new ArrayList<>());
+		xmlLines.add(currentLine);
+	}
+
+	private void parseStop(XMLStreamReader reader)
+	{
+		String valId = reader.getAttributeValue(null, "id");
+		if (valId != null) {
+			stopRefs.add(new StopRef(currentLine, Integer.parseInt(valId),
+					null));
+		} else {
+			stopRefs.add(new StopRef(currentLine, -1,
+					attribute(reader, "station")));
+		}
+	}
+
+	private void resolveStops() throws ParsingException
+	{
+		for (StopRef ref : stopRefs) {
+			XmlStation station;
+			if (ref.name == null) {
+				station = idToStation.get(ref.id);
+			} else {
+				station = nameToStation.get(ref.name);
+				if (station == null) {
+					throw new ParsingException(
+							"Unknown station for stop: " + ref.name);
+				}
+			}
+			ref.line.getStops().add(station);
+		}
+		stopRefs.clear();
+	}
+
+	private XmlView parseView(XMLStreamReader reader)
+	{
+		String viewName = attribute(reader, "name");
+
+		double sceneWidth = Double
+				.parseDouble(attribute(reader, "scene-width"));
+		double sceneHeight = Double
+				.parseDouble(attribute(reader, "scene-height"));
+
+		double startX = Double.parseDouble(attribute(reader, "start-x"));
+		double startY = Double.parseDouble(attribute(reader, "start-y"));
+
+		return new XmlView(viewName, sceneWidth, sceneHeight, startX, startY);
+	}
+
+	private XmlViewStation parseViewStation(XMLStreamReader reader)
+	{
+		String stationName = attribute(reader, "name");
+		double x = Double.parseDouble(attribute(reader, "x"));
+		double y = Double.parseDouble(attribute(reader, "y"));
+
+		return new XmlViewStation(stationName, new Point(x, y));
+	}
+
+	/**
+	 * Get the value of an attribute or the empty string if the element has no
+	 * such attribute, just like the DOM does.
+	 */
+	private static String attribute(XMLStreamReader reader, String name)
+	{
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? "" : value;
+	}
+
+}
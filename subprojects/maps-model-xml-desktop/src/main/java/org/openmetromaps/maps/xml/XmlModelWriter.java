@@ -17,15 +17,19 @@
 
 package org.openmetromaps.maps.xml;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.openmetromaps.maps.Edges;
@@ -40,133 +44,367 @@ import org.openmetromaps.maps.model.Line;
 import org.openmetromaps.maps.model.ModelData;
 import org.openmetromaps.maps.model.Station;
 import org.openmetromaps.maps.model.Stop;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
-import de.topobyte.formatting.DoubleFormatter;
 import de.topobyte.lightgeom.lina.Point;
-import de.topobyte.xml4jah.dom.DocumentWriter;
 
+/**
+ * Writes models in the OMM XML format.
+ *
+ * The document is streamed to the output without building a DOM first. The
+ * output is formatted like the serialization of a DOM with an indentation of
+ * two spaces: attributes are sorted by name, elements without children are
+ * written as empty element tags and numbers are written with six fraction
+ * digits. Stations and lines are written sorted by name without modifying the
+ * lists of the model.
+ */
 public class XmlModelWriter
 {
 
+	private static final int FRACTION_DIGITS = 6;
+	private static final double FRACTION_SCALE = 1e6;
+	// magnitude up to which scaled values stay exact enough for rounding
+	private static final double MAX_FAST_FORMAT = 1e9;
+
+	private Writer out;
+	private char[] digits = new char[32];
+
+	/**
+	 * Write the model to the specified stream. The stream is flushed but not
+	 * closed.
+	 *
+	 * @throws ParserConfigurationException
+	 *             is not thrown anymore since no DOM is created, but kept for
+	 *             compatibility with existing callers.
+	 */
 	public void write(OutputStream os, ModelData data, List<MapView> views)
 			throws ParserConfigurationException, IOException
 	{
-		// Create document
+		out = new BufferedWriter(
+				new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 16);
 
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder builder = factory.newDocumentBuilder();
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
 
-		Document doc = builder.newDocument();
+		start(0, "omm-file");
+		attribute("version", "1.0.0");
+		closeStart();
 
-		// Add data to document
+		List<Station> stations = new ArrayList<>(data.stations);
+		List<Line> lines = new ArrayList<>(data.lines);
+		MapModelUtil.sortStationsByName(stations);
+		MapModelUtil.sortLinesByName(lines);
 
-		Element eMain = doc.createElement("omm-file");
-		eMain.setAttribute("version", "1.0.0");
+		writeStations(stations);
+		writeLines(lines);
 
-		Element eStations = doc.createElement("stations");
-		Element eLines = doc.createElement("lines");
-
-		doc.appendChild(eMain);
-		eMain.appendChild(eStations);
-		eMain.appendChild(eLines);
+		for (MapView view : views) {
+			writeView(view);
+		}
 
-		MapModelUtil.sortStationsByName(data.stations);
-		MapModelUtil.sortLinesByName(data.lines);
+		end(0, "omm-file");
 
-		DoubleFormatter df = new DoubleFormatter();
-		df.setFractionDigits(6);
+		out.flush();
+		out = null;
+	}
 
-		for (Station station : data.stations) {
-			Element eStation = doc.createElement("station");
-			eStations.appendChild(eStation);
+	private void writeStations(List<Station> stations) throws IOException
+	{
+		start(1, "stations");
+		if (stations.isEmpty()) {
+			closeEmpty();
+			return;
+		}
+		closeStart();
 
+		for (Station station : stations) {
 			Coordinate location = station.getLocation();
 
-			eStation.setAttribute("id", Integer.toString(station.getId()));
-			eStation.setAttribute("name", station.getName());
-			eStation.setAttribute("lon", df.format(location.getLongitude()));
-			eStation.setAttribute("lat", df.format(location.getLatitude()));
+			start(2, "station");
+			attribute("id", station.getId());
+			attribute("lat", location.getLatitude());
+			attribute("lon", location.getLongitude());
+			attribute("name", station.getName());
+			closeEmpty();
 		}
 
-		for (Line line : data.lines) {
-			Element eLine = doc.createElement("line");
-			eLines.appendChild(eLine);
-
-			eLine.setAttribute("id", Integer.toString(line.getId()));
-			eLine.setAttribute("name", line.getName());
-			eLine.setAttribute("color", line.getColor());
-			eLine.setAttribute("circular", Boolean.toString(line.isCircular()));
+		end(1, "stations");
+	}
 
-			for (Stop stop : line.getStops()) {
-				Element eStop = doc.createElement("stop");
-				eLine.appendChild(eStop);
+	private void writeLines(List<Line> lines) throws IOException
+	{
+		start(1, "lines");
+		if (lines.isEmpty()) {
+			closeEmpty();
+			return;
+		}
+		closeStart();
+
+		for (Line line : lines) {
+			start(2, "line");
+			attribute("circular", Boolean.toString(line.isCircular()));
+			attribute("color", line.getColor());
+			attribute("id", line.getId());
+			attribute("name", line.getName());
+
+			List<Stop> stops = line.getStops();
+			if (stops.isEmpty()) {
+				closeEmpty();
+				continue;
+			}
+			closeStart();
 
-				eStop.setAttribute("id", Integer.toString(stop.getStation().getId()));
-				eStop.setAttribute("station", stop.getStation().getName());
+			for (Stop stop : stops) {
+				start(3, "stop");
+				attribute("id", stop.getStation().getId());
+				attribute("station", stop.getStation().getName());
+				closeEmpty();
 			}
+
+			end(2, "line");
 		}
 
-		for (MapView view : views) {
-			Element eView = doc.createElement("view");
-			eMain.appendChild(eView);
-
-			ViewConfig config = view.getConfig();
-			eView.setAttribute("name", view.getName());
-			eView.setAttribute("scene-width",
-					df.format(config.getScene().getWidth()));
-			eView.setAttribute("scene-height",
-					df.format(config.getScene().getHeight()));
-			eView.setAttribute("start-x",
-					df.format(config.getStartPosition().getX()));
-			eView.setAttribute("start-y",
-					df.format(config.getStartPosition().getY()));
-
-			LineNetwork lineNetwork = view.getLineNetwork();
-			List<Node> nodes = new ArrayList<>(lineNetwork.getNodes());
-			Collections.sort(nodes, new Comparator<Node>() {
-
-				@Override
-				public int compare(Node o1, Node o2)
-				{
-					return o1.station.getName().compareTo(o2.station.getName());
-				}
+		end(1, "lines");
+	}
 
-			});
+	private void writeView(MapView view) throws IOException
+	{
+		ViewConfig config = view.getConfig();
+
+		start(1, "view");
+		attribute("name", view.getName());
+		attribute("scene-height", config.getScene().getHeight());
+		attribute("scene-width", config.getScene().getWidth());
+		attribute("start-x", config.getStartPosition().getX());
+		attribute("start-y", config.getStartPosition().getY());
+
+		LineNetwork lineNetwork = view.getLineNetwork();
+		List<Node> nodes = new ArrayList<>(lineNetwork.getNodes());
+		Collections.sort(nodes, new Comparator<Node>() {
+
+			@Override
+			public int compare(Node o1, Node o2)
+			{
+				return o1.station.getName().compareTo(o2.station.getName());
+			}
 
-			List<Edges> edgesDefs = view.getEdges();
-			for (Edges edgesDef : edgesDefs) {
-				Element eEdges = doc.createElement("edges");
-				eView.appendChild(eEdges);
-				eEdges.setAttribute("line", edgesDef.getLine());
+		});
 
-				for (Interval interval : edgesDef.getIntervals()) {
-					Element eInterval = doc.createElement("interval");
-					eEdges.appendChild(eInterval);
-					eInterval.setAttribute("from", interval.getFrom());
-					eInterval.setAttribute("to", interval.getTo());
-				}
+		List<Edges> edgesDefs = view.getEdges();
+		if (edgesDefs.isEmpty() && nodes.isEmpty()) {
+			closeEmpty();
+			return;
+		}
+		closeStart();
+
+		for (Edges edgesDef : edgesDefs) {
+			start(2, "edges");
+			attribute("line", edgesDef.getLine());
+
+			List<Interval> intervals = edgesDef.getIntervals();
+			if (intervals.isEmpty()) {
+				closeEmpty();
+				continue;
 			}
+			closeStart();
 
-			for (Node node : nodes) {
-				Station station = node.station;
+			for (Interval interval : intervals) {
+				start(3, "interval");
+				attribute("from", interval.getFrom());
+				attribute("to", interval.getTo());
+				closeEmpty();
+			}
 
-				Element eStation = doc.createElement("station");
-				eView.appendChild(eStation);
+			end(2, "edges");
+		}
 
-				Point location = node.location;
+		for (Node node : nodes) {
+			Point location = node.location;
 
-				eStation.setAttribute("name", station.getName());
-				eStation.setAttribute("x", df.format(location.getX()));
-				eStation.setAttribute("y", df.format(location.getY()));
-			}
+			start(2, "station");
+			attribute("name", node.station.getName());
+			attribute("x", location.getX());
+			attribute("y", location.getY());
+			closeEmpty();
+		}
+
+		end(1, "view");
+	}
+
+	private void indent(int level) throws IOException
+	{
+		for (int i = 0; i < level; i++) {
+			out.write("  ");
 		}
+	}
 
-		// Write document
+	private void start(int level, String name) throws IOException
+	{
+		indent(level);
+		out.write('<');
+		out.write(name);
+	}
 
-		DocumentWriter writer = new DocumentWriter();
-		writer.write(doc, os);
+	private void closeStart() throws IOException
+	{
+		out.write(">\n");
+	}
+
+	private void closeEmpty() throws IOException
+	{
+		out.write("/>\n");
+	}
+
+	private void end(int level, String name) throws IOException
+	{
+		indent(level);
+		out.write("</");
+		out.write(name);
+		out.write(">\n");
+	}
+
+	private void attribute(String name, String value) throws IOException
+	{
+		out.write(' ');
+		out.write(name);
+		out.write("=\"");
+		escape(value);
+		out.write('"');
+	}
+
+	private void attribute(String name, int value) throws IOException
+	{
+		out.write(' ');
+		out.write(name);
+		out.write("=\"");
+		int pos = digits.length;
+		long v = Math.abs((long) value);
+		do {
+			digits[--pos] = (char) ('0' + v % 10);
+			v /= 10;
+		} while (v != 0);
+		if (value < 0) {
+			digits[--pos] = '-';
+		}
+		out.write(digits, pos, digits.length - pos);
+		out.write('"');
+	}
+
+	private void attribute(String name, double value) throws IOException
+	{
+		out.write(' ');
+		out.write(name);
+		out.write("=\"");
+		format(value);
+		out.write('"');
+	}
+
+	/**
+	 * Write the value with six fraction digits, rounding half up, without
+	 * creating any objects for values of a reasonable magnitude.
+	 */
+	private void format(double value) throws IOException
+	{
+		double abs = Math.abs(value);
+		if (!(abs < MAX_FAST_FORMAT)) {
+			formatExact(value);
+			return;
+		}
+
+		double scaled = abs * FRACTION_SCALE;
+		long rounded = (long) Math.floor(scaled);
+		double remainder = scaled - rounded;
+		if (Math.abs(remainder - 0.5) < 1e-6 + 4 * Math.ulp(scaled)) {
+			// too close to a tie to decide on the scaled value
+			formatExact(value);
+			return;
+		}
+		if (remainder > 0.5) {
+			rounded++;
+		}
+
+		int pos = digits.length;
+		for (int i = 0; i < FRACTION_DIGITS; i++) {
+			digits[--pos] = (char) ('0' + rounded % 10);
+			rounded /= 10;
+		}
+		digits[--pos] = '.';
+		do {
+			digits[--pos] = (char) ('0' + rounded % 10);
+			rounded /= 10;
+		} while (rounded != 0);
+		// negative values that round to zero and negative zero keep their
+		// sign, like with String.format()
+		if (isNegative(value)) {
+			digits[--pos] = '-';
+		}
+		out.write(digits, pos, digits.length - pos);
+	}
+
+	private void formatExact(double value) throws IOException
+	{
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			out.write(Double.toString(value));
+			return;
+		}
+		// round the shortest decimal representation, like String.format()
+		BigDecimal decimal = new BigDecimal(Double.toString(value))
+				.setScale(FRACTION_DIGITS, RoundingMode.HALF_UP);
+		if (isNegative(value) && decimal.signum() == 0) {
+			out.write('-');
+		}
+		out.write(decimal.toPlainString());
+	}
+
+	private static boolean isNegative(double value)
+	{
+		return Double.doubleToRawLongBits(value) < 0;
+	}
+
+	private void escape(String value) throws IOException
+	{
+		final int length = value.length();
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '&':
+				out.write("&amp;");
+				break;
+			case '<':
+				out.write("&lt;");
+				break;
+			case '>':
+				out.write("&gt;");
+				break;
+			case '"':
+				out.write("&quot;");
+				break;
+			case '\t':
+				out.write("&#9;");
+				break;
+			case '\n':
+				out.write("&#10;");
+				break;
+			case '\r':
+				out.write("&#13;");
+				break;
+			default:
+				if (Character.isHighSurrogate(c) && i + 1 < length
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					out.write("&#");
+					out.write(Integer.toString(
+							Character.toCodePoint(c, value.charAt(i + 1))));
+					out.write(';');
+					i++;
+				} else if (Character.isSurrogate(c)) {
+					// unpaired surrogates are dropped
+				} else if (c < 0x20 || c == 0xFFFE || c == 0xFFFF) {
+					throw new IOException(String.format(
+							"Invalid XML character (Unicode: 0x%x)",
+							(int) c));
+				} else {
+					out.write(c);
+				}
+			}
+		}
 	}
 
 }
@@ -0,0 +1,235 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.graph;
+
+import java.util.List;
+
+/**
+ * A primitive array representation of the topology of a {@link LineNetwork}.
+ *
+ * Nodes, edges and lines are referred to by their dense ids. The edges of a
+ * node and the lines of an edge are stored in compressed sparse row layout:
+ * the entries of element {@code i} are located at positions
+ * {@code offsets[i]} (inclusive) to {@code offsets[i + 1]} (exclusive) of the
+ * corresponding value array. For each line of an edge, the ids of the
+ * previous and next node along that line are stored in parallel arrays.
+ *
+ * The object graph stays the primary API; this structure is derived from it
+ * once the topology is complete and maps ids back to the objects. At the
+ * moment only the computation of the neighbor locations of edges uses it
+ * (see {@code LineNetworkUtil.calculateAllNeighborLocations()}), everything
+ * else still works on the object graph.
+ */
+public class CompactLineNetwork
+{
+
+	private Node[] nodes;
+	private Edge[] edges;
+	private NetworkLine[] lines;
+
+	private int[] edgeNode1;
+	private int[] edgeNode2;
+
+	private int[] nodeEdgeOffsets;
+	private int[] nodeEdges;
+
+	private int[] edgeLineOffsets;
+	private int[] edgeLines;
+	private int[] edgeLinePrevs;
+	private int[] edgeLineNexts;
+
+	/**
+	 * Create the array representation of the specified network. All nodes,
+	 * edges and lines need to have dense ids assigned.
+	 */
+	public CompactLineNetwork(LineNetwork lineNetwork)
+	{
+		List<Node> nodeList = lineNetwork.nodes;
+		List<Edge> edgeList = lineNetwork.edges;
+
+		nodes = new Node[nodeList.size()];
+		for (Node node : nodeList) {
+			nodes[node.id] = node;
+		}
+		edges = new Edge[edgeList.size()];
+		for (Edge edge : edgeList) {
+			edges[edge.id] = edge;
+		}
+		int nLines = 0;
+		for (NetworkLine line : lineNetwork.lines) {
+			nLines = Math.max(nLines, line.id + 1);
+		}
+		lines = new NetworkLine[nLines];
+		for (NetworkLine line : lineNetwork.lines) {
+			lines[line.id] = line;
+		}
+
+		final int nNodes = nodes.length;
+		final int nEdges = edges.length;
+
+		edgeNode1 = new int[nEdges];
+		edgeNode2 = new int[nEdges];
+		edgeLineOffsets = new int[nEdges + 1];
+		for (int i = 0; i < nEdges; i++) {
+			Edge edge = edges[i];
+			edgeNode1[i] = edge.n1.id;
+			edgeNode2[i] = edge.n2.id;
+			edgeLineOffsets[i + 1] = edgeLineOffsets[i] + edge.lines.size();
+		}
+
+		edgeLines = new int[edgeLineOffsets[nEdges]];
+		edgeLinePrevs = new int[edgeLines.length];
+		edgeLineNexts = new int[edgeLines.length];
+		for (int i = 0; i < nEdges; i++) {
+			Edge edge = edges[i];
+			int k = edgeLineOffsets[i];
+			for (NetworkLine line : edge.lines) {
+				edgeLines[k] = line.id;
+				NeighborInfo neighbors = line.getNeighbors(edge);
+				edgeLinePrevs[k] = id(neighbors == null ? null : neighbors.prev);
+				edgeLineNexts[k] = id(neighbors == null ? null : neighbors.next);
+				k++;
+			}
+		}
+
+		nodeEdgeOffsets = new int[nNodes + 1];
+		for (int i = 0; i < nNodes; i++) {
+			nodeEdgeOffsets[i + 1] = nodeEdgeOffsets[i]
+					+ nodes[i].edges.size();
+		}
+		nodeEdges = new int[nodeEdgeOffsets[nNodes]];
+		for (int i = 0; i < nNodes; i++) {
+			int k = nodeEdgeOffsets[i];
+			for (Edge edge : nodes[i].edges) {
+				nodeEdges[k++] = edge.id;
+			}
+		}
+	}
+
+	private static int id(Node node)
+	{
+		return node == null ? -1 : node.id;
+	}
+
+	public int getNumNodes()
+	{
+		return nodes.length;
+	}
+
+	public int getNumEdges()
+	{
+		return edges.length;
+	}
+
+	public int getNumLines()
+	{
+		return lines.length;
+	}
+
+	public Node getNode(int id)
+	{
+		return nodes[id];
+	}
+
+	public Edge getEdge(int id)
+	{
+		return edges[id];
+	}
+
+	public NetworkLine getLine(int id)
+	{
+		return lines[id];
+	}
+
+	public int getNode1(int edge)
+	{
+		return edgeNode1[edge];
+	}
+
+	public int getNode2(int edge)
+	{
+		return edgeNode2[edge];
+	}
+
+	public int[] getNodeEdgeOffsets()
+	{
+		return nodeEdgeOffsets;
+	}
+
+	/**
+	 * Get the ids of the edges of all nodes in the layout described by
+	 * {@link #getNodeEdgeOffsets()}.
+	 */
+	public int[] getNodeEdges()
+	{
+		return nodeEdges;
+	}
+
+	public int[] getEdgeLineOffsets()
+	{
+		return edgeLineOffsets;
+	}
+
+	/**
+	 * Get the ids of the lines of all edges in the layout described by
+	 * {@link #getEdgeLineOffsets()}.
+	 */
+	public int[] getEdgeLines()
+	{
+		return edgeLines;
+	}
+
+	/**
+	 * Get the ids of the previous nodes for each entry of
+	 * {@link #getEdgeLines()}, -1 where a line has no previous node.
+	 */
+	public int[] getEdgeLinePrevs()
+	{
+		return edgeLinePrevs;
+	}
+
+	/**
+	 * Get the ids of the next nodes for each entry of
+	 * {@link #getEdgeLines()}, -1 where a line has no next node.
+	 */
+	public int[] getEdgeLineNexts()
+	{
+		return edgeLineNexts;
+	}
+
+	public int getDegree(int node)
+	{
+		return nodeEdgeOffsets[node + 1] - nodeEdgeOffsets[node];
+	}
+
+	public int getNodeEdge(int node, int k)
+	{
+		return nodeEdges[nodeEdgeOffsets[node] + k];
+	}
+
+	public int getNumEdgeLines(int edge)
+	{
+		return edgeLineOffsets[edge + 1] - edgeLineOffsets[edge];
+	}
+
+	public int getEdgeLine(int edge, int k)
+	{
+		return edgeLines[edgeLineOffsets[edge] + k];
+	}
+
+}
@@ -35,6 +35,13 @@ public class Edge
 		}
 	};
 
+	// dense index within the network, assigned by the network builder
+	public int id = -1;
+
+	// incremented whenever the locations that the geometry of the edge is
+	// derived from may have changed, used to invalidate cached geometry
+	public int revision = 0;
+
 	public Node n1;
 	public Node n2;
 
@@ -0,0 +1,97 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.graph;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive int values, used to collect query results
+ * without boxing.
+ */
+public class IntList
+{
+
+	private int[] values;
+	private int size = 0;
+
+	public IntList()
+	{
+		this(16);
+	}
+
+	public IntList(int capacity)
+	{
+		values = new int[Math.max(1, capacity)];
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public int get(int index)
+	{
+		if (index >= size) {
+			throw new IndexOutOfBoundsException(
+					"Index: " + index + ", size: " + size);
+		}
+		return values[index];
+	}
+
+	public void add(int value)
+	{
+		if (size == values.length) {
+			values = Arrays.copyOf(values, values.length * 2);
+		}
+		values[size++] = value;
+	}
+
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Sort the values in ascending order and remove duplicates.
+	 */
+	public void sortUnique()
+	{
+		if (size < 2) {
+			return;
+		}
+		Arrays.sort(values, 0, size);
+		int n = 1;
+		for (int i = 1; i < size; i++) {
+			if (values[i] != values[n - 1]) {
+				values[n++] = values[i];
+			}
+		}
+		size = n;
+	}
+
+	public int[] toArray()
+	{
+		return Arrays.copyOf(values, size);
+	}
+
+}
@@ -32,6 +32,9 @@ public class LineNetwork
 
 	private Map<Station, Node> stationToNode;
 
+	private CompactLineNetwork compact;
+	private LineNetworkIndex index;
+
 	public List<Node> getNodes()
 	{
 		return nodes;
@@ -57,4 +60,41 @@ public class LineNetwork
 		this.stationToNode = stationToNode;
 	}
 
+	/**
+	 * Get the array representation of this network's topology, or null if it
+	 * has not been created for this network.
+	 */
+	public CompactLineNetwork getCompact()
+	{
+		return compact;
+	}
+
+	public void setCompact(CompactLineNetwork compact)
+	{
+		this.compact = compact;
+	}
+
+	/**
+	 * Get the spatial index of this network. The index is created on first
+	 * access and reflects the nodes and edges present at that time.
+	 */
+	public synchronized LineNetworkIndex getIndex()
+	{
+		if (index == null) {
+			index = new LineNetworkIndex(this);
+		}
+		return index;
+	}
+
+	/**
+	 * Notify the spatial index, if one has been created, that the location of
+	 * the specified node has changed.
+	 */
+	public synchronized void updateIndex(Node node)
+	{
+		if (index != null) {
+			index.update(node);
+		}
+	}
+
 }
@@ -0,0 +1,487 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.graph;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.topobyte.lightgeom.lina.Point;
+
+/**
+ * A uniform grid over the nodes and edges of a {@link LineNetwork} that allows
+ * to find the elements within a rectangular region without visiting every
+ * element of the network.
+ *
+ * Query results are ordinals, i.e. positions of nodes and edges in the lists
+ * of the network at the time the index has been created. They are reported in
+ * ascending order so that callers can preserve the drawing order of the
+ * network.
+ *
+ * Nodes are indexed by their location, edges by the bounding box of their end
+ * nodes, enlarged to account for curved rendering. When a node is moved,
+ * {@link #update(Node)} needs to be called to relocate the node and its
+ * edges.
+ */
+public class LineNetworkIndex
+{
+
+	// Fraction of an edge's extent by which its box is enlarged to include
+	// the bulge of curved segments
+	private static final double EDGE_PADDING = 0.35;
+
+	private Map<Node, Integer> nodeOrdinals = new IdentityHashMap<>();
+	private Map<Edge, Integer> edgeOrdinals = new IdentityHashMap<>();
+
+	private Node[] nodes;
+	private Edge[] edges;
+
+	private double[] nodeX;
+	private double[] nodeY;
+
+	private double[] edgeMinX;
+	private double[] edgeMinY;
+	private double[] edgeMaxX;
+	private double[] edgeMaxY;
+
+	private double minX, minY;
+	private double cellWidth, cellHeight;
+	private int cellsX, cellsY;
+
+	private int[][] nodeCells;
+	private int[] nodeCellSizes;
+	private int[][] edgeCells;
+	private int[] edgeCellSizes;
+
+	private int revision = 0;
+
+	public LineNetworkIndex(LineNetwork lineNetwork)
+	{
+		List<Node> nodeList = lineNetwork.getNodes();
+		List<Edge> edgeList = lineNetwork.getEdges();
+		nodes = nodeList.toArray(new Node[0]);
+		edges = edgeList.toArray(new Edge[0]);
+
+		nodeX = new double[nodes.length];
+		nodeY = new double[nodes.length];
+		edgeMinX = new double[edges.length];
+		edgeMinY = new double[edges.length];
+		edgeMaxX = new double[edges.length];
+		edgeMaxY = new double[edges.length];
+
+		double maxX, maxY;
+		minX = minY = Double.POSITIVE_INFINITY;
+		maxX = maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < nodes.length; i++) {
+			Point location = nodes[i].location;
+			nodeOrdinals.put(nodes[i], i);
+			minX = Math.min(minX, location.x);
+			minY = Math.min(minY, location.y);
+			maxX = Math.max(maxX, location.x);
+			maxY = Math.max(maxY, location.y);
+		}
+		if (nodes.length == 0) {
+			minX = minY = 0;
+			maxX = maxY = 1;
+		}
+
+		// aim for about one node per cell
+		int cells = Math.max(1, (int) Math.sqrt(nodes.length));
+		cellsX = cells;
+		cellsY = cells;
+		cellWidth = (maxX - minX) / cellsX;
+		cellHeight = (maxY - minY) / cellsY;
+		if (cellWidth <= 0) {
+			cellWidth = 1;
+		}
+		if (cellHeight <= 0) {
+			cellHeight = 1;
+		}
+
+		nodeCells = new int[cellsX * cellsY][];
+		nodeCellSizes = new int[cellsX * cellsY];
+		edgeCells = new int[cellsX * cellsY][];
+		edgeCellSizes = new int[cellsX * cellsY];
+
+		for (int i = 0; i < nodes.length; i++) {
+			insertNode(i);
+		}
+		for (int i = 0; i < edges.length; i++) {
+			edgeOrdinals.put(edges[i], i);
+			insertEdge(i);
+		}
+	}
+
+	public int getNumNodes()
+	{
+		return nodes.length;
+	}
+
+	public int getNumEdges()
+	{
+		return edges.length;
+	}
+
+	public Node getNode(int ordinal)
+	{
+		return nodes[ordinal];
+	}
+
+	public Edge getEdge(int ordinal)
+	{
+		return edges[ordinal];
+	}
+
+	/**
+	 * Get the ordinal of the specified node or -1 if it is not indexed.
+	 */
+	public int getOrdinal(Node node)
+	{
+		Integer ordinal = nodeOrdinals.get(node);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	/**
+	 * Get the ordinal of the specified edge or -1 if it is not indexed.
+	 */
+	public int getOrdinal(Edge edge)
+	{
+		Integer ordinal = edgeOrdinals.get(edge);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	/**
+	 * Get a counter that is incremented whenever a node is updated, which
+	 * allows to detect whether results derived from node locations are
+	 * outdated.
+	 */
+	public int getRevision()
+	{
+		return revision;
+	}
+
+	/**
+	 * Update the index after the location of the specified node has changed.
+	 * This relocates the node itself and all of its edges.
+	 */
+	public void update(Node node)
+	{
+		int ordinal = getOrdinal(node);
+		if (ordinal < 0) {
+			return;
+		}
+		revision++;
+		removeNode(ordinal);
+		insertNode(ordinal);
+		for (Edge edge : node.edges) {
+			int edgeOrdinal = getOrdinal(edge);
+			if (edgeOrdinal < 0) {
+				continue;
+			}
+			removeEdge(edgeOrdinal);
+			insertEdge(edgeOrdinal);
+		}
+	}
+
+	/**
+	 * Grow the region to include the location of a node as stored in the
+	 * index, which is the location before the node has been moved until
+	 * {@link #update(Node)} is called.
+	 */
+	public void includeNode(int ordinal, SceneRegion region)
+	{
+		region.include(nodeX[ordinal], nodeY[ordinal]);
+	}
+
+	/**
+	 * Grow the region to include the box of an edge as stored in the index,
+	 * which includes the bulge of curved segments. Until {@link #update(Node)}
+	 * is called for moved end nodes, this is the box before moving.
+	 */
+	public void includeEdge(int ordinal, SceneRegion region)
+	{
+		region.include(edgeMinX[ordinal], edgeMinY[ordinal],
+				edgeMaxX[ordinal], edgeMaxY[ordinal]);
+	}
+
+	/**
+	 * Find the nodes located within the specified rectangle and store their
+	 * ordinals in ascending order in the result list, which is cleared first.
+	 */
+	public void queryNodes(double x1, double y1, double x2, double y2,
+			IntList result)
+	{
+		result.clear();
+		int cx1 = cellX(x1), cx2 = cellX(x2);
+		int cy1 = cellY(y1), cy2 = cellY(y2);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				int cell = cy * cellsX + cx;
+				int[] members = nodeCells[cell];
+				int size = nodeCellSizes[cell];
+				for (int k = 0; k < size; k++) {
+					int i = members[k];
+					double x = nodeX[i];
+					double y = nodeY[i];
+					if (x >= x1 && x <= x2 && y >= y1 && y <= y2) {
+						result.add(i);
+					}
+				}
+			}
+		}
+		result.sortUnique();
+	}
+
+	/**
+	 * Find the edges whose boxes intersect the specified rectangle and store
+	 * their ordinals in ascending order in the result list, which is cleared
+	 * first.
+	 */
+	public void queryEdges(double x1, double y1, double x2, double y2,
+			IntList result)
+	{
+		result.clear();
+		int cx1 = cellX(x1), cx2 = cellX(x2);
+		int cy1 = cellY(y1), cy2 = cellY(y2);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				int cell = cy * cellsX + cx;
+				int[] members = edgeCells[cell];
+				int size = edgeCellSizes[cell];
+				for (int k = 0; k < size; k++) {
+					int i = members[k];
+					if (edgeMinX[i] <= x2 && edgeMaxX[i] >= x1
+							&& edgeMinY[i] <= y2 && edgeMaxY[i] >= y1) {
+						result.add(i);
+					}
+				}
+			}
+		}
+		// edges spanning several cells are found more than once
+		result.sortUnique();
+	}
+
+	/**
+	 * Find the node closest to the specified location, searching the cells of
+	 * the grid in rings around the location until no closer node can exist.
+	 *
+	 * @param maxDistance
+	 *            only nodes within this distance are found, may be
+	 *            {@link Double#POSITIVE_INFINITY}.
+	 * @return the ordinal of the node or -1 if there is no node within the
+	 *         distance. Of several nodes with the same distance, the one with
+	 *         the lowest ordinal is returned.
+	 */
+	public int nearestNode(double x, double y, double maxDistance)
+	{
+		int best = -1;
+		double bestDistance = maxDistance * maxDistance;
+
+		int cx = cellX(x);
+		int cy = cellY(y);
+		for (int r = 0;; r++) {
+			int cx1 = cx - r, cx2 = cx + r;
+			int cy1 = cy - r, cy2 = cy + r;
+			for (int j = Math.max(0, cy1); j <= Math.min(cellsY - 1, cy2); j++) {
+				boolean row = j == cy1 || j == cy2;
+				for (int i = Math.max(0, cx1); i <= Math.min(cellsX - 1,
+						cx2); i++) {
+					if (!row && i != cx1 && i != cx2) {
+						continue;
+					}
+					int cell = j * cellsX + i;
+					int[] members = nodeCells[cell];
+					int size = nodeCellSizes[cell];
+					for (int k = 0; k < size; k++) {
+						int n = members[k];
+						double dx = nodeX[n] - x;
+						double dy = nodeY[n] - y;
+						double d = dx * dx + dy * dy;
+						if (d < bestDistance
+								|| d == bestDistance && (best < 0 || n < best)) {
+							best = n;
+							bestDistance = d;
+						}
+					}
+				}
+			}
+
+			// nodes in cells outside of the rings searched so far are at
+			// least as far away as the border of the searched area. Nodes
+			// outside of the grid are kept in its outermost cells, so there
+			// is nothing beyond the grid's border.
+			double free = Double.POSITIVE_INFINITY;
+			if (cx1 > 0) {
+				free = Math.min(free, x - (minX + cx1 * cellWidth));
+			}
+			if (cx2 < cellsX - 1) {
+				free = Math.min(free, minX + (cx2 + 1) * cellWidth - x);
+			}
+			if (cy1 > 0) {
+				free = Math.min(free, y - (minY + cy1 * cellHeight));
+			}
+			if (cy2 < cellsY - 1) {
+				free = Math.min(free, minY + (cy2 + 1) * cellHeight - y);
+			}
+			if (free == Double.POSITIVE_INFINITY) {
+				return best;
+			}
+			if (free > 0 && free * free > bestDistance) {
+				return best;
+			}
+		}
+	}
+
+	/**
+	 * Find the edge closest to the specified location within the specified
+	 * distance, measured to the straight segment between its nodes.
+	 *
+	 * @return the ordinal of the edge or -1 if there is no edge within the
+	 *         distance.
+	 */
+	public int nearestEdge(double x, double y, double maxDistance)
+	{
+		IntList candidates = new IntList();
+		queryEdges(x - maxDistance, y - maxDistance, x + maxDistance,
+				y + maxDistance, candidates);
+
+		int best = -1;
+		double bestDistance = maxDistance * maxDistance;
+		for (int k = 0; k < candidates.size(); k++) {
+			int i = candidates.get(k);
+			Edge edge = edges[i];
+			double d = distance2(edge.n1.location, edge.n2.location, x, y);
+			if (d < bestDistance || d == bestDistance && best < 0) {
+				best = i;
+				bestDistance = d;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Squared distance between a location and the segment from a to b.
+	 */
+	private static double distance2(Point a, Point b, double x, double y)
+	{
+		double vx = b.x - a.x;
+		double vy = b.y - a.y;
+		double length2 = vx * vx + vy * vy;
+		double t = 0;
+		if (length2 > 0) {
+			t = ((x - a.x) * vx + (y - a.y) * vy) / length2;
+			t = Math.max(0, Math.min(1, t));
+		}
+		double dx = a.x + t * vx - x;
+		double dy = a.y + t * vy - y;
+		return dx * dx + dy * dy;
+	}
+
+	private int cellX(double x)
+	{
+		int cx = (int) Math.floor((x - minX) / cellWidth);
+		return Math.max(0, Math.min(cellsX - 1, cx));
+	}
+
+	private int cellY(double y)
+	{
+		int cy = (int) Math.floor((y - minY) / cellHeight);
+		return Math.max(0, Math.min(cellsY - 1, cy));
+	}
+
+	private void insertNode(int i)
+	{
+		Point location = nodes[i].location;
+		nodeX[i] = location.x;
+		nodeY[i] = location.y;
+		int cell = cellY(location.y) * cellsX + cellX(location.x);
+		add(nodeCells, nodeCellSizes, cell, i);
+	}
+
+	private void removeNode(int i)
+	{
+		int cell = cellY(nodeY[i]) * cellsX + cellX(nodeX[i]);
+		remove(nodeCells, nodeCellSizes, cell, i);
+	}
+
+	private void insertEdge(int i)
+	{
+		Edge edge = edges[i];
+		Point a = edge.n1.location;
+		Point b = edge.n2.location;
+		double x1 = Math.min(a.x, b.x);
+		double x2 = Math.max(a.x, b.x);
+		double y1 = Math.min(a.y, b.y);
+		double y2 = Math.max(a.y, b.y);
+		double padding = EDGE_PADDING * Math.max(x2 - x1, y2 - y1);
+		edgeMinX[i] = x1 - padding;
+		edgeMinY[i] = y1 - padding;
+		edgeMaxX[i] = x2 + padding;
+		edgeMaxY[i] = y2 + padding;
+
+		int cx1 = cellX(edgeMinX[i]), cx2 = cellX(edgeMaxX[i]);
+		int cy1 = cellY(edgeMinY[i]), cy2 = cellY(edgeMaxY[i]);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				add(edgeCells, edgeCellSizes, cy * cellsX + cx, i);
+			}
+		}
+	}
+
+	private void removeEdge(int i)
+	{
+		int cx1 = cellX(edgeMinX[i]), cx2 = cellX(edgeMaxX[i]);
+		int cy1 = cellY(edgeMinY[i]), cy2 = cellY(edgeMaxY[i]);
+		for (int cy = cy1; cy <= cy2; cy++) {
+			for (int cx = cx1; cx <= cx2; cx++) {
+				remove(edgeCells, edgeCellSizes, cy * cellsX + cx, i);
+			}
+		}
+	}
+
+	private static void add(int[][] cells, int[] sizes, int cell, int value)
+	{
+		int[] members = cells[cell];
+		int size = sizes[cell];
+		if (members == null) {
+			members = new int[4];
+			cells[cell] = members;
+		} else if (size == members.length) {
+			members = Arrays.copyOf(members, size * 2);
+			cells[cell] = members;
+		}
+		members[size] = value;
+		sizes[cell] = size + 1;
+	}
+
+	private static void remove(int[][] cells, int[] sizes, int cell,
+			int value)
+	{
+		int[] members = cells[cell];
+		int size = sizes[cell];
+		for (int k = 0; k < size; k++) {
+			if (members[k] == value) {
+				members[k] = members[size - 1];
+				sizes[cell] = size - 1;
+				return;
+			}
+		}
+	}
+
+}
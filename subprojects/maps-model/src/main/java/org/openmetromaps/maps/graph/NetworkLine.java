@@ -26,6 +26,9 @@ import org.openmetromaps.maps.model.Line;
 public class NetworkLine
 {
 
+	// dense index within the network, assigned by the network builder
+	public int id = -1;
+
 	public Line line;
 
 	public NetworkLine(Line line)
@@ -27,6 +27,9 @@ import de.topobyte.lightgeom.lina.Point;
 public class Node
 {
 
+	// dense index within the network, assigned by the network builder
+	public int id = -1;
+
 	public Point location;
 	public Station station;
 	public List<Edge> edges = new ArrayList<>();
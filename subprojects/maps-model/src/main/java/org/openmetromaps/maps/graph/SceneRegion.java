@@ -0,0 +1,108 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.graph;
+
+/**
+ * An axis-aligned box in scene coordinates that can be grown to include
+ * locations and other boxes. A new region is empty.
+ */
+public class SceneRegion
+{
+
+	private double minX, minY, maxX, maxY;
+
+	public SceneRegion()
+	{
+		clear();
+	}
+
+	public SceneRegion(SceneRegion other)
+	{
+		set(other);
+	}
+
+	public void clear()
+	{
+		minX = minY = Double.POSITIVE_INFINITY;
+		maxX = maxY = Double.NEGATIVE_INFINITY;
+	}
+
+	public void set(SceneRegion other)
+	{
+		minX = other.minX;
+		minY = other.minY;
+		maxX = other.maxX;
+		maxY = other.maxY;
+	}
+
+	public boolean isEmpty()
+	{
+		return minX > maxX || minY > maxY;
+	}
+
+	public void include(double x, double y)
+	{
+		include(x, y, x, y);
+	}
+
+	public void include(double x1, double y1, double x2, double y2)
+	{
+		minX = Math.min(minX, x1);
+		minY = Math.min(minY, y1);
+		maxX = Math.max(maxX, x2);
+		maxY = Math.max(maxY, y2);
+	}
+
+	public void include(SceneRegion other)
+	{
+		if (!other.isEmpty()) {
+			include(other.minX, other.minY, other.maxX, other.maxY);
+		}
+	}
+
+	public double getMinX()
+	{
+		return minX;
+	}
+
+	public double getMinY()
+	{
+		return minY;
+	}
+
+	public double getMaxX()
+	{
+		return maxX;
+	}
+
+	public double getMaxY()
+	{
+		return maxY;
+	}
+
+	@Override
+	public String toString()
+	{
+		if (isEmpty()) {
+			return "SceneRegion[empty]";
+		}
+		return "SceneRegion[" + minX + "," + minY + " - " + maxX + "," + maxY
+				+ "]";
+	}
+
+}
@@ -47,6 +47,7 @@ import javax.swing.WindowConstants;
 import org.openmetromaps.maps.Constants;
 import org.openmetromaps.maps.CoordinateConversionType;
 import org.openmetromaps.maps.DataChangeListener;
+import org.openmetromaps.maps.HitTestUtil;
 import org.openmetromaps.maps.InitialViewportSetupListener;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.MapView;
@@ -59,12 +60,14 @@ import org.openmetromaps.maps.ScrollableAdvancedPanel;
 import org.openmetromaps.maps.ViewConfig;
 import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.metrics.RenderStatistics;
 import org.openmetromaps.maps.viewer.actions.file.ExitAction;
 import org.openmetromaps.maps.viewer.actions.file.OpenAction;
 import org.openmetromaps.maps.viewer.actions.help.AboutAction;
 import org.openmetromaps.maps.viewer.actions.help.LicenseAction;
 import org.openmetromaps.maps.viewer.actions.view.ShowLabelsAction;
 import org.openmetromaps.maps.viewer.actions.view.ShowMapAction;
+import org.openmetromaps.maps.viewer.actions.view.ShowRenderStatisticsAction;
 import org.openmetromaps.maps.viewer.actions.view.ShowStationCentersAction;
 import org.openmetromaps.maps.viewer.jeography.JeographyZoomAction;
 import org.slf4j.Logger;
@@ -76,8 +79,6 @@ import bibliothek.gui.dock.common.DefaultSingleCDockable;
 import de.topobyte.awt.util.GridBagConstraintsEditor;
 import de.topobyte.jeography.viewer.config.TileConfigUrl;
 import de.topobyte.jeography.viewer.core.Viewer;
-import de.topobyte.lightgeom.lina.Point;
-import de.topobyte.lightgeom.lina.Vector2;
 import de.topobyte.melon.resources.Resources;
 import de.topobyte.swing.util.EmptyIcon;
 import de.topobyte.swing.util.JMenus;
@@ -87,7 +88,6 @@ import de.topobyte.swing.util.action.enums.EnumActions;
 import de.topobyte.swing.util.action.enums.EnumValueHolder;
 import de.topobyte.viewports.scrolling.PanMouseAdapter;
 import de.topobyte.viewports.scrolling.ScrollableView;
-import de.topobyte.viewports.scrolling.ViewportUtil;
 import de.topobyte.viewports.scrolling.ZoomAction;
 
 public class MapViewer
@@ -126,6 +126,10 @@ public class MapViewer
 			changeSupport, "show-station-centers",
 			x -> setShowStationCentersInternal(), false);
 
+	private BooleanValueHolder showRenderStatistics = new BooleanValueHolder(
+			changeSupport, "show-render-statistics",
+			x -> setShowRenderStatisticsInternal(), false);
+
 	private BooleanValueHolder showMap = new BooleanValueHolder(changeSupport,
 			"show-map", x -> setShowMapInternal(x), false);
 
@@ -199,6 +203,23 @@ public class MapViewer
 		map.repaint();
 	}
 
+	public boolean isShowRenderStatistics()
+	{
+		return showRenderStatistics.getValue();
+	}
+
+	public void setShowRenderStatistics(boolean showRenderStatistics)
+	{
+		this.showRenderStatistics.setValue(showRenderStatistics);
+	}
+
+	public void setShowRenderStatisticsInternal()
+	{
+		map.setRenderStatistics(
+				showRenderStatistics.getValue() ? new RenderStatistics()
+						: null);
+	}
+
 	public boolean isShowMap()
 	{
 		return showMap.getValue();
@@ -433,6 +454,8 @@ public class MapViewer
 				KeyEvent.VK_F3);
 		showMapAction = new ShowMapAction(this);
 		JMenus.addCheckbox(menuView, showMapAction, KeyEvent.VK_F4);
+		JMenus.addCheckbox(menuView, new ShowRenderStatisticsAction(this),
+				KeyEvent.VK_F5);
 		JMenu stationMode = submenu("Station mode");
 		JMenu segmentMode = submenu("Segment mode");
 		menuView.add(stationMode);
@@ -487,6 +510,7 @@ public class MapViewer
 		map = new ScrollableAdvancedPanel(model.getData(), view, mapViewStatus,
 				PlanRenderer.StationMode.CONVEX, PlanRenderer.SegmentMode.CURVE,
 				10, 15, 1);
+		map.setAsyncRendering(true);
 
 		ScrollableView<ScrollableAdvancedPanel> scrollableView = new ScrollableView<>(
 				map);
@@ -531,49 +555,14 @@ public class MapViewer
 
 	protected Node mouseNode(int x, int y)
 	{
-		Node best = closestNode(x, y);
-
-		if (best == null) {
-			return null;
-		}
-
-		double sx = ViewportUtil.getViewX(map, best.location.x);
-		double sy = ViewportUtil.getViewY(map, best.location.y);
-
-		double dx = Math.abs(sx - x);
-		double dy = Math.abs(sy - y);
-		double d = Math.sqrt(dx * dx + dy * dy);
-
-		if (d < 8) {
-			return best;
-		}
-
-		return null;
+		LineNetwork lineNetwork = map.getPlanRenderer().getLineNetwork();
+		return HitTestUtil.nodeAt(lineNetwork, map, x, y, 8);
 	}
 
 	protected Node closestNode(int vx, int vy)
 	{
-		double x = ViewportUtil.getRealX(map, vx);
-		double y = ViewportUtil.getRealY(map, vy);
-
 		LineNetwork lineNetwork = map.getPlanRenderer().getLineNetwork();
-
-		double bestDistance = Double.MAX_VALUE;
-		Node best = null;
-
-		// TODO: use an index to speed this up
-		for (Node node : lineNetwork.nodes) {
-			Point location = node.location;
-			Vector2 v1 = new Vector2(location);
-			Vector2 v2 = new Vector2(x, y);
-			double d = v2.sub(v1).length2();
-			if (d < bestDistance) {
-				bestDistance = d;
-				best = node;
-			}
-		}
-
-		return best;
+		return HitTestUtil.closestNode(lineNetwork, map, vx, vy);
 	}
 
 	public void showReallyExitDialog()
@@ -27,16 +27,18 @@ import org.openmetromaps.maps.EdgeUtil;
 import org.openmetromaps.maps.LocationToPoint;
 import org.openmetromaps.maps.MapViewStatus;
 import org.openmetromaps.maps.ModelUtil;
+import org.openmetromaps.maps.PlanRenderer.Pass;
 import org.openmetromaps.maps.PlanRenderer.SegmentMode;
 import org.openmetromaps.maps.PlanRenderer.StationMode;
 import org.openmetromaps.maps.SegmentEndPointPaintInfo;
 import org.openmetromaps.maps.SegmentPaintInfo;
-import org.openmetromaps.maps.TimeMeasuring;
 import org.openmetromaps.maps.graph.Edge;
 import org.openmetromaps.maps.graph.LineNetwork;
 import org.openmetromaps.maps.graph.NeighborInfo;
 import org.openmetromaps.maps.graph.NetworkLine;
 import org.openmetromaps.maps.graph.Node;
+import org.openmetromaps.maps.metrics.FrameMetrics;
+import org.openmetromaps.maps.metrics.RenderMetrics;
 import org.openmetromaps.maps.model.Station;
 import org.openmetromaps.maps.painting.core.ColorCode;
 import org.openmetromaps.maps.painting.core.Colors;
@@ -46,6 +48,7 @@ import org.openmetromaps.maps.painting.core.PaintType;
 import org.openmetromaps.maps.painting.core.Painter;
 import org.openmetromaps.maps.painting.core.geom.LineSegment;
 import org.openmetromaps.maps.painting.core.geom.Path;
+import org.openmetromaps.maps.rendering.components.DrawerScratch;
 import org.openmetromaps.maps.rendering.components.StationDrawer;
 import org.openmetromaps.maps.rendering.components.StationDrawerConvex;
 import org.openmetromaps.maps.rendering.components.StationDrawerDot;
@@ -55,7 +58,6 @@ import org.slf4j.LoggerFactory;
 
 import com.infomatiq.jsi.Rectangle;
 
-import de.topobyte.formatting.Formatting;
 import de.topobyte.jsi.intersectiontester.RTreeIntersectionTester;
 import de.topobyte.jsi.intersectiontester.RectangleIntersectionTester;
 import de.topobyte.lightgeom.curves.spline.CubicSpline;
@@ -271,13 +273,32 @@ public class CustomPlanRenderer implements ViewportListener
 		stationDrawer.zoomChanged(factor, lineWidth);
 	}
 
-	private static final String LOG_SEGMENTS = "segments";
-	private static final String LOG_STATIONS = "stations";
-	private static final String LOG_LABELS = "labels";
-	private long durationCurves = 0;
+	private RenderMetrics metrics = null;
+	private FrameMetrics frame = new FrameMetrics();
+
+	public RenderMetrics getRenderMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Report the time spent on each pass and the number of painted elements
+	 * of every frame to the specified metrics, or stop measuring if null.
+	 */
+	public void setRenderMetrics(RenderMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
 
 	public void paint(Painter g)
 	{
+		RenderMetrics metrics = this.metrics;
+		boolean measure = metrics != null;
+
+		frame.reset();
+		int switches = g.getStateSwitches();
+		long start = now(measure);
+
 		double x1 = ViewportUtil.getRealX(viewport, 0);
 		double y1 = ViewportUtil.getRealY(viewport, 0);
 		double x2 = ViewportUtil.getRealX(viewport,
@@ -287,8 +308,6 @@ public class CustomPlanRenderer implements ViewportListener
 
 		Envelope envelope = new Envelope(x1, x2, y1, y2);
 
-		TimeMeasuring tm = new TimeMeasuring(logger);
-
 		final int nNodes = lineNetwork.nodes.size();
 		final int nEdges = lineNetwork.edges.size();
 
@@ -298,8 +317,8 @@ public class CustomPlanRenderer implements ViewportListener
 
 		Envelope edgeEnvelope = new Envelope();
 
-		tm.start(LOG_SEGMENTS);
-		durationCurves = 0;
+		long time = now(measure);
+		int drawn = 0;
 		for (int i = 0; i < nEdges; i++) {
 			Edge edge = lineNetwork.edges.get(i);
 			Point locationA = edge.n1.location;
@@ -311,6 +330,7 @@ public class CustomPlanRenderer implements ViewportListener
 			if (!envelope.intersects(edgeEnvelope)) {
 				continue;
 			}
+			drawn++;
 
 			double ax = ltp.getX(locationA.x);
 			double ay = ltp.getY(locationA.y);
@@ -326,16 +346,16 @@ public class CustomPlanRenderer implements ViewportListener
 				drawMultiLineEdge(g, lines, edge, ax, ay, bx, by);
 			}
 		}
-		tm.stop(LOG_SEGMENTS);
+		frame.setEdges(drawn, nEdges - drawn);
+		time = passFinished(measure, Pass.SEGMENTS, time);
 
 		/*
 		 * Stations
 		 */
 
-		tm.start(LOG_STATIONS);
-		logger.debug("*** Stations ***");
-
 		Path path = g.createPath();
+		DrawerScratch scratch = new DrawerScratch();
+		drawn = 0;
 		for (int i = 0; i < nNodes; i++) {
 			Node node = lineNetwork.nodes.get(i);
 			Point location = node.location;
@@ -343,13 +363,15 @@ public class CustomPlanRenderer implements ViewportListener
 			if (!envelope.contains(location.x, location.y)) {
 				continue;
 			}
+			drawn++;
 
 			boolean selected = mapViewStatus.isNodeSelected(node);
 
-			stationDrawer.drawStation(g, node, path, selected,
+			stationDrawer.drawStation(g, scratch, node, path, selected,
 					renderStationCenters);
 		}
-		tm.stop(LOG_STATIONS);
+		frame.setStations(drawn, nNodes - drawn);
+		time = passFinished(measure, Pass.STATIONS, time);
 
 		/*
 		 * Labels
@@ -377,17 +399,36 @@ public class CustomPlanRenderer implements ViewportListener
 			}
 		}
 
-		tm.start(LOG_LABELS);
 		if (isRenderLabels) {
 			renderLabels(g, envelope, nNodes, fontSize);
 		}
-		tm.stop(LOG_LABELS);
+		passFinished(measure, Pass.LABELS, time);
 
-		tm.log(LOG_SEGMENTS, "Time for segments: %d");
-		tm.log(LOG_STATIONS, "Time for stations: %d");
-		tm.log(LOG_LABELS, "Time for labels: %d");
-		logger.info(Formatting.format("Time for curve drawing: %d",
-				durationCurves));
+		if (measure) {
+			frame.setTotalNanos(System.nanoTime() - start);
+			frame.setPaintSwitches(g.getStateSwitches() - switches);
+			metrics.frameFinished(frame);
+		}
+	}
+
+	private static long now(boolean measure)
+	{
+		return measure ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Record the time spent on a pass if measuring.
+	 *
+	 * @return the time the pass has been finished at.
+	 */
+	private long passFinished(boolean measure, Pass pass, long start)
+	{
+		if (!measure) {
+			return 0;
+		}
+		long time = System.nanoTime();
+		frame.setPassNanos(pass, time - start);
+		return time;
 	}
 
 	private float baseFontSize = 12;
@@ -416,6 +457,8 @@ public class CustomPlanRenderer implements ViewportListener
 			int fontSize)
 	{
 		RectangleIntersectionTester tester = new RTreeIntersectionTester();
+		int placed = 0;
+		int rejected = 0;
 		for (int i = 0; i < nNodes; i++) {
 			Node node = lineNetwork.nodes.get(i);
 			Station station = node.station;
@@ -453,8 +496,12 @@ public class CustomPlanRenderer implements ViewportListener
 				g.drawString(name, x, y);
 
 				tester.add(r, false);
+				placed++;
+			} else {
+				rejected++;
 			}
 		}
+		frame.setLabels(placed, rejected);
 	}
 
 	private void drawSingleLineEdge(Painter g, NetworkLine line, Edge edge,
@@ -585,10 +632,7 @@ public class CustomPlanRenderer implements ViewportListener
 			}
 
 			SplineUtil.spline(spline, lax, lay, lbx, lby, d02, d31, f, true);
-			long ta = System.currentTimeMillis();
 			g.draw(spline);
-			long tb = System.currentTimeMillis();
-			durationCurves += tb - ta;
 
 			if (debugTangents) {
 				g.draw(new LineSegment(spline.getP1(), spline.getC1()));
@@ -36,7 +36,8 @@ import org.openmetromaps.maps.model.ModelData;
 import org.openmetromaps.maps.painting.awt.AwtPainter;
 import org.openmetromaps.maps.painting.core.ColorCode;
 import org.openmetromaps.maps.painting.core.GenericPaintFactory;
-import org.openmetromaps.maps.painting.core.Painter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import de.topobyte.viewports.geometry.Coordinate;
 
@@ -45,11 +46,15 @@ public class CustomScrollableAdvancedPanel extends BaseMapWindowPanel
 
 	private static final long serialVersionUID = 1L;
 
+	final static Logger logger = LoggerFactory
+			.getLogger(CustomScrollableAdvancedPanel.class);
+
 	private ModelData data;
 	private MapView view;
 	private LineNetwork lineNetwork;
 	private MapViewStatus mapViewStatus;
 	private CustomPlanRenderer renderer;
+	private AwtPainter painter = null;
 
 	private StationMode stationMode;
 	private SegmentMode segmentMode;
@@ -139,7 +144,13 @@ public class CustomScrollableAdvancedPanel extends BaseMapWindowPanel
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
 				RenderingHints.VALUE_ANTIALIAS_ON);
 
-		Painter painter = new AwtPainter(g);
+		// reuse the painter to keep its cached strokes, colors and fonts
+		if (painter == null) {
+			painter = new AwtPainter(g);
+		} else {
+			painter.setGraphics(g);
+		}
+		painter.resetStateSwitches();
 
 		g.setColor(Color.WHITE);
 		fillRect(g, scene.getX1(), scene.getY1(), scene.getX2(), scene.getY2());
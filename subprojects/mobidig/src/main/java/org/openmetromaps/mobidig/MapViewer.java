@@ -48,6 +48,7 @@ import javax.swing.WindowConstants;
 import org.openmetromaps.maps.Constants;
 import org.openmetromaps.maps.CoordinateConversionType;
 import org.openmetromaps.maps.DataChangeListener;
+import org.openmetromaps.maps.HitTestUtil;
 import org.openmetromaps.maps.InitialViewportSetupListener;
 import org.openmetromaps.maps.MapModel;
 import org.openmetromaps.maps.MapView;
@@ -78,8 +79,6 @@ import bibliothek.gui.dock.common.DefaultSingleCDockable;
 import de.topobyte.awt.util.GridBagConstraintsEditor;
 import de.topobyte.jeography.viewer.config.TileConfigUrl;
 import de.topobyte.jeography.viewer.core.Viewer;
-import de.topobyte.lightgeom.lina.Point;
-import de.topobyte.lightgeom.lina.Vector2;
 import de.topobyte.melon.resources.Resources;
 import de.topobyte.swing.util.EmptyIcon;
 import de.topobyte.swing.util.JMenus;
@@ -89,7 +88,6 @@ import de.topobyte.swing.util.action.enums.EnumActions;
 import de.topobyte.swing.util.action.enums.EnumValueHolder;
 import de.topobyte.viewports.scrolling.PanMouseAdapter;
 import de.topobyte.viewports.scrolling.ScrollableView;
-import de.topobyte.viewports.scrolling.ViewportUtil;
 import de.topobyte.viewports.scrolling.ZoomAction;
 
 public class MapViewer
@@ -533,49 +531,14 @@ public class MapViewer
 
 	protected Node mouseNode(int x, int y)
 	{
-		Node best = closestNode(x, y);
-
-		if (best == null) {
-			return null;
-		}
-
-		double sx = ViewportUtil.getViewX(map, best.location.x);
-		double sy = ViewportUtil.getViewY(map, best.location.y);
-
-		double dx = Math.abs(sx - x);
-		double dy = Math.abs(sy - y);
-		double d = Math.sqrt(dx * dx + dy * dy);
-
-		if (d < 8) {
-			return best;
-		}
-
-		return null;
+		LineNetwork lineNetwork = map.getPlanRenderer().getLineNetwork();
+		return HitTestUtil.nodeAt(lineNetwork, map, x, y, 8);
 	}
 
 	protected Node closestNode(int vx, int vy)
 	{
-		double x = ViewportUtil.getRealX(map, vx);
-		double y = ViewportUtil.getRealY(map, vy);
-
 		LineNetwork lineNetwork = map.getPlanRenderer().getLineNetwork();
-
-		double bestDistance = Double.MAX_VALUE;
-		Node best = null;
-
-		// TODO: use an index to speed this up
-		for (Node node : lineNetwork.nodes) {
-			Point location = node.location;
-			Vector2 v1 = new Vector2(location);
-			Vector2 v2 = new Vector2(x, y);
-			double d = v2.sub(v1).length2();
-			if (d < bestDistance) {
-				bestDistance = d;
-				best = node;
-			}
-		}
-
-		return best;
+		return HitTestUtil.closestNode(lineNetwork, map, vx, vy);
 	}
 
 	public void showReallyExitDialog()
@@ -98,6 +98,13 @@ public class NewFormatPainter extends AbstractPainter
 		return new NewFormatPath();
 	}
 
+	@Override
+	public boolean supportsBatches()
+	{
+		// each element is written with the reference of its line and edge
+		return false;
+	}
+
 	@Override
 	public void draw(Circle circle)
 	{
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.openmetromaps.maps.painting.core.geom.Path;
+import org.openmetromaps.newformat.painting.path.CurveTo;
 import org.openmetromaps.newformat.painting.path.LineTo;
 import org.openmetromaps.newformat.painting.path.MoveTo;
 import org.openmetromaps.newformat.painting.path.PathOperation;
@@ -50,6 +51,11 @@ public class NewFormatPath implements Path
 				LineTo lineTo = (LineTo) operation;
 				buffer.append(
 						String.format("%f %f l", lineTo.getX(), lineTo.getY()));
+			} else if (operation instanceof CurveTo) {
+				CurveTo curveTo = (CurveTo) operation;
+				buffer.append(String.format("%f %f %f %f %f %f c",
+						curveTo.getC1x(), curveTo.getC1y(), curveTo.getC2x(),
+						curveTo.getC2y(), curveTo.getX(), curveTo.getY()));
 			}
 		}
 
@@ -74,6 +80,13 @@ public class NewFormatPath implements Path
 		operations.add(new LineTo(x, y));
 	}
 
+	@Override
+	public void curveTo(double c1x, double c1y, double c2x, double c2y,
+			double x, double y)
+	{
+		operations.add(new CurveTo(c1x, c1y, c2x, c2y, x, y));
+	}
+
 	@Override
 	public void moveTo(Point p)
 	{
@@ -0,0 +1,71 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.newformat.painting.path;
+
+public class CurveTo implements PathOperation
+{
+
+	private double c1x;
+	private double c1y;
+	private double c2x;
+	private double c2y;
+	private double x;
+	private double y;
+
+	public CurveTo(double c1x, double c1y, double c2x, double c2y, double x,
+			double y)
+	{
+		this.c1x = c1x;
+		this.c1y = c1y;
+		this.c2x = c2x;
+		this.c2y = c2y;
+		this.x = x;
+		this.y = y;
+	}
+
+	public double getC1x()
+	{
+		return c1x;
+	}
+
+	public double getC1y()
+	{
+		return c1y;
+	}
+
+	public double getC2x()
+	{
+		return c2x;
+	}
+
+	public double getC2y()
+	{
+		return c2y;
+	}
+
+	public double getX()
+	{
+		return x;
+	}
+
+	public double getY()
+	{
+		return y;
+	}
+
+}
@@ -0,0 +1,42 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.xml;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Access to the model files in the 'example-data' directory of the
+ * repository, relative to the directory of this module.
+ */
+public class ExampleData
+{
+
+	public static final String[] MODELS = { "berlin.xml", "wien.xml",
+			"budapest.xml", "example.xml" };
+
+	private static final Path DIRECTORY = Paths.get("../../example-data");
+
+	public static byte[] read(String name) throws IOException
+	{
+		return Files.readAllBytes(DIRECTORY.resolve(name));
+	}
+
+}
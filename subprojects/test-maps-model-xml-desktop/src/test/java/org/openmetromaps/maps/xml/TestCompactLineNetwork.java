@@ -0,0 +1,163 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+
+package org.openmetromaps.maps.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.MapView;
+import org.openmetromaps.maps.graph.CompactLineNetwork;
+import org.openmetromaps.maps.graph.Edge;
+import org.openmetromaps.maps.graph.LineNetwork;
+import org.openmetromaps.maps.graph.LineNetworkUtil;
+import org.openmetromaps.maps.graph.NeighborInfo;
+import org.openmetromaps.maps.graph.NetworkLine;
+import org.openmetromaps.maps.graph.Node;
+
+import de.topobyte.lightgeom.lina.Point;
+import de.topobyte.xml.domabstraction.iface.ParsingException;
+
+/**
+ * The array representation of a line network must describe the same topology
+ * as the object graph it has been derived from.
+ */
+public class TestCompactLineNetwork
+{
+
+	@Test
+	public void testTopology() throws IOException, ParsingException
+	{
+		for (String name : ExampleData.MODELS) {
+			for (MapView view : load(name)) {
+				assertTopology(name + ": " + view.getName(),
+						view.getLineNetwork());
+			}
+		}
+	}
+
+	@Test
+	public void testNeighborLocations() throws IOException, ParsingException
+	{
+		for (String name : ExampleData.MODELS) {
+			for (MapView view : load(name)) {
+				assertNeighborLocations(name + ": " + view.getName(),
+						view.getLineNetwork());
+			}
+		}
+	}
+
+	private static List<MapView> load(String name)
+			throws IOException, ParsingException
+	{
+		XmlModel xmlModel = DesktopXmlModelReader
+				.read(new ByteArrayInputStream(ExampleData.read(name)));
+		MapModel model = new XmlModelConverter().convert(xmlModel);
+		return model.getViews();
+	}
+
+	private void assertTopology(String name, LineNetwork lineNetwork)
+	{
+		CompactLineNetwork compact = lineNetwork.getCompact();
+		Assert.assertNotNull(name + ": compact network", compact);
+		Assert.assertEquals(name + ": number of nodes",
+				lineNetwork.nodes.size(), compact.getNumNodes());
+		Assert.assertEquals(name + ": number of edges",
+				lineNetwork.edges.size(), compact.getNumEdges());
+
+		for (Node node : lineNetwork.nodes) {
+			String message = name + ": node #" + node.id;
+			Assert.assertSame(message, node, compact.getNode(node.id));
+			Assert.assertEquals(message + ": degree", node.edges.size(),
+					compact.getDegree(node.id));
+			for (int k = 0; k < node.edges.size(); k++) {
+				Assert.assertEquals(message + ": edge #" + k,
+						node.edges.get(k).id, compact.getNodeEdge(node.id, k));
+			}
+		}
+
+		int[] prevs = compact.getEdgeLinePrevs();
+		int[] nexts = compact.getEdgeLineNexts();
+		for (Edge edge : lineNetwork.edges) {
+			String message = name + ": edge #" + edge.id;
+			Assert.assertSame(message, edge, compact.getEdge(edge.id));
+			Assert.assertEquals(message + ": node 1", edge.n1.id,
+					compact.getNode1(edge.id));
+			Assert.assertEquals(message + ": node 2", edge.n2.id,
+					compact.getNode2(edge.id));
+			Assert.assertEquals(message + ": number of lines",
+					edge.lines.size(), compact.getNumEdgeLines(edge.id));
+			int offset = compact.getEdgeLineOffsets()[edge.id];
+			for (int k = 0; k < edge.lines.size(); k++) {
+				NetworkLine line = edge.lines.get(k);
+				String lineMessage = message + ": line #" + k;
+				Assert.assertEquals(lineMessage, line.id,
+						compact.getEdgeLine(edge.id, k));
+				NeighborInfo neighbors = line.getNeighbors(edge);
+				Assert.assertEquals(lineMessage + ": prev",
+						id(neighbors == null ? null : neighbors.prev),
+						prevs[offset + k]);
+				Assert.assertEquals(lineMessage + ": next",
+						id(neighbors == null ? null : neighbors.next),
+						nexts[offset + k]);
+			}
+		}
+	}
+
+	private static int id(Node node)
+	{
+		return node == null ? -1 : node.id;
+	}
+
+	private void assertNeighborLocations(String name, LineNetwork lineNetwork)
+	{
+		CompactLineNetwork compact = lineNetwork.getCompact();
+		for (Edge edge : lineNetwork.edges) {
+			String message = name + ": edge #" + edge.id;
+
+			edge.prev = null;
+			edge.next = null;
+			LineNetworkUtil.calculateNeighborLocations(edge);
+			Point prev = edge.prev;
+			Point next = edge.next;
+
+			edge.prev = null;
+			edge.next = null;
+			LineNetworkUtil.calculateNeighborLocations(compact, edge.id);
+
+			assertPoint(message + ": prev", prev, edge.prev);
+			assertPoint(message + ": next", next, edge.next);
+		}
+	}
+
+	private void assertPoint(String message, Point expected, Point actual)
+	{
+		if (expected == null) {
+			Assert.assertNull(message, actual);
+			return;
+		}
+		Assert.assertNotNull(message, actual);
+		Assert.assertEquals(message + ": x", expected.x, actual.x, 0);
+		Assert.assertEquals(message + ": y", expected.y, actual.y, 0);
+	}
+
+}
@@ -0,0 +1,150 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.topobyte.xml.domabstraction.iface.ParsingException;
+
+/**
+ * The streaming reader must produce the same model as the DOM based reader.
+ */
+public class TestReadParity
+{
+
+	@Test
+	public void test() throws IOException, ParsingException
+	{
+		for (String name : ExampleData.MODELS) {
+			test(name);
+		}
+	}
+
+	private void test(String name) throws IOException, ParsingException
+	{
+		byte[] bytes = ExampleData.read(name);
+		XmlModel dom = DesktopXmlModelReader
+				.readDom(new ByteArrayInputStream(bytes));
+		XmlModel stax = DesktopXmlModelReader
+				.read(new ByteArrayInputStream(bytes));
+
+		Assert.assertEquals(name + ": version", dom.getVersion(),
+				stax.getVersion());
+		assertStations(name, dom.getStations(), stax.getStations());
+		assertLines(name, dom.getLines(), stax.getLines());
+		assertViews(name, dom.getXmlViews(), stax.getXmlViews());
+	}
+
+	private void assertStations(String name, List<XmlStation> expected,
+			List<XmlStation> actual)
+	{
+		Assert.assertEquals(name + ": number of stations", expected.size(),
+				actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			XmlStation e = expected.get(i);
+			XmlStation a = actual.get(i);
+			String message = name + ": station #" + i;
+			Assert.assertEquals(message, e.getId(), a.getId());
+			Assert.assertEquals(message, e.getName(), a.getName());
+			Assert.assertEquals(message, e.getLocation().getLatitude(),
+					a.getLocation().getLatitude(), 0);
+			Assert.assertEquals(message, e.getLocation().getLongitude(),
+					a.getLocation().getLongitude(), 0);
+		}
+	}
+
+	private void assertLines(String name, List<XmlLine> expected,
+			List<XmlLine> actual)
+	{
+		Assert.assertEquals(name + ": number of lines", expected.size(),
+				actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			XmlLine e = expected.get(i);
+			XmlLine a = actual.get(i);
+			String message = name + ": line #" + i;
+			Assert.assertEquals(message, e.getId(), a.getId());
+			Assert.assertEquals(message, e.getName(), a.getName());
+			Assert.assertEquals(message, e.getColor(), a.getColor());
+			Assert.assertEquals(message, e.isCircular(), a.isCircular());
+			Assert.assertEquals(message + ": number of stops",
+					e.getStops().size(), a.getStops().size());
+			for (int k = 0; k < e.getStops().size(); k++) {
+				Assert.assertEquals(message + ": stop #" + k,
+						e.getStops().get(k).getName(),
+						a.getStops().get(k).getName());
+			}
+		}
+	}
+
+	private void assertViews(String name, List<XmlView> expected,
+			List<XmlView> actual)
+	{
+		Assert.assertEquals(name + ": number of views", expected.size(),
+				actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			XmlView e = expected.get(i);
+			XmlView a = actual.get(i);
+			String message = name + ": view #" + i;
+			Assert.assertEquals(message, e.getName(), a.getName());
+			Assert.assertEquals(message, e.getSceneWidth(), a.getSceneWidth(),
+					0);
+			Assert.assertEquals(message, e.getSceneHeight(),
+					a.getSceneHeight(), 0);
+			Assert.assertEquals(message, e.getStartX(), a.getStartX(), 0);
+			Assert.assertEquals(message, e.getStartY(), a.getStartY(), 0);
+
+			Assert.assertEquals(message + ": number of stations",
+					e.getStations().size(), a.getStations().size());
+			for (int k = 0; k < e.getStations().size(); k++) {
+				XmlViewStation es = e.getStations().get(k);
+				XmlViewStation as = a.getStations().get(k);
+				String stationMessage = message + ": station #" + k;
+				Assert.assertEquals(stationMessage, es.getName(),
+						as.getName());
+				Assert.assertEquals(stationMessage, es.getLocation().getX(),
+						as.getLocation().getX(), 0);
+				Assert.assertEquals(stationMessage, es.getLocation().getY(),
+						as.getLocation().getY(), 0);
+			}
+
+			Assert.assertEquals(message + ": number of edges",
+					e.getEdges().size(), a.getEdges().size());
+			for (int k = 0; k < e.getEdges().size(); k++) {
+				XmlEdges ee = e.getEdges().get(k);
+				XmlEdges ae = a.getEdges().get(k);
+				String edgesMessage = message + ": edges #" + k;
+				Assert.assertEquals(edgesMessage, ee.getName(), ae.getName());
+				Assert.assertEquals(edgesMessage + ": number of intervals",
+						ee.getIntervals().size(), ae.getIntervals().size());
+				for (int j = 0; j < ee.getIntervals().size(); j++) {
+					XmlInterval ei = ee.getIntervals().get(j);
+					XmlInterval ai = ae.getIntervals().get(j);
+					Assert.assertEquals(edgesMessage, ei.getFrom(),
+							ai.getFrom());
+					Assert.assertEquals(edgesMessage, ei.getTo(), ai.getTo());
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmetromaps.maps.MapModel;
+
+import de.topobyte.xml.domabstraction.iface.ParsingException;
+
+/**
+ * Writing a model and reading it back must preserve the model up to the
+ * precision that numbers are written with, and writing it again must produce
+ * the same file.
+ */
+public class TestWriteRoundTrip
+{
+
+	// numbers are written with six fraction digits
+	private static final double EPSILON = 1e-6;
+
+	@Test
+	public void test() throws IOException, ParsingException,
+			ParserConfigurationException
+	{
+		for (String name : ExampleData.MODELS) {
+			test(name);
+		}
+	}
+
+	private void test(String name) throws IOException, ParsingException,
+			ParserConfigurationException
+	{
+		XmlModel original = read(ExampleData.read(name));
+		byte[] written = write(original);
+		XmlModel copy = read(written);
+
+		assertStations(name, original.getStations(), copy.getStations());
+		assertLines(name, original.getLines(), copy.getLines());
+		assertViews(name, original.getXmlViews(), copy.getXmlViews());
+
+		Assert.assertArrayEquals(name + ": written again", written,
+				write(copy));
+	}
+
+	private static XmlModel read(byte[] bytes) throws ParsingException
+	{
+		return DesktopXmlModelReader.read(new ByteArrayInputStream(bytes));
+	}
+
+	private static byte[] write(XmlModel xmlModel)
+			throws ParserConfigurationException, IOException
+	{
+		MapModel model = new XmlModelConverter().convert(xmlModel);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new XmlModelWriter().write(baos, model.getData(), model.getViews());
+		return baos.toByteArray();
+	}
+
+	private void assertStations(String name, List<XmlStation> expected,
+			List<XmlStation> actual)
+	{
+		Assert.assertEquals(name + ": number of stations", expected.size(),
+				actual.size());
+		Map<Integer, XmlStation> idToStation = new HashMap<>();
+		for (XmlStation station : actual) {
+			idToStation.put(station.getId(), station);
+		}
+		for (XmlStation e : expected) {
+			XmlStation a = idToStation.get(e.getId());
+			String message = name + ": station " + e.getId();
+			Assert.assertNotNull(message, a);
+			Assert.assertEquals(message, e.getName(), a.getName());
+			Assert.assertEquals(message, e.getLocation().getLatitude(),
+					a.getLocation().getLatitude(), EPSILON);
+			Assert.assertEquals(message, e.getLocation().getLongitude(),
+					a.getLocation().getLongitude(), EPSILON);
+		}
+	}
+
+	private void assertLines(String name, List<XmlLine> expected,
+			List<XmlLine> actual)
+	{
+		Assert.assertEquals(name + ": number of lines", expected.size(),
+				actual.size());
+		Map<Integer, XmlLine> idToLine = new HashMap<>();
+		for (XmlLine line : actual) {
+			idToLine.put(line.getId(), line);
+		}
+		for (XmlLine e : expected) {
+			XmlLine a = idToLine.get(e.getId());
+			String message = name + ": line " + e.getId();
+			Assert.assertNotNull(message, a);
+			Assert.assertEquals(message, e.getName(), a.getName());
+			Assert.assertEquals(message, e.getColor(), a.getColor());
+			Assert.assertEquals(message, e.isCircular(), a.isCircular());
+			Assert.assertEquals(message + ": number of stops",
+					e.getStops().size(), a.getStops().size());
+			for (int k = 0; k < e.getStops().size(); k++) {
+				Assert.assertEquals(message + ": stop #" + k,
+						e.getStops().get(k).getName(),
+						a.getStops().get(k).getName());
+			}
+		}
+	}
+
+	private void assertViews(String name, List<XmlView> expected,
+			List<XmlView> actual)
+	{
+		Assert.assertEquals(name + ": number of views", expected.size(),
+				actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			XmlView e = expected.get(i);
+			XmlView a = actual.get(i);
+			String message = name + ": view #" + i;
+			Assert.assertEquals(message, e.getName(), a.getName());
+			Assert.assertEquals(message, e.getSceneWidth(), a.getSceneWidth(),
+					EPSILON);
+			Assert.assertEquals(message, e.getSceneHeight(),
+					a.getSceneHeight(), EPSILON);
+			Assert.assertEquals(message, e.getStartX(), a.getStartX(),
+					EPSILON);
+			Assert.assertEquals(message, e.getStartY(), a.getStartY(),
+					EPSILON);
+
+			// stations are written in the order of their names
+			Assert.assertEquals(message + ": number of stations",
+					e.getStations().size(), a.getStations().size());
+			Map<String, XmlViewStation> nameToStation = new HashMap<>();
+			for (XmlViewStation station : a.getStations()) {
+				nameToStation.put(station.getName(), station);
+			}
+			for (XmlViewStation es : e.getStations()) {
+				XmlViewStation as = nameToStation.get(es.getName());
+				String stationMessage = message + ": station " + es.getName();
+				Assert.assertNotNull(stationMessage, as);
+				Assert.assertEquals(stationMessage, es.getLocation().getX(),
+						as.getLocation().getX(), EPSILON);
+				Assert.assertEquals(stationMessage, es.getLocation().getY(),
+						as.getLocation().getY(), EPSILON);
+			}
+
+			Assert.assertEquals(message + ": number of edges",
+					e.getEdges().size(), a.getEdges().size());
+			for (int k = 0; k < e.getEdges().size(); k++) {
+				XmlEdges ee = e.getEdges().get(k);
+				XmlEdges ae = a.getEdges().get(k);
+				String edgesMessage = message + ": edges #" + k;
+				Assert.assertEquals(edgesMessage, ee.getName(), ae.getName());
+				Assert.assertEquals(edgesMessage + ": number of intervals",
+						ee.getIntervals().size(), ae.getIntervals().size());
+				for (int j = 0; j < ee.getIntervals().size(); j++) {
+					XmlInterval ei = ee.getIntervals().get(j);
+					XmlInterval ai = ae.getIntervals().get(j);
+					Assert.assertEquals(edgesMessage, ei.getFrom(),
+							ai.getFrom());
+					Assert.assertEquals(edgesMessage, ei.getTo(), ai.getTo());
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+// Copyright 2019 Sebastian Kuerten
+//
+// This file is part of OpenMetroMaps.
+//
+// OpenMetroMaps is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// OpenMetroMaps is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with OpenMetroMaps. If not, see <http://www.gnu.org/licenses/>.
+
+package org.openmetromaps.maps.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmetromaps.maps.MapModel;
+import org.openmetromaps.maps.model.Coordinate;
+import org.openmetromaps.maps.model.Line;
+import org.openmetromaps.maps.model.Station;
+
+import de.topobyte.xml.domabstraction.iface.ParsingException;
+
+/**
+ * The streaming {@link XmlModelWriter} must produce exactly the same bytes
+ * as the previous writer that serialized a DOM document.
+ */
+public class TestWriterCompatibility
+{
+
+	private static final String[] NAMES = { "Tab\tStation",
+			"New\nLine\r\nStation", "<Ampersand & \"Quotes\" 'Station'>",
+			"Umlaut \u00e4\u00f6\u00fc\u00df Stra\u00dfe",
+			"Supplementary \ud83d\ude87 Station" };
+
+	@Test
+	public void test() throws IOException, ParsingException,
+			ParserConfigurationException
+	{
+		for (String name : ExampleData.MODELS) {
+			byte[] bytes = ExampleData.read(name);
+			Assert.assertArrayEquals(name, writeDom(read(bytes)),
+					write(read(bytes)));
+		}
+	}
+
+	@Test
+	public void testSpecialValues() throws IOException, ParsingException,
+			ParserConfigurationException
+	{
+		for (String name : ExampleData.MODELS) {
+			byte[] bytes = ExampleData.read(name);
+			MapModel expected = read(bytes);
+			MapModel actual = read(bytes);
+			modify(expected);
+			modify(actual);
+			Assert.assertArrayEquals(name, writeDom(expected),
+					write(actual));
+		}
+	}
+
+	/**
+	 * Use names that need escaping and coordinates that are rounded when
+	 * formatted.
+	 */
+	private static void modify(MapModel model)
+	{
+		for (int i = 0; i < NAMES.length; i++) {
+			if (i < model.getData().stations.size()) {
+				Station station = model.getData().stations.get(i);
+				station.setName(NAMES[i] + " " + i);
+				station.setLocation(new Coordinate(-0.0000015 * i,
+						89.9999995 - i / 3.0));
+			}
+			if (i < model.getData().lines.size()) {
+				Line line = model.getData().lines.get(i);
+				line.setName(NAMES[i]);
+			}
+		}
+	}
+
+	private static MapModel read(byte[] bytes) throws ParsingException
+	{
+		return new XmlModelConverter().convert(
+				DesktopXmlModelReader.read(new ByteArrayInputStream(bytes)));
+	}
+
+	private static byte[] write(MapModel model)
+			throws ParserConfigurationException, IOException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new XmlModelWriter().write(baos, model.getData(), model.getViews());
+		return baos.toByteArray();
+	}
+
+	private static byte[] writeDom(MapModel model)
+			throws ParserConfigurationException, IOException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new DomXmlModelWriter().write(baos, model.getData(),
+				model.getViews());
+		return baos.toByteArray();
+	}
+
+}